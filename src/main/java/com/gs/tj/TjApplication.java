@@ -3,13 +3,20 @@ package com.gs.tj;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for the Travel Journal application.
  * This class serves as the entry point for the Spring Boot application.
+ * Caching wraps transactions, so a cache hit opens none and a cache load, run on whichever
+ * thread loads it, opens its own.
  */
 @SpringBootApplication
-@EnableCaching
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+@EnableJpaAuditing
+@EnableScheduling
 public class TjApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,151 @@
+package com.gs.tj.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.gs.tj.config.TieredCacheProperties;
+import com.gs.tj.dto.FeedPage;
+import com.gs.tj.dto.Identified;
+import com.gs.tj.entity.BaseEntity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records which cache entries depend on which entities, so that a write evicts only the
+ * entries it affects.
+ * <p>
+ * Whenever an entity, an {@link Identified} read model of one, or a collection or
+ * {@link FeedPage} of either is cached, its key is added to a Redis set per contained entity id ({@code id:<id>}) and, for
+ * string keys, to a set for the key's prefix before the first colon ({@code prefix:user}, {@code prefix:tag}). Collections
+ * larger than {@link #MAX_TRACKED_IDS} are recorded under {@link #ANY} instead, and are
+ * evicted by every write to their cache. The sets expire with the cache entries they point
+ * to, so keys evicted by other means do not accumulate.
+ */
+@Slf4j
+public class CacheDependencyTracker {
+
+    /** Dependency of entries that must be evicted by every write to their cache. */
+    public static final String ANY = "any";
+
+    static final int MAX_TRACKED_IDS = 1000;
+
+    private static final String KEY_PREFIX = "cache-deps:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final TieredCacheProperties properties;
+
+    public CacheDependencyTracker(StringRedisTemplate redisTemplate, TieredCacheProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    public static String entity(Long id) {
+        return "id:" + id;
+    }
+
+    public static String keyPrefix(String prefix) {
+        return "prefix:" + prefix;
+    }
+
+    /**
+     * Record the dependencies of an entry that has just been cached.
+     */
+    public void track(String cacheName, Object key, Object value) {
+        String member = CacheKeys.encode(key);
+        if (member == null) {
+            return;
+        }
+        Set<String> dependencies = dependencies(key, value);
+        if (dependencies.isEmpty()) {
+            return;
+        }
+        byte[] rawMember = member.getBytes(StandardCharsets.UTF_8);
+        long ttlSeconds = Math.max(1, properties.resolve(cacheName).getTtl().toSeconds());
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String dependency : dependencies) {
+                    byte[] setKey = setKey(cacheName, dependency).getBytes(StandardCharsets.UTF_8);
+                    connection.setCommands().sAdd(setKey, rawMember);
+                    connection.keyCommands().expire(setKey, ttlSeconds);
+                }
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            // The entry is still bounded by its time to live.
+            log.warn("Failed to track dependencies of {} in cache {}", key, cacheName, ex);
+        }
+    }
+
+    /**
+     * Remove and return the keys of every entry that depends on any of the given dependencies.
+     */
+    public Set<Object> takeDependents(String cacheName, Collection<String> dependencies) {
+        List<String> setKeys = dependencies.stream().map(dependency -> setKey(cacheName, dependency)).toList();
+        Set<String> members = redisTemplate.opsForSet().union(setKeys);
+        redisTemplate.delete(setKeys);
+        if (members == null) {
+            return Set.of();
+        }
+        Set<Object> keys = new LinkedHashSet<>();
+        members.stream().map(CacheKeys::decode).filter(Objects::nonNull).forEach(keys::add);
+        return keys;
+    }
+
+    private static Set<String> dependencies(Object key, Object value) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        if (key instanceof String text) {
+            int colon = text.indexOf(':');
+            dependencies.add(keyPrefix(colon < 0 ? text : text.substring(0, colon)));
+        }
+        Long id = idOf(value);
+        if (id != null) {
+            dependencies.add(entity(id));
+        } else if (items(value) instanceof Collection<?> items) {
+            if (items.size() > MAX_TRACKED_IDS) {
+                dependencies.add(ANY);
+                return dependencies;
+            }
+            for (Object item : items) {
+                Long itemId = idOf(item);
+                if (itemId != null) {
+                    dependencies.add(entity(itemId));
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Elements of a collection or feed page, otherwise null.
+     */
+    private static Collection<?> items(Object value) {
+        if (value instanceof FeedPage page) {
+            return page.getItems();
+        }
+        return value instanceof Collection<?> items ? items : null;
+    }
+
+    /**
+     * Id of an entity or of a read model built from one, otherwise null.
+     */
+    private static Long idOf(Object value) {
+        if (value instanceof BaseEntity entity) {
+            return entity.getId();
+        }
+        if (value instanceof Identified identified) {
+            return identified.id();
+        }
+        return null;
+    }
+
+    private static String setKey(String cacheName, String dependency) {
+        return KEY_PREFIX + cacheName + ":" + dependency;
+    }
+}
@@ -0,0 +1,11 @@
+package com.gs.tj.cache;
+
+/**
+ * Announces evictions from a {@link TieredCache} to the other application nodes.
+ */
+public interface CacheInvalidationPublisher {
+
+    void publishEvict(String cacheName, Object key);
+
+    void publishClear(String cacheName);
+}
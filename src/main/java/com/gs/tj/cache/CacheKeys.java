@@ -0,0 +1,40 @@
+package com.gs.tj.cache;
+
+/**
+ * Type-tagged string form of cache keys, for keys that travel through Redis outside the
+ * cache entries themselves: {@code L:} for Long, {@code I:} for Integer and {@code S:} for
+ * String keys.
+ */
+public final class CacheKeys {
+
+    private CacheKeys() {
+    }
+
+    /**
+     * @return The encoded key, or null if keys of its type are not supported
+     */
+    public static String encode(Object key) {
+        return switch (key) {
+            case Long value -> "L:" + value;
+            case Integer value -> "I:" + value;
+            case String value -> "S:" + value;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return The decoded key, or null if the encoding is not recognised
+     */
+    public static Object decode(String encoded) {
+        if (encoded.length() < 2 || encoded.charAt(1) != ':') {
+            return null;
+        }
+        String value = encoded.substring(2);
+        return switch (encoded.charAt(0)) {
+            case 'L' -> Long.valueOf(value);
+            case 'I' -> Integer.valueOf(value);
+            case 'S' -> value;
+            default -> null;
+        };
+    }
+}
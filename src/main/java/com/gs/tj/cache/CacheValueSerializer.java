@@ -0,0 +1,172 @@
+package com.gs.tj.cache;
+
+import java.nio.ByteBuffer;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Redis serializer for cache values that writes either the original type-tagged JSON or a
+ * compact binary form, and reads both.
+ * <p>
+ * Binary values are Smile, Jackson's binary JSON, with the same type hints as the JSON
+ * form. Smile writes numbers in binary and back-references repeated property names and
+ * short strings, such as the class names of list elements. They start with a schema
+ * version byte, then a flags byte; values at least as large as the compression threshold
+ * are LZ4-compressed when that makes them smaller, with the original length in the four
+ * bytes after the flags. JSON values carry no header: they are read as before, so entries
+ * written by older nodes stay readable during a rolling deploy. An entry with a version
+ * this node does not know is treated as a miss and reloaded. This covers the encoding
+ * only; when the type cached under a name changes, {@code tj.cache.key-version} keeps the
+ * old entries out of reach instead.
+ */
+@Slf4j
+public class CacheValueSerializer implements RedisSerializer<Object> {
+
+    /**
+     * Form in which new values are written.
+     */
+    public enum Format {
+        /** Type-tagged JSON, as written by {@link GenericJackson2JsonRedisSerializer}. */
+        JSON,
+        /** Versioned Smile, optionally LZ4-compressed. */
+        SMILE
+    }
+
+    /** Version of the binary layout; never a byte that can start a JSON document. */
+    static final byte SMILE_V1 = 0x01;
+    static final byte FLAG_LZ4 = 0x01;
+    private static final int HEADER_LENGTH = 2;
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final Format format;
+    private final int compressionThreshold;
+    private final GenericJackson2JsonRedisSerializer json;
+    private final GenericJackson2JsonRedisSerializer smile;
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    /**
+     * @param format Form of newly written values
+     * @param compressionThreshold Smallest encoded size in bytes that is compressed; 0 or
+     *        less disables compression
+     */
+    public CacheValueSerializer(Format format, int compressionThreshold) {
+        this.format = format;
+        this.compressionThreshold = compressionThreshold > 0 ? compressionThreshold : Integer.MAX_VALUE;
+        this.json = GenericJackson2JsonRedisSerializer.builder()
+                .objectMapper(new ObjectMapper().registerModule(new JavaTimeModule()))
+                .defaultTyping(true)
+                .build();
+        // Shared string values need the Smile header, which declares them to the reader.
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        this.smile = GenericJackson2JsonRedisSerializer.builder()
+                .objectMapper(SmileMapper.builder(smileFactory).addModule(new JavaTimeModule()).build())
+                .defaultTyping(true)
+                .build();
+        LZ4Factory lz4 = LZ4Factory.fastestJavaInstance();
+        this.compressor = lz4.fastCompressor();
+        this.decompressor = lz4.safeDecompressor();
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (format == Format.JSON) {
+            return json.serialize(value);
+        }
+        byte[] payload = smile.serialize(value);
+        if (payload.length >= compressionThreshold) {
+            byte[] compressed = compress(payload);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        byte[] bytes = new byte[HEADER_LENGTH + payload.length];
+        bytes[0] = SMILE_V1;
+        System.arraycopy(payload, 0, bytes, HEADER_LENGTH, payload.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        byte version = bytes[0];
+        if (version == SMILE_V1) {
+            return smile.deserialize(payload(bytes));
+        }
+        if (startsJson(version)) {
+            return json.deserialize(bytes);
+        }
+        log.debug("Ignoring cache value with unknown schema version {}", version);
+        return null;
+    }
+
+    /**
+     * @return The compressed value with its header, or null if compression does not pay off
+     */
+    private byte[] compress(byte[] payload) {
+        int offset = HEADER_LENGTH + LENGTH_BYTES;
+        byte[] target = new byte[offset + compressor.maxCompressedLength(payload.length)];
+        int length = compressor.compress(payload, 0, payload.length, target, offset);
+        if (offset + length >= HEADER_LENGTH + payload.length) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(target);
+        header.put(SMILE_V1).put(FLAG_LZ4).putInt(payload.length);
+        byte[] bytes = new byte[offset + length];
+        System.arraycopy(target, 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private byte[] payload(byte[] bytes) {
+        if (bytes.length < HEADER_LENGTH) {
+            throw new SerializationException("Truncated cache value");
+        }
+        if ((bytes[1] & FLAG_LZ4) == 0) {
+            byte[] payload = new byte[bytes.length - HEADER_LENGTH];
+            System.arraycopy(bytes, HEADER_LENGTH, payload, 0, payload.length);
+            return payload;
+        }
+        int offset = HEADER_LENGTH + LENGTH_BYTES;
+        if (bytes.length < offset) {
+            throw new SerializationException("Truncated cache value");
+        }
+        int length = ByteBuffer.wrap(bytes, HEADER_LENGTH, LENGTH_BYTES).getInt();
+        byte[] payload = new byte[length];
+        try {
+            int written = decompressor.decompress(bytes, offset, bytes.length - offset, payload, 0);
+            if (written != length) {
+                throw new SerializationException("Corrupt compressed cache value");
+            }
+        } catch (LZ4Exception ex) {
+            throw new SerializationException("Corrupt compressed cache value", ex);
+        }
+        return payload;
+    }
+
+    /**
+     * Whether a byte can start a JSON document as written by Jackson.
+     */
+    private static boolean startsJson(byte first) {
+        return first == '{' || first == '[' || first == '"' || first == '-' || (first >= '0' && first <= '9')
+                || first == 't' || first == 'f' || first == 'n' || first == ' ' || first == '\t'
+                || first == '\n' || first == '\r';
+    }
+}
@@ -0,0 +1,231 @@
+package com.gs.tj.cache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gs.tj.config.TieredCacheProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads missing cache entries so that a hot key expiring does not send every concurrent
+ * reader to the database.
+ * <p>
+ * Within a node, concurrent misses for one key share a single in-flight load. Across nodes,
+ * the loading node holds a short Redis lease on the key; other nodes poll Redis for the
+ * value it writes instead of loading it themselves, and load anyway once the lease wait is
+ * over. Hits are refreshed early with probability rising as expiry nears ("XFetch"): an
+ * entry whose last load took {@code delta} is refreshed in the background when
+ * {@code delta * beta * -ln(random)} reaches its remaining time to live, so hot entries are
+ * usually replaced before they expire while cold ones are left to expire. Since local-tier
+ * hits do not reach this check, the remaining time is reduced by the local time to live.
+ * <p>
+ * Loaders must not depend on the thread of the caller that triggered them. A load runs on
+ * the thread of the first concurrent caller, and an early refresh runs on a background
+ * thread, after the request that triggered it may have completed. Neither has that
+ * request's transaction, security context or request attributes. The cached service
+ * methods qualify: they take everything from their arguments, and because caching is
+ * ordered outside transactions (see {@code TjApplication}), each load opens its own
+ * transaction.
+ */
+@Slf4j
+public class SingleFlightLoader {
+
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private record Flight(String cacheName, Object key) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final TieredCacheProperties properties;
+    private final TieredCacheProperties.Stampede settings;
+    private final ConcurrentMap<Flight, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Set<Flight> refreshing = ConcurrentHashMap.newKeySet();
+    /** Duration of the last load of each key on this node, in milliseconds. */
+    private final com.github.benmanes.caffeine.cache.Cache<Flight, Long> loadMillis;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SingleFlightLoader(StringRedisTemplate redisTemplate, TieredCacheProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.settings = properties.getStampede();
+        this.loadMillis = Caffeine.newBuilder().maximumSize(settings.getTrackedKeys()).build();
+    }
+
+    /**
+     * Load a missing entry and store it, sharing the load with concurrent callers.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(TieredCache cache, Object key, Callable<T> loader) {
+        Flight flight = new Flight(cache.getName(), key);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flight, future);
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof Cache.ValueRetrievalException retrieval ? retrieval
+                        : new Cache.ValueRetrievalException(key, loader, ex.getCause());
+            }
+        }
+        try {
+            Object value = loadWithLease(cache, flight, loader);
+            future.complete(value);
+            return (T) value;
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Cache.ValueRetrievalException failure = ex instanceof Cache.ValueRetrievalException retrieval ? retrieval
+                    : new Cache.ValueRetrievalException(key, loader, ex);
+            future.completeExceptionally(failure);
+            throw failure;
+        } finally {
+            inFlight.remove(flight, future);
+        }
+    }
+
+    /**
+     * Reload an entry in the background if it is due for an early refresh. At most one
+     * refresh of a key runs at a time on a node, and only the lease holder runs it. Once
+     * the loader is shut down, no refresh is started.
+     */
+    public void refreshIfDue(TieredCache cache, Object key, Callable<?> loader) {
+        Flight flight = new Flight(cache.getName(), key);
+        try {
+            if (refreshing.contains(flight) || !refreshDue(flight) || !refreshing.add(flight)) {
+                return;
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to check {} in cache {} for early refresh", key, cache.getName(), ex);
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                String token = UUID.randomUUID().toString();
+                try {
+                    if (tryLease(flight, token)) {
+                        try {
+                            loadAndStore(cache, flight, loader);
+                        } finally {
+                            releaseLease(flight, token);
+                        }
+                    }
+                } catch (Exception ex) {
+                    // The current entry stays in place until it expires.
+                    log.warn("Early refresh of {} in cache {} failed", key, cache.getName(), ex);
+                } finally {
+                    refreshing.remove(flight);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Shutting down; the entry expires as usual.
+            refreshing.remove(flight);
+        }
+    }
+
+    /**
+     * Stop running early refreshes, interrupting those in progress; their leases expire on
+     * their own.
+     */
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private Object loadWithLease(TieredCache cache, Flight flight, Callable<?> loader) throws Exception {
+        String token = UUID.randomUUID().toString();
+        long deadline = System.nanoTime() + settings.getLeaseWait().toNanos();
+        while (!tryLease(flight, token)) {
+            if (System.nanoTime() >= deadline) {
+                // The lease holder is slow or gone; load without it rather than fail.
+                return loadAndStore(cache, flight, loader);
+            }
+            Thread.sleep(settings.getPollInterval().toMillis());
+            ValueWrapper written = cache.getRemote(flight.key());
+            if (written != null) {
+                return written.get();
+            }
+        }
+        try {
+            // Another node may have written the entry between our miss and the lease.
+            ValueWrapper written = cache.getRemote(flight.key());
+            return written != null ? written.get() : loadAndStore(cache, flight, loader);
+        } finally {
+            releaseLease(flight, token);
+        }
+    }
+
+    private Object loadAndStore(TieredCache cache, Flight flight, Callable<?> loader) throws Exception {
+        long start = System.nanoTime();
+        Object value = loader.call();
+        loadMillis.put(flight, Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        if (value != null) {
+            cache.put(flight.key(), value);
+        }
+        return value;
+    }
+
+    private boolean refreshDue(Flight flight) {
+        Long delta = loadMillis.getIfPresent(flight);
+        if (delta == null || settings.getEarlyRefreshBeta() <= 0) {
+            // Only keys this node has loaded have a known cost, and only they are refreshed early.
+            return false;
+        }
+        double gap = delta * settings.getEarlyRefreshBeta() * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        Long remaining = redisTemplate.getExpire(entryKey(flight), TimeUnit.MILLISECONDS);
+        if (remaining == null || remaining <= 0) {
+            return false;
+        }
+        // Hits in the local tier skip this check, so the next one may be a local TTL away.
+        TieredCacheProperties.Spec spec = properties.resolve(flight.cacheName());
+        long horizon = spec.getLocalMaxSize() > 0 ? spec.getLocalTtl().toMillis() : 0;
+        return gap >= remaining - horizon;
+    }
+
+    private boolean tryLease(Flight flight, String token) {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey(flight), token, settings.getLeaseTtl());
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    private void releaseLease(Flight flight, String token) {
+        try {
+            redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey(flight)), token);
+        } catch (RuntimeException ex) {
+            // The lease expires on its own.
+            log.warn("Failed to release cache lease {}", leaseKey(flight), ex);
+        }
+    }
+
+    /**
+     * Key under which {@code RedisCache} stores the entry.
+     */
+    private String entryKey(Flight flight) {
+        return properties.keyPrefix(flight.cacheName()) + flight.key();
+    }
+
+    private String leaseKey(Flight flight) {
+        return "cache-lease:" + entryKey(flight);
+    }
+}
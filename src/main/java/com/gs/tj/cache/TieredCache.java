@@ -0,0 +1,210 @@
+package com.gs.tj.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Two-level cache: an optional bounded in-process tier in front of a shared Redis tier.
+ * <p>
+ * Reads try the local tier first and fill it from Redis on a miss. Writes go to Redis and
+ * then to the local tier. Evictions and clears are applied to both tiers and announced to
+ * the other nodes, which drop the entry from their local tier only. A node that misses an
+ * announcement serves the stale entry for at most the local time to live. Values held in
+ * the local tier are shared between callers and must be treated as read-only. Every value
+ * written is reported to a {@link CacheDependencyTracker}, when one is given, so writes
+ * elsewhere can evict exactly the entries that depend on them. Loads through
+ * {@link #get(Object, Callable)}, as used by {@code @Cacheable(sync = true)}, go through a
+ * {@link SingleFlightLoader} when one is given.
+ */
+public class TieredCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationPublisher invalidations;
+    private final CacheDependencyTracker dependencies;
+    private final SingleFlightLoader loader;
+
+    final LongAdder localHits = new LongAdder();
+    final LongAdder localMisses = new LongAdder();
+    final LongAdder remoteHits = new LongAdder();
+    final LongAdder remoteMisses = new LongAdder();
+
+    /**
+     * @param local In-process tier, or null to use Redis only
+     * @param remote Redis tier
+     * @param invalidations Where evictions are announced to other nodes
+     * @param dependencies Where the dependencies of new entries are recorded, or null
+     * @param loader Coordinates loads of missing and expiring entries, or null to let every
+     *        caller load
+     */
+    public TieredCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+            Cache remote, CacheInvalidationPublisher invalidations, CacheDependencyTracker dependencies,
+            SingleFlightLoader loader) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidations = invalidations;
+        this.dependencies = dependencies;
+        this.loader = loader;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        if (local != null) {
+            Object value = local.getIfPresent(key);
+            if (value != null) {
+                localHits.increment();
+                return new SimpleValueWrapper(value);
+            }
+            localMisses.increment();
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        if (local != null && wrapper.get() != null) {
+            local.put(key, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        if (loader == null) {
+            ValueWrapper wrapper = get(key);
+            if (wrapper != null) {
+                return (T) wrapper.get();
+            }
+            T value = remote.get(key, () -> {
+                T loaded = valueLoader.call();
+                track(key, loaded);
+                return loaded;
+            });
+            if (local != null && value != null) {
+                local.put(key, value);
+            }
+            return value;
+        }
+        if (local != null) {
+            Object value = local.getIfPresent(key);
+            if (value != null) {
+                localHits.increment();
+                return (T) value;
+            }
+            localMisses.increment();
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null) {
+            remoteHits.increment();
+            if (local != null && wrapper.get() != null) {
+                local.put(key, wrapper.get());
+            }
+            loader.refreshIfDue(this, key, valueLoader);
+            return (T) wrapper.get();
+        }
+        remoteMisses.increment();
+        return loader.load(this, key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        track(key, value);
+        remote.put(key, value);
+        if (local != null) {
+            if (value != null) {
+                local.put(key, value);
+            } else {
+                local.invalidate(key);
+            }
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        track(key, value);
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        Object current = existing != null ? existing.get() : value;
+        if (local != null && current != null) {
+            local.put(key, current);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        evictLocal(key);
+        invalidations.publishEvict(name, key);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocal();
+        invalidations.publishClear(name);
+    }
+
+    /**
+     * Drop an entry from the local tier only, as announced by another node.
+     */
+    public void evictLocal(Object key) {
+        if (local != null) {
+            local.invalidate(key);
+        }
+    }
+
+    /**
+     * Drop every entry from the local tier only, as announced by another node.
+     */
+    public void clearLocal() {
+        if (local != null) {
+            local.invalidateAll();
+        }
+    }
+
+    /**
+     * Look up an entry in Redis only, bypassing the local tier and the statistics.
+     */
+    ValueWrapper getRemote(Object key) {
+        return remote.get(key);
+    }
+
+    private void track(Object key, Object value) {
+        // Tracked before the entry is stored, so an eviction can never miss a stored entry.
+        if (dependencies != null && value != null) {
+            dependencies.track(name, key, value);
+        }
+    }
+
+    long localSize() {
+        return local != null ? local.estimatedSize() : 0;
+    }
+}
@@ -0,0 +1,163 @@
+package com.gs.tj.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gs.tj.config.TieredCacheProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache manager that puts a Caffeine tier in front of every cache of a {@link RedisCacheManager}.
+ * <p>
+ * Local tiers are sized and expired per cache from {@link TieredCacheProperties}; Caffeine's
+ * W-TinyLFU policy keeps the entries most likely to be read again. Evictions are announced
+ * on a Redis channel as {@code node|cache|key}, with the key encoded by {@link CacheKeys} so
+ * the receiving node can rebuild it; any other key type clears that cache's local tier on
+ * the other nodes. Loads of missing and expiring entries are coordinated by one
+ * {@link SingleFlightLoader}. Each cache reports
+ * {@code cache.gets} per tier and result, and the size of its local tier, to Micrometer.
+ */
+@Slf4j
+public class TieredCacheManager implements CacheManager, CacheInvalidationPublisher, MessageListener {
+
+    private static final String CLEAR = "*";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisCacheManager remote;
+    private final TieredCacheProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final CacheDependencyTracker dependencies;
+    private final SingleFlightLoader loader;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TieredCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param dependencies Where the dependencies of new entries are recorded, or null
+     * @param meterRegistry Registry for cache metrics, or null to skip them
+     */
+    public TieredCacheManager(RedisCacheManager remote, TieredCacheProperties properties,
+            StringRedisTemplate redisTemplate, CacheDependencyTracker dependencies, MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.dependencies = dependencies;
+        this.loader = new SingleFlightLoader(redisTemplate, properties);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdown();
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TieredCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache redisCache = remote.getCache(name);
+        if (redisCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> register(create(key, redisCache)));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(Set.copyOf(caches.keySet()));
+    }
+
+    @Override
+    public void publishEvict(String cacheName, Object key) {
+        String encoded = CacheKeys.encode(key);
+        publish(cacheName, encoded != null ? encoded : CLEAR);
+    }
+
+    @Override
+    public void publishClear(String cacheName) {
+        publish(cacheName, CLEAR);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody()).split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TieredCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts[2].equals(CLEAR)) {
+            cache.clearLocal();
+            return;
+        }
+        Object key = CacheKeys.decode(parts[2]);
+        if (key != null) {
+            cache.evictLocal(key);
+        }
+    }
+
+    private void publish(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(properties.getInvalidationChannel(), String.join("|", nodeId, cacheName, key));
+        } catch (RuntimeException ex) {
+            // Other nodes' local entries expire on their own after the local time to live.
+            log.warn("Failed to announce eviction from cache {}", cacheName, ex);
+        }
+    }
+
+    private TieredCache create(String name, Cache redisCache) {
+        TieredCacheProperties.Spec spec = properties.resolve(name);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = null;
+        if (spec.getLocalMaxSize() > 0) {
+            local = Caffeine.newBuilder()
+                    .maximumSize(spec.getLocalMaxSize())
+                    .expireAfterWrite(spec.getLocalTtl())
+                    .build();
+        }
+        return new TieredCache(name, local, redisCache, this, dependencies, loader);
+    }
+
+    private TieredCache register(TieredCache cache) {
+        if (meterRegistry == null) {
+            return cache;
+        }
+        String name = cache.getName();
+        counter(name, "local", "hit", cache, c -> c.localHits.sum());
+        counter(name, "local", "miss", cache, c -> c.localMisses.sum());
+        counter(name, "remote", "hit", cache, c -> c.remoteHits.sum());
+        counter(name, "remote", "miss", cache, c -> c.remoteMisses.sum());
+        Gauge.builder("cache.size", cache, TieredCache::localSize)
+                .tags("cache", name, "tier", "local")
+                .description("Number of entries in the local tier")
+                .register(meterRegistry);
+        return cache;
+    }
+
+    private void counter(String name, String tier, String result, TieredCache cache,
+            java.util.function.ToDoubleFunction<TieredCache> count) {
+        FunctionCounter.builder("cache.gets", cache, count)
+                .tags("cache", name, "tier", tier, "result", result)
+                .description("Cache lookups per tier and result")
+                .register(meterRegistry);
+    }
+}
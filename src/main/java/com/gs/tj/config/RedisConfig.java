@@ -1,8 +1,11 @@
 package com.gs.tj.config;
 
-import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -12,16 +15,28 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import com.gs.tj.cache.CacheDependencyTracker;
+import com.gs.tj.cache.CacheValueSerializer;
+import com.gs.tj.cache.TieredCacheManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
- * Configuration class for Redis caching.
- * Sets up Redis cache manager with appropriate serialization and default TTL.
+ * Configuration class for Redis caching and messaging.
+ * Sets up a two-level cache manager, with a bounded in-process tier in front of Redis,
+ * per-cache TTLs from {@code tj.cache}, versioned keys and compact binary values, the tracker that records
+ * which cached entries depend on which entities, and the listener container used for
+ * cross-node pub/sub.
  */
 @Configuration
+@EnableConfigurationProperties(TieredCacheProperties.class)
 @Import(RedisRepositoriesAutoConfiguration.class)
 @EnableRedisRepositories(
     basePackages = "com.gs.tj.repository.redis",
@@ -38,15 +53,46 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 public class RedisConfig {
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofHours(1))
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, TieredCacheProperties properties,
+            StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer,
+            CacheDependencyTracker cacheDependencyTracker, ObjectProvider<MeterRegistry> meterRegistry) {
+        CacheValueSerializer valueSerializer = new CacheValueSerializer(properties.getCodec(),
+                (int) properties.getCompressionThreshold().toBytes());
+        Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+        properties.getCaches().keySet()
+                .forEach(name -> perCache.put(name, redisCacheConfiguration(properties, name, valueSerializer)));
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(redisCacheConfiguration(properties, null, valueSerializer))
+                .withInitialCacheConfigurations(perCache)
+                .build();
+        redisCacheManager.afterPropertiesSet();
+
+        TieredCacheManager cacheManager = new TieredCacheManager(redisCacheManager, properties, redisTemplate,
+                cacheDependencyTracker, meterRegistry.getIfAvailable());
+        listenerContainer.addMessageListener(cacheManager, new ChannelTopic(properties.getInvalidationChannel()));
+        return cacheManager;
+    }
+
+    @Bean
+    public CacheDependencyTracker cacheDependencyTracker(StringRedisTemplate redisTemplate, TieredCacheProperties properties) {
+        return new CacheDependencyTracker(redisTemplate, properties);
+    }
+
+    private static RedisCacheConfiguration redisCacheConfiguration(TieredCacheProperties properties, String cacheName,
+            CacheValueSerializer valueSerializer) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(properties.resolve(cacheName).getTtl())
+                .computePrefixWith(properties::keyPrefix)
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .disableCachingNullValues();
+    }
 
-        return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(config)
-                .build();
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.gs.tj.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import com.gs.tj.cache.CacheValueSerializer;
+
+import lombok.Data;
+
+/**
+ * Settings of the two-level cache, bound from {@code tj.cache}.
+ * Each cache uses its own entry under {@code caches}, falling back field by field to
+ * {@code defaults}.
+ */
+@Data
+@ConfigurationProperties(prefix = "tj.cache")
+public class TieredCacheProperties {
+
+    /**
+     * Version at the start of every Redis cache key. Bump it whenever the type cached under
+     * a name changes, so nodes never read entries of the old type written by older nodes
+     * or left over from before a deploy.
+     */
+    private String keyVersion = "v4";
+
+    /** Redis channel on which nodes announce evictions to each other's local tier. */
+    private String invalidationChannel = "tj:cache-invalidations";
+
+    /** Form in which new cache values are written to Redis; both forms are always readable. */
+    private CacheValueSerializer.Format codec = CacheValueSerializer.Format.SMILE;
+
+    /** Encoded values at least this large are LZ4-compressed; 0 disables compression. */
+    private DataSize compressionThreshold = DataSize.ofKilobytes(1);
+
+    private Spec defaults = new Spec(Duration.ofHours(1), 10_000L, Duration.ofMinutes(1));
+
+    private Map<String, Spec> caches = new HashMap<>();
+
+    private Stampede stampede = new Stampede();
+
+    /**
+     * Settings of one cache; null fields fall back to the defaults.
+     */
+    @Data
+    public static class Spec {
+        /** Time to live in Redis. */
+        private Duration ttl;
+        /** Maximum number of entries kept in process; 0 disables the local tier. */
+        private Long localMaxSize;
+        /** Time to live in process, bounding how stale a missed invalidation can leave it. */
+        private Duration localTtl;
+
+        public Spec() {
+        }
+
+        public Spec(Duration ttl, Long localMaxSize, Duration localTtl) {
+            this.ttl = ttl;
+            this.localMaxSize = localMaxSize;
+            this.localTtl = localTtl;
+        }
+    }
+
+    /**
+     * Settings of the protection against many callers loading the same missing entry.
+     */
+    @Data
+    public static class Stampede {
+        /** How long a node may hold the cross-node lease while it loads an entry. */
+        private Duration leaseTtl = Duration.ofSeconds(10);
+        /** How long other nodes wait for the lease holder's value before loading it themselves. */
+        private Duration leaseWait = Duration.ofSeconds(5);
+        /** How often waiting nodes look for the lease holder's value. */
+        private Duration pollInterval = Duration.ofMillis(50);
+        /** Eagerness of early refresh; 1 is the usual choice, higher refreshes sooner, 0 disables it. */
+        private double earlyRefreshBeta = 1.0;
+        /** Number of keys whose last load time is remembered for early refresh. */
+        private long trackedKeys = 10_000;
+    }
+
+    /**
+     * Prefix of the Redis keys of a cache's entries.
+     */
+    public String keyPrefix(String cacheName) {
+        return keyVersion + ":" + cacheName + "::";
+    }
+
+    /**
+     * Effective settings of a cache.
+     */
+    public Spec resolve(String cacheName) {
+        Spec spec = caches.getOrDefault(cacheName, new Spec());
+        return new Spec(
+                spec.getTtl() != null ? spec.getTtl() : defaults.getTtl(),
+                spec.getLocalMaxSize() != null ? spec.getLocalMaxSize() : defaults.getLocalMaxSize(),
+                spec.getLocalTtl() != null ? spec.getLocalTtl() : defaults.getLocalTtl());
+    }
+}
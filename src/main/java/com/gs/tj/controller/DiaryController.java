@@ -2,6 +2,7 @@ package com.gs.tj.controller;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -15,8 +16,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.gs.tj.dto.DiaryView;
 import com.gs.tj.entity.Diary;
+import com.gs.tj.service.CounterService;
 import com.gs.tj.service.DiaryService;
+import com.gs.tj.service.TrendingService;
+import com.gs.tj.service.TrendingService.Signal;
+import com.gs.tj.service.TrendingService.Subject;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,6 +33,7 @@ import lombok.RequiredArgsConstructor;
 /**
  * Controller for handling diary-related operations.
  * Provides endpoints for diary management, including CRUD operations and additional features.
+ * Read endpoints add pending write-behind likes to the diaries they return.
  */
 @RestController
 @RequestMapping("/api/diaries")
@@ -35,47 +42,52 @@ import lombok.RequiredArgsConstructor;
 public class DiaryController {
 
     private final DiaryService diaryService;
+    private final CounterService counterService;
+    private final TrendingService trendingService;
 
     @PostMapping
     @Operation(summary = "Create a new diary", description = "Creates a new travel diary entry")
-    public ResponseEntity<Diary> createDiary(@Valid @RequestBody Diary diary) {
+    public ResponseEntity<DiaryView> createDiary(@Valid @RequestBody Diary diary) {
         return ResponseEntity.ok(diaryService.createDiary(diary));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get diary by ID", description = "Retrieves a specific diary by its ID")
-    public ResponseEntity<Diary> getDiaryById(
+    public ResponseEntity<DiaryView> getDiaryById(
             @Parameter(description = "ID of the diary to retrieve") @PathVariable Long id) {
-        return diaryService.getDiaryById(id)
+        Optional<DiaryView> diary = diaryService.getDiaryById(id);
+        diary.ifPresent(found -> trendingService.record(Subject.DIARY, id, Signal.VIEW));
+        return diary
+                .map(counterService::applyPending)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get diaries by user", description = "Retrieves all diaries created by a specific user")
-    public ResponseEntity<List<Diary>> getDiariesByUser(
+    public ResponseEntity<List<DiaryView>> getDiariesByUser(
             @Parameter(description = "ID of the user") @PathVariable Long userId) {
-        return ResponseEntity.ok(diaryService.getDiariesByUser(userId));
+        return ResponseEntity.ok(counterService.applyPendingDiaries(diaryService.getDiariesByUser(userId)));
     }
 
     @GetMapping("/location/{locationId}")
     @Operation(summary = "Get diaries by location", description = "Retrieves all diaries associated with a specific location")
-    public ResponseEntity<List<Diary>> getDiariesByLocation(
+    public ResponseEntity<List<DiaryView>> getDiariesByLocation(
             @Parameter(description = "ID of the location") @PathVariable Long locationId) {
-        return ResponseEntity.ok(diaryService.getDiariesByLocation(locationId));
+        return ResponseEntity.ok(counterService.applyPendingDiaries(diaryService.getDiariesByLocation(locationId)));
     }
 
     @GetMapping("/date-range")
     @Operation(summary = "Get diaries by date range", description = "Retrieves diaries within a specified date range")
-    public ResponseEntity<List<Diary>> getDiariesByDateRange(
+    public ResponseEntity<List<DiaryView>> getDiariesByDateRange(
             @Parameter(description = "Start date") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "End date") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        return ResponseEntity.ok(diaryService.getDiariesByDateRange(startDate, endDate));
+        return ResponseEntity.ok(counterService.applyPendingDiaries(diaryService.getDiariesByDateRange(startDate, endDate)));
     }
 
     @PutMapping("/{id}")
     @Operation(summary = "Update diary", description = "Updates an existing diary with new details")
-    public ResponseEntity<Diary> updateDiary(
+    public ResponseEntity<DiaryView> updateDiary(
             @Parameter(description = "ID of the diary to update") @PathVariable Long id,
             @Valid @RequestBody Diary diaryDetails) {
         return ResponseEntity.ok(diaryService.updateDiary(id, diaryDetails));
@@ -91,7 +103,7 @@ public class DiaryController {
 
     @PostMapping("/{diaryId}/comments")
     @Operation(summary = "Add comment to diary", description = "Adds a comment to a specific diary")
-    public ResponseEntity<Diary> addComment(
+    public ResponseEntity<DiaryView> addComment(
             @Parameter(description = "ID of the diary") @PathVariable Long diaryId,
             @Parameter(description = "Comment to add") @RequestParam String comment) {
         return ResponseEntity.ok(diaryService.addComment(diaryId, comment));
@@ -99,7 +111,7 @@ public class DiaryController {
 
     @PostMapping("/{diaryId}/tags")
     @Operation(summary = "Add tag to diary", description = "Adds a tag to a specific diary")
-    public ResponseEntity<Diary> addTag(
+    public ResponseEntity<DiaryView> addTag(
             @Parameter(description = "ID of the diary") @PathVariable Long diaryId,
             @Parameter(description = "Tag to add") @RequestParam String tag) {
         return ResponseEntity.ok(diaryService.addTag(diaryId, tag));
@@ -107,31 +119,38 @@ public class DiaryController {
 
     @DeleteMapping("/{diaryId}/tags/{tag}")
     @Operation(summary = "Remove tag from diary", description = "Removes a tag from a specific diary")
-    public ResponseEntity<Diary> removeTag(
+    public ResponseEntity<DiaryView> removeTag(
             @Parameter(description = "ID of the diary") @PathVariable Long diaryId,
             @Parameter(description = "Tag to remove") @PathVariable String tag) {
         return ResponseEntity.ok(diaryService.removeTag(diaryId, tag));
     }
 
+    @PostMapping("/{diaryId}/like")
+    @Operation(summary = "Like diary", description = "Adds one like to a specific diary")
+    public ResponseEntity<DiaryView> likeDiary(
+            @Parameter(description = "ID of the diary") @PathVariable Long diaryId) {
+        return ResponseEntity.ok(diaryService.likeDiary(diaryId));
+    }
+
     @GetMapping("/tag/{tag}")
     @Operation(summary = "Get diaries by tag", description = "Retrieves all diaries with a specific tag")
-    public ResponseEntity<List<Diary>> getDiariesByTag(
+    public ResponseEntity<List<DiaryView>> getDiariesByTag(
             @Parameter(description = "Tag to search for") @PathVariable String tag) {
-        return ResponseEntity.ok(diaryService.getDiariesByTag(tag));
+        return ResponseEntity.ok(counterService.applyPendingDiaries(diaryService.getDiariesByTag(tag)));
     }
 
     @GetMapping("/popular")
     @Operation(summary = "Get popular diaries", description = "Retrieves popular diaries based on likes")
-    public ResponseEntity<List<Diary>> getPopularDiaries(
+    public ResponseEntity<List<DiaryView>> getPopularDiaries(
             @Parameter(description = "Maximum number of diaries to return") @RequestParam(defaultValue = "10") int limit) {
-        return ResponseEntity.ok(diaryService.getPopularDiaries(limit));
+        return ResponseEntity.ok(counterService.applyPendingDiaries(diaryService.getPopularDiaries(limit)));
     }
 
     @GetMapping("/recommended")
     @Operation(summary = "Get recommended diaries", description = "Retrieves personalized diary recommendations for a user")
-    public ResponseEntity<List<Diary>> getRecommendedDiaries(
+    public ResponseEntity<List<DiaryView>> getRecommendedDiaries(
             @Parameter(description = "ID of the user") @RequestParam Long userId,
             @Parameter(description = "Maximum number of diaries to return") @RequestParam(defaultValue = "10") int limit) {
-        return ResponseEntity.ok(diaryService.getRecommendedDiaries(userId, limit));
+        return ResponseEntity.ok(counterService.applyPendingDiaries(diaryService.getRecommendedDiaries(userId, limit)));
     }
 } 
\ No newline at end of file
@@ -1,19 +1,28 @@
 package com.gs.tj.controller;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
 import java.time.LocalDate;
 
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.gs.tj.dto.ExportJob;
+import com.gs.tj.exception.ResourceNotFoundException;
+import com.gs.tj.service.ExportJobService;
 import com.gs.tj.service.ExportService;
+import com.gs.tj.service.ExportService.ExportWriter;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -23,6 +32,9 @@ import lombok.RequiredArgsConstructor;
 /**
  * Controller for handling data export operations.
  * Provides endpoints for exporting diaries, routes, and user data in various formats.
+ * Exports are streamed to the client as they are written, outside the request thread.
+ * Long-running user exports can also be submitted as background jobs, polled and downloaded
+ * once complete; downloads support HTTP range requests, so interrupted ones can resume.
  */
 @RestController
 @RequestMapping("/api/export")
@@ -31,6 +43,7 @@ import lombok.RequiredArgsConstructor;
 public class ExportController {
 
     private final ExportService exportService;
+    private final ExportJobService exportJobService;
 
     // Custom MediaType constants
     private static final MediaType APPLICATION_GPX_XML = MediaType.parseMediaType("application/gpx+xml");
@@ -40,82 +53,139 @@ public class ExportController {
 
     @GetMapping("/diary/{diaryId}/pdf")
     @Operation(summary = "Export diary to PDF", description = "Exports a diary to PDF format")
-    public ResponseEntity<byte[]> exportDiaryToPdf(
+    public ResponseEntity<StreamingResponseBody> exportDiaryToPdf(
             @Parameter(description = "ID of the diary to export") @PathVariable Long diaryId) {
-        ByteArrayOutputStream outputStream = exportService.exportDiaryToPdf(diaryId);
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=diary_" + diaryId + ".pdf")
-                .body(outputStream.toByteArray());
+        return download(exportService.exportDiaryToPdf(diaryId), MediaType.APPLICATION_PDF,
+                "diary_" + diaryId + ".pdf");
     }
 
     @GetMapping("/diary/{diaryId}/markdown")
     @Operation(summary = "Export diary to Markdown", description = "Exports a diary to Markdown format")
-    public ResponseEntity<byte[]> exportDiaryToMarkdown(
+    public ResponseEntity<StreamingResponseBody> exportDiaryToMarkdown(
             @Parameter(description = "ID of the diary to export") @PathVariable Long diaryId) {
-        ByteArrayOutputStream outputStream = exportService.exportDiaryToMarkdown(diaryId);
-        return ResponseEntity.ok()
-                .contentType(MediaType.TEXT_MARKDOWN)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=diary_" + diaryId + ".md")
-                .body(outputStream.toByteArray());
+        return download(exportService.exportDiaryToMarkdown(diaryId), MediaType.TEXT_MARKDOWN,
+                "diary_" + diaryId + ".md");
     }
 
     @GetMapping("/route/{routeId}/gpx")
     @Operation(summary = "Export route to GPX", description = "Exports a route to GPX format")
-    public ResponseEntity<byte[]> exportRouteToGpx(
+    public ResponseEntity<StreamingResponseBody> exportRouteToGpx(
             @Parameter(description = "ID of the route to export") @PathVariable Long routeId) {
-        ByteArrayOutputStream outputStream = exportService.exportRouteToGpx(routeId);
-        return ResponseEntity.ok()
-                .contentType(APPLICATION_GPX_XML)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=route_" + routeId + ".gpx")
-                .body(outputStream.toByteArray());
+        return download(exportService.exportRouteToGpx(routeId), APPLICATION_GPX_XML,
+                "route_" + routeId + ".gpx");
     }
 
     @GetMapping("/route/{routeId}/kml")
     @Operation(summary = "Export route to KML", description = "Exports a route to KML format")
-    public ResponseEntity<byte[]> exportRouteToKml(
+    public ResponseEntity<StreamingResponseBody> exportRouteToKml(
             @Parameter(description = "ID of the route to export") @PathVariable Long routeId) {
-        ByteArrayOutputStream outputStream = exportService.exportRouteToKml(routeId);
-        return ResponseEntity.ok()
-                .contentType(APPLICATION_VND_GOOGLE_EARTH_KML_XML)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=route_" + routeId + ".kml")
-                .body(outputStream.toByteArray());
+        return download(exportService.exportRouteToKml(routeId), APPLICATION_VND_GOOGLE_EARTH_KML_XML,
+                "route_" + routeId + ".kml");
     }
 
     @GetMapping("/user/{userId}/stats/excel")
     @Operation(summary = "Export user stats to Excel", description = "Exports user's travel statistics to Excel format")
-    public ResponseEntity<byte[]> exportUserStatsToExcel(
+    public ResponseEntity<StreamingResponseBody> exportUserStatsToExcel(
             @Parameter(description = "ID of the user") @PathVariable Long userId,
             @Parameter(description = "Start date for statistics") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "End date for statistics") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        ByteArrayOutputStream outputStream = exportService.exportUserStatsToExcel(userId, startDate, endDate);
-        return ResponseEntity.ok()
-                .contentType(APPLICATION_VND_OPENXMLFORMATS_OFFICEDOCUMENT_SPREADSHEETML_SHEET)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=user_" + userId + "_stats.xlsx")
-                .body(outputStream.toByteArray());
+        return download(exportService.exportUserStatsToExcel(userId, startDate, endDate), APPLICATION_VND_OPENXMLFORMATS_OFFICEDOCUMENT_SPREADSHEETML_SHEET,
+                "user_" + userId + "_stats.xlsx");
     }
 
     @GetMapping("/user/{userId}/memories/zip")
     @Operation(summary = "Export user memories to ZIP", description = "Exports user's travel memories to a ZIP file")
-    public ResponseEntity<byte[]> exportUserMemoriesToZip(
+    public ResponseEntity<StreamingResponseBody> exportUserMemoriesToZip(
             @Parameter(description = "ID of the user") @PathVariable Long userId,
             @Parameter(description = "Start date for memories") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "End date for memories") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        ByteArrayOutputStream outputStream = exportService.exportUserMemoriesToZip(userId, startDate, endDate);
-        return ResponseEntity.ok()
-                .contentType(APPLICATION_ZIP)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=user_" + userId + "_memories.zip")
-                .body(outputStream.toByteArray());
+        return download(exportService.exportUserMemoriesToZip(userId, startDate, endDate), APPLICATION_ZIP,
+                "user_" + userId + "_memories.zip");
     }
 
     @GetMapping("/user/{userId}/timeline/json")
     @Operation(summary = "Export user timeline to JSON", description = "Exports user's travel timeline to JSON format")
-    public ResponseEntity<byte[]> exportUserTimelineToJson(
+    public ResponseEntity<StreamingResponseBody> exportUserTimelineToJson(
+            @Parameter(description = "ID of the user") @PathVariable Long userId) {
+        return download(exportService.exportUserTimelineToJson(userId), MediaType.APPLICATION_JSON,
+                "user_" + userId + "_timeline.json");
+    }
+
+    @PostMapping("/user/{userId}/memories/zip/jobs")
+    @Operation(summary = "Submit a memories ZIP export job", description = "Starts exporting user's travel memories to a ZIP file in the background")
+    public ResponseEntity<ExportJob> submitMemoriesZipJob(
+            @Parameter(description = "ID of the user") @PathVariable Long userId,
+            @Parameter(description = "Start date for memories") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date for memories") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ResponseEntity.accepted()
+                .body(exportJobService.submit(userId, ExportJob.Type.MEMORIES_ZIP, startDate, endDate));
+    }
+
+    @PostMapping("/user/{userId}/stats/excel/jobs")
+    @Operation(summary = "Submit a stats Excel export job", description = "Starts exporting user's travel statistics to Excel format in the background")
+    public ResponseEntity<ExportJob> submitStatsExcelJob(
+            @Parameter(description = "ID of the user") @PathVariable Long userId,
+            @Parameter(description = "Start date for statistics") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date for statistics") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ResponseEntity.accepted()
+                .body(exportJobService.submit(userId, ExportJob.Type.STATS_EXCEL, startDate, endDate));
+    }
+
+    @PostMapping("/user/{userId}/timeline/json/jobs")
+    @Operation(summary = "Submit a timeline JSON export job", description = "Starts exporting user's travel timeline to JSON format in the background")
+    public ResponseEntity<ExportJob> submitTimelineJsonJob(
             @Parameter(description = "ID of the user") @PathVariable Long userId) {
-        ByteArrayOutputStream outputStream = exportService.exportUserTimelineToJson(userId);
+        return ResponseEntity.accepted()
+                .body(exportJobService.submit(userId, ExportJob.Type.TIMELINE_JSON, null, null));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get export job", description = "Retrieves the status and progress of an export job")
+    public ResponseEntity<ExportJob> getJob(
+            @Parameter(description = "ID of the export job") @PathVariable String jobId) {
+        return exportJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    @Operation(summary = "Download export job result", description = "Downloads the result of a completed export job, supporting range requests")
+    public ResponseEntity<Resource> downloadJobResult(
+            @Parameter(description = "ID of the export job") @PathVariable String jobId) {
+        ExportJob job = exportJobService.getJob(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Export job not found with id: " + jobId));
+        if (job.status() != ExportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        Path file = exportJobService.getResult(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Export result has expired for job: " + jobId));
         return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=user_" + userId + "_timeline.json")
-                .body(outputStream.toByteArray());
+                .contentType(jobContentType(job.type()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + jobFilename(job))
+                .body(new FileSystemResource(file));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(ExportWriter writer, MediaType contentType,
+            String filename) {
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                .body(writer::writeTo);
+    }
+
+    private static MediaType jobContentType(ExportJob.Type type) {
+        return switch (type) {
+            case MEMORIES_ZIP -> APPLICATION_ZIP;
+            case STATS_EXCEL -> APPLICATION_VND_OPENXMLFORMATS_OFFICEDOCUMENT_SPREADSHEETML_SHEET;
+            case TIMELINE_JSON -> MediaType.APPLICATION_JSON;
+        };
+    }
+
+    private static String jobFilename(ExportJob job) {
+        return switch (job.type()) {
+            case MEMORIES_ZIP -> "user_" + job.userId() + "_memories.zip";
+            case STATS_EXCEL -> "user_" + job.userId() + "_stats.xlsx";
+            case TIMELINE_JSON -> "user_" + job.userId() + "_timeline.json";
+        };
     }
-} 
\ No newline at end of file
+}
@@ -1,14 +1,13 @@
 package com.gs.tj.controller;
 
-import java.util.List;
-
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.gs.tj.entity.Diary;
+import com.gs.tj.dto.FeedPage;
+import com.gs.tj.service.CounterService;
 import com.gs.tj.service.FeedFlowService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -18,7 +17,8 @@ import lombok.RequiredArgsConstructor;
 
 /**
  * Controller for handling feed flow operations.
- * Provides endpoints for paginated content browsing.
+ * Provides endpoints for paginated content browsing. Likes not yet flushed to the
+ * database are added to every page, including cached ones.
  */
 @RestController
 @RequestMapping("/api/feed")
@@ -27,52 +27,60 @@ import lombok.RequiredArgsConstructor;
 public class FeedFlowController {
 
     private final FeedFlowService feedFlowService;
+    private final CounterService counterService;
 
     @GetMapping
     @Operation(summary = "Get paginated feed content")
-    public ResponseEntity<List<Diary>> getFeedPage(
+    public ResponseEntity<FeedPage> getFeedPage(
             @Parameter(description = "User ID") 
             @RequestParam Long userId,
-            @Parameter(description = "ID of the last item in the current page") 
+            @Parameter(description = "Cursor from the previous page (nextCursor); omit for the first page") 
             @RequestParam(required = false) Long lastId,
             @Parameter(description = "Number of items per page") 
             @RequestParam(defaultValue = "20") int pageSize) {
-        return ResponseEntity.ok(feedFlowService.getFeedPage(userId, lastId, pageSize));
+        return ResponseEntity.ok(withPendingLikes(feedFlowService.getFeedPage(userId, lastId, pageSize)));
     }
 
     @GetMapping("/location")
     @Operation(summary = "Get feed content by location")
-    public ResponseEntity<List<Diary>> getFeedByLocation(
+    public ResponseEntity<FeedPage> getFeedByLocation(
             @Parameter(description = "Location ID") 
             @RequestParam Long locationId,
-            @Parameter(description = "ID of the last item in the current page") 
+            @Parameter(description = "Cursor from the previous page (nextCursor); omit for the first page") 
             @RequestParam(required = false) Long lastId,
             @Parameter(description = "Number of items per page") 
             @RequestParam(defaultValue = "20") int pageSize) {
-        return ResponseEntity.ok(feedFlowService.getFeedByLocation(locationId, lastId, pageSize));
+        return ResponseEntity.ok(withPendingLikes(feedFlowService.getFeedByLocation(locationId, lastId, pageSize)));
     }
 
     @GetMapping("/tag")
     @Operation(summary = "Get feed content by tag")
-    public ResponseEntity<List<Diary>> getFeedByTag(
+    public ResponseEntity<FeedPage> getFeedByTag(
             @Parameter(description = "Tag name") 
             @RequestParam String tag,
-            @Parameter(description = "ID of the last item in the current page") 
+            @Parameter(description = "Cursor from the previous page (nextCursor); omit for the first page") 
             @RequestParam(required = false) Long lastId,
             @Parameter(description = "Number of items per page") 
             @RequestParam(defaultValue = "20") int pageSize) {
-        return ResponseEntity.ok(feedFlowService.getFeedByTag(tag, lastId, pageSize));
+        return ResponseEntity.ok(withPendingLikes(feedFlowService.getFeedByTag(tag, lastId, pageSize)));
     }
 
     @GetMapping("/user")
     @Operation(summary = "Get feed content by user")
-    public ResponseEntity<List<Diary>> getFeedByUser(
+    public ResponseEntity<FeedPage> getFeedByUser(
             @Parameter(description = "User ID") 
             @RequestParam Long userId,
-            @Parameter(description = "ID of the last item in the current page") 
+            @Parameter(description = "Cursor from the previous page (nextCursor); omit for the first page") 
             @RequestParam(required = false) Long lastId,
             @Parameter(description = "Number of items per page") 
             @RequestParam(defaultValue = "20") int pageSize) {
-        return ResponseEntity.ok(feedFlowService.getFeedByUser(userId, lastId, pageSize));
+        return ResponseEntity.ok(withPendingLikes(feedFlowService.getFeedByUser(userId, lastId, pageSize)));
+    }
+
+    /**
+     * Copies the page with pending likes added, leaving the possibly cached original untouched.
+     */
+    private FeedPage withPendingLikes(FeedPage page) {
+        return new FeedPage(counterService.applyPendingDiaries(page.getItems()), page.getNextCursor(), page.isHasMore());
     }
-} 
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.gs.tj.controller;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,8 +14,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.gs.tj.dto.LocationView;
+import com.gs.tj.dto.MapCluster;
 import com.gs.tj.entity.Location;
+import com.gs.tj.service.CounterService;
 import com.gs.tj.service.LocationService;
+import com.gs.tj.service.MapClusterService;
+import com.gs.tj.service.TrendingService;
+import com.gs.tj.service.TrendingService.Signal;
+import com.gs.tj.service.TrendingService.Subject;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -25,6 +33,7 @@ import lombok.RequiredArgsConstructor;
 /**
  * Controller for handling location management operations.
  * Provides endpoints for CRUD operations and location-based queries.
+ * Read endpoints add pending write-behind counters to the locations they return.
  */
 @RestController
 @RequestMapping("/api/locations")
@@ -33,45 +42,51 @@ import lombok.RequiredArgsConstructor;
 public class LocationController {
 
     private final LocationService locationService;
+    private final MapClusterService mapClusterService;
+    private final CounterService counterService;
+    private final TrendingService trendingService;
 
     @PostMapping
     @Operation(summary = "Create a new location")
-    public ResponseEntity<Location> createLocation(@Valid @RequestBody Location location) {
+    public ResponseEntity<LocationView> createLocation(@Valid @RequestBody Location location) {
         return ResponseEntity.ok(locationService.createLocation(location));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get location by ID")
-    public ResponseEntity<Location> getLocationById(
+    public ResponseEntity<LocationView> getLocationById(
             @Parameter(description = "Location ID") @PathVariable Long id) {
-        return locationService.getLocationById(id)
+        Optional<LocationView> location = locationService.getLocationById(id);
+        location.ifPresent(found -> trendingService.record(Subject.LOCATION, id, Signal.VIEW));
+        return location
+                .map(counterService::applyPending)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping
     @Operation(summary = "Get all locations")
-    public ResponseEntity<List<Location>> getAllLocations() {
-        return ResponseEntity.ok(locationService.getAllLocations());
+    public ResponseEntity<List<LocationView>> getAllLocations() {
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getAllLocations()));
     }
 
     @GetMapping("/country/{country}")
     @Operation(summary = "Get locations by country")
-    public ResponseEntity<List<Location>> getLocationsByCountry(
+    public ResponseEntity<List<LocationView>> getLocationsByCountry(
             @Parameter(description = "Country name") @PathVariable String country) {
-        return ResponseEntity.ok(locationService.getLocationsByCountry(country));
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getLocationsByCountry(country)));
     }
 
     @GetMapping("/city/{city}")
     @Operation(summary = "Get locations by city")
-    public ResponseEntity<List<Location>> getLocationsByCity(
+    public ResponseEntity<List<LocationView>> getLocationsByCity(
             @Parameter(description = "City name") @PathVariable String city) {
-        return ResponseEntity.ok(locationService.getLocationsByCity(city));
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getLocationsByCity(city)));
     }
 
     @PutMapping("/{id}")
     @Operation(summary = "Update location")
-    public ResponseEntity<Location> updateLocation(
+    public ResponseEntity<LocationView> updateLocation(
             @Parameter(description = "Location ID") @PathVariable Long id,
             @Valid @RequestBody Location locationDetails) {
         return ResponseEntity.ok(locationService.updateLocation(id, locationDetails));
@@ -87,31 +102,65 @@ public class LocationController {
 
     @GetMapping("/search")
     @Operation(summary = "Search locations")
-    public ResponseEntity<List<Location>> searchLocations(
+    public ResponseEntity<List<LocationView>> searchLocations(
             @Parameter(description = "Search query") @RequestParam String query) {
-        return ResponseEntity.ok(locationService.searchLocations(query));
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.searchLocations(query)));
     }
 
     @GetMapping("/popular")
     @Operation(summary = "Get popular locations")
-    public ResponseEntity<List<Location>> getPopularLocations(
+    public ResponseEntity<List<LocationView>> getPopularLocations(
             @Parameter(description = "Maximum number of locations to return") 
             @RequestParam(defaultValue = "10") int limit) {
-        return ResponseEntity.ok(locationService.getPopularLocations(limit));
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getPopularLocations(limit)));
     }
 
     @GetMapping("/nearby")
     @Operation(summary = "Get nearby locations")
-    public ResponseEntity<List<Location>> getNearbyLocations(
+    public ResponseEntity<List<LocationView>> getNearbyLocations(
             @Parameter(description = "Latitude") @RequestParam double latitude,
             @Parameter(description = "Longitude") @RequestParam double longitude,
             @Parameter(description = "Radius in meters") @RequestParam double radiusInMeters) {
-        return ResponseEntity.ok(locationService.getNearbyLocations(latitude, longitude, radiusInMeters));
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getNearbyLocations(latitude, longitude, radiusInMeters)));
+    }
+
+    @GetMapping("/clusters")
+    @Operation(summary = "Get map clusters for a viewport",
+            description = "A viewport with minLongitude greater than maxLongitude crosses the antimeridian")
+    public ResponseEntity<List<MapCluster>> getClusters(
+            @Parameter(description = "Southern edge latitude") @RequestParam double minLatitude,
+            @Parameter(description = "Western edge longitude") @RequestParam double minLongitude,
+            @Parameter(description = "Northern edge latitude") @RequestParam double maxLatitude,
+            @Parameter(description = "Eastern edge longitude") @RequestParam double maxLongitude,
+            @Parameter(description = "Map zoom level") @RequestParam int zoom) {
+        return ResponseEntity.ok(mapClusterService.getClusters(minLatitude, minLongitude, maxLatitude, maxLongitude, zoom));
+    }
+
+    @GetMapping("/nearest")
+    @Operation(summary = "Get the k nearest locations")
+    public ResponseEntity<List<LocationView>> findNearest(
+            @Parameter(description = "Latitude") @RequestParam double latitude,
+            @Parameter(description = "Longitude") @RequestParam double longitude,
+            @Parameter(description = "Number of locations to return") @RequestParam(defaultValue = "20") int k) {
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.findNearest(latitude, longitude, k)));
+    }
+
+    @GetMapping("/bbox")
+    @Operation(summary = "Get locations inside a bounding box",
+            description = "A box with minLongitude greater than maxLongitude crosses the antimeridian")
+    public ResponseEntity<List<LocationView>> findInBoundingBox(
+            @Parameter(description = "Southern edge latitude") @RequestParam double minLatitude,
+            @Parameter(description = "Western edge longitude") @RequestParam double minLongitude,
+            @Parameter(description = "Northern edge latitude") @RequestParam double maxLatitude,
+            @Parameter(description = "Eastern edge longitude") @RequestParam double maxLongitude,
+            @Parameter(description = "Maximum number of locations to return")
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.findInBoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude, limit)));
     }
 
     @PostMapping("/{id}/images")
     @Operation(summary = "Add image to location")
-    public ResponseEntity<Location> addLocationImage(
+    public ResponseEntity<LocationView> addLocationImage(
             @Parameter(description = "Location ID") @PathVariable Long id,
             @Parameter(description = "Image URL") @RequestParam String imageUrl) {
         return ResponseEntity.ok(locationService.addLocationImage(id, imageUrl));
@@ -119,7 +168,7 @@ public class LocationController {
 
     @DeleteMapping("/{id}/images")
     @Operation(summary = "Remove image from location")
-    public ResponseEntity<Location> removeLocationImage(
+    public ResponseEntity<LocationView> removeLocationImage(
             @Parameter(description = "Location ID") @PathVariable Long id,
             @Parameter(description = "Image URL") @RequestParam String imageUrl) {
         return ResponseEntity.ok(locationService.removeLocationImage(id, imageUrl));
@@ -127,28 +176,28 @@ public class LocationController {
 
     @GetMapping("/category/{category}")
     @Operation(summary = "Get locations by category")
-    public ResponseEntity<List<Location>> getLocationsByCategory(
+    public ResponseEntity<List<LocationView>> getLocationsByCategory(
             @Parameter(description = "Category name") @PathVariable String category) {
-        return ResponseEntity.ok(locationService.getLocationsByCategory(category));
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getLocationsByCategory(category)));
     }
 
     @GetMapping("/tags")
     @Operation(summary = "Get locations by tags")
-    public ResponseEntity<List<Location>> getLocationsByTags(
+    public ResponseEntity<List<LocationView>> getLocationsByTags(
             @Parameter(description = "List of tags") @RequestParam List<String> tags) {
-        return ResponseEntity.ok(locationService.getLocationsByTags(tags));
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getLocationsByTags(tags)));
     }
 
     @PostMapping("/{id}/visit")
     @Operation(summary = "Increment visit count")
-    public ResponseEntity<Location> incrementVisitCount(
+    public ResponseEntity<LocationView> incrementVisitCount(
             @Parameter(description = "Location ID") @PathVariable Long id) {
         return ResponseEntity.ok(locationService.incrementVisitCount(id));
     }
 
     @PostMapping("/{id}/rating")
     @Operation(summary = "Update location rating")
-    public ResponseEntity<Location> updateRating(
+    public ResponseEntity<LocationView> updateRating(
             @Parameter(description = "Location ID") @PathVariable Long id,
             @Parameter(description = "Rating value") @RequestParam double rating) {
         return ResponseEntity.ok(locationService.updateRating(id, rating));
@@ -2,6 +2,7 @@ package com.gs.tj.controller;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,8 +15,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.gs.tj.dto.RouteView;
 import com.gs.tj.entity.Route;
+import com.gs.tj.service.RouteSequencingService;
 import com.gs.tj.service.RouteService;
+import com.gs.tj.service.TrendingService;
+import com.gs.tj.service.TrendingService.Signal;
+import com.gs.tj.service.TrendingService.Subject;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -34,46 +40,50 @@ import lombok.RequiredArgsConstructor;
 public class RouteController {
 
     private final RouteService routeService;
+    private final RouteSequencingService routeSequencingService;
+    private final TrendingService trendingService;
 
     @PostMapping
     @Operation(summary = "Create a new route", description = "Creates a new travel route with the provided details")
-    public ResponseEntity<Route> createRoute(@Valid @RequestBody Route route) {
+    public ResponseEntity<RouteView> createRoute(@Valid @RequestBody Route route) {
         return ResponseEntity.ok(routeService.createRoute(route));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get route by ID", description = "Retrieves a specific route by its ID")
-    public ResponseEntity<Route> getRouteById(
+    public ResponseEntity<RouteView> getRouteById(
             @Parameter(description = "ID of the route to retrieve") @PathVariable Long id) {
-        return routeService.getRouteById(id)
+        Optional<RouteView> route = routeService.getRouteById(id);
+        route.ifPresent(found -> trendingService.record(Subject.ROUTE, id, Signal.VIEW));
+        return route
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get routes by user", description = "Retrieves all routes created by a specific user")
-    public ResponseEntity<List<Route>> getRoutesByUser(
+    public ResponseEntity<List<RouteView>> getRoutesByUser(
             @Parameter(description = "ID of the user") @PathVariable Long userId) {
         return ResponseEntity.ok(routeService.getRoutesByUser(userId));
     }
 
     @GetMapping("/start/{locationId}")
     @Operation(summary = "Get routes by start location", description = "Retrieves all routes starting from a specific location")
-    public ResponseEntity<List<Route>> getRoutesByStartLocation(
+    public ResponseEntity<List<RouteView>> getRoutesByStartLocation(
             @Parameter(description = "ID of the start location") @PathVariable Long locationId) {
         return ResponseEntity.ok(routeService.getRoutesByStartLocation(locationId));
     }
 
     @GetMapping("/end/{locationId}")
     @Operation(summary = "Get routes by end location", description = "Retrieves all routes ending at a specific location")
-    public ResponseEntity<List<Route>> getRoutesByEndLocation(
+    public ResponseEntity<List<RouteView>> getRoutesByEndLocation(
             @Parameter(description = "ID of the end location") @PathVariable Long locationId) {
         return ResponseEntity.ok(routeService.getRoutesByEndLocation(locationId));
     }
 
     @PutMapping("/{id}")
     @Operation(summary = "Update route", description = "Updates an existing route with new details")
-    public ResponseEntity<Route> updateRoute(
+    public ResponseEntity<RouteView> updateRoute(
             @Parameter(description = "ID of the route to update") @PathVariable Long id,
             @Valid @RequestBody Route routeDetails) {
         return ResponseEntity.ok(routeService.updateRoute(id, routeDetails));
@@ -96,23 +106,39 @@ public class RouteController {
 
     @GetMapping("/optimal")
     @Operation(summary = "Find optimal routes", description = "Finds optimal routes between two locations with a maximum number of stops")
-    public ResponseEntity<List<Route>> findOptimalRoutes(
+    public ResponseEntity<List<RouteView>> findOptimalRoutes(
             @Parameter(description = "ID of the start location") @RequestParam Long startLocationId,
             @Parameter(description = "ID of the end location") @RequestParam Long endLocationId,
             @Parameter(description = "Maximum number of stops") @RequestParam(defaultValue = "5") int maxStops) {
         return ResponseEntity.ok(routeService.findOptimalRoutes(startLocationId, endLocationId, maxStops));
     }
 
+    @PostMapping("/{routeId}/optimize-stops")
+    @Operation(summary = "Optimize stop order", description = "Reorders the stops of a route to shorten the trip and saves the new order")
+    public ResponseEntity<RouteView> optimizeStopOrder(
+            @Parameter(description = "ID of the route") @PathVariable Long routeId) {
+        return ResponseEntity.ok(routeService.optimizeStopOrder(routeId));
+    }
+
+    @GetMapping("/stop-order")
+    @Operation(summary = "Plan stop order", description = "Orders stops between a start and an end location to shorten the trip")
+    public ResponseEntity<List<Long>> sequenceStops(
+            @Parameter(description = "ID of the start location") @RequestParam Long startLocationId,
+            @Parameter(description = "ID of the end location") @RequestParam Long endLocationId,
+            @Parameter(description = "IDs of the stops") @RequestParam List<Long> stopLocationIds) {
+        return ResponseEntity.ok(routeSequencingService.sequenceStops(startLocationId, endLocationId, stopLocationIds));
+    }
+
     @GetMapping("/popular")
     @Operation(summary = "Get popular routes", description = "Retrieves popular public routes")
-    public ResponseEntity<List<Route>> getPopularRoutes(
+    public ResponseEntity<List<RouteView>> getPopularRoutes(
             @Parameter(description = "Maximum number of routes to return") @RequestParam(defaultValue = "10") int limit) {
         return ResponseEntity.ok(routeService.getPopularRoutes(limit));
     }
 
     @GetMapping("/recommended")
     @Operation(summary = "Get recommended routes", description = "Retrieves personalized route recommendations for a user")
-    public ResponseEntity<List<Route>> getRecommendedRoutes(
+    public ResponseEntity<List<RouteView>> getRecommendedRoutes(
             @Parameter(description = "ID of the user") @RequestParam Long userId,
             @Parameter(description = "Maximum number of routes to return") @RequestParam(defaultValue = "10") int limit) {
         return ResponseEntity.ok(routeService.getRecommendedRoutes(userId, limit));
@@ -0,0 +1,77 @@
+package com.gs.tj.controller;
+
+import java.security.Principal;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gs.tj.dto.Completion;
+import com.gs.tj.dto.Completion.CompletionType;
+import com.gs.tj.dto.SearchPage;
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.Location;
+import com.gs.tj.service.SearchService;
+import com.gs.tj.service.TypeaheadService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Controller for full-text search.
+ * Provides ranked, paged search over locations and diaries, and search-box typeahead.
+ */
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+@Tag(name = "Search", description = "APIs for full-text search over locations and diaries")
+public class SearchController {
+
+    private final SearchService searchService;
+    private final TypeaheadService typeaheadService;
+
+    @GetMapping("/locations")
+    @Operation(summary = "Search locations", description = "Ranks locations by relevance to the query")
+    public ResponseEntity<SearchPage<Location>> searchLocations(
+            @Parameter(description = "Search query") @RequestParam String query,
+            @Parameter(description = "Country filter") @RequestParam(required = false) String country,
+            @Parameter(description = "Category filter") @RequestParam(required = false) String category,
+            @Parameter(description = "Visibility filter; only public locations are searchable") @RequestParam(required = false) Boolean isPublic,
+            @Parameter(description = "Zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(searchService.searchLocations(query, country, category, isPublic, page, size));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Typeahead suggestions", description = "Completes location names, cities and usernames from the start of any word")
+    public ResponseEntity<List<Completion>> suggest(
+            @Parameter(description = "Text typed so far") @RequestParam String prefix,
+            @Parameter(description = "Kinds of suggestion to return") @RequestParam(required = false) Set<CompletionType> types,
+            @Parameter(description = "Maximum number of suggestions per kind") @RequestParam(defaultValue = "5") int limit) {
+        Set<CompletionType> requested = types == null || types.isEmpty()
+                ? EnumSet.allOf(CompletionType.class)
+                : EnumSet.copyOf(types);
+        return ResponseEntity.ok(typeaheadService.complete(prefix, requested, limit));
+    }
+
+    @GetMapping("/diaries")
+    @Operation(summary = "Search diaries", description = "Ranks diaries by relevance to the query; country and category refer to the diary's location")
+    public ResponseEntity<SearchPage<Diary>> searchDiaries(
+            @Parameter(description = "Search query") @RequestParam String query,
+            @Parameter(description = "Country filter") @RequestParam(required = false) String country,
+            @Parameter(description = "Category filter") @RequestParam(required = false) String category,
+            @Parameter(description = "Visibility filter; private diaries are only found by their owner") @RequestParam(required = false) Boolean isPublic,
+            @Parameter(description = "Zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
+            @Parameter(hidden = true) Principal principal) {
+        return ResponseEntity.ok(searchService.searchDiaries(query, country, category, isPublic,
+                principal != null ? principal.getName() : null, page, size));
+    }
+}
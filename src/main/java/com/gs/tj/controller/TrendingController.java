@@ -0,0 +1,85 @@
+package com.gs.tj.controller;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gs.tj.dto.DiaryView;
+import com.gs.tj.dto.LocationView;
+import com.gs.tj.dto.RouteView;
+import com.gs.tj.service.CounterService;
+import com.gs.tj.service.DiaryService;
+import com.gs.tj.service.LocationService;
+import com.gs.tj.service.RouteService;
+import com.gs.tj.service.TrendingService;
+import com.gs.tj.service.TrendingService.Scope;
+import com.gs.tj.service.TrendingService.Subject;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Controller for trending content.
+ * Each list is ranked by recent likes, visits, favorites and views, globally or within a
+ * country or a category, and read a page at a time.
+ */
+@RestController
+@RequestMapping("/api/trending")
+@RequiredArgsConstructor
+@Tag(name = "Trending", description = "APIs for trending diaries, locations and routes")
+public class TrendingController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final TrendingService trendingService;
+    private final DiaryService diaryService;
+    private final LocationService locationService;
+    private final RouteService routeService;
+    private final CounterService counterService;
+
+    @GetMapping("/diaries")
+    @Operation(summary = "Get trending diaries")
+    public ResponseEntity<List<DiaryView>> getTrendingDiaries(
+            @Parameter(description = "Country to rank within") @RequestParam(required = false) String country,
+            @Parameter(description = "Category to rank within") @RequestParam(required = false) String category,
+            @Parameter(description = "Page number, from 0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+        List<Long> ids = trendingIds(Subject.DIARY, country, category, page, size);
+        return ResponseEntity.ok(counterService.applyPendingDiaries(diaryService.getDiariesByIds(ids)));
+    }
+
+    @GetMapping("/locations")
+    @Operation(summary = "Get trending locations")
+    public ResponseEntity<List<LocationView>> getTrendingLocations(
+            @Parameter(description = "Country to rank within") @RequestParam(required = false) String country,
+            @Parameter(description = "Category to rank within") @RequestParam(required = false) String category,
+            @Parameter(description = "Page number, from 0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+        List<Long> ids = trendingIds(Subject.LOCATION, country, category, page, size);
+        return ResponseEntity.ok(counterService.applyPendingLocations(locationService.getLocationsByIds(ids)));
+    }
+
+    @GetMapping("/routes")
+    @Operation(summary = "Get trending routes")
+    public ResponseEntity<List<RouteView>> getTrendingRoutes(
+            @Parameter(description = "Country to rank within") @RequestParam(required = false) String country,
+            @Parameter(description = "Category to rank within") @RequestParam(required = false) String category,
+            @Parameter(description = "Page number, from 0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+        List<Long> ids = trendingIds(Subject.ROUTE, country, category, page, size);
+        return ResponseEntity.ok(routeService.getRoutesByIds(ids));
+    }
+
+    private List<Long> trendingIds(Subject subject, String country, String category, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page must be at least 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        return trendingService.trending(subject, new Scope(country, category), page * size, size);
+    }
+}
@@ -14,7 +14,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.gs.tj.dto.UserSummary;
+import com.gs.tj.entity.Favorite.FavoriteType;
 import com.gs.tj.entity.User;
+import com.gs.tj.service.FavoriteService;
 import com.gs.tj.service.UserService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -34,16 +37,17 @@ import lombok.RequiredArgsConstructor;
 public class UserController {
 
     private final UserService userService;
+    private final FavoriteService favoriteService;
 
     @PostMapping("/register")
     @Operation(summary = "Register a new user")
-    public ResponseEntity<User> registerUser(@Valid @RequestBody User user) {
+    public ResponseEntity<UserSummary> registerUser(@Valid @RequestBody User user) {
         return ResponseEntity.ok(userService.registerUser(user));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get user by ID")
-    public ResponseEntity<User> getUserById(
+    public ResponseEntity<UserSummary> getUserById(
             @Parameter(description = "User ID") @PathVariable Long id) {
         return userService.getUserById(id)
                 .map(ResponseEntity::ok)
@@ -53,13 +57,13 @@ public class UserController {
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get all users (Admin only)")
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<List<UserSummary>> getAllUsers() {
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
     @PutMapping("/{id}")
     @Operation(summary = "Update user profile")
-    public ResponseEntity<User> updateUser(
+    public ResponseEntity<UserSummary> updateUser(
             @Parameter(description = "User ID") @PathVariable Long id,
             @Valid @RequestBody User userDetails) {
         return ResponseEntity.ok(userService.updateUser(id, userDetails));
@@ -76,7 +80,7 @@ public class UserController {
 
     @PutMapping("/{id}/password")
     @Operation(summary = "Change user password")
-    public ResponseEntity<User> changePassword(
+    public ResponseEntity<UserSummary> changePassword(
             @Parameter(description = "User ID") @PathVariable Long id,
             @RequestParam String oldPassword,
             @RequestParam String newPassword) {
@@ -92,7 +96,7 @@ public class UserController {
 
     @PutMapping("/{id}/profile-image")
     @Operation(summary = "Update user profile image")
-    public ResponseEntity<User> updateProfileImage(
+    public ResponseEntity<UserSummary> updateProfileImage(
             @Parameter(description = "User ID") @PathVariable Long id,
             @RequestParam String imageUrl) {
         return ResponseEntity.ok(userService.updateProfileImage(id, imageUrl));
@@ -100,14 +104,14 @@ public class UserController {
 
     @GetMapping("/search")
     @Operation(summary = "Search users by username or email")
-    public ResponseEntity<List<User>> searchUsers(
+    public ResponseEntity<List<UserSummary>> searchUsers(
             @Parameter(description = "Search query") @RequestParam String query) {
         return ResponseEntity.ok(userService.searchUsers(query));
     }
 
     @PostMapping("/{followerId}/follow/{followedId}")
     @Operation(summary = "Follow a user")
-    public ResponseEntity<User> followUser(
+    public ResponseEntity<UserSummary> followUser(
             @Parameter(description = "ID of the user following") @PathVariable Long followerId,
             @Parameter(description = "ID of the user being followed") @PathVariable Long followedId) {
         return ResponseEntity.ok(userService.followUser(followerId, followedId));
@@ -115,7 +119,7 @@ public class UserController {
 
     @DeleteMapping("/{followerId}/follow/{followedId}")
     @Operation(summary = "Unfollow a user")
-    public ResponseEntity<User> unfollowUser(
+    public ResponseEntity<UserSummary> unfollowUser(
             @Parameter(description = "ID of the user unfollowing") @PathVariable Long followerId,
             @Parameter(description = "ID of the user being unfollowed") @PathVariable Long followedId) {
         return ResponseEntity.ok(userService.unfollowUser(followerId, followedId));
@@ -123,15 +127,41 @@ public class UserController {
 
     @GetMapping("/{userId}/followers")
     @Operation(summary = "Get user's followers")
-    public ResponseEntity<List<User>> getFollowers(
+    public ResponseEntity<List<UserSummary>> getFollowers(
             @Parameter(description = "User ID") @PathVariable Long userId) {
         return ResponseEntity.ok(userService.getFollowers(userId));
     }
 
     @GetMapping("/{userId}/following")
     @Operation(summary = "Get users that a user is following")
-    public ResponseEntity<List<User>> getFollowing(
+    public ResponseEntity<List<UserSummary>> getFollowing(
             @Parameter(description = "User ID") @PathVariable Long userId) {
         return ResponseEntity.ok(userService.getFollowing(userId));
     }
+
+    @PostMapping("/{userId}/favorites/{type}/{favoriteId}")
+    @Operation(summary = "Add a favorite", description = "Marks a location, diary or route as a favorite of a user")
+    public ResponseEntity<Boolean> addFavorite(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "Kind of item (LOCATION, DIARY, ROUTE)") @PathVariable FavoriteType type,
+            @Parameter(description = "ID of the item") @PathVariable Long favoriteId) {
+        return ResponseEntity.ok(favoriteService.addFavorite(userId, type, favoriteId));
+    }
+
+    @DeleteMapping("/{userId}/favorites/{type}/{favoriteId}")
+    @Operation(summary = "Remove a favorite")
+    public ResponseEntity<Boolean> removeFavorite(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "Kind of item (LOCATION, DIARY, ROUTE)") @PathVariable FavoriteType type,
+            @Parameter(description = "ID of the item") @PathVariable Long favoriteId) {
+        return ResponseEntity.ok(favoriteService.removeFavorite(userId, type, favoriteId));
+    }
+
+    @GetMapping("/{userId}/favorites/{type}")
+    @Operation(summary = "Get a user's favorites", description = "Returns the IDs of a user's favorites of one kind, most recent first")
+    public ResponseEntity<List<Long>> getFavorites(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "Kind of item (LOCATION, DIARY, ROUTE)") @PathVariable FavoriteType type) {
+        return ResponseEntity.ok(favoriteService.getFavoriteIds(userId, type));
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.gs.tj.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A typeahead suggestion.
+ * {@code detail} is the city of a location, the country of a city or the full name of a user;
+ * cities have no id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Completion {
+
+    public enum CompletionType {
+        LOCATION,
+        CITY,
+        USER
+    }
+
+    private CompletionType type;
+    private Long id;
+    private String text;
+    private String detail;
+    private long weight;
+}
@@ -0,0 +1,52 @@
+package com.gs.tj.dto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gs.tj.entity.Diary;
+
+/**
+ * Immutable read model of a diary, with the author and location it refers to reduced to
+ * their id and name.
+ */
+public record DiaryView(
+        Long id,
+        String title,
+        String content,
+        Long userId,
+        String username,
+        Long locationId,
+        String locationName,
+        LocalDateTime travelDate,
+        Set<String> tags,
+        Set<String> imageUrls,
+        int likes,
+        @JsonProperty("public") boolean isPublic,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) implements Identified {
+
+    public DiaryView {
+        tags = tags != null ? Set.copyOf(tags) : Set.of();
+        imageUrls = imageUrls != null ? Set.copyOf(imageUrls) : Set.of();
+    }
+
+    /**
+     * Builds the view of a diary inside the session that loaded it, since its author and
+     * location are loaded lazily.
+     */
+    public static DiaryView from(Diary diary) {
+        return new DiaryView(diary.getId(), diary.getTitle(), diary.getContent(),
+                diary.getUser() != null ? diary.getUser().getId() : null,
+                diary.getUser() != null ? diary.getUser().getUsername() : null,
+                diary.getLocation() != null ? diary.getLocation().getId() : null,
+                diary.getLocation() != null ? diary.getLocation().getName() : null,
+                diary.getTravelDate(), diary.getTags(), diary.getImageUrls(), diary.getLikes(),
+                diary.isPublic(), diary.getCreatedAt(), diary.getUpdatedAt());
+    }
+
+    public DiaryView withLikes(int likes) {
+        return new DiaryView(id, title, content, userId, username, locationId, locationName, travelDate, tags,
+                imageUrls, likes, isPublic, createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,46 @@
+package com.gs.tj.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of an asynchronous export job.
+ *
+ * @param id ID of the job
+ * @param userId ID of the user whose data is exported
+ * @param type Kind of export
+ * @param startDate Start of the exported date range, or null if the export has none
+ * @param endDate End of the exported date range, or null if the export has none
+ * @param status Where the job is in its lifecycle
+ * @param bytesWritten Size of the result written so far
+ * @param error Why the job failed, if it did
+ * @param createdAt When the job was submitted
+ * @param finishedAt When the job completed or failed, or null while it is in progress
+ */
+public record ExportJob(
+        String id,
+        Long userId,
+        Type type,
+        LocalDate startDate,
+        LocalDate endDate,
+        Status status,
+        long bytesWritten,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime finishedAt) {
+
+    public enum Type {
+        MEMORIES_ZIP,
+        STATS_EXCEL,
+        TIMELINE_JSON
+    }
+
+    public enum Status {
+        /** Waiting for a worker, or for another export of the same user to finish. */
+        QUEUED,
+        RUNNING,
+        /** The result can be downloaded until it expires. */
+        COMPLETED,
+        FAILED
+    }
+}
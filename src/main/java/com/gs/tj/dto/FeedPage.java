@@ -0,0 +1,20 @@
+package com.gs.tj.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single page of feed content with the cursor needed to fetch the next one.
+ * Clients pass {@code nextCursor} back as {@code lastId}; it is null when there are no more items.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedPage {
+    private List<DiaryView> items;
+    private Long nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,9 @@
+package com.gs.tj.dto;
+
+/**
+ * A read model built from one entity, identified by that entity's id.
+ * The cache tracks entries holding read models by these ids, like entries holding entities.
+ */
+public interface Identified {
+    Long id();
+}
@@ -0,0 +1,50 @@
+package com.gs.tj.dto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gs.tj.entity.Location;
+
+/**
+ * Immutable read model of a location, without its diaries.
+ */
+public record LocationView(
+        Long id,
+        String name,
+        String description,
+        String country,
+        String city,
+        String category,
+        Double latitude,
+        Double longitude,
+        Set<String> tags,
+        Set<String> imageUrls,
+        int visitCount,
+        double averageRating,
+        int ratingCount,
+        @JsonProperty("public") boolean isPublic,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) implements Identified {
+
+    public LocationView {
+        tags = tags != null ? Set.copyOf(tags) : Set.of();
+        imageUrls = imageUrls != null ? Set.copyOf(imageUrls) : Set.of();
+    }
+
+    /**
+     * Builds the view of a location whose tags and images are loaded.
+     */
+    public static LocationView from(Location location) {
+        return new LocationView(location.getId(), location.getName(), location.getDescription(),
+                location.getCountry(), location.getCity(), location.getCategory(),
+                location.getLatitude(), location.getLongitude(), location.getTags(), location.getImageUrls(),
+                location.getVisitCount(), location.getAverageRating(), location.getRatingCount(),
+                location.isPublic(), location.getCreatedAt(), location.getUpdatedAt());
+    }
+
+    public LocationView withCounters(int visitCount, double averageRating, int ratingCount) {
+        return new LocationView(id, name, description, country, city, category, latitude, longitude, tags,
+                imageUrls, visitCount, averageRating, ratingCount, isPublic, createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,21 @@
+package com.gs.tj.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A group of nearby locations drawn as a single map marker.
+ * A cluster with a count of one is a single location at its exact position.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MapCluster {
+    private double latitude;
+    private double longitude;
+    private int count;
+    private Long topLocationId;
+    private String topLocationName;
+    private int topLocationVisitCount;
+}
@@ -0,0 +1,52 @@
+package com.gs.tj.dto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gs.tj.entity.Route;
+
+/**
+ * Immutable read model of a route, with its owner and endpoints reduced to their id and
+ * name, and its stops as location ids in visiting order.
+ */
+public record RouteView(
+        Long id,
+        String name,
+        String description,
+        Long userId,
+        String username,
+        Long startLocationId,
+        String startLocationName,
+        Long endLocationId,
+        String endLocationName,
+        Duration estimatedDuration,
+        List<Long> stopLocationIds,
+        Set<String> imageUrls,
+        @JsonProperty("public") boolean isPublic,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) implements Identified {
+
+    public RouteView {
+        stopLocationIds = stopLocationIds != null ? List.copyOf(stopLocationIds) : List.of();
+        imageUrls = imageUrls != null ? Set.copyOf(imageUrls) : Set.of();
+    }
+
+    /**
+     * Builds the view of a route inside the session that loaded it, since its owner,
+     * endpoints, stops and images are loaded lazily.
+     */
+    public static RouteView from(Route route) {
+        return new RouteView(route.getId(), route.getName(), route.getDescription(),
+                route.getUser() != null ? route.getUser().getId() : null,
+                route.getUser() != null ? route.getUser().getUsername() : null,
+                route.getStartLocation() != null ? route.getStartLocation().getId() : null,
+                route.getStartLocation() != null ? route.getStartLocation().getName() : null,
+                route.getEndLocation() != null ? route.getEndLocation().getId() : null,
+                route.getEndLocation() != null ? route.getEndLocation().getName() : null,
+                route.getEstimatedDuration(), route.getStopLocationIds(), route.getImageUrls(), route.isPublic(),
+                route.getCreatedAt(), route.getUpdatedAt());
+    }
+}
@@ -0,0 +1,22 @@
+package com.gs.tj.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single page of ranked search results.
+ * {@code totalHits} is exact up to 1000 matches and a lower bound beyond that.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPage<T> {
+    private List<T> items;
+    private int page;
+    private int size;
+    private long totalHits;
+    private boolean hasMore;
+}
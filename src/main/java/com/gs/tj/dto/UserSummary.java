@@ -0,0 +1,22 @@
+package com.gs.tj.dto;
+
+import java.time.LocalDateTime;
+
+import com.gs.tj.entity.User;
+
+/**
+ * Immutable public profile of a user, without credentials, contact details or relations.
+ */
+public record UserSummary(
+        Long id,
+        String username,
+        String fullName,
+        String bio,
+        String profileImageUrl,
+        LocalDateTime createdAt) implements Identified {
+
+    public static UserSummary from(User user) {
+        return new UserSummary(user.getId(), user.getUsername(), user.getFullName(), user.getBio(),
+                user.getProfileImageUrl(), user.getCreatedAt());
+    }
+}
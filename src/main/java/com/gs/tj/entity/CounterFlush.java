@@ -0,0 +1,28 @@
+package com.gs.tj.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Record of a counter snapshot applied to the database, written in the same transaction as
+ * the snapshot's updates so that a snapshot is never applied twice.
+ */
+@Entity
+@Table(name = "counter_flushes")
+@Getter
+@Setter
+public class CounterFlush {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private LocalDateTime appliedAt;
+}
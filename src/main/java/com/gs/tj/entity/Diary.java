@@ -4,13 +4,18 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -20,13 +25,27 @@ import lombok.Setter;
 /**
  * Diary entity representing user travel diaries.
  * Contains diary entries with associated locations and media.
+ * Lists of diaries fetch their author and location in the same query through the
+ * {@value #WITH_AUTHOR_AND_LOCATION} graph; their tags and images are then loaded for up to
+ * {@value #COLLECTION_BATCH_SIZE} diaries per query.
  */
 @Entity
-@Table(name = "diaries")
+@NamedEntityGraph(name = Diary.WITH_AUTHOR_AND_LOCATION, attributeNodes = {
+    @NamedAttributeNode("user"),
+    @NamedAttributeNode("location")
+})
+@Table(name = "diaries", indexes = {
+    @Index(name = "idx_diaries_user_id_id", columnList = "user_id, id"),
+    @Index(name = "idx_diaries_location_id_id", columnList = "location_id, id"),
+    @Index(name = "idx_diaries_user_id_travel_date_id", columnList = "user_id, travel_date, id")
+})
 @Getter
 @Setter
 public class Diary extends BaseEntity {
 
+    public static final String WITH_AUTHOR_AND_LOCATION = "Diary.withAuthorAndLocation";
+    public static final int COLLECTION_BATCH_SIZE = 100;
+
     @NotBlank
     @Size(max = 200)
     @Column(nullable = false)
@@ -47,12 +66,15 @@ public class Diary extends BaseEntity {
     private LocalDateTime travelDate;
 
     @ElementCollection
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "diary_images", joinColumns = @JoinColumn(name = "diary_id"))
     @Column(name = "image_url")
     private Set<String> imageUrls = new HashSet<>();
 
     @ElementCollection
-    @CollectionTable(name = "diary_tags", joinColumns = @JoinColumn(name = "diary_id"))
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
+    @CollectionTable(name = "diary_tags", joinColumns = @JoinColumn(name = "diary_id"),
+            indexes = @Index(name = "idx_diary_tags_tag_diary_id", columnList = "tag, diary_id"))
     @Column(name = "tag")
     private Set<String> tags = new HashSet<>();
 
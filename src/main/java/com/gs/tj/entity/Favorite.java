@@ -8,6 +8,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -16,7 +17,8 @@ import lombok.Setter;
  * Can be used to track favorite locations, diaries, or routes.
  */
 @Entity
-@Table(name = "favorites")
+@Table(name = "favorites",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "type", "favorite_id" }))
 @Getter
 @Setter
 public class Favorite extends BaseEntity {
@@ -3,6 +3,8 @@ package com.gs.tj.entity;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
@@ -19,6 +21,7 @@ import lombok.Setter;
 /**
  * Location entity representing travel destinations.
  * Contains location information, coordinates, and associated media.
+ * Tags and images are loaded for up to {@value #COLLECTION_BATCH_SIZE} locations per query.
  */
 @Entity
 @Table(name = "locations")
@@ -26,6 +29,8 @@ import lombok.Setter;
 @Setter
 public class Location extends BaseEntity {
 
+    public static final int COLLECTION_BATCH_SIZE = 100;
+
     @NotBlank
     @Size(max = 100)
     @Column(nullable = false)
@@ -56,11 +61,13 @@ public class Location extends BaseEntity {
     private Double longitude;
 
     @ElementCollection
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "location_images", joinColumns = @JoinColumn(name = "location_id"))
     @Column(name = "image_url")
     private Set<String> imageUrls = new HashSet<>();
 
     @ElementCollection
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "location_tags", joinColumns = @JoinColumn(name = "location_id"))
     @Column(name = "tag")
     private Set<String> tags = new HashSet<>();
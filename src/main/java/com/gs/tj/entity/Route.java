@@ -1,9 +1,13 @@
 package com.gs.tj.entity;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
@@ -19,7 +23,8 @@ import lombok.Setter;
 
 /**
  * Route entity representing travel routes between locations.
- * Contains route information, duration, and associated stops.
+ * Contains route information, duration, and associated stops in visiting order.
+ * Stops and images are loaded for up to {@value #COLLECTION_BATCH_SIZE} routes per query.
  */
 @Entity
 @Table(name = "routes")
@@ -27,6 +32,8 @@ import lombok.Setter;
 @Setter
 public class Route extends BaseEntity {
 
+    public static final int COLLECTION_BATCH_SIZE = 100;
+
     @NotBlank
     @Column(nullable = false)
     private String name;
@@ -47,13 +54,15 @@ public class Route extends BaseEntity {
     private Duration estimatedDuration;
 
     @ElementCollection
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "route_stops", joinColumns = @JoinColumn(name = "route_id"))
     @OrderColumn(name = "stop_order")
-    private Set<Long> stopLocationIds = new HashSet<>();
+    private List<Long> stopLocationIds = new ArrayList<>();
 
     private String description;
 
     @ElementCollection
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "route_images", joinColumns = @JoinColumn(name = "route_id"))
     @Column(name = "image_url")
     private Set<String> imageUrls = new HashSet<>();
@@ -28,7 +28,10 @@ import lombok.Setter;
 /**
  * User entity representing application users.
  * Contains user profile information and relationships to other entities.
+ * Serializable only by way of UserDetails; sessions are stateless, so users are never
+ * serialized.
  */
+@SuppressWarnings("serial")
 @Entity
 @Table(name = "users")
 @Getter
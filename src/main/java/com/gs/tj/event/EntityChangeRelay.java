@@ -0,0 +1,71 @@
+package com.gs.tj.event;
+
+import java.util.UUID;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Relays local {@link EntityChangedEvent}s to the other application nodes over Redis pub/sub
+ * and republishes the ones they send as remote events, so every node's in-memory indexes
+ * see every write. Local events are relayed only after their transaction commits.
+ */
+@Slf4j
+@Component
+public class EntityChangeRelay implements MessageListener {
+
+    static final String CHANNEL = "tj:entity-changes";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    public EntityChangeRelay(StringRedisTemplate redisTemplate, ApplicationEventPublisher eventPublisher,
+            RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void relay(EntityChangedEvent event) {
+        if (event.remote()) {
+            return;
+        }
+        String payload = String.join("|", nodeId, event.type().name(), event.id().toString(),
+                Boolean.toString(event.deleted()));
+        try {
+            redisTemplate.convertAndSend(CHANNEL, payload);
+        } catch (RuntimeException ex) {
+            // Other nodes converge on their next full index reload.
+            log.warn("Failed to relay {} change for id {}", event.type(), event.id(), ex);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody()).split("\\|");
+        if (parts.length != 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        eventPublisher.publishEvent(new EntityChangedEvent(
+                EntityType.valueOf(parts[1]), Long.valueOf(parts[2]), Boolean.parseBoolean(parts[3]), true));
+    }
+}
@@ -0,0 +1,30 @@
+package com.gs.tj.event;
+
+/**
+ * Application event published when an entity that feeds an in-memory index is written.
+ * Listeners reload the entity by id, so the event carries no entity state.
+ *
+ * @param type Kind of entity that changed
+ * @param id ID of the entity
+ * @param deleted Whether the entity was deleted
+ * @param remote Whether the change was relayed from another node
+ */
+public record EntityChangedEvent(EntityType type, Long id, boolean deleted, boolean remote) {
+
+    public enum EntityType {
+        LOCATION,
+        /** Only a location's visit or rating counters changed; its text and position did not. */
+        LOCATION_STATS,
+        DIARY,
+        ROUTE,
+        USER
+    }
+
+    public static EntityChangedEvent updated(EntityType type, Long id) {
+        return new EntityChangedEvent(type, id, false, false);
+    }
+
+    public static EntityChangedEvent deleted(EntityType type, Long id) {
+        return new EntityChangedEvent(type, id, true, false);
+    }
+}
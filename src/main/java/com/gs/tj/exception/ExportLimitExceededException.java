@@ -0,0 +1,12 @@
+package com.gs.tj.exception;
+
+/**
+ * Exception thrown when an export job cannot be accepted because too many are in progress.
+ */
+public class ExportLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ExportLimitExceededException(String message) {
+        super(message);
+    }
+}
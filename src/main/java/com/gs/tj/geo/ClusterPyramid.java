@@ -0,0 +1,281 @@
+package com.gs.tj.geo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe per-zoom hierarchy of pre-aggregated map clusters.
+ * <p>
+ * Every zoom level z in [0, maxZoom] is a Web Mercator grid of {@code 2^z * cellsPerTile}
+ * cells per axis, so one cluster cell always covers the same number of screen pixels.
+ * Each cell of level z covers exactly 2x2 cells of level z+1. Markers live in the cells
+ * of the deepest level, and every occupied cell stores its marker count, mean Mercator
+ * position and most visited marker. A write rebuilds the affected leaf cell from its
+ * markers and then each ancestor from its four children, so the cost of an update is
+ * proportional to the number of zoom levels and not to the number of markers.
+ */
+public class ClusterPyramid {
+
+    /** Latitude limit of the Web Mercator projection. */
+    public static final double MAX_LATITUDE = 85.05112878;
+
+    private final int maxZoom;
+    private final int cellBits;
+    /** Occupied cells per zoom level, keyed by {@code x << 32 | y}. */
+    private final List<Map<Long, Cell>> levels = new ArrayList<>();
+    private final Map<Long, List<Marker>> leaves = new HashMap<>();
+    private final Map<Long, Marker> markers = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record Marker(long id, String name, double x, double y, int visitCount, long leaf) {
+    }
+
+    /**
+     * Aggregate of one cell.
+     */
+    private record Cell(int count, double sumX, double sumY, long topId, String topName, int topVisits) {
+
+        static Cell of(Marker marker) {
+            return new Cell(1, marker.x(), marker.y(), marker.id(), marker.name(), marker.visitCount());
+        }
+
+        Cell merge(Cell other) {
+            boolean keepTop = topVisits > other.topVisits || (topVisits == other.topVisits && topId < other.topId);
+            return new Cell(count + other.count, sumX + other.sumX, sumY + other.sumY,
+                    keepTop ? topId : other.topId,
+                    keepTop ? topName : other.topName,
+                    keepTop ? topVisits : other.topVisits);
+        }
+    }
+
+    /**
+     * A cluster as returned to callers.
+     *
+     * @param latitude Latitude of the centroid of the clustered markers
+     * @param longitude Longitude of the centroid of the clustered markers
+     * @param count Number of markers in the cluster
+     * @param topId Id of the most visited marker in the cluster
+     * @param topName Name of the most visited marker in the cluster
+     * @param topVisitCount Visit count of the most visited marker
+     */
+    public record Cluster(double latitude, double longitude, int count, long topId, String topName, int topVisitCount) {
+    }
+
+    /**
+     * @param maxZoom Deepest zoom level that is aggregated
+     * @param cellsPerTile Cluster cells per 256px map tile along each axis; a power of two
+     */
+    public ClusterPyramid(int maxZoom, int cellsPerTile) {
+        if (maxZoom < 0 || maxZoom > 24) {
+            throw new IllegalArgumentException("Max zoom must be in [0, 24]");
+        }
+        if (cellsPerTile <= 0 || Integer.bitCount(cellsPerTile) != 1 || cellsPerTile > 256) {
+            throw new IllegalArgumentException("Cells per tile must be a power of two up to 256");
+        }
+        this.maxZoom = maxZoom;
+        this.cellBits = Integer.numberOfTrailingZeros(cellsPerTile);
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Insert or move a marker, or update its name or visit count.
+     */
+    public void put(long id, String name, double lat, double lon, int visitCount) {
+        double x = mercatorX(GeoUtils.normalizeLongitude(lon));
+        double y = mercatorY(lat);
+        int size = gridSize(maxZoom);
+        long leaf = key(cellIndex(x, size), cellIndex(y, size));
+        Marker marker = new Marker(id, name, x, y, visitCount, leaf);
+
+        lock.writeLock().lock();
+        try {
+            Marker previous = markers.put(id, marker);
+            if (previous != null) {
+                leaves.get(previous.leaf()).remove(previous);
+                if (previous.leaf() != leaf) {
+                    refresh(previous.leaf());
+                }
+            }
+            leaves.computeIfAbsent(leaf, k -> new ArrayList<>()).add(marker);
+            refresh(leaf);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a marker if present.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Marker previous = markers.remove(id);
+            if (previous != null) {
+                leaves.get(previous.leaf()).remove(previous);
+                refresh(previous.leaf());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return markers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clusters of a zoom level that intersect a viewport. A viewport with
+     * {@code minLon > maxLon} crosses the antimeridian. Zoom levels deeper than
+     * {@link #getMaxZoom()} are answered from the deepest level.
+     */
+    public List<Cluster> clusters(double minLat, double minLon, double maxLat, double maxLon, int zoom) {
+        int z = Math.max(0, Math.min(zoom, maxZoom));
+        int size = gridSize(z);
+        // Mercator y grows southwards.
+        int minY = cellIndex(mercatorY(maxLat), size);
+        int maxY = cellIndex(mercatorY(minLat), size);
+
+        double west = GeoUtils.normalizeLongitude(minLon);
+        double east = GeoUtils.normalizeLongitude(maxLon);
+        int minX = cellIndex(mercatorX(west), size);
+        int maxX = cellIndex(mercatorX(east), size);
+        boolean fullWidth = maxLon - minLon >= 360.0;
+        boolean wraps = !fullWidth && west > east;
+        if (fullWidth) {
+            minX = 0;
+            maxX = size - 1;
+        }
+
+        List<Cluster> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Cell> level = levels.get(z);
+            long columns = wraps ? (size - minX) + (maxX + 1L) : (maxX - minX + 1L);
+            long span = columns * (maxY - minY + 1L);
+            if (span > level.size()) {
+                for (Map.Entry<Long, Cell> entry : level.entrySet()) {
+                    int x = (int) (entry.getKey() >>> 32);
+                    int y = (int) (long) entry.getKey();
+                    boolean inX = wraps ? (x >= minX || x <= maxX) : (x >= minX && x <= maxX);
+                    if (inX && y >= minY && y <= maxY) {
+                        result.add(toCluster(entry.getValue()));
+                    }
+                }
+            } else if (wraps) {
+                collect(level, minX, size - 1, minY, maxY, result);
+                collect(level, 0, maxX, minY, maxY, result);
+            } else {
+                collect(level, minX, maxX, minY, maxY, result);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void collect(Map<Long, Cell> level, int minX, int maxX, int minY, int maxY, List<Cluster> result) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                Cell cell = level.get(key(x, y));
+                if (cell != null) {
+                    result.add(toCluster(cell));
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes a leaf cell from its markers and every ancestor from its children.
+     */
+    private void refresh(long leaf) {
+        List<Marker> members = leaves.get(leaf);
+        Cell aggregate = null;
+        if (members != null) {
+            for (Marker marker : members) {
+                aggregate = aggregate == null ? Cell.of(marker) : aggregate.merge(Cell.of(marker));
+            }
+            if (members.isEmpty()) {
+                leaves.remove(leaf);
+            }
+        }
+        store(maxZoom, leaf, aggregate);
+
+        int x = (int) (leaf >>> 32);
+        int y = (int) leaf;
+        for (int zoom = maxZoom - 1; zoom >= 0; zoom--) {
+            x >>= 1;
+            y >>= 1;
+            Map<Long, Cell> children = levels.get(zoom + 1);
+            Cell merged = null;
+            for (int dx = 0; dx <= 1; dx++) {
+                for (int dy = 0; dy <= 1; dy++) {
+                    Cell child = children.get(key(x * 2 + dx, y * 2 + dy));
+                    if (child != null) {
+                        merged = merged == null ? child : merged.merge(child);
+                    }
+                }
+            }
+            store(zoom, key(x, y), merged);
+        }
+    }
+
+    private void store(int zoom, long key, Cell cell) {
+        if (cell == null) {
+            levels.get(zoom).remove(key);
+        } else {
+            levels.get(zoom).put(key, cell);
+        }
+    }
+
+    private static Cluster toCluster(Cell cell) {
+        double x = cell.sumX() / cell.count();
+        double y = cell.sumY() / cell.count();
+        return new Cluster(latitudeOf(y), longitudeOf(x), cell.count(), cell.topId(), cell.topName(), cell.topVisits());
+    }
+
+    private int gridSize(int zoom) {
+        return 1 << (zoom + cellBits);
+    }
+
+    private static int cellIndex(double coordinate, int size) {
+        return Math.min(size - 1, Math.max(0, (int) Math.floor(coordinate * size)));
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /** Web Mercator x in [0, 1), west to east. */
+    private static double mercatorX(double lon) {
+        return (lon + 180.0) / 360.0;
+    }
+
+    /** Web Mercator y in [0, 1], north to south; latitudes are clamped to the projection's limit. */
+    private static double mercatorY(double lat) {
+        double clamped = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat)));
+        return (1.0 - Math.log(Math.tan(clamped) + 1.0 / Math.cos(clamped)) / Math.PI) / 2.0;
+    }
+
+    private static double longitudeOf(double x) {
+        return x * 360.0 - 180.0;
+    }
+
+    private static double latitudeOf(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1.0 - 2.0 * y))));
+    }
+}
@@ -0,0 +1,123 @@
+package com.gs.tj.geo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Thread-safe, size-bounded LRU cache of fixed-size {@code double} blocks stored off-heap.
+ * <p>
+ * All blocks live in one direct buffer allocated up front and divided into equal slots, so
+ * cached values add nothing to the garbage-collected heap and evicting a block just hands
+ * its slot to the next one. Only the key-to-slot map, kept in access order, is on-heap.
+ * <p>
+ * Every eviction advances a version. A block computed from data read at one version is
+ * stored with {@link #putIfVersion}, which checks the version and inserts in one step, so
+ * a block computed across an eviction can never outlive it.
+ */
+public class DistanceBlockCache {
+
+    private final int blockLength;
+    private final int capacity;
+    private final DoubleBuffer slots;
+    private final LinkedHashMap<Long, Integer> index;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private long version;
+
+    /**
+     * @param blockLength Number of doubles per block
+     * @param maxBytes Upper bound on the off-heap memory used; at least one block is kept
+     */
+    public DistanceBlockCache(int blockLength, long maxBytes) {
+        this.blockLength = blockLength;
+        long blocks = Math.max(1, maxBytes / ((long) blockLength * Double.BYTES));
+        this.capacity = (int) Math.min(blocks, Integer.MAX_VALUE / ((long) blockLength * Double.BYTES));
+        this.slots = ByteBuffer.allocateDirect(capacity * blockLength * Double.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asDoubleBuffer();
+        this.index = new LinkedHashMap<>(16, 0.75f, true);
+        for (int slot = 0; slot < capacity; slot++) {
+            freeSlots.add(slot);
+        }
+    }
+
+    /**
+     * Copy a cached block into {@code target}.
+     *
+     * @return Whether the block was cached
+     */
+    public synchronized boolean get(long key, double[] target) {
+        Integer slot = index.get(key);
+        if (slot == null) {
+            return false;
+        }
+        slots.get(slot * blockLength, target, 0, blockLength);
+        return true;
+    }
+
+    /**
+     * Current version, to be read before the data a block is computed from.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Insert or replace a block, unless an eviction happened since {@code expectedVersion}.
+     *
+     * @return Whether the block was stored
+     */
+    public synchronized boolean putIfVersion(long expectedVersion, long key, double[] values) {
+        if (version != expectedVersion) {
+            return false;
+        }
+        put(key, values);
+        return true;
+    }
+
+    /**
+     * Insert or replace a block, evicting the least recently used one if the cache is full.
+     */
+    public synchronized void put(long key, double[] values) {
+        Integer slot = index.get(key);
+        if (slot == null) {
+            if (freeSlots.isEmpty()) {
+                Iterator<Map.Entry<Long, Integer>> eldest = index.entrySet().iterator();
+                freeSlots.add(eldest.next().getValue());
+                eldest.remove();
+            }
+            slot = freeSlots.poll();
+            index.put(key, slot);
+        }
+        slots.put(slot * blockLength, values, 0, blockLength);
+    }
+
+    /**
+     * Drop every block whose key matches and advance the version.
+     */
+    public synchronized void evictIf(LongPredicate matches) {
+        version++;
+        Iterator<Map.Entry<Long, Integer>> entries = index.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Integer> entry = entries.next();
+            if (matches.test(entry.getKey())) {
+                freeSlots.add(entry.getValue());
+                entries.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,88 @@
+package com.gs.tj.geo;
+
+/**
+ * Great-circle distances between two sets of points, computed as a dense block.
+ * <p>
+ * Each point's sine and cosine of latitude and longitude are computed once. With them the
+ * haversine term of a pair is {@code (1 - cos Δφ) / 2 + cos φ₁ cos φ₂ (1 - cos Δλ) / 2},
+ * where both cosines of differences expand into products of the per-point values. The
+ * inner loop is therefore plain multiply-adds over primitive arrays, which the JIT can
+ * vectorize; only the final conversion to meters calls {@code asin}. The expanded form
+ * loses precision below about a meter, which is far below what trip planning needs.
+ */
+public final class DistanceKernel {
+
+    private DistanceKernel() {
+    }
+
+    /**
+     * Per-point trigonometry of a set of points, in parallel arrays.
+     */
+    public static final class Points {
+        final double[] sinLat;
+        final double[] cosLat;
+        final double[] sinLon;
+        final double[] cosLon;
+        /** Whether each point has coordinates; distances involving a missing point are NaN. */
+        final boolean[] present;
+
+        /**
+         * @param latitudes Latitudes in degrees; NaN for a missing point
+         * @param longitudes Longitudes in degrees; NaN for a missing point
+         */
+        public Points(double[] latitudes, double[] longitudes) {
+            int size = latitudes.length;
+            sinLat = new double[size];
+            cosLat = new double[size];
+            sinLon = new double[size];
+            cosLon = new double[size];
+            present = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                present[i] = !Double.isNaN(latitudes[i]) && !Double.isNaN(longitudes[i]);
+                double lat = Math.toRadians(latitudes[i]);
+                double lon = Math.toRadians(longitudes[i]);
+                sinLat[i] = Math.sin(lat);
+                cosLat[i] = Math.cos(lat);
+                sinLon[i] = Math.sin(lon);
+                cosLon[i] = Math.cos(lon);
+            }
+        }
+
+        public int size() {
+            return present.length;
+        }
+    }
+
+    /**
+     * Fills {@code out[i * cols.size() + j]} with the distance in meters from row point i to
+     * column point j.
+     */
+    public static void distances(Points rows, Points cols, double[] out) {
+        int width = cols.size();
+        double[] colSinLat = cols.sinLat;
+        double[] colCosLat = cols.cosLat;
+        double[] colSinLon = cols.sinLon;
+        double[] colCosLon = cols.cosLon;
+        for (int i = 0; i < rows.size(); i++) {
+            double sinLat = rows.sinLat[i];
+            double cosLat = rows.cosLat[i];
+            double sinLon = rows.sinLon[i];
+            double cosLon = rows.cosLon[i];
+            int offset = i * width;
+            for (int j = 0; j < width; j++) {
+                double cosLatProduct = cosLat * colCosLat[j];
+                double cosDeltaLat = cosLatProduct + sinLat * colSinLat[j];
+                double cosDeltaLon = cosLon * colCosLon[j] + sinLon * colSinLon[j];
+                out[offset + j] = 0.5 * (1 - cosDeltaLat) + 0.5 * cosLatProduct * (1 - cosDeltaLon);
+            }
+        }
+        double diameter = 2 * GeoUtils.EARTH_RADIUS_METERS;
+        for (int i = 0; i < rows.size(); i++) {
+            int offset = i * width;
+            for (int j = 0; j < width; j++) {
+                double term = Math.min(1.0, Math.max(0.0, out[offset + j]));
+                out[offset + j] = rows.present[i] && cols.present[j] ? diameter * Math.asin(Math.sqrt(term)) : Double.NaN;
+            }
+        }
+    }
+}
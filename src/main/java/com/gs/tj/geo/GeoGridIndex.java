@@ -0,0 +1,361 @@
+package com.gs.tj.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Thread-safe in-memory point index over a fixed latitude/longitude grid.
+ * <p>
+ * Points are bucketed into square cells of {@code cellSizeDegrees}. A radius query only
+ * visits the cells overlapping the circle's bounding box (wrapping across the
+ * antimeridian and widening to all longitudes near the poles), then post-filters the
+ * candidates by exact haversine distance. When the bounding box spans more grid cells
+ * than are actually occupied, the occupied cells are scanned directly instead.
+ * <p>
+ * On top of the leaf grid the index keeps a pyramid of coarser levels, each cell covering
+ * 2x2 cells of the level below, recording how many points fall under it. Nearest-neighbour
+ * queries run best-first over that pyramid, ordered by a lower bound on the great-circle
+ * distance to each cell, and stop as soon as no unopened cell can beat the k-th best
+ * point found, so they only open cells that can still contain a closer point.
+ */
+public class GeoGridIndex {
+
+    private final double cellSize;
+    private final int rows;
+    private final int cols;
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+    private final Map<Long, Point> points = new HashMap<>();
+    /** Point counts per occupied cell for levels 1..n; level L cells are 2^L leaf cells wide. */
+    private final List<Map<Long, Integer>> levels = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record Point(long id, double lat, double lon, double cosLat, long cell) {
+    }
+
+    /** Best-first search entry: a cell of the pyramid and a lower bound on its haversine term from the origin. */
+    private record Candidate(double bound, int level, long cell) {
+    }
+
+    public GeoGridIndex(double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 90) {
+            throw new IllegalArgumentException("Cell size must be in (0, 90] degrees");
+        }
+        this.cellSize = cellSizeDegrees;
+        this.rows = (int) Math.ceil(180.0 / cellSizeDegrees);
+        this.cols = (int) Math.ceil(360.0 / cellSizeDegrees);
+        for (double size = cellSizeDegrees * 2; size / 2 < 90.0; size *= 2) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Insert or move a point.
+     */
+    public void put(long id, double lat, double lon) {
+        double normalizedLon = GeoUtils.normalizeLongitude(lon);
+        Point point = new Point(id, lat, normalizedLon, Math.cos(Math.toRadians(lat)), cellKey(row(lat), col(normalizedLon)));
+        lock.writeLock().lock();
+        try {
+            Point previous = points.put(id, point);
+            if (previous != null) {
+                detach(previous);
+            }
+            cells.computeIfAbsent(point.cell(), key -> new ArrayList<>(2)).add(point);
+            updateLevels(point.cell(), 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a point if present.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Point previous = points.remove(id);
+            if (previous != null) {
+                detach(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Coordinates of an indexed point.
+     *
+     * @return {@code [lat, lon]}, or null if the point is not indexed
+     */
+    public double[] coordinates(long id) {
+        lock.readLock().lock();
+        try {
+            Point point = points.get(id);
+            return point == null ? null : new double[] {point.lat(), point.lon()};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All points within {@code radiusMeters} of the origin, nearest first.
+     */
+    public List<GeoHit> withinRadius(double lat, double lon, double radiusMeters) {
+        double angular = radiusMeters / GeoUtils.EARTH_RADIUS_METERS;
+        double latDelta = Math.toDegrees(angular);
+        double minLat = lat - latDelta;
+        double maxLat = lat + latDelta;
+
+        // Half-width of the circle's bounding box in longitude; undefined once it reaches a pole.
+        double lonDelta = 180.0;
+        if (minLat > -90.0 && maxLat < 90.0) {
+            double sinDelta = Math.sin(angular) / Math.cos(Math.toRadians(lat));
+            if (sinDelta < 1.0) {
+                lonDelta = Math.toDegrees(Math.asin(sinDelta));
+            }
+        }
+
+        List<GeoHit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            forEachCandidate(minLat, maxLat, lon - lonDelta, lon + lonDelta, point -> {
+                double distance = GeoUtils.haversine(lat, lon, point.lat(), point.lon());
+                if (distance <= radiusMeters) {
+                    hits.add(new GeoHit(point.id(), distance));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingDouble(GeoHit::distanceMeters));
+        return hits;
+    }
+
+    /**
+     * The {@code k} points nearest to the origin, nearest first.
+     */
+    public List<GeoHit> nearest(double lat, double lon, int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Comparator.comparingDouble(Candidate::bound));
+        // Max-heap of the best k points found so far, ranked by haversine term; its head is the value to beat.
+        PriorityQueue<GeoHit> best = new PriorityQueue<>(
+                Comparator.comparingDouble(GeoHit::distanceMeters).reversed());
+        lock.readLock().lock();
+        try {
+            double cosLat = Math.cos(Math.toRadians(lat));
+            int top = levels.size();
+            for (long cell : top == 0 ? cells.keySet() : levels.get(top - 1).keySet()) {
+                queue.add(new Candidate(cellBound(lat, cosLat, lon, top, cell), top, cell));
+            }
+            while (!queue.isEmpty()) {
+                Candidate next = queue.poll();
+                if (best.size() == k && next.bound() >= best.peek().distanceMeters()) {
+                    break;
+                }
+                if (next.level() > 0) {
+                    enqueueChildren(queue, lat, cosLat, lon, next.level(), next.cell());
+                    continue;
+                }
+                for (Point point : cells.get(next.cell())) {
+                    double term = GeoUtils.haversineTerm(lat, cosLat, lon, point.lat(), point.cosLat(), point.lon());
+                    if (best.size() < k) {
+                        best.add(new GeoHit(point.id(), term));
+                    } else if (term < best.peek().distanceMeters()) {
+                        best.poll();
+                        best.add(new GeoHit(point.id(), term));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return best.stream()
+                .map(hit -> new GeoHit(hit.id(), GeoUtils.toMeters(hit.distanceMeters())))
+                .sorted(Comparator.comparingDouble(GeoHit::distanceMeters))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Points inside a latitude/longitude box, closest to the box centre first.
+     * A box with {@code minLon > maxLon} crosses the antimeridian.
+     */
+    public List<GeoHit> withinBoundingBox(double minLat, double minLon, double maxLat, double maxLon, int limit) {
+        double west = GeoUtils.normalizeLongitude(minLon);
+        double east = GeoUtils.normalizeLongitude(maxLon);
+        double span = east >= west ? east - west : east + 360.0 - west;
+        if (maxLon - minLon >= 360.0) {
+            span = 360.0;
+        }
+        double width = span;
+        double centerLat = (minLat + maxLat) / 2;
+        double centerLon = GeoUtils.normalizeLongitude(west + span / 2);
+
+        // Max-heap on distance keeps the {@code limit} points closest to the centre.
+        PriorityQueue<GeoHit> kept = new PriorityQueue<>(
+                Comparator.comparingDouble(GeoHit::distanceMeters).reversed());
+        lock.readLock().lock();
+        try {
+            forEachCandidate(minLat, maxLat, west, west + span, point -> {
+                if (point.lat() < minLat || point.lat() > maxLat) {
+                    return;
+                }
+                if (width < 360.0 && ((point.lon() - west) % 360.0 + 360.0) % 360.0 > width) {
+                    return;
+                }
+                kept.add(new GeoHit(point.id(), GeoUtils.haversine(centerLat, centerLon, point.lat(), point.lon())));
+                if (kept.size() > limit) {
+                    kept.poll();
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<GeoHit> hits = new ArrayList<>(kept);
+        hits.sort(Comparator.comparingDouble(GeoHit::distanceMeters));
+        return hits;
+    }
+
+    private void enqueueChildren(PriorityQueue<Candidate> queue, double lat, double cosLat, double lon,
+            int level, long cell) {
+        int childLevel = level - 1;
+        int parentCols = levelCols(level);
+        int childRows = levelRows(childLevel);
+        int childCols = levelCols(childLevel);
+        int row = (int) (cell / parentCols);
+        int col = (int) (cell % parentCols);
+        for (int r = row * 2; r <= row * 2 + 1 && r < childRows; r++) {
+            for (int c = col * 2; c <= col * 2 + 1 && c < childCols; c++) {
+                long child = (long) r * childCols + c;
+                boolean occupied = childLevel == 0 ? cells.containsKey(child) : levels.get(childLevel - 1).containsKey(child);
+                if (occupied) {
+                    queue.add(new Candidate(cellBound(lat, cosLat, lon, childLevel, child), childLevel, child));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lower bound on the haversine term from a point to any point of a cell. Every part
+     * of {@code sin²(Δφ/2) + cos φ₁ cos φ₂ sin²(Δλ/2)} is bounded below by the cell's
+     * latitude gap, longitude gap and smallest cos(latitude); the bound is exact along
+     * meridians and within a few percent elsewhere.
+     */
+    private double cellBound(double lat, double cosLat, double lon, int level, long cell) {
+        double size = cellSize * (1L << level);
+        int levelCols = levelCols(level);
+        double minLat = -90.0 + (cell / levelCols) * size;
+        double maxLat = Math.min(90.0, minLat + size);
+        double minLon = -180.0 + (cell % levelCols) * size;
+        double width = Math.min(size, 180.0 - minLon);
+
+        double latGap = Math.max(0.0, Math.max(minLat - lat, lat - maxLat));
+        double sinLat = Math.sin(Math.toRadians(latGap) / 2);
+        double offset = ((lon - minLon) % 360.0 + 360.0) % 360.0;
+        if (offset <= width) {
+            return sinLat * sinLat;
+        }
+        double lonGap = Math.min(offset - width, 360.0 - offset);
+        double sinLon = Math.sin(Math.toRadians(lonGap) / 2);
+        double minCos = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        return sinLat * sinLat + cosLat * minCos * sinLon * sinLon;
+    }
+
+    private void updateLevels(long leafCell, int delta) {
+        int row = (int) (leafCell / cols);
+        int col = (int) (leafCell % cols);
+        for (int level = 1; level <= levels.size(); level++) {
+            row >>= 1;
+            col >>= 1;
+            long key = (long) row * levelCols(level) + col;
+            levels.get(level - 1).merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private int levelRows(int level) {
+        return (int) Math.ceil(180.0 / (cellSize * (1L << level)));
+    }
+
+    private int levelCols(int level) {
+        return (int) Math.ceil(360.0 / (cellSize * (1L << level)));
+    }
+
+    /**
+     * Visits every point in cells overlapping the given latitude band and longitude span.
+     * The span may extend past ±180 and is wrapped; a span of 360 degrees or more covers
+     * every longitude. Must be called with the read lock held.
+     */
+    private void forEachCandidate(double minLat, double maxLat, double fromLon, double toLon,
+            Consumer<Point> visitor) {
+        int minRow = row(Math.max(-90.0, minLat));
+        int maxRow = row(Math.min(90.0, maxLat));
+        long startCol = (long) Math.floor((fromLon + 180.0) / cellSize);
+        long endCol = (long) Math.floor((toLon + 180.0) / cellSize);
+        long colSpan = Math.min(cols, endCol - startCol + 1);
+        long gridCells = (long) (maxRow - minRow + 1) * colSpan;
+
+        if (gridCells > cells.size()) {
+            for (List<Point> cell : cells.values()) {
+                int cellRow = (int) (cell.get(0).cell() / cols);
+                if (cellRow < minRow || cellRow > maxRow) {
+                    continue;
+                }
+                int cellCol = (int) (cell.get(0).cell() % cols);
+                if (colSpan < cols && Math.floorMod(cellCol - startCol, cols) >= colSpan) {
+                    continue;
+                }
+                cell.forEach(visitor);
+            }
+            return;
+        }
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (long c = 0; c < colSpan; c++) {
+                List<Point> cell = cells.get(cellKey(r, Math.floorMod(startCol + c, cols)));
+                if (cell != null) {
+                    cell.forEach(visitor);
+                }
+            }
+        }
+    }
+
+    private void detach(Point point) {
+        List<Point> cell = cells.get(point.cell());
+        if (cell != null && cell.removeIf(p -> p.id() == point.id())) {
+            updateLevels(point.cell(), -1);
+            if (cell.isEmpty()) {
+                cells.remove(point.cell());
+            }
+        }
+    }
+
+    private int row(double lat) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor((lat + 90.0) / cellSize)));
+    }
+
+    private int col(double normalizedLon) {
+        return Math.floorMod((int) Math.floor((normalizedLon + 180.0) / cellSize), cols);
+    }
+
+    private long cellKey(int row, int col) {
+        return (long) row * cols + col;
+    }
+}
@@ -0,0 +1,10 @@
+package com.gs.tj.geo;
+
+/**
+ * A point returned by a spatial query together with its distance from the query origin.
+ *
+ * @param id Location ID
+ * @param distanceMeters Great-circle distance from the query point in meters
+ */
+public record GeoHit(long id, double distanceMeters) {
+}
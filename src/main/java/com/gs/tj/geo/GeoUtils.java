@@ -0,0 +1,48 @@
+package com.gs.tj.geo;
+
+/**
+ * Spherical geometry helpers shared by the in-memory spatial structures.
+ * All distances are great-circle distances in meters on a mean-radius Earth.
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Haversine distance between two coordinates.
+     *
+     * @return Distance in meters
+     */
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        return toMeters(haversineTerm(lat1, Math.cos(Math.toRadians(lat1)), lon1, lat2, Math.cos(Math.toRadians(lat2)), lon2));
+    }
+
+    /**
+     * The haversine term {@code sin²(Δφ/2) + cos φ₁ cos φ₂ sin²(Δλ/2)}. It grows
+     * monotonically with distance, so searches can rank by it and convert only results.
+     */
+    public static double haversineTerm(double lat1, double cosLat1, double lon1,
+            double lat2, double cosLat2, double lon2) {
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        return sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+    }
+
+    /**
+     * Converts a haversine term to a distance in meters.
+     */
+    public static double toMeters(double haversineTerm) {
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(haversineTerm)));
+    }
+
+    /**
+     * Wraps a longitude into [-180, 180).
+     */
+    public static double normalizeLongitude(double lon) {
+        double wrapped = ((lon + 180.0) % 360.0 + 360.0) % 360.0 - 180.0;
+        return wrapped == 180.0 ? -180.0 : wrapped;
+    }
+}
@@ -1,29 +1,168 @@
 package com.gs.tj.repository;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.gs.tj.entity.Diary;
+import com.gs.tj.repository.projection.DiaryRow;
+import com.gs.tj.repository.projection.LocationTravelStats;
+import com.gs.tj.repository.projection.MonthlyTravelStats;
+import com.gs.tj.repository.projection.NamedTravelStats;
+import com.gs.tj.repository.projection.OwnedValue;
+import com.gs.tj.repository.projection.PlaceScope;
+import com.gs.tj.repository.projection.ScoredId;
+import com.gs.tj.repository.projection.TravelStats;
 
 /**
  * Repository interface for Diary entity.
  * Provides methods for diary-related database operations.
+ * Queries returning lists of diaries fetch each diary's author and location with it.
  */
 @Repository
 public interface DiaryRepository extends JpaRepository<Diary, Long> {
-    List<Diary> findByUserId(Long userId);
-    List<Diary> findByLocationId(Long locationId);
-    List<Diary> findByTravelDateBetween(LocalDate startDate, LocalDate endDate);
-    List<Diary> findByTagsContaining(String tag);
-    
-    @Query("SELECT d FROM Diary d WHERE d.isPublic = true ORDER BY d.likes DESC")
-    List<Diary> findPopularDiaries();
-    
-    @Query("SELECT d FROM Diary d WHERE d.isPublic = true AND d.user.id != :userId ORDER BY d.likes DESC")
-    List<Diary> findRecommendedDiaries(@Param("userId") Long userId);
-} 
\ No newline at end of file
+    /** Select list of {@link DiaryRow}; append the WHERE and ORDER BY clauses. */
+    String DIARY_ROW = "SELECT d.id AS id, d.title AS title, d.content AS content, u.id AS userId, " +
+            "u.username AS username, l.id AS locationId, l.name AS locationName, d.travelDate AS travelDate, " +
+            "d.likes AS likes, d.isPublic AS isPublic, d.createdAt AS createdAt, d.updatedAt AS updatedAt " +
+            "FROM Diary d JOIN d.user u LEFT JOIN d.location l ";
+    /**
+     * Select list of {@link TravelStats} over a user's diaries travelled in [from, to);
+     * prepend group columns, append further AND conditions and the GROUP BY clause.
+     */
+    String TRAVEL_STATS = "COUNT(d) AS diaries, COUNT(DISTINCT l.id) AS locations, COUNT(DISTINCT l.country) AS countries, " +
+            "COALESCE(SUM(d.likes), 0) AS likes, MIN(d.travelDate) AS firstTravelDate, " +
+            "MAX(d.travelDate) AS lastTravelDate FROM Diary d LEFT JOIN d.location l " +
+            "WHERE d.user.id = :userId AND d.travelDate >= :from AND d.travelDate < :to ";
+
+    @Override
+    @EntityGraph(Diary.WITH_AUTHOR_AND_LOCATION)
+    List<Diary> findAllById(Iterable<Long> ids);
+
+    // Keyset (seek) pagination for feeds: newest first, strictly older than the cursor.
+
+    @EntityGraph(Diary.WITH_AUTHOR_AND_LOCATION)
+    @Query("SELECT d FROM Diary d WHERE d.user.id = :userId AND d.id < :lastId ORDER BY d.id DESC")
+    List<Diary> findFeedByUser(@Param("userId") Long userId, @Param("lastId") Long lastId, Limit limit);
+
+    @EntityGraph(Diary.WITH_AUTHOR_AND_LOCATION)
+    @Query("SELECT d FROM Diary d WHERE d.location.id = :locationId AND d.id < :lastId ORDER BY d.id DESC")
+    List<Diary> findFeedByLocation(@Param("locationId") Long locationId, @Param("lastId") Long lastId, Limit limit);
+
+    @EntityGraph(Diary.WITH_AUTHOR_AND_LOCATION)
+    @Query("SELECT d FROM Diary d JOIN d.tags t WHERE t = :tag AND d.id < :lastId ORDER BY d.id DESC")
+    List<Diary> findFeedByTag(@Param("tag") String tag, @Param("lastId") Long lastId, Limit limit);
+
+    @EntityGraph(Diary.WITH_AUTHOR_AND_LOCATION)
+    @Query("SELECT d FROM Diary d WHERE d.user.id = :userId AND d.isPublic = true AND d.id < :lastId ORDER BY d.id DESC")
+    List<Diary> findPublicFeedByUser(@Param("userId") Long userId, @Param("lastId") Long lastId, Limit limit);
+
+    @Query("SELECT d.id FROM Diary d WHERE d.user.id IN :userIds AND d.isPublic = true ORDER BY d.id DESC")
+    List<Long> findPublicIdsByUserIds(@Param("userIds") Collection<Long> userIds, Limit limit);
+
+    @Query("SELECT d.id FROM Diary d WHERE d.id > :afterId ORDER BY d.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT d.id FROM Diary d WHERE d.location.id = :locationId")
+    List<Long> findIdsByLocationId(@Param("locationId") Long locationId);
+
+    @Query("SELECT DISTINCT d FROM Diary d LEFT JOIN FETCH d.tags LEFT JOIN FETCH d.location WHERE d.id IN :ids")
+    List<Diary> findAllForIndexing(@Param("ids") Collection<Long> ids);
+
+    @Query(DIARY_ROW + "WHERE d.id = :id")
+    Optional<DiaryRow> findRowById(@Param("id") Long id);
+
+    @Query(DIARY_ROW + "WHERE d.id IN :ids")
+    List<DiaryRow> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(DIARY_ROW + "WHERE u.id = :userId ORDER BY d.id DESC")
+    List<DiaryRow> findRowsByUserId(@Param("userId") Long userId);
+
+    @Query(DIARY_ROW + "WHERE l.id = :locationId ORDER BY d.id DESC")
+    List<DiaryRow> findRowsByLocationId(@Param("locationId") Long locationId);
+
+    @Query(DIARY_ROW + "WHERE d.travelDate >= :from AND d.travelDate < :to ORDER BY d.travelDate")
+    List<DiaryRow> findRowsByTravelDate(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Page of a user's dated diaries in travel date order, after the given position; a null
+     * {@code afterDate} starts from the beginning.
+     */
+    @Query(DIARY_ROW + "WHERE u.id = :userId AND d.travelDate IS NOT NULL AND (:afterDate IS NULL " +
+            "OR d.travelDate > :afterDate OR (d.travelDate = :afterDate AND d.id > :afterId)) " +
+            "ORDER BY d.travelDate, d.id")
+    List<DiaryRow> findTimelineRows(@Param("userId") Long userId, @Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId, Limit limit);
+
+    @Query(DIARY_ROW + "WHERE u.id = :userId AND d.travelDate IS NULL AND d.id > :afterId ORDER BY d.id")
+    List<DiaryRow> findUndatedTimelineRows(@Param("userId") Long userId, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Page of a user's diaries travelled before {@code to}, in travel date order, after the
+     * given position; starting from {@code afterDate} and {@code afterId} 0 includes every
+     * diary travelled at or after {@code afterDate}.
+     */
+    @Query(DIARY_ROW + "WHERE u.id = :userId AND d.travelDate < :to AND (d.travelDate > :afterDate " +
+            "OR (d.travelDate = :afterDate AND d.id > :afterId)) ORDER BY d.travelDate, d.id")
+    List<DiaryRow> findTimelineRowsBefore(@Param("userId") Long userId, @Param("to") LocalDateTime to,
+            @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT " + TRAVEL_STATS)
+    TravelStats findTravelStats(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("SELECT l.country AS name, " + TRAVEL_STATS + "GROUP BY l.country ORDER BY COUNT(d) DESC, l.country NULLS LAST")
+    List<NamedTravelStats> findTravelStatsByCountry(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("SELECT l.category AS name, " + TRAVEL_STATS + "GROUP BY l.category ORDER BY COUNT(d) DESC, l.category NULLS LAST")
+    List<NamedTravelStats> findTravelStatsByCategory(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("SELECT YEAR(d.travelDate) AS year, MONTH(d.travelDate) AS month, " + TRAVEL_STATS +
+            "GROUP BY YEAR(d.travelDate), MONTH(d.travelDate) ORDER BY YEAR(d.travelDate), MONTH(d.travelDate)")
+    List<MonthlyTravelStats> findTravelStatsByMonth(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Page of per-location stats in location id order, after the given location.
+     */
+    @Query("SELECT l.id AS locationId, l.name AS name, l.city AS city, l.country AS country, l.category AS category, " +
+            TRAVEL_STATS + "AND l.id > :afterId GROUP BY l.id, l.name, l.city, l.country, l.category ORDER BY l.id")
+    List<LocationTravelStats> findTravelStatsByLocation(@Param("userId") Long userId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("afterId") Long afterId,
+            Limit limit);
+
+    @Query(DIARY_ROW + "WHERE d.id IN (SELECT t.id FROM Diary t JOIN t.tags tag WHERE tag = :tag) ORDER BY d.id DESC")
+    List<DiaryRow> findRowsByTag(@Param("tag") String tag);
+
+    @Query(DIARY_ROW + "WHERE d.isPublic = true ORDER BY d.likes DESC")
+    List<DiaryRow> findPopularRows(Limit limit);
+
+    @Query(DIARY_ROW + "WHERE d.isPublic = true AND u.id <> :userId ORDER BY d.likes DESC")
+    List<DiaryRow> findRecommendedRows(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT d.id AS ownerId, t AS value FROM Diary d JOIN d.tags t WHERE d.id IN :ids")
+    List<OwnedValue> findTagsByDiaryIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT d.id AS ownerId, i AS value FROM Diary d JOIN d.imageUrls i WHERE d.id IN :ids")
+    List<OwnedValue> findImageUrlsByDiaryIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT d.id AS id, d.likes AS score FROM Diary d WHERE d.isPublic = true ORDER BY d.likes DESC")
+    List<ScoredId> findTopLiked(Limit limit);
+
+    @Query("SELECT d.likes FROM Diary d WHERE d.id = :id AND d.isPublic = true")
+    Optional<Integer> findPublicLikes(@Param("id") Long id);
+
+    @Query("SELECT l.country AS country, l.category AS category FROM Diary d LEFT JOIN d.location l " +
+            "WHERE d.id = :id AND d.isPublic = true")
+    Optional<PlaceScope> findPublicScope(@Param("id") Long id);
+}
@@ -0,0 +1,30 @@
+package com.gs.tj.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.gs.tj.entity.Favorite;
+import com.gs.tj.entity.Favorite.FavoriteType;
+import com.gs.tj.repository.projection.FavoriteRow;
+
+/**
+ * Repository interface for Favorite entity.
+ * Provides methods for reading and removing a user's favorites.
+ */
+@Repository
+public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
+    boolean existsByUserIdAndTypeAndFavoriteId(Long userId, FavoriteType type, Long favoriteId);
+    long deleteByUserIdAndTypeAndFavoriteId(Long userId, FavoriteType type, Long favoriteId);
+
+    @Query("SELECT f.favoriteId FROM Favorite f WHERE f.user.id = :userId AND f.type = :type ORDER BY f.id DESC")
+    List<Long> findFavoriteIds(@Param("userId") Long userId, @Param("type") FavoriteType type);
+
+    @Query("SELECT f.id AS id, f.type AS type, f.favoriteId AS favoriteId, f.createdAt AS createdAt " +
+            "FROM Favorite f WHERE f.user.id = :userId AND f.id > :afterId ORDER BY f.id")
+    List<FavoriteRow> findRowsByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId, Limit limit);
+}
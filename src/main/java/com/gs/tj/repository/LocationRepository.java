@@ -1,13 +1,23 @@
 package com.gs.tj.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.gs.tj.entity.Location;
+import com.gs.tj.repository.projection.LocationLabel;
+import com.gs.tj.repository.projection.LocationMarker;
+import com.gs.tj.repository.projection.LocationPoint;
+import com.gs.tj.repository.projection.LocationRow;
+import com.gs.tj.repository.projection.OwnedValue;
+import com.gs.tj.repository.projection.PlaceScope;
+import com.gs.tj.repository.projection.ScoredId;
 
 /**
  * Repository interface for Location entity.
@@ -15,21 +25,132 @@ import com.gs.tj.entity.Location;
  */
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long> {
-    List<Location> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(String name, String description);
-    List<Location> findByCountry(String country);
-    List<Location> findByCity(String city);
-    List<Location> findByCategory(String category);
-    List<Location> findByTagsContaining(String tag);
+    /** Select list of {@link LocationRow}; append the WHERE and ORDER BY clauses. */
+    String LOCATION_ROW = "SELECT l.id AS id, l.name AS name, l.description AS description, l.country AS country, " +
+            "l.city AS city, l.category AS category, l.latitude AS latitude, l.longitude AS longitude, " +
+            "l.visitCount AS visitCount, l.averageRating AS averageRating, l.ratingCount AS ratingCount, " +
+            "l.isPublic AS isPublic, l.createdAt AS createdAt, l.updatedAt AS updatedAt FROM Location l ";
 
-    @Query("SELECT l FROM Location l WHERE l.isPublic = true ORDER BY l.visitCount DESC")
-    List<Location> findPopularLocations();
+    /** Native select list of {@link LocationRow}; append the WHERE and ORDER BY clauses. */
+    String LOCATION_ROW_NATIVE = "SELECT id AS id, name AS name, description AS description, country AS country, " +
+            "city AS city, category AS category, latitude AS latitude, longitude AS longitude, " +
+            "visit_count AS visitCount, average_rating AS averageRating, rating_count AS ratingCount, " +
+            "is_public AS isPublic, created_at AS createdAt, updated_at AS updatedAt FROM locations ";
 
-    @Query(value = "SELECT * FROM locations WHERE " +
+    @Query(LOCATION_ROW + "WHERE l.isPublic = true AND " +
+            "(LOWER(l.name) LIKE LOWER(CONCAT('%', :text, '%')) OR LOWER(l.description) LIKE LOWER(CONCAT('%', :text, '%'))) " +
+            "ORDER BY l.id")
+    List<LocationRow> findPublicRowsByText(@Param("text") String text);
+
+    @Query(value = LOCATION_ROW_NATIVE + "WHERE " +
             "ST_Distance_Sphere(point(longitude, latitude), point(:longitude, :latitude)) <= :radiusInMeters " +
             "ORDER BY ST_Distance_Sphere(point(longitude, latitude), point(:longitude, :latitude))",
             nativeQuery = true)
-    List<Location> findNearbyLocations(
+    List<LocationRow> findNearbyRows(
             @Param("latitude") double latitude,
             @Param("longitude") double longitude,
             @Param("radiusInMeters") double radiusInMeters);
-} 
\ No newline at end of file
+
+    @Query(value = LOCATION_ROW_NATIVE +
+            "ORDER BY ST_Distance_Sphere(point(longitude, latitude), point(:longitude, :latitude)) LIMIT :k",
+            nativeQuery = true)
+    List<LocationRow> findNearestRows(
+            @Param("latitude") double latitude,
+            @Param("longitude") double longitude,
+            @Param("k") int k);
+
+    /**
+     * Locations inside a box; when {@code west > east} the box wraps across the antimeridian.
+     */
+    @Query(LOCATION_ROW + "WHERE l.latitude BETWEEN :south AND :north AND " +
+            "((:west <= :east AND l.longitude BETWEEN :west AND :east) OR " +
+            "(:west > :east AND (l.longitude >= :west OR l.longitude <= :east)))")
+    List<LocationRow> findRowsInBoundingBox(
+            @Param("south") double south,
+            @Param("north") double north,
+            @Param("west") double west,
+            @Param("east") double east,
+            Limit limit);
+
+    @Query("SELECT l.id AS id, l.latitude AS latitude, l.longitude AS longitude FROM Location l " +
+            "WHERE l.id > :afterId ORDER BY l.id")
+    List<LocationPoint> findPointsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT l.id AS id, l.latitude AS latitude, l.longitude AS longitude FROM Location l WHERE l.id = :id")
+    Optional<LocationPoint> findPointById(@Param("id") Long id);
+
+    @Query("SELECT l.id AS id, l.latitude AS latitude, l.longitude AS longitude FROM Location l WHERE l.id IN :ids")
+    List<LocationPoint> findPointsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT l.id FROM Location l WHERE l.id > :afterId ORDER BY l.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT DISTINCT l FROM Location l LEFT JOIN FETCH l.tags WHERE l.id IN :ids")
+    List<Location> findAllForIndexing(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT l.id AS id, l.name AS name, l.latitude AS latitude, l.longitude AS longitude, " +
+            "l.visitCount AS visitCount FROM Location l WHERE l.id > :afterId ORDER BY l.id")
+    List<LocationMarker> findMarkersAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT l.id AS id, l.name AS name, l.latitude AS latitude, l.longitude AS longitude, " +
+            "l.visitCount AS visitCount FROM Location l WHERE l.id = :id")
+    Optional<LocationMarker> findMarkerById(@Param("id") Long id);
+
+    @Query("SELECT l.id AS id, l.name AS name, l.city AS city, l.country AS country, " +
+            "l.visitCount AS visitCount FROM Location l WHERE l.id > :afterId ORDER BY l.id")
+    List<LocationLabel> findLabelsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT l.id AS id, l.name AS name, l.city AS city, l.country AS country, " +
+            "l.visitCount AS visitCount FROM Location l WHERE l.id = :id")
+    Optional<LocationLabel> findLabelById(@Param("id") Long id);
+
+    @Query("SELECT l.id AS id, l.name AS name, l.latitude AS latitude, l.longitude AS longitude, " +
+            "l.visitCount AS visitCount FROM Location l WHERE l.latitude BETWEEN :south AND :north AND " +
+            "((:west <= :east AND l.longitude BETWEEN :west AND :east) OR " +
+            "(:west > :east AND (l.longitude >= :west OR l.longitude <= :east)))")
+    List<LocationMarker> findMarkersInBoundingBox(
+            @Param("south") double south,
+            @Param("north") double north,
+            @Param("west") double west,
+            @Param("east") double east,
+            Limit limit);
+
+    @Query(LOCATION_ROW + "WHERE l.id = :id")
+    Optional<LocationRow> findRowById(@Param("id") Long id);
+
+    @Query(LOCATION_ROW + "WHERE l.id IN :ids")
+    List<LocationRow> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(LOCATION_ROW + "ORDER BY l.id")
+    List<LocationRow> findAllRows();
+
+    @Query(LOCATION_ROW + "WHERE l.country = :country ORDER BY l.id")
+    List<LocationRow> findRowsByCountry(@Param("country") String country);
+
+    @Query(LOCATION_ROW + "WHERE l.city = :city ORDER BY l.id")
+    List<LocationRow> findRowsByCity(@Param("city") String city);
+
+    @Query(LOCATION_ROW + "WHERE l.category = :category ORDER BY l.id")
+    List<LocationRow> findRowsByCategory(@Param("category") String category);
+
+    @Query(LOCATION_ROW + "WHERE l.id IN (SELECT t.id FROM Location t JOIN t.tags tag WHERE tag IN :tags) ORDER BY l.id")
+    List<LocationRow> findRowsByAnyTag(@Param("tags") Collection<String> tags);
+
+    @Query(LOCATION_ROW + "WHERE l.isPublic = true ORDER BY l.visitCount DESC")
+    List<LocationRow> findPopularRows(Limit limit);
+
+    @Query("SELECT l.id AS ownerId, t AS value FROM Location l JOIN l.tags t WHERE l.id IN :ids")
+    List<OwnedValue> findTagsByLocationIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT l.id AS ownerId, i AS value FROM Location l JOIN l.imageUrls i WHERE l.id IN :ids")
+    List<OwnedValue> findImageUrlsByLocationIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT l.id AS id, l.visitCount AS score FROM Location l WHERE l.isPublic = true ORDER BY l.visitCount DESC")
+    List<ScoredId> findTopVisited(Limit limit);
+
+    @Query("SELECT l.visitCount FROM Location l WHERE l.id = :id AND l.isPublic = true")
+    Optional<Integer> findPublicVisitCount(@Param("id") Long id);
+
+    @Query("SELECT l.country AS country, l.category AS category FROM Location l WHERE l.id = :id AND l.isPublic = true")
+    Optional<PlaceScope> findPublicScope(@Param("id") Long id);
+}
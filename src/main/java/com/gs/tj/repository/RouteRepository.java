@@ -1,20 +1,81 @@
 package com.gs.tj.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.gs.tj.entity.Route;
+import com.gs.tj.repository.projection.OwnedValue;
+import com.gs.tj.repository.projection.PlaceScope;
+import com.gs.tj.repository.projection.RouteRow;
+import com.gs.tj.repository.projection.RouteStop;
 
 /**
  * Repository interface for Route entity.
  * Provides methods for route-related database operations.
+ * Routes are read as {@link RouteRow}s, which carry their owner's and endpoints' id and
+ * name; their stops and images are read for a batch of routes at a time.
  */
 @Repository
 public interface RouteRepository extends JpaRepository<Route, Long> {
-    List<Route> findByUserId(Long userId);
-    List<Route> findByStartLocationId(Long locationId);
-    List<Route> findByEndLocationId(Long locationId);
-    List<Route> findByIsPublicTrueOrderByCreatedAtDesc();
-} 
\ No newline at end of file
+    /** Select clause of {@link RouteRow}, with the route aliased {@code r}. */
+    String ROUTE_ROW = "SELECT r.id AS id, r.name AS name, r.description AS description, " +
+            "u.id AS userId, u.username AS username, " +
+            "s.id AS startLocationId, s.name AS startLocationName, e.id AS endLocationId, " +
+            "e.name AS endLocationName, r.estimatedDuration AS estimatedDuration, r.isPublic AS isPublic, " +
+            "r.createdAt AS createdAt, r.updatedAt AS updatedAt " +
+            "FROM Route r JOIN r.user u JOIN r.startLocation s JOIN r.endLocation e ";
+
+    @Query(ROUTE_ROW + "WHERE r.id = :id")
+    Optional<RouteRow> findRowById(@Param("id") Long id);
+
+    @Query(ROUTE_ROW + "WHERE r.id IN :ids")
+    List<RouteRow> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(ROUTE_ROW + "WHERE r.user.id = :userId ORDER BY r.id")
+    List<RouteRow> findRowsByUserId(@Param("userId") Long userId);
+
+    @Query(ROUTE_ROW + "WHERE s.id = :locationId ORDER BY r.id")
+    List<RouteRow> findRowsByStartLocationId(@Param("locationId") Long locationId);
+
+    @Query(ROUTE_ROW + "WHERE e.id = :locationId ORDER BY r.id")
+    List<RouteRow> findRowsByEndLocationId(@Param("locationId") Long locationId);
+
+    @Query(ROUTE_ROW + "WHERE r.isPublic = true ORDER BY r.createdAt DESC")
+    List<RouteRow> findNewestPublicRows(Limit limit);
+
+    @Query("SELECT r.id FROM Route r WHERE r.id > :afterId ORDER BY r.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT DISTINCT r FROM Route r LEFT JOIN FETCH r.stopLocationIds WHERE r.id IN :ids")
+    List<Route> findAllForRouting(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT r FROM Route r LEFT JOIN FETCH r.stopLocationIds WHERE r.id = :id")
+    Optional<Route> findForRoutingById(@Param("id") Long id);
+
+    @Query("SELECT r.id FROM Route r WHERE r.isPublic = true ORDER BY r.id DESC")
+    List<Long> findNewestPublicIds(Limit limit);
+
+    @Query("SELECT r.id FROM Route r WHERE r.id = :id AND r.isPublic = true")
+    Optional<Long> findPublicId(@Param("id") Long id);
+
+    @Query(ROUTE_ROW + "WHERE r.user.id = :userId AND r.id > :afterId ORDER BY r.id")
+    List<RouteRow> findRowsByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT r.id AS routeId, s AS locationId FROM Route r JOIN r.stopLocationIds s " +
+            "WHERE r.id IN :ids ORDER BY r.id, INDEX(s)")
+    List<RouteStop> findStopsByRouteIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT r.id AS ownerId, i AS value FROM Route r JOIN r.imageUrls i WHERE r.id IN :ids")
+    List<OwnedValue> findImageUrlsByRouteIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT l.country AS country, l.category AS category FROM Route r LEFT JOIN r.startLocation l " +
+            "WHERE r.id = :id AND r.isPublic = true")
+    Optional<PlaceScope> findPublicScope(@Param("id") Long id);
+}
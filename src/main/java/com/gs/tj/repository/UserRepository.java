@@ -3,10 +3,16 @@ package com.gs.tj.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.gs.tj.dto.UserSummary;
 import com.gs.tj.entity.User;
+import com.gs.tj.repository.projection.FollowerCount;
+import com.gs.tj.repository.projection.UserHandle;
 
 /**
  * Repository interface for User entity.
@@ -14,10 +20,54 @@ import com.gs.tj.entity.User;
  */
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    /** Constructor expression building a {@link UserSummary} from {@code u}. */
+    String USER_SUMMARY = "SELECT new com.gs.tj.dto.UserSummary(u.id, u.username, u.fullName, u.bio, " +
+            "u.profileImageUrl, u.createdAt) ";
+
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
     List<User> findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCase(String username, String email);
     List<User> findByFollowingId(Long userId);
-} 
\ No newline at end of file
+    long countByFollowingId(Long userId);
+
+    @Query("SELECT u.id FROM User u JOIN u.following f WHERE f.id = :userId")
+    List<Long> findFollowerIds(@Param("userId") Long userId);
+
+    @Query("SELECT f.id FROM User u JOIN u.following f WHERE u.id = :userId")
+    List<Long> findFollowingIds(@Param("userId") Long userId);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.fullName AS fullName FROM User u " +
+            "WHERE u.id > :afterId ORDER BY u.id")
+    List<UserHandle> findHandlesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.fullName AS fullName FROM User u WHERE u.id = :id")
+    Optional<UserHandle> findHandleById(@Param("id") Long id);
+
+    @Query("SELECT f.id AS userId, COUNT(u) AS followers FROM User u JOIN u.following f GROUP BY f.id")
+    List<FollowerCount> countFollowers();
+
+    @Query(USER_SUMMARY + "FROM User u WHERE u.id = :id")
+    Optional<UserSummary> findSummaryById(@Param("id") Long id);
+
+    @Query(USER_SUMMARY + "FROM User u WHERE u.username = :username")
+    Optional<UserSummary> findSummaryByUsername(@Param("username") String username);
+
+    @Query(USER_SUMMARY + "FROM User u WHERE u.email = :email")
+    Optional<UserSummary> findSummaryByEmail(@Param("email") String email);
+
+    @Query(USER_SUMMARY + "FROM User u ORDER BY u.id")
+    List<UserSummary> findAllSummaries();
+
+    @Query(USER_SUMMARY + "FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) " +
+            "OR LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) ORDER BY u.id")
+    List<UserSummary> searchSummaries(@Param("query") String query);
+
+    @Query(USER_SUMMARY + "FROM User u JOIN u.following f WHERE f.id = :userId ORDER BY u.id")
+    List<UserSummary> findFollowerSummaries(@Param("userId") Long userId);
+
+    @Query("SELECT new com.gs.tj.dto.UserSummary(f.id, f.username, f.fullName, f.bio, f.profileImageUrl, " +
+            "f.createdAt) FROM User u JOIN u.following f WHERE u.id = :userId ORDER BY f.id")
+    List<UserSummary> findFollowingSummaries(@Param("userId") Long userId);
+}
@@ -0,0 +1,22 @@
+package com.gs.tj.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scalar columns of a diary with its author's and location's id and name, from which a
+ * DiaryView is built together with its tags and images.
+ */
+public interface DiaryRow {
+    Long getId();
+    String getTitle();
+    String getContent();
+    Long getUserId();
+    String getUsername();
+    Long getLocationId();
+    String getLocationName();
+    LocalDateTime getTravelDate();
+    Integer getLikes();
+    Boolean getIsPublic();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,15 @@
+package com.gs.tj.repository.projection;
+
+import java.time.LocalDateTime;
+
+import com.gs.tj.entity.Favorite.FavoriteType;
+
+/**
+ * Scalar columns of a favorite.
+ */
+public interface FavoriteRow {
+    Long getId();
+    FavoriteType getType();
+    Long getFavoriteId();
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,9 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * Number of followers of one user.
+ */
+public interface FollowerCount {
+    Long getUserId();
+    Long getFollowers();
+}
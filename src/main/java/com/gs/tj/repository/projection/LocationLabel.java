@@ -0,0 +1,12 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * Location projection carrying the names used for typeahead completion.
+ */
+public interface LocationLabel {
+    Long getId();
+    String getName();
+    String getCity();
+    String getCountry();
+    Integer getVisitCount();
+}
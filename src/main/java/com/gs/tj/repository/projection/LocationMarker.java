@@ -0,0 +1,13 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * Location projection carrying what a map marker needs, used to build the
+ * cluster hierarchy without hydrating full Location entities.
+ */
+public interface LocationMarker {
+    Long getId();
+    String getName();
+    Double getLatitude();
+    Double getLongitude();
+    Integer getVisitCount();
+}
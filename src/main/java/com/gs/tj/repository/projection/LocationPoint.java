@@ -0,0 +1,11 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * Minimal location projection used to build in-memory spatial indexes
+ * without hydrating full Location entities.
+ */
+public interface LocationPoint {
+    Long getId();
+    Double getLatitude();
+    Double getLongitude();
+}
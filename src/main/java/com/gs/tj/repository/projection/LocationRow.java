@@ -0,0 +1,24 @@
+package com.gs.tj.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scalar columns of a location, from which a LocationView is built together with its
+ * tags and images.
+ */
+public interface LocationRow {
+    Long getId();
+    String getName();
+    String getDescription();
+    String getCountry();
+    String getCity();
+    String getCategory();
+    Double getLatitude();
+    Double getLongitude();
+    Integer getVisitCount();
+    Double getAverageRating();
+    Integer getRatingCount();
+    Boolean getIsPublic();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+}
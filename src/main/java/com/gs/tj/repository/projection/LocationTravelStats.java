@@ -0,0 +1,12 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * TravelStats of the diaries written at one location, with the location's labels.
+ */
+public interface LocationTravelStats extends TravelStats {
+    Long getLocationId();
+    String getName();
+    String getCity();
+    String getCountry();
+    String getCategory();
+}
@@ -0,0 +1,9 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * TravelStats of the diaries travelled in one calendar month.
+ */
+public interface MonthlyTravelStats extends TravelStats {
+    Integer getYear();
+    Integer getMonth();
+}
@@ -0,0 +1,9 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * TravelStats of the diaries sharing one country or category; a null name groups the
+ * diaries without one.
+ */
+public interface NamedTravelStats extends TravelStats {
+    String getName();
+}
@@ -0,0 +1,9 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * One element of an entity's collection of strings, such as a tag or an image URL.
+ */
+public interface OwnedValue {
+    Long getOwnerId();
+    String getValue();
+}
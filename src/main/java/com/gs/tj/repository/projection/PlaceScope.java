@@ -0,0 +1,9 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * Country and category of the location an entity belongs to, as used to scope rankings.
+ */
+public interface PlaceScope {
+    String getCountry();
+    String getCategory();
+}
@@ -0,0 +1,23 @@
+package com.gs.tj.repository.projection;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Scalar columns of a route with its owner's and endpoints' id and name.
+ */
+public interface RouteRow {
+    Long getId();
+    String getName();
+    String getDescription();
+    Long getUserId();
+    String getUsername();
+    Long getStartLocationId();
+    String getStartLocationName();
+    Long getEndLocationId();
+    String getEndLocationName();
+    Duration getEstimatedDuration();
+    Boolean getIsPublic();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+}
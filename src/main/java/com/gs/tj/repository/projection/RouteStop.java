@@ -0,0 +1,9 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * One stop of a route, as the id of the location visited.
+ */
+public interface RouteStop {
+    Long getRouteId();
+    Long getLocationId();
+}
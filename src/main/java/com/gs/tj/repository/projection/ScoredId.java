@@ -0,0 +1,9 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * Id of an entity with the value it is ranked by.
+ */
+public interface ScoredId {
+    Long getId();
+    Number getScore();
+}
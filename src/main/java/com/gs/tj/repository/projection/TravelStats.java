@@ -0,0 +1,16 @@
+package com.gs.tj.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregates over a group of a user's diaries: how many there are, how many distinct
+ * locations and countries they were written at, their likes and their travel date span.
+ */
+public interface TravelStats {
+    Long getDiaries();
+    Long getLocations();
+    Long getCountries();
+    Long getLikes();
+    LocalDateTime getFirstTravelDate();
+    LocalDateTime getLastTravelDate();
+}
@@ -0,0 +1,10 @@
+package com.gs.tj.repository.projection;
+
+/**
+ * User projection carrying the names used for typeahead completion.
+ */
+public interface UserHandle {
+    Long getId();
+    String getUsername();
+    String getFullName();
+}
@@ -0,0 +1,470 @@
+package com.gs.tj.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gs.tj.geo.GeoUtils;
+
+/**
+ * Immutable weighted travel graph between locations, stored as compressed sparse rows.
+ * <p>
+ * Nodes are locations sorted by id, so an id is resolved by binary search. The outgoing
+ * edges of node {@code i} occupy {@code [offsets[i], offsets[i + 1])} of the parallel
+ * {@code targets} and {@code weights} arrays; weights are travel times in seconds. Parallel
+ * edges are collapsed to the fastest one when the graph is built.
+ * <p>
+ * Queries run A* guided by the great-circle distance to the destination divided by the
+ * fastest speed seen on any edge. That heuristic never overestimates and is consistent,
+ * so the first path reaching the destination is optimal. Searches honour a maximum number
+ * of edges by keeping, per node, the fewest hops with which it was settled: a later label
+ * at the same node is cheaper only if it also used fewer hops. Ranked alternatives come
+ * from Yen's k-shortest loopless paths on top of the same search.
+ */
+public class RouteGraph {
+
+    private final long[] nodeIds;
+    private final double[] latitudes;
+    private final double[] cosLatitudes;
+    private final double[] longitudes;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+    /** Lower bound on seconds per meter over every edge; 0 disables the heuristic. */
+    private final double secondsPerMeter;
+
+    /**
+     * A path through the graph.
+     *
+     * @param locationIds Location ids from start to end, inclusive
+     * @param seconds Total travel time in seconds
+     */
+    public record Path(long[] locationIds, double seconds) {
+    }
+
+    private record SearchResult(int[] nodes, double cost) {
+    }
+
+    private RouteGraph(long[] nodeIds, double[] latitudes, double[] longitudes,
+            int[] offsets, int[] targets, double[] weights) {
+        this.nodeIds = nodeIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cosLatitudes = new double[nodeIds.length];
+        for (int i = 0; i < nodeIds.length; i++) {
+            cosLatitudes[i] = Math.cos(Math.toRadians(latitudes[i]));
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.secondsPerMeter = slowestPace();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * The fastest loopless paths between two locations, cheapest first.
+     *
+     * @param maxStops Maximum number of intermediate locations on a path
+     * @param k Maximum number of paths
+     * @return Up to k paths; empty if either location is not in the graph or no path exists
+     */
+    public List<Path> shortestPaths(long startId, long endId, int maxStops, int k) {
+        int source = indexOf(startId);
+        int target = indexOf(endId);
+        if (source < 0 || target < 0 || k <= 0 || source == target) {
+            return List.of();
+        }
+        int maxEdges = maxStops + 1;
+        Search search = new Search(target);
+
+        List<SearchResult> accepted = new ArrayList<>(k);
+        SearchResult first = search.run(source, maxEdges);
+        if (first == null) {
+            return List.of();
+        }
+        accepted.add(first);
+        List<SearchResult> candidates = new ArrayList<>();
+        while (accepted.size() < k) {
+            int[] previous = accepted.get(accepted.size() - 1).nodes();
+            double rootCost = 0;
+            for (int i = 0; i < previous.length - 1; i++) {
+                int spur = previous[i];
+                // Force a deviation at the spur node from every accepted path sharing this root.
+                for (SearchResult path : accepted) {
+                    if (path.nodes().length > i + 1 && Arrays.equals(path.nodes(), 0, i + 1, previous, 0, i + 1)) {
+                        int edge = edgeIndex(spur, path.nodes()[i + 1]);
+                        if (edge >= 0) {
+                            search.bannedEdges[edge] = true;
+                        }
+                    }
+                }
+                for (int j = 0; j < i; j++) {
+                    search.bannedNodes[previous[j]] = true;
+                }
+                SearchResult spurPath = search.run(spur, maxEdges - i);
+                if (spurPath != null) {
+                    int[] nodes = Arrays.copyOf(previous, i + spurPath.nodes().length);
+                    System.arraycopy(spurPath.nodes(), 0, nodes, i, spurPath.nodes().length);
+                    SearchResult candidate = new SearchResult(nodes, rootCost + spurPath.cost());
+                    if (!containsPath(candidates, nodes) && !containsPath(accepted, nodes)) {
+                        candidates.add(candidate);
+                    }
+                }
+                search.clearBans(accepted, previous, i);
+                rootCost += weights[edgeIndex(spur, previous[i + 1])];
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            int best = 0;
+            for (int i = 1; i < candidates.size(); i++) {
+                if (candidates.get(i).cost() < candidates.get(best).cost()) {
+                    best = i;
+                }
+            }
+            accepted.add(candidates.remove(best));
+        }
+
+        List<Path> paths = new ArrayList<>(accepted.size());
+        for (SearchResult result : accepted) {
+            long[] ids = new long[result.nodes().length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = nodeIds[result.nodes()[i]];
+            }
+            paths.add(new Path(ids, result.cost()));
+        }
+        return paths;
+    }
+
+    /**
+     * Hop-limited A* towards one target, reused across the spur searches of one query.
+     * Per-node arrays are allocated once and only the entries a search touched are reset.
+     */
+    private final class Search {
+        final int target;
+        final boolean[] bannedNodes = new boolean[nodeIds.length];
+        final boolean[] bannedEdges = new boolean[targets.length];
+        /** Heuristic per node for this target; NaN where not yet computed. */
+        final double[] heuristic = new double[nodeIds.length];
+        /** Fewest hops with which each node was settled in the current search. */
+        final int[] settledHops = new int[nodeIds.length];
+
+        Search(int target) {
+            this.target = target;
+            Arrays.fill(heuristic, Double.NaN);
+            Arrays.fill(settledHops, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @return The cheapest path avoiding banned nodes and edges, or null if none uses
+         *         at most maxEdges edges
+         */
+        SearchResult run(int source, int maxEdges) {
+            Labels labels = new Labels();
+            LabelHeap open = new LabelHeap();
+            open.push(labels.add(source, 0, 0, -1), estimate(source));
+            try {
+                while (!open.isEmpty()) {
+                    int label = open.pop();
+                    int node = labels.node[label];
+                    int hops = labels.hops[label];
+                    if (hops >= settledHops[node]) {
+                        continue;
+                    }
+                    settledHops[node] = hops;
+                    if (node == target) {
+                        int[] nodes = new int[hops + 1];
+                        for (int current = label, i = hops; current >= 0; current = labels.parent[current], i--) {
+                            nodes[i] = labels.node[current];
+                        }
+                        return new SearchResult(nodes, labels.cost[label]);
+                    }
+                    if (hops == maxEdges) {
+                        continue;
+                    }
+                    for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                        int next = targets[edge];
+                        if (bannedEdges[edge] || bannedNodes[next] || hops + 1 >= settledHops[next]) {
+                            continue;
+                        }
+                        double cost = labels.cost[label] + weights[edge];
+                        open.push(labels.add(next, hops + 1, cost, label), cost + estimate(next));
+                    }
+                }
+                return null;
+            } finally {
+                for (int i = 0; i < labels.size; i++) {
+                    settledHops[labels.node[i]] = Integer.MAX_VALUE;
+                }
+            }
+        }
+
+        /**
+         * Lifts the bans placed for the spur at position {@code spurIndex} of a path.
+         */
+        void clearBans(List<SearchResult> accepted, int[] path, int spurIndex) {
+            for (int j = 0; j < spurIndex; j++) {
+                bannedNodes[path[j]] = false;
+            }
+            for (SearchResult other : accepted) {
+                if (other.nodes().length > spurIndex + 1) {
+                    int edge = edgeIndex(other.nodes()[spurIndex], other.nodes()[spurIndex + 1]);
+                    if (edge >= 0) {
+                        bannedEdges[edge] = false;
+                    }
+                }
+            }
+        }
+
+        private double estimate(int node) {
+            double value = heuristic[node];
+            if (Double.isNaN(value)) {
+                value = secondsPerMeter == 0 ? 0 : distance(node, target) * secondsPerMeter;
+                heuristic[node] = value;
+            }
+            return value;
+        }
+    }
+
+    private double distance(int from, int to) {
+        return GeoUtils.toMeters(GeoUtils.haversineTerm(latitudes[from], cosLatitudes[from], longitudes[from],
+                latitudes[to], cosLatitudes[to], longitudes[to]));
+    }
+
+    /**
+     * Seconds per meter at the fastest edge, so that distance times it never exceeds the real
+     * travel time. Edges that take no time make every speed possible, which disables the
+     * heuristic and degrades A* to Dijkstra's algorithm.
+     */
+    private double slowestPace() {
+        double pace = Double.POSITIVE_INFINITY;
+        for (int node = 0; node < nodeIds.length; node++) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                double meters = distance(node, targets[edge]);
+                if (meters <= 0) {
+                    continue;
+                }
+                if (weights[edge] <= 0) {
+                    return 0;
+                }
+                pace = Math.min(pace, weights[edge] / meters);
+            }
+        }
+        return Double.isInfinite(pace) ? 0 : pace;
+    }
+
+    private int indexOf(long id) {
+        return Arrays.binarySearch(nodeIds, id);
+    }
+
+    private int edgeIndex(int from, int to) {
+        for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+            if (targets[edge] == to) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean containsPath(List<SearchResult> paths, int[] nodes) {
+        for (SearchResult path : paths) {
+            if (Arrays.equals(path.nodes(), nodes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Search labels in parallel primitive arrays; a label is a node reached with a number
+     * of hops at a cost, linked to the label it was reached from.
+     */
+    private static final class Labels {
+        int[] node = new int[64];
+        int[] hops = new int[64];
+        double[] cost = new double[64];
+        int[] parent = new int[64];
+        int size;
+
+        int add(int node, int hops, double cost, int parent) {
+            if (size == this.node.length) {
+                int capacity = size * 2;
+                this.node = Arrays.copyOf(this.node, capacity);
+                this.hops = Arrays.copyOf(this.hops, capacity);
+                this.cost = Arrays.copyOf(this.cost, capacity);
+                this.parent = Arrays.copyOf(this.parent, capacity);
+            }
+            this.node[size] = node;
+            this.hops[size] = hops;
+            this.cost[size] = cost;
+            this.parent[size] = parent;
+            return size++;
+        }
+    }
+
+    /**
+     * Binary min-heap of label indexes keyed by estimated total cost.
+     */
+    private static final class LabelHeap {
+        int[] labels = new int[64];
+        double[] keys = new double[64];
+        int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int label, double key) {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int position = size++;
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                labels[position] = labels[parent];
+                keys[position] = keys[parent];
+                position = parent;
+            }
+            labels[position] = label;
+            keys[position] = key;
+        }
+
+        int pop() {
+            int top = labels[0];
+            int lastLabel = labels[--size];
+            double lastKey = keys[size];
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                labels[position] = labels[child];
+                keys[position] = keys[child];
+                position = child;
+            }
+            labels[position] = lastLabel;
+            keys[position] = lastKey;
+            return top;
+        }
+    }
+
+    /**
+     * Collects nodes and directed edges, then packs them into a {@link RouteGraph}.
+     * Edges whose endpoints were never added as nodes are dropped.
+     */
+    public static final class Builder {
+        private final Map<Long, double[]> nodes = new HashMap<>();
+        private long[] edgeFrom = new long[16];
+        private long[] edgeTo = new long[16];
+        private double[] edgeSeconds = new double[16];
+        private int edgeCount;
+
+        private Builder() {
+        }
+
+        public Builder addNode(long id, double latitude, double longitude) {
+            nodes.put(id, new double[] { latitude, longitude });
+            return this;
+        }
+
+        public Builder addEdge(long fromId, long toId, double seconds) {
+            if (fromId == toId || !(seconds >= 0)) {
+                return this;
+            }
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+                edgeSeconds = Arrays.copyOf(edgeSeconds, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = fromId;
+            edgeTo[edgeCount] = toId;
+            edgeSeconds[edgeCount] = seconds;
+            edgeCount++;
+            return this;
+        }
+
+        public RouteGraph build() {
+            long[] ids = nodes.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            double[] latitudes = new double[ids.length];
+            double[] longitudes = new double[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                double[] coordinates = nodes.get(ids[i]);
+                latitudes[i] = coordinates[0];
+                longitudes[i] = coordinates[1];
+            }
+
+            // Bucket edges by source node.
+            int[] from = new int[edgeCount];
+            int[] to = new int[edgeCount];
+            int[] counts = new int[ids.length + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                from[i] = Arrays.binarySearch(ids, edgeFrom[i]);
+                to[i] = Arrays.binarySearch(ids, edgeTo[i]);
+                if (from[i] >= 0 && to[i] >= 0) {
+                    counts[from[i] + 1]++;
+                }
+            }
+            for (int i = 0; i < ids.length; i++) {
+                counts[i + 1] += counts[i];
+            }
+            int[] bucketTargets = new int[counts[ids.length]];
+            double[] bucketWeights = new double[counts[ids.length]];
+            int[] fill = Arrays.copyOf(counts, ids.length);
+            for (int i = 0; i < edgeCount; i++) {
+                if (from[i] >= 0 && to[i] >= 0) {
+                    bucketTargets[fill[from[i]]] = to[i];
+                    bucketWeights[fill[from[i]]++] = edgeSeconds[i];
+                }
+            }
+
+            // Collapse parallel edges to the fastest, remembering where each target went per node.
+            int[] offsets = new int[ids.length + 1];
+            int[] targets = new int[bucketTargets.length];
+            double[] weights = new double[bucketTargets.length];
+            int[] seenBy = new int[ids.length];
+            int[] seenAt = new int[ids.length];
+            int size = 0;
+            for (int node = 0; node < ids.length; node++) {
+                offsets[node] = size;
+                for (int edge = counts[node]; edge < counts[node + 1]; edge++) {
+                    int target = bucketTargets[edge];
+                    if (seenBy[target] == node + 1) {
+                        weights[seenAt[target]] = Math.min(weights[seenAt[target]], bucketWeights[edge]);
+                    } else {
+                        seenBy[target] = node + 1;
+                        seenAt[target] = size;
+                        targets[size] = target;
+                        weights[size++] = bucketWeights[edge];
+                    }
+                }
+            }
+            offsets[ids.length] = size;
+            return new RouteGraph(ids, latitudes, longitudes, offsets,
+                    Arrays.copyOf(targets, size), Arrays.copyOf(weights, size));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.gs.tj.routing;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.gs.tj.geo.GeoUtils;
+
+/**
+ * Thread-safe, mutable set of routes and the coordinates of the locations they pass,
+ * from which immutable {@link RouteGraph}s are compiled.
+ * <p>
+ * Every route contributes one edge per leg between consecutive locations of
+ * {@code start, stops..., end}, in both directions. A route's estimated duration is split
+ * over its legs in proportion to their great-circle length, or evenly if all its locations
+ * coincide. Routes that pass a location without known coordinates are left out of the graph.
+ */
+public class RouteNetwork {
+
+    private final Map<Long, RouteLegs> routes = new HashMap<>();
+    private final Map<Long, double[]> locations = new HashMap<>();
+
+    private record RouteLegs(long[] locationIds, double seconds) {
+    }
+
+    /**
+     * Insert or replace a route.
+     *
+     * @param locationIds Locations in travel order, start and end included
+     * @param seconds Estimated duration of the whole route
+     */
+    public synchronized void putRoute(long id, long[] locationIds, double seconds) {
+        routes.put(id, new RouteLegs(locationIds.clone(), seconds));
+    }
+
+    public synchronized void removeRoute(long id) {
+        routes.remove(id);
+    }
+
+    public synchronized void putLocation(long id, double latitude, double longitude) {
+        locations.put(id, new double[] { latitude, longitude });
+    }
+
+    public synchronized void removeLocation(long id) {
+        locations.remove(id);
+    }
+
+    public synchronized boolean containsLocation(long id) {
+        return locations.containsKey(id);
+    }
+
+    /**
+     * The given location ids whose coordinates are not known yet.
+     */
+    public synchronized Set<Long> missingLocations(long[] ids) {
+        Set<Long> missing = new HashSet<>();
+        for (long id : ids) {
+            if (!locations.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    public synchronized int routeCount() {
+        return routes.size();
+    }
+
+    public synchronized RouteGraph toGraph() {
+        RouteGraph.Builder builder = RouteGraph.builder();
+        locations.forEach((id, coordinates) -> builder.addNode(id, coordinates[0], coordinates[1]));
+        for (RouteLegs route : routes.values()) {
+            long[] ids = route.locationIds();
+            double[] lengths = new double[ids.length - 1];
+            double total = 0;
+            boolean complete = true;
+            for (int i = 0; i < lengths.length && complete; i++) {
+                double[] from = locations.get(ids[i]);
+                double[] to = locations.get(ids[i + 1]);
+                complete = from != null && to != null;
+                if (complete) {
+                    lengths[i] = GeoUtils.haversine(from[0], from[1], to[0], to[1]);
+                    total += lengths[i];
+                }
+            }
+            if (!complete) {
+                continue;
+            }
+            for (int i = 0; i < lengths.length; i++) {
+                double seconds = total > 0 ? route.seconds() * lengths[i] / total : route.seconds() / lengths.length;
+                builder.addEdge(ids[i], ids[i + 1], seconds);
+                builder.addEdge(ids[i + 1], ids[i], seconds);
+            }
+        }
+        return builder.build();
+    }
+}
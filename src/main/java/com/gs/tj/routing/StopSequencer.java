@@ -0,0 +1,222 @@
+package com.gs.tj.routing;
+
+import java.time.Duration;
+
+import com.gs.tj.geo.GeoUtils;
+
+/**
+ * Orders the stops of a route between a fixed start and end so that the total great-circle
+ * distance is close to minimal.
+ * <p>
+ * The order is seeded by nearest neighbour from the start and then improved by local search
+ * over a distance matrix, either given or computed from coordinates: 2-opt reverses a run
+ * of stops, and Or-opt moves a run of up to three stops, optionally reversed, to another
+ * gap. Both use first-improvement and repeat until neither finds a shorter path or the
+ * time budget is spent, so the result is always at least as short as the seed. Instances
+ * are stateless and thread-safe.
+ */
+public class StopSequencer {
+
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+    private static final double EPSILON = 1e-9;
+
+    private final long budgetNanos;
+
+    /**
+     * @param budget Maximum time spent improving one order
+     */
+    public StopSequencer(Duration budget) {
+        this.budgetNanos = budget.toNanos();
+    }
+
+    /**
+     * Orders stops between a start and an end.
+     *
+     * @param coordinates Latitude and longitude of each point: the start first, the end last
+     *        and the stops in between
+     * @return Indexes into {@code coordinates} of the stops in visiting order, excluding the
+     *         start and the end
+     */
+    public int[] sequence(double[][] coordinates) {
+        return sequence(distanceMatrix(coordinates), coordinates.length);
+    }
+
+    /**
+     * Orders stops between a start and an end given their pairwise distances.
+     *
+     * @param distances Row-major {@code points * points} distance matrix: the start first,
+     *        the end last and the stops in between
+     * @return Indexes of the stops in visiting order, excluding the start and the end
+     */
+    public int[] sequence(double[] distances, int points) {
+        if (points < 2) {
+            throw new IllegalArgumentException("A start and an end are required");
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        int[] path = nearestNeighbour(distances, points);
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(path, distances, points, deadline);
+            improved |= orOpt(path, distances, points, deadline);
+        }
+        int[] stops = new int[points - 2];
+        System.arraycopy(path, 1, stops, 0, stops.length);
+        return stops;
+    }
+
+    /**
+     * Total length in meters of a path through the points in the given order.
+     */
+    public static double length(double[][] coordinates, int[] order) {
+        double total = 0;
+        for (int i = 1; i < order.length; i++) {
+            double[] from = coordinates[order[i - 1]];
+            double[] to = coordinates[order[i]];
+            total += GeoUtils.haversine(from[0], from[1], to[0], to[1]);
+        }
+        return total;
+    }
+
+    private static double[] distanceMatrix(double[][] coordinates) {
+        int points = coordinates.length;
+        double[] cosLatitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            cosLatitudes[i] = Math.cos(Math.toRadians(coordinates[i][0]));
+        }
+        double[] distances = new double[points * points];
+        for (int i = 0; i < points; i++) {
+            for (int j = i + 1; j < points; j++) {
+                double meters = GeoUtils.toMeters(GeoUtils.haversineTerm(coordinates[i][0], cosLatitudes[i], coordinates[i][1],
+                        coordinates[j][0], cosLatitudes[j], coordinates[j][1]));
+                distances[i * points + j] = meters;
+                distances[j * points + i] = meters;
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Path from the start (point 0) to the end (the last point) that always visits the
+     * closest unvisited stop next.
+     */
+    private static int[] nearestNeighbour(double[] distances, int points) {
+        int[] path = new int[points];
+        boolean[] visited = new boolean[points];
+        path[points - 1] = points - 1;
+        visited[0] = true;
+        int current = 0;
+        for (int position = 1; position < points - 1; position++) {
+            int best = -1;
+            for (int candidate = 1; candidate < points - 1; candidate++) {
+                if (!visited[candidate] && (best < 0
+                        || distances[current * points + candidate] < distances[current * points + best])) {
+                    best = candidate;
+                }
+            }
+            visited[best] = true;
+            path[position] = best;
+            current = best;
+        }
+        return path;
+    }
+
+    /**
+     * Reverses runs {@code path[i..j]} of stops while that shortens the path.
+     *
+     * @return Whether any improvement was made
+     */
+    private static boolean twoOpt(int[] path, double[] d, int points, long deadline) {
+        boolean improved = false;
+        int last = points - 2;
+        for (int i = 1; i < last && System.nanoTime() < deadline; i++) {
+            for (int j = i + 1; j <= last; j++) {
+                int before = path[i - 1] * points;
+                int after = path[j + 1];
+                double delta = d[before + path[j]] + d[path[i] * points + after]
+                        - d[before + path[i]] - d[path[j] * points + after];
+                if (delta < -EPSILON) {
+                    reverse(path, i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Moves runs of one to {@link #MAX_OR_OPT_SEGMENT} stops, forwards or reversed, to the
+     * gap where they shorten the path most.
+     *
+     * @return Whether any improvement was made
+     */
+    private static boolean orOpt(int[] path, double[] d, int points, long deadline) {
+        boolean improved = false;
+        int last = points - 2;
+        for (int length = 1; length <= MAX_OR_OPT_SEGMENT; length++) {
+            for (int i = 1; i + length - 1 <= last && System.nanoTime() < deadline; i++) {
+                int first = path[i];
+                int end = path[i + length - 1];
+                int prev = path[i - 1];
+                int next = path[i + length];
+                double removed = d[prev * points + first] + d[end * points + next] - d[prev * points + next];
+
+                double bestDelta = -EPSILON;
+                int bestGap = -1;
+                boolean bestReversed = false;
+                // A gap (k, k + 1) outside the segment and not adjacent to it on both sides.
+                for (int k = 0; k < points - 1; k++) {
+                    if (k >= i - 1 && k <= i + length - 1) {
+                        continue;
+                    }
+                    int left = path[k];
+                    int right = path[k + 1];
+                    double base = d[left * points + right];
+                    double forward = d[left * points + first] + d[end * points + right] - base - removed;
+                    double reversed = d[left * points + end] + d[first * points + right] - base - removed;
+                    if (forward < bestDelta) {
+                        bestDelta = forward;
+                        bestGap = k;
+                        bestReversed = false;
+                    }
+                    if (reversed < bestDelta) {
+                        bestDelta = reversed;
+                        bestGap = k;
+                        bestReversed = true;
+                    }
+                }
+                if (bestGap >= 0) {
+                    moveSegment(path, i, length, bestGap, bestReversed);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Moves {@code path[start..start + length)} into the gap after {@code path[gap]}.
+     */
+    private static void moveSegment(int[] path, int start, int length, int gap, boolean reversed) {
+        int[] segment = new int[length];
+        for (int i = 0; i < length; i++) {
+            segment[i] = path[reversed ? start + length - 1 - i : start + i];
+        }
+        if (gap < start) {
+            // Shift path[gap + 1 .. start) right by the segment length.
+            System.arraycopy(path, gap + 1, path, gap + 1 + length, start - gap - 1);
+            System.arraycopy(segment, 0, path, gap + 1, length);
+        } else {
+            // Shift path[start + length .. gap] left by the segment length.
+            System.arraycopy(path, start + length, path, start, gap - start - length + 1);
+            System.arraycopy(segment, 0, path, gap - length + 1, length);
+        }
+    }
+
+    private static void reverse(int[] path, int from, int to) {
+        while (from < to) {
+            int swap = path[from];
+            path[from++] = path[to];
+            path[to--] = swap;
+        }
+    }
+}
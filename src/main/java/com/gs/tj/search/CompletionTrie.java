@@ -0,0 +1,391 @@
+package com.gs.tj.search;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Thread-safe weighted prefix trie for typeahead completion.
+ * <p>
+ * The trie is path-compressed (a radix tree), so memory grows with the number of keys
+ * rather than their total length. Every node caches the best {@code capacity} entries of its subtree, so a completion
+ * walks the prefix and copies one list, independent of how many entries match. Each entry
+ * is reachable under several keys: its normalized text and every word-start suffix of it,
+ * so "sao" and "paulo" both complete "São Paulo". Inserting offers the entry to each list
+ * along its key paths; removing rebuilds, from the node's children, only the lists on those
+ * paths that ranked the entry.
+ *
+ * @param <V> Payload returned for an entry
+ */
+public class CompletionTrie<V> {
+
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_WORD_KEYS = 6;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final int capacity;
+    private final Node<V> root = new Node<>("");
+    private final Map<String, Registration<V>> registrations = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Highest weight first, then by id so equal weights rank deterministically. */
+    private final Comparator<Entry<V>> byRank = (a, b) -> {
+        int byWeight = Long.compare(b.weight(), a.weight());
+        return byWeight != 0 ? byWeight : a.id().compareTo(b.id());
+    };
+
+    private record Entry<V>(String id, V value, long weight) {
+    }
+
+    private record Registration<V>(Entry<V> entry, Set<String> keys) {
+    }
+
+    /**
+     * Radix-tree node: {@code edge} is the label on the edge from the parent, so chains
+     * of single-child nodes are stored as one node.
+     */
+    private static final class Node<V> {
+        String edge;
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Node<V>[] children = new Node[0];
+        List<Entry<V>> terminals;
+        List<Entry<V>> top = List.of();
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+
+        Node<V> child(char first) {
+            for (Node<V> child : children) {
+                if (child.edge.charAt(0) == first) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node<V> child) {
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+        }
+
+        void replaceChild(Node<V> previous, Node<V> replacement) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == previous) {
+                    children[i] = replacement;
+                    return;
+                }
+            }
+        }
+
+        void removeChild(Node<V> child) {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            Node<V>[] remaining = new Node[children.length - 1];
+            int index = 0;
+            for (Node<V> candidate : children) {
+                if (candidate != child) {
+                    remaining[index++] = candidate;
+                }
+            }
+            children = remaining;
+        }
+
+        boolean hasTerminals() {
+            return terminals != null && !terminals.isEmpty();
+        }
+    }
+
+    /**
+     * @param capacity Maximum number of completions kept per prefix
+     */
+    public CompletionTrie(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Insert or replace an entry.
+     *
+     * @param id Unique id of the entry within this trie
+     * @param value Payload returned by completions
+     * @param weight Rank of the entry; higher weights complete first
+     * @param texts Texts the entry is found by, such as a name and a full name
+     */
+    public void put(String id, V value, long weight, String... texts) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String text : texts) {
+            keys.addAll(keysOf(text));
+        }
+        Entry<V> entry = new Entry<>(id, value, weight);
+
+        lock.writeLock().lock();
+        try {
+            Registration<V> previous = registrations.remove(id);
+            if (previous != null) {
+                for (String key : previous.keys()) {
+                    detach(key, id);
+                }
+            }
+            if (keys.isEmpty()) {
+                return;
+            }
+            registrations.put(id, new Registration<>(entry, keys));
+            for (String key : keys) {
+                attach(key, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove an entry if present.
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Registration<V> previous = registrations.remove(id);
+            if (previous != null) {
+                for (String key : previous.keys()) {
+                    detach(key, id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return registrations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best entries whose text, or a word within it, starts with the prefix.
+     *
+     * @param limit Maximum number of completions; at most the trie's capacity
+     * @return Payloads, highest weight first
+     */
+    public List<V> complete(String prefix, int limit) {
+        String key = normalize(prefix, true);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node<V> node = root;
+            int position = 0;
+            while (position < key.length()) {
+                Node<V> child = node.child(key.charAt(position));
+                if (child == null) {
+                    return List.of();
+                }
+                int remaining = key.length() - position;
+                if (remaining <= child.edge.length()) {
+                    // The prefix ends inside or at the end of this edge.
+                    if (!child.edge.regionMatches(0, key, position, remaining)) {
+                        return List.of();
+                    }
+                } else if (!key.startsWith(child.edge, position)) {
+                    return List.of();
+                }
+                node = child;
+                position += Math.min(remaining, child.edge.length());
+            }
+            return node.top.stream().limit(limit).map(Entry::value).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void attach(String key, Entry<V> entry) {
+        Node<V> node = root;
+        offer(node, entry);
+        int position = 0;
+        while (position < key.length()) {
+            Node<V> child = node.child(key.charAt(position));
+            if (child == null) {
+                child = new Node<>(key.substring(position));
+                node.addChild(child);
+            } else {
+                int common = commonPrefixLength(child.edge, key, position);
+                if (common < child.edge.length()) {
+                    // Split the edge so the key's path ends or branches at a node.
+                    Node<V> middle = new Node<>(child.edge.substring(0, common));
+                    child.edge = child.edge.substring(common);
+                    middle.addChild(child);
+                    middle.top = new ArrayList<>(child.top);
+                    node.replaceChild(child, middle);
+                    child = middle;
+                }
+            }
+            offer(child, entry);
+            position += child.edge.length();
+            node = child;
+        }
+        if (node.terminals == null) {
+            node.terminals = new ArrayList<>(1);
+        }
+        node.terminals.add(entry);
+    }
+
+    private void detach(String key, String id) {
+        Deque<Node<V>> path = new ArrayDeque<>();
+        Node<V> node = root;
+        path.push(node);
+        int position = 0;
+        while (position < key.length()) {
+            node = node.child(key.charAt(position));
+            if (node == null || !key.startsWith(node.edge, position)) {
+                return;
+            }
+            position += node.edge.length();
+            path.push(node);
+        }
+        if (node.terminals != null) {
+            node.terminals.removeIf(entry -> entry.id().equals(id));
+        }
+        Node<V> child = null;
+        while (!path.isEmpty()) {
+            Node<V> current = path.pop();
+            if (child != null && !child.hasTerminals() && child.children.length == 0) {
+                current.removeChild(child);
+            }
+            if (current != root && !current.hasTerminals() && current.children.length == 1) {
+                // Re-compress a chain left behind by the removal; the child's list is already current.
+                Node<V> only = current.children[0];
+                current.edge = current.edge + only.edge;
+                current.children = only.children;
+                current.terminals = only.terminals;
+                current.top = only.top;
+            } else if (containsId(current.top, id)) {
+                // Lists that never ranked the entry are unaffected.
+                rebuildTop(current);
+            }
+            child = current;
+        }
+    }
+
+    /**
+     * Inserts an entry into a node's cached best entries if it ranks high enough.
+     */
+    private void offer(Node<V> node, Entry<V> entry) {
+        List<Entry<V>> top = node.top;
+        int size = top.size();
+        if (size == capacity && byRank.compare(entry, top.get(size - 1)) >= 0) {
+            return;
+        }
+        if (containsId(top, entry.id())) {
+            return;
+        }
+        if (size == 0) {
+            top = new ArrayList<>(1);
+            node.top = top;
+        }
+        int position = Collections.binarySearch(top, entry, byRank);
+        top.add(position < 0 ? -position - 1 : position, entry);
+        if (top.size() > capacity) {
+            top.remove(top.size() - 1);
+        }
+    }
+
+    /**
+     * Recomputes a node's cached best entries from its own entries and its children's lists.
+     */
+    private void rebuildTop(Node<V> node) {
+        List<Entry<V>> candidates = new ArrayList<>();
+        if (node.terminals != null) {
+            candidates.addAll(node.terminals);
+        }
+        for (Node<V> child : node.children) {
+            candidates.addAll(child.top);
+        }
+        candidates.sort(byRank);
+        List<Entry<V>> top = new ArrayList<>(Math.min(capacity, candidates.size()));
+        Set<String> seen = new HashSet<>();
+        for (Entry<V> candidate : candidates) {
+            if (top.size() == capacity) {
+                break;
+            }
+            if (seen.add(candidate.id())) {
+                top.add(candidate);
+            }
+        }
+        node.top = top;
+    }
+
+    private static <V> boolean containsId(List<Entry<V>> entries, String id) {
+        for (Entry<V> entry : entries) {
+            if (entry.id().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int commonPrefixLength(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int length = 0;
+        while (length < max && edge.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * The keys an entry is found by: its normalized text and each suffix that starts a word.
+     */
+    static List<String> keysOf(String text) {
+        String normalized = normalize(text, false);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(truncate(normalized));
+        for (int i = normalized.indexOf(' '); i >= 0 && keys.size() <= MAX_WORD_KEYS; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(truncate(normalized.substring(i + 1)));
+        }
+        return keys;
+    }
+
+    /**
+     * Lower-cases, strips accents and collapses every run of non-alphanumeric characters
+     * into one space, so entries and prefixes compare the same way.
+     *
+     * @param keepTrailingSpace Whether a trailing separator is kept; a prefix ending in a
+     *        space only completes entries with another word after it
+     */
+    static String normalize(String text, boolean keepTrailingSpace) {
+        if (text == null) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String collapsed = SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").stripLeading();
+        return keepTrailingSpace ? truncate(collapsed) : collapsed.stripTrailing();
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+}
@@ -0,0 +1,271 @@
+package com.gs.tj.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishPossessiveFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+
+/**
+ * In-memory Lucene index over the searchable text of locations and diaries.
+ * <p>
+ * Text is tokenized with the standard tokenizer, stripped of English possessives, lower-cased
+ * and folded to ASCII, so "São Paulo's" matches "sao paulo". Queries match any query term in any text field, with
+ * per-field boosts, and are ranked by Lucene's default BM25 similarity. Country, category,
+ * visibility and owner are indexed as exact keyword fields and applied as non-scoring filters;
+ * a private document only ever matches a search made on behalf of its owner.
+ * Writes become visible to searches after {@link #refresh()}. The index lives on the heap,
+ * so a replaced instance is simply left to the garbage collector.
+ */
+public class TextIndex {
+
+    public static final String NAME = "name";
+    public static final String DESCRIPTION = "description";
+    public static final String CITY = "city";
+    public static final String COUNTRY = "country";
+    public static final String TAGS = "tags";
+    public static final String TITLE = "title";
+    public static final String CONTENT = "content";
+
+    /** Boost per searchable field; fields missing from a document simply do not match. */
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(
+            NAME, 3.0f,
+            TITLE, 3.0f,
+            TAGS, 2.0f,
+            CITY, 2.0f,
+            COUNTRY, 1.5f,
+            DESCRIPTION, 1.0f,
+            CONTENT, 1.0f);
+
+    private static final String UID = "uid";
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+    private static final String FILTER_COUNTRY = "filter_country";
+    private static final String FILTER_CATEGORY = "filter_category";
+    private static final String FILTER_PUBLIC = "filter_public";
+    private static final String FILTER_OWNER = "filter_owner";
+    private static final int MAX_QUERY_TERMS = 32;
+
+    private final Analyzer analyzer = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new ASCIIFoldingFilter(new LowerCaseFilter(new EnglishPossessiveFilter(tokenizer)));
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    };
+
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    /**
+     * Exact-match filters; null country and category are not applied. Documents of other
+     * owners match only if public, whatever {@code isPublic} asks for.
+     *
+     * @param country Country name, matched case-insensitively
+     * @param category Category name, matched case-insensitively
+     * @param isPublic Required visibility; null matches public documents and the viewer's own
+     * @param viewerId Id of the user searching, or null for public documents only
+     */
+    public record Filter(String country, String category, Boolean isPublic, Long viewerId) {
+    }
+
+    /**
+     * One page of matching ids in rank order.
+     *
+     * @param ids Entity ids, best match first
+     * @param totalHits Number of matching documents; a lower bound once it exceeds 1000
+     */
+    public record Hits(List<Long> ids, long totalHits) {
+    }
+
+    public TextIndex() {
+        try {
+            writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+            searcherManager = new SearcherManager(writer, null);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Insert or replace the document of an entity.
+     *
+     * @param text Searchable text per field name; null values are skipped
+     * @param ownerId Id of the owning user, or null if the entity has no owner
+     */
+    public void upsert(EntityType type, long id, Map<String, String> text,
+            String country, String category, boolean isPublic, Long ownerId) {
+        Document document = new Document();
+        document.add(new StringField(UID, uid(type, id), Field.Store.NO));
+        document.add(new StringField(TYPE, type.name(), Field.Store.NO));
+        document.add(new StoredField(ID, id));
+        text.forEach((field, value) -> {
+            if (value != null && !value.isBlank()) {
+                document.add(new TextField(field, value, Field.Store.NO));
+            }
+        });
+        if (country != null) {
+            document.add(new StringField(FILTER_COUNTRY, keyword(country), Field.Store.NO));
+        }
+        if (category != null) {
+            document.add(new StringField(FILTER_CATEGORY, keyword(category), Field.Store.NO));
+        }
+        document.add(new StringField(FILTER_PUBLIC, Boolean.toString(isPublic), Field.Store.NO));
+        if (ownerId != null) {
+            document.add(new StringField(FILTER_OWNER, ownerId.toString(), Field.Store.NO));
+        }
+        try {
+            writer.updateDocument(new Term(UID, uid(type, id)), document);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void delete(EntityType type, long id) {
+        try {
+            writer.deleteDocuments(new Term(UID, uid(type, id)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Make all writes so far visible to searches.
+     */
+    public void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public int size() {
+        return writer.getDocStats().numDocs;
+    }
+
+    /**
+     * Rank documents of one type against a free-text query.
+     *
+     * @param offset Number of leading hits to skip
+     * @param limit Maximum number of ids to return
+     */
+    public Hits search(EntityType type, String text, Filter filter, int offset, int limit) {
+        Set<String> terms = analyze(text);
+        if (terms.isEmpty() || limit <= 0) {
+            return new Hits(List.of(), 0);
+        }
+
+        BooleanQuery.Builder match = new BooleanQuery.Builder();
+        for (String term : terms) {
+            FIELD_BOOSTS.forEach((field, boost) ->
+                    match.add(new BoostQuery(new TermQuery(new Term(field, term)), boost), Occur.SHOULD));
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(match.build(), Occur.MUST)
+                .add(new TermQuery(new Term(TYPE, type.name())), Occur.FILTER);
+        if (filter.country() != null) {
+            query.add(new TermQuery(new Term(FILTER_COUNTRY, keyword(filter.country()))), Occur.FILTER);
+        }
+        if (filter.category() != null) {
+            query.add(new TermQuery(new Term(FILTER_CATEGORY, keyword(filter.category()))), Occur.FILTER);
+        }
+        query.add(visibility(filter), Occur.FILTER);
+        return execute(query.build(), offset, limit);
+    }
+
+    private static Query visibility(Filter filter) {
+        Query isPublic = new TermQuery(new Term(FILTER_PUBLIC, Boolean.TRUE.toString()));
+        if (filter.viewerId() == null || Boolean.TRUE.equals(filter.isPublic())) {
+            return isPublic;
+        }
+        Query owned = new TermQuery(new Term(FILTER_OWNER, filter.viewerId().toString()));
+        if (Boolean.FALSE.equals(filter.isPublic())) {
+            return new BooleanQuery.Builder()
+                    .add(owned, Occur.FILTER)
+                    .add(new TermQuery(new Term(FILTER_PUBLIC, Boolean.FALSE.toString())), Occur.FILTER)
+                    .build();
+        }
+        return new BooleanQuery.Builder()
+                .add(isPublic, Occur.SHOULD)
+                .add(owned, Occur.SHOULD)
+                .build();
+    }
+
+    private Hits execute(Query query, int offset, int limit) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(query, offset + limit);
+                List<Long> ids = new ArrayList<>(limit);
+                ScoreDoc[] scoreDocs = top.scoreDocs;
+                for (int i = offset; i < scoreDocs.length; i++) {
+                    ids.add(searcher.storedFields().document(scoreDocs[i].doc).getField(ID).numericValue().longValue());
+                }
+                return new Hits(ids, top.totalHits.value);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Set<String> analyze(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute attribute = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(attribute.toString());
+            }
+            stream.end();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return terms;
+    }
+
+    private static String uid(EntityType type, long id) {
+        return type.name() + ":" + id;
+    }
+
+    private static String keyword(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
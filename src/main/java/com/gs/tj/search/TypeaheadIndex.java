@@ -0,0 +1,115 @@
+package com.gs.tj.search;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.gs.tj.dto.Completion;
+import com.gs.tj.dto.Completion.CompletionType;
+
+/**
+ * Typeahead completions for location names, cities and usernames, one
+ * {@link CompletionTrie} per kind.
+ * <p>
+ * Locations are weighted by visit count and users by follower count. A city is one entry
+ * per (city, country) pair, weighted by the total visit count of its locations plus their
+ * number, so cities without visits still rank by size. The index remembers each location's
+ * current contribution, so moving, renaming or deleting a location updates the city totals
+ * without reading the other locations. Writes are serialized; completions only take the
+ * tries' read locks.
+ */
+public class TypeaheadIndex {
+
+    private final CompletionTrie<Completion> locations;
+    private final CompletionTrie<Completion> cities;
+    private final CompletionTrie<Completion> users;
+
+    private final Map<Long, LocationState> locationStates = new HashMap<>();
+    private final Map<String, CityState> cityStates = new HashMap<>();
+
+    private record LocationState(String cityKey, long weight) {
+    }
+
+    private static final class CityState {
+        final String city;
+        final String country;
+        long weight;
+        int locations;
+
+        CityState(String city, String country) {
+            this.city = city;
+            this.country = country;
+        }
+    }
+
+    /**
+     * @param capacity Maximum number of completions kept per prefix and kind
+     */
+    public TypeaheadIndex(int capacity) {
+        this.locations = new CompletionTrie<>(capacity);
+        this.cities = new CompletionTrie<>(capacity);
+        this.users = new CompletionTrie<>(capacity);
+    }
+
+    public synchronized void putLocation(long id, String name, String city, String country, int visitCount) {
+        removeLocation(id);
+        locations.put(Long.toString(id),
+                new Completion(CompletionType.LOCATION, id, name, city, visitCount), visitCount, name);
+        if (city == null || city.isBlank()) {
+            return;
+        }
+        String cityKey = CompletionTrie.normalize(city, false) + "|" + (country != null ? country.toLowerCase(Locale.ROOT) : "");
+        CityState state = cityStates.computeIfAbsent(cityKey, key -> new CityState(city, country));
+        state.weight += visitCount;
+        state.locations++;
+        locationStates.put(id, new LocationState(cityKey, visitCount));
+        putCity(cityKey, state);
+    }
+
+    public synchronized void removeLocation(long id) {
+        locations.remove(Long.toString(id));
+        LocationState previous = locationStates.remove(id);
+        if (previous == null) {
+            return;
+        }
+        CityState state = cityStates.get(previous.cityKey());
+        state.weight -= previous.weight();
+        state.locations--;
+        if (state.locations == 0) {
+            cityStates.remove(previous.cityKey());
+            cities.remove(previous.cityKey());
+        } else {
+            putCity(previous.cityKey(), state);
+        }
+    }
+
+    public synchronized void putUser(long id, String username, String fullName, long followers) {
+        users.put(Long.toString(id),
+                new Completion(CompletionType.USER, id, username, fullName, followers), followers, username, fullName);
+    }
+
+    public synchronized void removeUser(long id) {
+        users.remove(Long.toString(id));
+    }
+
+    /**
+     * Best completions of one kind.
+     */
+    public List<Completion> complete(CompletionType type, String prefix, int limit) {
+        return switch (type) {
+            case LOCATION -> locations.complete(prefix, limit);
+            case CITY -> cities.complete(prefix, limit);
+            case USER -> users.complete(prefix, limit);
+        };
+    }
+
+    public int size() {
+        return locations.size() + cities.size() + users.size();
+    }
+
+    private void putCity(String cityKey, CityState state) {
+        long weight = state.weight + state.locations;
+        cities.put(cityKey, new Completion(CompletionType.CITY, null, state.city, state.country, weight), weight, state.city);
+    }
+}
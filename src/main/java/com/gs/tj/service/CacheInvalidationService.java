@@ -0,0 +1,43 @@
+package com.gs.tj.service;
+
+import java.util.Collection;
+
+/**
+ * Service interface for evicting exactly the cache entries a write affects.
+ * Entries that list entities record the ids they contain when they are cached; a write
+ * names the changed entity and the list keys it may newly belong to, and everything else
+ * in the cache stays warm.
+ */
+public interface CacheInvalidationService {
+    /**
+     * Evict the entries affected by a change to one entity. Inside a transaction the
+     * eviction runs after commit, so no reader can cache the old state again afterwards.
+     *
+     * @param cacheName The cache to evict from
+     * @param entityId The ID of the changed entity; its own entry and every entry that
+     *        contains it are evicted
+     * @param keys Keys of entries the entity may be added to or removed from, such as
+     *        {@code "user:" + userId}
+     * @param keyPrefixes Prefixes of keys whose entries must all be evicted, for lists the
+     *        entity may join but whose keys cannot be derived from it
+     */
+    void invalidate(String cacheName, Long entityId, Collection<String> keys, Collection<String> keyPrefixes);
+
+    /**
+     * Evict the entries affected by changes to several entities at once, such as counters
+     * flushed in bulk: each entity's own entry and every entry that contains any of them.
+     * Inside a transaction the eviction runs after commit.
+     *
+     * @param cacheName The cache to evict from
+     * @param entityIds The IDs of the changed entities
+     */
+    void invalidateEntities(String cacheName, Collection<Long> entityIds);
+
+    /**
+     * Evict every entry of a cache, after commit inside a transaction. For small caches
+     * whose entries any write can change, such as ranked lists keyed by their length.
+     *
+     * @param cacheName The cache to clear
+     */
+    void invalidateAll(String cacheName);
+}
@@ -0,0 +1,75 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+import com.gs.tj.dto.DiaryView;
+import com.gs.tj.dto.LocationView;
+
+/**
+ * Service interface for write-behind counters.
+ * Visits, ratings and likes are absorbed as pending deltas and written to the database
+ * in periodic batches; reads add the pending deltas so counts stay current.
+ */
+public interface CounterService {
+    /**
+     * Record one visit to a location.
+     *
+     * @param locationId The ID of the location
+     */
+    void recordVisit(Long locationId);
+
+    /**
+     * Record one rating of a location.
+     *
+     * @param locationId The ID of the location
+     * @param rating The rating value
+     */
+    void recordRating(Long locationId, double rating);
+
+    /**
+     * Record one like of a diary.
+     *
+     * @param diaryId The ID of the diary
+     */
+    void recordLike(Long diaryId);
+
+    /**
+     * Write all pending deltas to the database.
+     *
+     * @return Number of rows updated
+     */
+    int flush();
+
+    /**
+     * Add pending visits and ratings to a location's counters. The result must not be
+     * written back, or the pending deltas would be applied twice.
+     *
+     * @param location The location
+     * @return The location itself if nothing is pending, otherwise an updated copy
+     */
+    LocationView applyPending(LocationView location);
+
+    /**
+     * Add pending visits and ratings to each location's counters.
+     *
+     * @param locations The locations
+     * @return The locations, with updated copies in place of those with pending changes
+     */
+    List<LocationView> applyPendingLocations(List<LocationView> locations);
+
+    /**
+     * Add pending likes to a diary's like count.
+     *
+     * @param diary The diary
+     * @return The diary itself if nothing is pending, otherwise an updated copy
+     */
+    DiaryView applyPending(DiaryView diary);
+
+    /**
+     * Add pending likes to each diary's like count.
+     *
+     * @param diaries The diaries
+     * @return The diaries, with updated copies in place of those with pending changes
+     */
+    List<DiaryView> applyPendingDiaries(List<DiaryView> diaries);
+}
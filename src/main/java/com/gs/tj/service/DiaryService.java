@@ -4,11 +4,13 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import com.gs.tj.dto.DiaryView;
 import com.gs.tj.entity.Diary;
 
 /**
  * Service interface for diary management operations.
  * Handles CRUD operations and diary-related functionality.
+ * Diaries are returned as immutable {@link DiaryView}s, which are also what the caches hold.
  */
 public interface DiaryService {
     /**
@@ -17,7 +19,7 @@ public interface DiaryService {
      * @param diary The diary to create
      * @return The created diary
      */
-    Diary createDiary(Diary diary);
+    DiaryView createDiary(Diary diary);
 
     /**
      * Get a diary by its ID.
@@ -25,7 +27,15 @@ public interface DiaryService {
      * @param id The ID of the diary
      * @return Optional containing the diary if found
      */
-    Optional<Diary> getDiaryById(Long id);
+    Optional<DiaryView> getDiaryById(Long id);
+
+    /**
+     * Get diaries by their IDs.
+     *
+     * @param ids The IDs of the diaries
+     * @return The diaries that exist, in the order of the given IDs
+     */
+    List<DiaryView> getDiariesByIds(List<Long> ids);
 
     /**
      * Get all diaries for a specific user.
@@ -33,7 +43,7 @@ public interface DiaryService {
      * @param userId The ID of the user
      * @return List of diaries
      */
-    List<Diary> getDiariesByUser(Long userId);
+    List<DiaryView> getDiariesByUser(Long userId);
 
     /**
      * Get diaries by location.
@@ -41,16 +51,16 @@ public interface DiaryService {
      * @param locationId The ID of the location
      * @return List of diaries
      */
-    List<Diary> getDiariesByLocation(Long locationId);
+    List<DiaryView> getDiariesByLocation(Long locationId);
 
     /**
      * Get diaries by date range.
      *
-     * @param startDate Start date
-     * @param endDate End date
+     * @param startDate First travel date included
+     * @param endDate Last travel date included
      * @return List of diaries
      */
-    List<Diary> getDiariesByDateRange(LocalDate startDate, LocalDate endDate);
+    List<DiaryView> getDiariesByDateRange(LocalDate startDate, LocalDate endDate);
 
     /**
      * Update an existing diary.
@@ -59,7 +69,7 @@ public interface DiaryService {
      * @param diaryDetails The updated diary details
      * @return The updated diary
      */
-    Diary updateDiary(Long id, Diary diaryDetails);
+    DiaryView updateDiary(Long id, Diary diaryDetails);
 
     /**
      * Delete a diary.
@@ -75,7 +85,7 @@ public interface DiaryService {
      * @param comment The comment to add
      * @return The updated diary
      */
-    Diary addComment(Long diaryId, String comment);
+    DiaryView addComment(Long diaryId, String comment);
 
     /**
      * Add a tag to a diary.
@@ -84,7 +94,7 @@ public interface DiaryService {
      * @param tag The tag to add
      * @return The updated diary
      */
-    Diary addTag(Long diaryId, String tag);
+    DiaryView addTag(Long diaryId, String tag);
 
     /**
      * Remove a tag from a diary.
@@ -93,7 +103,16 @@ public interface DiaryService {
      * @param tag The tag to remove
      * @return The updated diary
      */
-    Diary removeTag(Long diaryId, String tag);
+    DiaryView removeTag(Long diaryId, String tag);
+
+    /**
+     * Like a diary.
+     * The like is recorded as a pending delta and written to the database in a later batch.
+     *
+     * @param diaryId The ID of the diary
+     * @return The diary with pending likes applied
+     */
+    DiaryView likeDiary(Long diaryId);
 
     /**
      * Get diaries by tag.
@@ -101,7 +120,7 @@ public interface DiaryService {
      * @param tag The tag to search for
      * @return List of diaries
      */
-    List<Diary> getDiariesByTag(String tag);
+    List<DiaryView> getDiariesByTag(String tag);
 
     /**
      * Get popular diaries.
@@ -109,7 +128,7 @@ public interface DiaryService {
      * @param limit Maximum number of diaries to return
      * @return List of popular diaries
      */
-    List<Diary> getPopularDiaries(int limit);
+    List<DiaryView> getPopularDiaries(int limit);
 
     /**
      * Get recommended diaries for a user.
@@ -118,5 +137,5 @@ public interface DiaryService {
      * @param limit Maximum number of diaries to return
      * @return List of recommended diaries
      */
-    List<Diary> getRecommendedDiaries(Long userId, int limit);
+    List<DiaryView> getRecommendedDiaries(Long userId, int limit);
 } 
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+/**
+ * Service interface for pairwise distances and travel-time estimates between locations.
+ * Distances are computed in blocks and cached, so repeated planning over the same
+ * locations does not recompute them.
+ */
+public interface DistanceMatrixService {
+    /**
+     * Great-circle distance between two locations.
+     *
+     * @param fromId The ID of the first location
+     * @param toId The ID of the second location
+     * @return Distance in meters, or NaN if either location does not exist
+     */
+    double distance(Long fromId, Long toId);
+
+    /**
+     * Great-circle distances between every pair of two lists of locations.
+     *
+     * @param fromIds The IDs of the row locations
+     * @param toIds The IDs of the column locations
+     * @return Row-major matrix of {@code fromIds.size() * toIds.size()} distances in meters;
+     *         NaN where a location does not exist
+     */
+    double[] distances(List<Long> fromIds, List<Long> toIds);
+
+    /**
+     * Estimated travel times between every pair of two lists of locations, derived from
+     * the distances with the configured detour factor and average speed.
+     *
+     * @param fromIds The IDs of the row locations
+     * @param toIds The IDs of the column locations
+     * @return Row-major matrix of travel times in seconds; NaN where a location does not exist
+     */
+    double[] durations(List<Long> fromIds, List<Long> toIds);
+}
@@ -0,0 +1,50 @@
+package com.gs.tj.service;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import com.gs.tj.dto.ExportJob;
+
+/**
+ * Service interface for asynchronous export jobs.
+ * Long-running exports are run in the background and their results kept in a local file
+ * store for a limited time, to be downloaded once complete.
+ */
+public interface ExportJobService {
+    /**
+     * Submit an export job, or join the identical one already queued or running.
+     *
+     * @param userId ID of the user whose data is exported
+     * @param type Kind of export
+     * @param startDate Start of the date range, or null if the export has none
+     * @param endDate End of the date range, or null if the export has none
+     * @return The job
+     * @throws com.gs.tj.exception.ExportLimitExceededException If the user or the node has
+     *         too many exports in progress
+     */
+    ExportJob submit(Long userId, ExportJob.Type type, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Get a job by its ID.
+     *
+     * @param jobId The ID of the job
+     * @return Optional containing the job if it is known and has not expired
+     */
+    Optional<ExportJob> getJob(String jobId);
+
+    /**
+     * Get the result file of a completed job.
+     *
+     * @param jobId The ID of the job
+     * @return Optional containing the file if the job completed and its result has not expired
+     */
+    Optional<Path> getResult(String jobId);
+
+    /**
+     * Remove expired jobs and their results.
+     *
+     * @return Number of files deleted
+     */
+    int cleanUp();
+}
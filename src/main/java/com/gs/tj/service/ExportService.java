@@ -1,44 +1,67 @@
 package com.gs.tj.service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 
 /**
  * Service interface for data export operations.
  * Handles exporting diaries, routes, and other content in various formats.
+ * <p>
+ * Exports are streamed: each method checks its request and returns an {@link ExportWriter}
+ * that writes the content to a stream when asked. A missing diary, route or user therefore
+ * fails before any byte is sent, and no export is ever held in memory as a whole.
  */
 public interface ExportService {
+
+    /**
+     * Writes one export to a stream.
+     * Implementations read from the database in bounded chunks and write as they go, so
+     * heap use does not grow with the size of the export. Each chunk is read in its own
+     * short transaction, never one spanning the whole write.
+     */
+    @FunctionalInterface
+    interface ExportWriter {
+        /**
+         * Write the export. The stream is flushed but not closed.
+         *
+         * @param out Where to write the export
+         * @throws IOException If writing to the stream fails
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
     /**
      * Export a diary to PDF format.
      *
      * @param diaryId ID of the diary to export
-     * @return ByteArrayOutputStream containing the PDF data
+     * @return Writer of the PDF data
      */
-    ByteArrayOutputStream exportDiaryToPdf(Long diaryId);
+    ExportWriter exportDiaryToPdf(Long diaryId);
 
     /**
      * Export a diary to Markdown format.
      *
      * @param diaryId ID of the diary to export
-     * @return ByteArrayOutputStream containing the Markdown data
+     * @return Writer of the Markdown data
      */
-    ByteArrayOutputStream exportDiaryToMarkdown(Long diaryId);
+    ExportWriter exportDiaryToMarkdown(Long diaryId);
 
     /**
      * Export a route to GPX format.
      *
      * @param routeId ID of the route to export
-     * @return ByteArrayOutputStream containing the GPX data
+     * @return Writer of the GPX data
      */
-    ByteArrayOutputStream exportRouteToGpx(Long routeId);
+    ExportWriter exportRouteToGpx(Long routeId);
 
     /**
      * Export a route to KML format.
      *
      * @param routeId ID of the route to export
-     * @return ByteArrayOutputStream containing the KML data
+     * @return Writer of the KML data
      */
-    ByteArrayOutputStream exportRouteToKml(Long routeId);
+    ExportWriter exportRouteToKml(Long routeId);
 
     /**
      * Export user's travel statistics to Excel format.
@@ -46,9 +69,9 @@ public interface ExportService {
      * @param userId ID of the user
      * @param startDate Start date for the statistics
      * @param endDate End date for the statistics
-     * @return ByteArrayOutputStream containing the Excel data
+     * @return Writer of the Excel data
      */
-    ByteArrayOutputStream exportUserStatsToExcel(Long userId, LocalDate startDate, LocalDate endDate);
+    ExportWriter exportUserStatsToExcel(Long userId, LocalDate startDate, LocalDate endDate);
 
     /**
      * Export user's travel memories to a ZIP file containing images and metadata.
@@ -56,15 +79,15 @@ public interface ExportService {
      * @param userId ID of the user
      * @param startDate Start date for the memories
      * @param endDate End date for the memories
-     * @return ByteArrayOutputStream containing the ZIP data
+     * @return Writer of the ZIP data
      */
-    ByteArrayOutputStream exportUserMemoriesToZip(Long userId, LocalDate startDate, LocalDate endDate);
+    ExportWriter exportUserMemoriesToZip(Long userId, LocalDate startDate, LocalDate endDate);
 
     /**
      * Export user's travel timeline to JSON format.
      *
      * @param userId ID of the user
-     * @return ByteArrayOutputStream containing the JSON data
+     * @return Writer of the JSON data
      */
-    ByteArrayOutputStream exportUserTimelineToJson(Long userId);
-} 
\ No newline at end of file
+    ExportWriter exportUserTimelineToJson(Long userId);
+}
@@ -0,0 +1,39 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+import com.gs.tj.entity.Favorite.FavoriteType;
+
+/**
+ * Service interface for users' favorite locations, diaries and routes.
+ */
+public interface FavoriteService {
+    /**
+     * Mark an item as a favorite of a user. Marking an item twice has no further effect.
+     *
+     * @param userId The ID of the user
+     * @param type Kind of item
+     * @param favoriteId The ID of the item
+     * @return Whether the item was not a favorite before
+     */
+    boolean addFavorite(Long userId, FavoriteType type, Long favoriteId);
+
+    /**
+     * Remove an item from a user's favorites.
+     *
+     * @param userId The ID of the user
+     * @param type Kind of item
+     * @param favoriteId The ID of the item
+     * @return Whether the item was a favorite
+     */
+    boolean removeFavorite(Long userId, FavoriteType type, Long favoriteId);
+
+    /**
+     * Get the IDs of a user's favorites of one kind, most recently added first.
+     *
+     * @param userId The ID of the user
+     * @param type Kind of item
+     * @return List of item IDs
+     */
+    List<Long> getFavoriteIds(Long userId, FavoriteType type);
+}
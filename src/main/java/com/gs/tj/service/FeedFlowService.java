@@ -1,16 +1,16 @@
 package com.gs.tj.service;
 
-import java.util.List;
-
-import com.gs.tj.entity.Diary;
+import com.gs.tj.dto.FeedPage;
 
 /**
  * Service interface for feed flow operations.
  * Handles pagination and content loading for the main feed.
+ * All feeds are ordered newest first and paged by cursor: pass the previous page's
+ * {@code nextCursor} as {@code lastId}, or null for the first page.
  */
 public interface FeedFlowService {
-    List<Diary> getFeedPage(Long userId, Long lastId, int pageSize);
-    List<Diary> getFeedByLocation(Long locationId, Long lastId, int pageSize);
-    List<Diary> getFeedByTag(String tag, Long lastId, int pageSize);
-    List<Diary> getFeedByUser(Long userId, Long lastId, int pageSize);
-} 
\ No newline at end of file
+    FeedPage getFeedPage(Long userId, Long lastId, int pageSize);
+    FeedPage getFeedByLocation(Long locationId, Long lastId, int pageSize);
+    FeedPage getFeedByTag(String tag, Long lastId, int pageSize);
+    FeedPage getFeedByUser(Long userId, Long lastId, int pageSize);
+}
@@ -0,0 +1,57 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+import com.gs.tj.geo.GeoHit;
+
+/**
+ * Service interface for the in-memory geospatial index over locations.
+ * The index is loaded at startup and kept in sync with location writes on every node.
+ */
+public interface GeoIndexService {
+    /**
+     * Check whether the index has been loaded and can answer queries.
+     *
+     * @return true if the index is ready
+     */
+    boolean isReady();
+
+    /**
+     * Find locations within a radius of a point.
+     *
+     * @param latitude The latitude coordinate
+     * @param longitude The longitude coordinate
+     * @param radiusInMeters The radius in meters
+     * @return Matching locations, nearest first
+     */
+    List<GeoHit> findWithinRadius(double latitude, double longitude, double radiusInMeters);
+
+    /**
+     * Find the locations nearest to a point.
+     *
+     * @param latitude The latitude coordinate
+     * @param longitude The longitude coordinate
+     * @param k Maximum number of locations to return
+     * @return Up to k locations, nearest first
+     */
+    List<GeoHit> findNearest(double latitude, double longitude, int k);
+
+    /**
+     * Find locations inside a latitude/longitude box. A box whose minimum longitude is
+     * greater than its maximum longitude crosses the antimeridian.
+     *
+     * @param minLatitude Southern edge
+     * @param minLongitude Western edge
+     * @param maxLatitude Northern edge
+     * @param maxLongitude Eastern edge
+     * @param limit Maximum number of locations to return
+     * @return Up to limit locations, closest to the centre of the box first
+     */
+    List<GeoHit> findInBoundingBox(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int limit);
+
+    /**
+     * Rebuild the index from the database and swap it in.
+     */
+    void reload();
+}
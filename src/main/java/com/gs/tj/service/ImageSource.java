@@ -0,0 +1,23 @@
+package com.gs.tj.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Source of the image files behind the image URLs of diaries and locations.
+ * The implementation is chosen by {@code tj.export.images.source}: {@code http} fetches
+ * URLs of the hosts in {@code tj.export.images.allowed-hosts}, {@code local} reads the
+ * URL's path below {@code tj.export.images.directory}.
+ * Implementations may be called from many threads at once.
+ */
+public interface ImageSource {
+
+    /**
+     * Open an image for reading.
+     *
+     * @param url Image URL as stored on a diary or location
+     * @return Stream of the image's bytes, to be closed by the caller
+     * @throws IOException If the image does not exist or cannot be read
+     */
+    InputStream open(String url) throws IOException;
+}
@@ -0,0 +1,48 @@
+package com.gs.tj.service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service interface for precomputed top-K leaderboards.
+ * Each board ranks the public entities of one kind and is kept current as they are liked,
+ * visited, created, updated and deleted, so the top of a ranking can be read without
+ * scanning the table.
+ */
+public interface LeaderboardService {
+
+    enum Board {
+        /** Public diaries by likes. */
+        DIARY_LIKES,
+        /** Public locations by visits. */
+        LOCATION_VISITS,
+        /** Public routes, newest first. */
+        NEWEST_ROUTES
+    }
+
+    /**
+     * Read a slice of a board, highest ranked first.
+     *
+     * @param board The board to read
+     * @param offset Number of leading entries to skip
+     * @param count Maximum number of ids to return
+     * @return Entity ids in rank order, or empty if the board is not built or does not reach
+     *         {@code offset + count}; callers then fall back to the database
+     */
+    Optional<List<Long>> top(Board board, int offset, int count);
+
+    /**
+     * Add to the score of an entity on a board. Entities currently below the board's
+     * capacity are not tracked, and enter it when it is next rebuilt.
+     *
+     * @param board The board to update
+     * @param id The ID of the entity
+     * @param delta Amount added to its score
+     */
+    void increment(Board board, Long id, long delta);
+
+    /**
+     * Rebuild every board from the database.
+     */
+    void rebuild();
+}
@@ -3,11 +3,13 @@ package com.gs.tj.service;
 import java.util.List;
 import java.util.Optional;
 
+import com.gs.tj.dto.LocationView;
 import com.gs.tj.entity.Location;
 
 /**
  * Service interface for location management operations.
  * Handles CRUD operations and location-based queries.
+ * Locations are returned as immutable {@link LocationView}s, which are also what the caches hold.
  */
 public interface LocationService {
     /**
@@ -16,7 +18,7 @@ public interface LocationService {
      * @param location The location to create
      * @return The created location
      */
-    Location createLocation(Location location);
+    LocationView createLocation(Location location);
 
     /**
      * Get a location by its ID.
@@ -24,14 +26,22 @@ public interface LocationService {
      * @param id The ID of the location
      * @return Optional containing the location if found
      */
-    Optional<Location> getLocationById(Long id);
+    Optional<LocationView> getLocationById(Long id);
+
+    /**
+     * Get locations by their IDs.
+     *
+     * @param ids The IDs of the locations
+     * @return The locations that exist, in the order of the given IDs
+     */
+    List<LocationView> getLocationsByIds(List<Long> ids);
 
     /**
      * Get all locations.
      *
      * @return List of all locations
      */
-    List<Location> getAllLocations();
+    List<LocationView> getAllLocations();
 
     /**
      * Update an existing location.
@@ -40,7 +50,7 @@ public interface LocationService {
      * @param locationDetails The updated location details
      * @return The updated location
      */
-    Location updateLocation(Long id, Location locationDetails);
+    LocationView updateLocation(Long id, Location locationDetails);
 
     /**
      * Delete a location.
@@ -55,7 +65,7 @@ public interface LocationService {
      * @param query The search query
      * @return List of matching locations
      */
-    List<Location> searchLocations(String query);
+    List<LocationView> searchLocations(String query);
 
     /**
      * Get locations by country.
@@ -63,7 +73,7 @@ public interface LocationService {
      * @param country The country name
      * @return List of locations in the country
      */
-    List<Location> getLocationsByCountry(String country);
+    List<LocationView> getLocationsByCountry(String country);
 
     /**
      * Get locations by city.
@@ -71,7 +81,7 @@ public interface LocationService {
      * @param city The city name
      * @return List of locations in the city
      */
-    List<Location> getLocationsByCity(String city);
+    List<LocationView> getLocationsByCity(String city);
 
     /**
      * Get popular locations.
@@ -79,7 +89,7 @@ public interface LocationService {
      * @param limit Maximum number of locations to return
      * @return List of popular locations
      */
-    List<Location> getPopularLocations(int limit);
+    List<LocationView> getPopularLocations(int limit);
 
     /**
      * Get nearby locations.
@@ -89,7 +99,31 @@ public interface LocationService {
      * @param radiusInMeters The radius in meters
      * @return List of nearby locations
      */
-    List<Location> getNearbyLocations(double latitude, double longitude, double radiusInMeters);
+    List<LocationView> getNearbyLocations(double latitude, double longitude, double radiusInMeters);
+
+    /**
+     * Get the locations nearest to a point.
+     *
+     * @param latitude The latitude coordinate
+     * @param longitude The longitude coordinate
+     * @param k Maximum number of locations to return
+     * @return List of up to k locations, nearest first
+     */
+    List<LocationView> findNearest(double latitude, double longitude, int k);
+
+    /**
+     * Get locations inside a map viewport. A viewport whose minimum longitude is greater
+     * than its maximum longitude crosses the antimeridian.
+     *
+     * @param minLatitude Southern edge of the viewport
+     * @param minLongitude Western edge of the viewport
+     * @param maxLatitude Northern edge of the viewport
+     * @param maxLongitude Eastern edge of the viewport
+     * @param limit Maximum number of locations to return
+     * @return List of up to limit locations, closest to the centre of the viewport first
+     */
+    List<LocationView> findInBoundingBox(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int limit);
 
     /**
      * Add an image to a location.
@@ -98,7 +132,7 @@ public interface LocationService {
      * @param imageUrl The URL of the image to add
      * @return The updated location
      */
-    Location addLocationImage(Long id, String imageUrl);
+    LocationView addLocationImage(Long id, String imageUrl);
 
     /**
      * Remove an image from a location.
@@ -107,7 +141,7 @@ public interface LocationService {
      * @param imageUrl The URL of the image to remove
      * @return The updated location
      */
-    Location removeLocationImage(Long id, String imageUrl);
+    LocationView removeLocationImage(Long id, String imageUrl);
 
     /**
      * Get locations by category.
@@ -115,7 +149,7 @@ public interface LocationService {
      * @param category The category name
      * @return List of locations in the category
      */
-    List<Location> getLocationsByCategory(String category);
+    List<LocationView> getLocationsByCategory(String category);
 
     /**
      * Get locations by tags.
@@ -123,22 +157,24 @@ public interface LocationService {
      * @param tags List of tags to search for
      * @return List of locations matching any of the tags
      */
-    List<Location> getLocationsByTags(List<String> tags);
+    List<LocationView> getLocationsByTags(List<String> tags);
 
     /**
      * Increment the visit count for a location.
+     * The increment is recorded as a pending delta and written to the database in a later batch.
      *
      * @param id The ID of the location
-     * @return The updated location
+     * @return The location with pending counters applied
      */
-    Location incrementVisitCount(Long id);
+    LocationView incrementVisitCount(Long id);
 
     /**
      * Update the rating for a location.
+     * The rating is recorded as a pending delta and written to the database in a later batch.
      *
      * @param id The ID of the location
      * @param rating The new rating value
-     * @return The updated location
+     * @return The location with pending counters applied
      */
-    Location updateRating(Long id, double rating);
+    LocationView updateRating(Long id, double rating);
 } 
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+import com.gs.tj.dto.MapCluster;
+
+/**
+ * Service interface for server-side clustering of locations on the map.
+ * Clusters are pre-aggregated per zoom level and kept in sync with location writes.
+ */
+public interface MapClusterService {
+    /**
+     * Get the clusters visible in a viewport at a zoom level. A viewport whose minimum
+     * longitude is greater than its maximum longitude crosses the antimeridian.
+     *
+     * @param minLatitude Southern edge of the viewport
+     * @param minLongitude Western edge of the viewport
+     * @param maxLatitude Northern edge of the viewport
+     * @param maxLongitude Eastern edge of the viewport
+     * @param zoom Web Mercator zoom level of the map
+     * @return Clusters intersecting the viewport
+     */
+    List<MapCluster> getClusters(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int zoom);
+
+    /**
+     * Rebuild the cluster hierarchy from the database and swap it in.
+     */
+    void reload();
+}
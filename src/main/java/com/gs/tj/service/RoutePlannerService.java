@@ -0,0 +1,34 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+import com.gs.tj.routing.RouteGraph;
+
+/**
+ * Service interface for path finding over the travel graph formed by all routes.
+ * The graph is held in memory and kept in sync with route and location writes on every node.
+ */
+public interface RoutePlannerService {
+    /**
+     * Check whether the graph has been loaded and can answer queries.
+     *
+     * @return true if the graph is ready
+     */
+    boolean isReady();
+
+    /**
+     * Find the fastest paths between two locations.
+     *
+     * @param startLocationId The ID of the start location
+     * @param endLocationId The ID of the end location
+     * @param maxStops Maximum number of intermediate locations on a path
+     * @param limit Maximum number of paths to return
+     * @return Loopless paths, fastest first; empty if the locations are not connected
+     */
+    List<RouteGraph.Path> findFastestPaths(Long startLocationId, Long endLocationId, int maxStops, int limit);
+
+    /**
+     * Rebuild the graph from the database and swap it in.
+     */
+    void reload();
+}
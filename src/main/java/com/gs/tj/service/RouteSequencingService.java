@@ -0,0 +1,20 @@
+package com.gs.tj.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service interface for ordering the stops of a multi-stop trip.
+ */
+public interface RouteSequencingService {
+    /**
+     * Order stops so that the trip from start to end through all of them is as short as
+     * possible within the configured time budget.
+     *
+     * @param startLocationId The ID of the start location
+     * @param endLocationId The ID of the end location
+     * @param stopLocationIds The IDs of the stops; duplicates are visited once
+     * @return The stop IDs in visiting order
+     */
+    List<Long> sequenceStops(Long startLocationId, Long endLocationId, Collection<Long> stopLocationIds);
+}
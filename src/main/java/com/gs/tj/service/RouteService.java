@@ -4,22 +4,26 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
+import com.gs.tj.dto.RouteView;
 import com.gs.tj.entity.Route;
 
 /**
  * Service interface for route planning and management.
  * Handles CRUD operations and route-related calculations.
+ * Routes are returned as immutable {@link RouteView}s, which are also what the caches hold.
  */
 public interface RouteService {
-    Route createRoute(Route route);
-    Optional<Route> getRouteById(Long id);
-    List<Route> getRoutesByUser(Long userId);
-    List<Route> getRoutesByStartLocation(Long locationId);
-    List<Route> getRoutesByEndLocation(Long locationId);
-    Route updateRoute(Long id, Route routeDetails);
+    RouteView createRoute(Route route);
+    Optional<RouteView> getRouteById(Long id);
+    List<RouteView> getRoutesByIds(List<Long> ids);
+    List<RouteView> getRoutesByUser(Long userId);
+    List<RouteView> getRoutesByStartLocation(Long locationId);
+    List<RouteView> getRoutesByEndLocation(Long locationId);
+    RouteView updateRoute(Long id, Route routeDetails);
     void deleteRoute(Long id);
     Duration calculateRouteDuration(Long routeId);
-    List<Route> findOptimalRoutes(Long startLocationId, Long endLocationId, int maxStops);
-    List<Route> getPopularRoutes(int limit);
-    List<Route> getRecommendedRoutes(Long userId, int limit);
+    List<RouteView> findOptimalRoutes(Long startLocationId, Long endLocationId, int maxStops);
+    RouteView optimizeStopOrder(Long routeId);
+    List<RouteView> getPopularRoutes(int limit);
+    List<RouteView> getRecommendedRoutes(Long userId, int limit);
 } 
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.gs.tj.service;
+
+import com.gs.tj.dto.SearchPage;
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.Location;
+
+/**
+ * Service interface for full-text search over locations and diaries.
+ * Results are ranked by relevance; the index is kept in sync with writes on every node.
+ */
+public interface SearchService {
+    /**
+     * Check whether the index has been loaded and can answer queries.
+     *
+     * @return true if the index is ready
+     */
+    boolean isReady();
+
+    /**
+     * Search locations by name, description, city, country and tags.
+     *
+     * @param query Free-text query
+     * @param country Optional country filter
+     * @param category Optional category filter
+     * @param isPublic Optional visibility filter; only public locations are searchable, so
+     *        false is rejected
+     * @param page Zero-based page number
+     * @param size Page size
+     * @return Page of matching locations, best match first
+     * @throws IllegalArgumentException If isPublic is false
+     */
+    SearchPage<Location> searchLocations(String query, String country, String category, Boolean isPublic,
+            int page, int size);
+
+    /**
+     * Search diaries by title, content and tags. Country and category refer to the
+     * diary's location. Private diaries are only found by their owner.
+     *
+     * @param query Free-text query
+     * @param country Optional country filter
+     * @param category Optional category filter
+     * @param isPublic Optional visibility filter; when omitted, public diaries and the
+     *        viewer's own private ones match, and false matches only the viewer's own
+     * @param viewer Username of the user searching, or null if anonymous
+     * @param page Zero-based page number
+     * @param size Page size
+     * @return Page of matching diaries, best match first
+     * @throws IllegalArgumentException If isPublic is false and there is no viewer
+     */
+    SearchPage<Diary> searchDiaries(String query, String country, String category, Boolean isPublic,
+            String viewer, int page, int size);
+
+    /**
+     * Rebuild the index from the database and swap it in.
+     */
+    void reload();
+}
@@ -0,0 +1,64 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+import com.gs.tj.entity.Diary;
+
+/**
+ * Service interface for precomputed home timelines.
+ * Each user's timeline holds the ids of recent public diaries from the people they follow,
+ * pushed at write time so a home feed page can be read without joining over followers.
+ * Authors with very large followings are not fanned out; their diaries are pulled into
+ * the reader's page at read time instead (see {@link #getPulledAuthorIds(Long)}).
+ */
+public interface TimelineService {
+    /**
+     * Push a newly published diary onto its author's and followers' timelines.
+     *
+     * @param diary The published diary
+     */
+    void fanOut(Diary diary);
+
+    /**
+     * Read a page of diary ids from a user's timeline, newest first.
+     * The timeline is rebuilt from the database if it is not present.
+     *
+     * @param userId The ID of the timeline owner
+     * @param lastId Only ids strictly lower than this are returned; null for the first page
+     * @param count Maximum number of ids to return
+     * @return Diary ids in descending order
+     */
+    List<Long> getTimelineIds(Long userId, Long lastId, int count);
+
+    /**
+     * Get the followed authors whose diaries must be merged into a user's feed at read time
+     * because they are too widely followed to be fanned out on write.
+     *
+     * @param userId The ID of the reader
+     * @return IDs of followed high-follower authors
+     */
+    List<Long> getPulledAuthorIds(Long userId);
+
+    /**
+     * Merge a newly followed user's recent diaries into the follower's timeline.
+     *
+     * @param followerId The ID of the user following
+     * @param followedId The ID of the user being followed
+     */
+    void onFollow(Long followerId, Long followedId);
+
+    /**
+     * Drop a user's timeline after an unfollow so it is rebuilt without the unfollowed author.
+     *
+     * @param followerId The ID of the user unfollowing
+     * @param followedId The ID of the user being unfollowed
+     */
+    void onUnfollow(Long followerId, Long followedId);
+
+    /**
+     * Rebuild a user's timeline from the database.
+     *
+     * @param userId The ID of the timeline owner
+     */
+    void rebuildTimeline(Long userId);
+}
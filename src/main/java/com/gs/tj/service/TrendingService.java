@@ -0,0 +1,85 @@
+package com.gs.tj.service;
+
+import java.util.List;
+
+/**
+ * Service interface for trending rankings.
+ * Every like, visit, favorite and view adds to an entity's score, and scores decay
+ * exponentially with time, so recent activity outranks activity long past however large it
+ * was. Rankings are kept globally and per country and category.
+ */
+public interface TrendingService {
+
+    enum Subject {
+        DIARY,
+        LOCATION,
+        ROUTE
+    }
+
+    /**
+     * Kinds of activity, with the score each one adds before decay.
+     */
+    enum Signal {
+        VIEW(1),
+        VISIT(2),
+        LIKE(3),
+        FAVORITE(5);
+
+        private final double weight;
+
+        Signal(double weight) {
+            this.weight = weight;
+        }
+
+        public double weight() {
+            return weight;
+        }
+    }
+
+    /**
+     * A ranking: global, or restricted to one country or one category.
+     *
+     * @param country Country to rank within, or null
+     * @param category Category to rank within, or null
+     */
+    record Scope(String country, String category) {
+
+        public Scope {
+            if (country != null && category != null) {
+                throw new IllegalArgumentException("A trending scope is a country or a category, not both");
+            }
+        }
+
+        public static Scope global() {
+            return new Scope(null, null);
+        }
+
+        public static Scope country(String country) {
+            return new Scope(country, null);
+        }
+
+        public static Scope category(String category) {
+            return new Scope(null, category);
+        }
+    }
+
+    /**
+     * Record activity on an entity. Activity on entities that are not public is ignored.
+     *
+     * @param subject Kind of entity
+     * @param id The ID of the entity
+     * @param signal Kind of activity
+     */
+    void record(Subject subject, Long id, Signal signal);
+
+    /**
+     * Read a page of a trending ranking, highest decayed score first.
+     *
+     * @param subject Kind of entity
+     * @param scope The ranking to read
+     * @param offset Number of leading entries to skip
+     * @param count Maximum number of ids to return
+     * @return Entity ids in rank order
+     */
+    List<Long> trending(Subject subject, Scope scope, int offset, int count);
+}
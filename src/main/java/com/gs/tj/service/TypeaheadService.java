@@ -0,0 +1,28 @@
+package com.gs.tj.service;
+
+import java.util.List;
+import java.util.Set;
+
+import com.gs.tj.dto.Completion;
+import com.gs.tj.dto.Completion.CompletionType;
+
+/**
+ * Service interface for search-box typeahead over location names, cities and usernames.
+ * Completions are served from memory and kept in sync with writes on every node.
+ */
+public interface TypeaheadService {
+    /**
+     * Complete a prefix.
+     *
+     * @param prefix Text typed so far; matched against the start of any word
+     * @param types Kinds of completion to return
+     * @param limit Maximum number of completions per kind
+     * @return Completions grouped by kind, best first within each kind
+     */
+    List<Completion> complete(String prefix, Set<CompletionType> types, int limit);
+
+    /**
+     * Rebuild the completion index from the database and swap it in.
+     */
+    void reload();
+}
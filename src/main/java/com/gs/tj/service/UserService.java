@@ -6,11 +6,13 @@ import java.util.Optional;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import com.gs.tj.dto.UserSummary;
 import com.gs.tj.entity.User;
 
 /**
  * Service interface for user management operations.
  * Handles user registration, authentication, and profile management.
+ * Users are returned as {@link UserSummary}s, which carry no credentials or email address.
  */
 public interface UserService {
     /**
@@ -19,7 +21,7 @@ public interface UserService {
      * @param user The user to register
      * @return The registered user
      */
-    User registerUser(User user);
+    UserSummary registerUser(User user);
 
     /**
      * Get a user by their ID.
@@ -27,7 +29,7 @@ public interface UserService {
      * @param id The ID of the user
      * @return Optional containing the user if found
      */
-    Optional<User> getUserById(Long id);
+    Optional<UserSummary> getUserById(Long id);
 
     /**
      * Get a user by their username.
@@ -35,7 +37,7 @@ public interface UserService {
      * @param username The username
      * @return Optional containing the user if found
      */
-    Optional<User> getUserByUsername(String username);
+    Optional<UserSummary> getUserByUsername(String username);
 
     /**
      * Get a user by their email.
@@ -43,7 +45,7 @@ public interface UserService {
      * @param email The email address
      * @return Optional containing the user if found
      */
-    Optional<User> getUserByEmail(String email);
+    Optional<UserSummary> getUserByEmail(String email);
 
     /**
      * Update user profile information.
@@ -52,7 +54,7 @@ public interface UserService {
      * @param userDetails The updated user details
      * @return The updated user
      */
-    User updateUser(Long id, User userDetails);
+    UserSummary updateUser(Long id, User userDetails);
 
     /**
      * Delete a user.
@@ -69,7 +71,7 @@ public interface UserService {
      * @param newPassword The new password
      * @return The updated user
      */
-    User changePassword(Long id, String oldPassword, String newPassword);
+    UserSummary changePassword(Long id, String oldPassword, String newPassword);
 
     /**
      * Reset user password.
@@ -86,14 +88,14 @@ public interface UserService {
      * @param imageUrl The URL of the new profile image
      * @return The updated user
      */
-    User updateProfileImage(Long id, String imageUrl);
+    UserSummary updateProfileImage(Long id, String imageUrl);
 
     /**
      * Get all users.
      *
      * @return List of all users
      */
-    List<User> getAllUsers();
+    List<UserSummary> getAllUsers();
 
     /**
      * Search users by username or email.
@@ -101,7 +103,7 @@ public interface UserService {
      * @param query The search query
      * @return List of matching users
      */
-    List<User> searchUsers(String query);
+    List<UserSummary> searchUsers(String query);
 
     /**
      * Follow a user.
@@ -110,7 +112,7 @@ public interface UserService {
      * @param followedId The ID of the user being followed
      * @return The updated follower user
      */
-    User followUser(Long followerId, Long followedId);
+    UserSummary followUser(Long followerId, Long followedId);
 
     /**
      * Unfollow a user.
@@ -119,7 +121,7 @@ public interface UserService {
      * @param followedId The ID of the user being unfollowed
      * @return The updated follower user
      */
-    User unfollowUser(Long followerId, Long followedId);
+    UserSummary unfollowUser(Long followerId, Long followedId);
 
     /**
      * Get user's followers.
@@ -127,7 +129,7 @@ public interface UserService {
      * @param userId The ID of the user
      * @return List of followers
      */
-    List<User> getFollowers(Long userId);
+    List<UserSummary> getFollowers(Long userId);
 
     /**
      * Get users that a user is following.
@@ -135,7 +137,7 @@ public interface UserService {
      * @param userId The ID of the user
      * @return List of users being followed
      */
-    List<User> getFollowing(Long userId);
+    List<UserSummary> getFollowing(Long userId);
 
     /**
      * Check if a username exists.
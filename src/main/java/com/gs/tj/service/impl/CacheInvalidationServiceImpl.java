@@ -0,0 +1,95 @@
+package com.gs.tj.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.gs.tj.cache.CacheDependencyTracker;
+import com.gs.tj.service.CacheInvalidationService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of CacheInvalidationService on top of the dependencies recorded by
+ * {@link CacheDependencyTracker}. Evictions go through the cache itself, so they reach
+ * every node's local tier.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CacheInvalidationServiceImpl implements CacheInvalidationService {
+
+    private final CacheManager cacheManager;
+    private final CacheDependencyTracker dependencyTracker;
+
+    @Override
+    public void invalidate(String cacheName, Long entityId, Collection<String> keys, Collection<String> keyPrefixes) {
+        List<String> dependencies = new ArrayList<>(keyPrefixes.size() + 2);
+        dependencies.add(CacheDependencyTracker.ANY);
+        dependencies.add(CacheDependencyTracker.entity(entityId));
+        keyPrefixes.forEach(prefix -> dependencies.add(CacheDependencyTracker.keyPrefix(prefix)));
+        List<String> directKeys = List.copyOf(keys);
+
+        afterCommit(() -> evict(cacheName, List.of(entityId), directKeys, dependencies));
+    }
+
+    @Override
+    public void invalidateEntities(String cacheName, Collection<Long> entityIds) {
+        List<Long> ids = List.copyOf(entityIds);
+        List<String> dependencies = new ArrayList<>(ids.size() + 1);
+        dependencies.add(CacheDependencyTracker.ANY);
+        ids.forEach(id -> dependencies.add(CacheDependencyTracker.entity(id)));
+
+        afterCommit(() -> evict(cacheName, ids, List.of(), dependencies));
+    }
+
+    @Override
+    public void invalidateAll(String cacheName) {
+        afterCommit(() -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) {
+                return;
+            }
+            try {
+                cache.clear();
+            } catch (RuntimeException ex) {
+                log.warn("Failed to clear cache {}", cacheName, ex);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    private void evict(String cacheName, List<Long> entityIds, List<String> keys, List<String> dependencies) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        try {
+            entityIds.forEach(cache::evict);
+            keys.forEach(cache::evict);
+            dependencyTracker.takeDependents(cacheName, dependencies).forEach(cache::evict);
+        } catch (RuntimeException ex) {
+            // Entries left behind are still bounded by their time to live.
+            log.warn("Failed to invalidate cache {} for ids {}", cacheName, entityIds, ex);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.gs.tj.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gs.tj.dto.DiaryView;
+import com.gs.tj.dto.LocationView;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+import com.gs.tj.service.CacheInvalidationService;
+import com.gs.tj.service.CounterService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of CounterService backed by Redis hashes, one per counter, keyed by entity id.
+ * <p>
+ * Increments are single HINCRBY calls, so concurrent visits never contend on a database row.
+ * A flush takes a cluster-wide lock, atomically renames every live hash to a snapshot tagged
+ * with a flush id, applies the snapshot as batched relative UPDATEs in one transaction, then
+ * deletes it. A snapshot left by a failed flush is retried, under the same id, before any new
+ * deltas are taken. The transaction also inserts the flush id into {@code counter_flushes},
+ * so a snapshot whose deletion failed after its commit is recognised and not applied again.
+ * Ids are kept for {@code tj.counters.flush-retention}.
+ * <p>
+ * The lock is renewed as the flush proceeds and checked before the transaction commits. Should
+ * it still expire and a second node retry the same snapshot, the flush id makes only one of
+ * them apply it, and the snapshot is only deleted while it still carries the deleting flush's
+ * id. Reads add both the live and the snapshot deltas; between the commit and the snapshot's
+ * deletion a read can briefly count a delta twice, never lose one.
+ * <p>
+ * The UPDATEs are relative, so they bypass the entity version on purpose: a counter change
+ * never conflicts with an edit of the same row.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CounterServiceImpl implements CounterService {
+
+    private static final String VISITS_KEY = "counters:location:visits";
+    private static final String RATING_SUM_KEY = "counters:location:rating-sum";
+    private static final String RATING_COUNT_KEY = "counters:location:rating-count";
+    private static final String LIKES_KEY = "counters:diary:likes";
+    private static final String SNAPSHOT_SUFFIX = ":flushing";
+    private static final String FLUSH_ID_KEY = "counters:flush-id";
+    private static final List<String> LIVE_KEYS = List.of(VISITS_KEY, RATING_SUM_KEY, RATING_COUNT_KEY, LIKES_KEY);
+
+    private static final String LOCK_KEY = "counters:flush-lock";
+    private static final Duration LOCK_TTL = Duration.ofMinutes(5);
+
+    /** Adds to a location's rating sum and count together, so a flush never sees one without the other. */
+    private static final RedisScript<Long> RECORD_RATING_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HINCRBYFLOAT', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "return redis.call('HINCRBY', KEYS[2], ARGV[1], 1)", Long.class);
+
+    /**
+     * Unless a snapshot is pending under the flush id in KEYS[1], renames each live hash (even
+     * KEYS) to its snapshot (odd KEYS from 3) and tags them with the new id ARGV[1]. Returns
+     * the id of the snapshot to apply.
+     */
+    private static final RedisScript<String> SNAPSHOT_SCRIPT = new DefaultRedisScript<>(
+            "local pending = redis.call('GET', KEYS[1])\n" +
+            "if pending then\n" +
+            "  return pending\n" +
+            "end\n" +
+            "for i = 2, #KEYS, 2 do\n" +
+            "  if redis.call('EXISTS', KEYS[i + 1]) == 0 and redis.call('EXISTS', KEYS[i]) == 1 then\n" +
+            "    redis.call('RENAME', KEYS[i], KEYS[i + 1])\n" +
+            "  end\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[1], ARGV[1])\n" +
+            "return ARGV[1]", String.class);
+
+    /** Deletes the snapshot hashes (KEYS from 2) and flush id KEYS[1] if the id is still ARGV[1]. */
+    private static final RedisScript<Long> DELETE_SNAPSHOT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "return redis.call('DEL', unpack(KEYS))", Long.class);
+
+    private static final RedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('PEXPIRE', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private static final String UPDATE_VISITS =
+            "UPDATE locations SET visit_count = visit_count + ? WHERE id = ?";
+    // average_rating is assigned first, so it still reads the old rating_count.
+    private static final String UPDATE_RATINGS =
+            "UPDATE locations SET average_rating = (average_rating * rating_count + ?) / (rating_count + ?), " +
+            "rating_count = rating_count + ? WHERE id = ?";
+    private static final String UPDATE_LIKES =
+            "UPDATE diaries SET likes = likes + ? WHERE id = ?";
+    private static final String INSERT_FLUSH =
+            "INSERT INTO counter_flushes (id, applied_at) VALUES (?, ?)";
+    private static final String DELETE_OLD_FLUSHES =
+            "DELETE FROM counter_flushes WHERE applied_at < ?";
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${tj.counters.flush-retention:P7D}")
+    private Duration flushRetention;
+
+    @Override
+    public void recordVisit(Long locationId) {
+        redisTemplate.opsForHash().increment(VISITS_KEY, locationId.toString(), 1);
+    }
+
+    @Override
+    public void recordRating(Long locationId, double rating) {
+        redisTemplate.execute(RECORD_RATING_SCRIPT, List.of(RATING_SUM_KEY, RATING_COUNT_KEY),
+                locationId.toString(), Double.toString(rating));
+    }
+
+    @Override
+    public void recordLike(Long diaryId) {
+        redisTemplate.opsForHash().increment(LIKES_KEY, diaryId.toString(), 1);
+    }
+
+    @Scheduled(fixedDelayString = "${tj.counters.flush-interval:PT10S}", initialDelayString = "${tj.counters.flush-interval:PT10S}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Counter flush failed; pending deltas are retried on the next flush", ex);
+        }
+    }
+
+    @Override
+    public int flush() {
+        String token = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, LOCK_TTL))) {
+            return 0;
+        }
+        try {
+            List<String> keys = new ArrayList<>();
+            keys.add(FLUSH_ID_KEY);
+            for (String live : LIVE_KEYS) {
+                keys.add(live);
+                keys.add(snapshot(live));
+            }
+            String flushId = redisTemplate.execute(SNAPSHOT_SCRIPT, keys, UUID.randomUUID().toString());
+
+            Map<Object, Object> visits = redisTemplate.opsForHash().entries(snapshot(VISITS_KEY));
+            Map<Object, Object> ratingSums = redisTemplate.opsForHash().entries(snapshot(RATING_SUM_KEY));
+            Map<Object, Object> ratingCounts = redisTemplate.opsForHash().entries(snapshot(RATING_COUNT_KEY));
+            Map<Object, Object> likes = redisTemplate.opsForHash().entries(snapshot(LIKES_KEY));
+            if (visits.isEmpty() && ratingCounts.isEmpty() && likes.isEmpty()) {
+                deleteSnapshot(flushId);
+                return 0;
+            }
+
+            List<Object[]> visitRows = new ArrayList<>(visits.size());
+            visits.forEach((id, delta) -> visitRows.add(new Object[] { Long.valueOf((String) delta), Long.valueOf((String) id) }));
+            List<Object[]> ratingRows = new ArrayList<>(ratingCounts.size());
+            ratingCounts.forEach((id, count) -> {
+                double sum = Double.parseDouble(Objects.toString(ratingSums.get(id), "0"));
+                long added = Long.parseLong((String) count);
+                ratingRows.add(new Object[] { sum, added, added, Long.valueOf((String) id) });
+            });
+            List<Object[]> likeRows = new ArrayList<>(likes.size());
+            likes.forEach((id, delta) -> likeRows.add(new Object[] { Long.valueOf((String) delta), Long.valueOf((String) id) }));
+
+            renewLock(token);
+            LocalDateTime now = LocalDateTime.now();
+            Integer updated;
+            try {
+                updated = transactionTemplate.execute(status -> {
+                    jdbcTemplate.update(INSERT_FLUSH, flushId, now);
+                    jdbcTemplate.update(DELETE_OLD_FLUSHES, now.minus(flushRetention));
+                    int rows = sum(jdbcTemplate.batchUpdate(UPDATE_VISITS, visitRows))
+                            + sum(jdbcTemplate.batchUpdate(UPDATE_RATINGS, ratingRows))
+                            + sum(jdbcTemplate.batchUpdate(UPDATE_LIKES, likeRows));
+                    // Fences the commit: a flush that lost the lock rolls back instead.
+                    renewLock(token);
+                    return rows;
+                });
+            } catch (DuplicateKeyException ex) {
+                log.info("Counter snapshot {} was already applied; deleting it", flushId);
+                deleteSnapshot(flushId);
+                return 0;
+            }
+            // Before the snapshot goes, so a list reloaded in between counts a delta twice, not never.
+            afterFlush(visitRows, ratingRows, likeRows);
+            deleteSnapshot(flushId);
+            log.debug("Flushed counters: {} visit, {} rating and {} like rows", visitRows.size(), ratingRows.size(), likeRows.size());
+            return updated != null ? updated : 0;
+        } finally {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(LOCK_KEY), token);
+        }
+    }
+
+    @Override
+    public LocationView applyPending(LocationView location) {
+        return applyPendingLocations(List.of(location)).get(0);
+    }
+
+    @Override
+    public List<LocationView> applyPendingLocations(List<LocationView> locations) {
+        if (locations.isEmpty()) {
+            return locations;
+        }
+        List<String> ids = locations.stream().map(location -> location.id().toString()).toList();
+        List<List<String>> values = hashValues(List.of(VISITS_KEY, RATING_SUM_KEY, RATING_COUNT_KEY), ids);
+        List<LocationView> result = new ArrayList<>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            LocationView location = locations.get(i);
+            long visits = (long) pendingValue(values, 0, i);
+            double ratingSum = pendingValue(values, 1, i);
+            long ratingCount = (long) pendingValue(values, 2, i);
+            if (visits != 0 || ratingCount != 0) {
+                int count = location.ratingCount();
+                double averageRating = ratingCount != 0
+                        ? (location.averageRating() * count + ratingSum) / (count + ratingCount)
+                        : location.averageRating();
+                location = location.withCounters((int) (location.visitCount() + visits), averageRating,
+                        (int) (count + ratingCount));
+            }
+            result.add(location);
+        }
+        return result;
+    }
+
+    @Override
+    public DiaryView applyPending(DiaryView diary) {
+        return applyPendingDiaries(List.of(diary)).get(0);
+    }
+
+    @Override
+    public List<DiaryView> applyPendingDiaries(List<DiaryView> diaries) {
+        if (diaries.isEmpty()) {
+            return diaries;
+        }
+        List<String> ids = diaries.stream().map(diary -> diary.id().toString()).toList();
+        List<List<String>> values = hashValues(List.of(LIKES_KEY), ids);
+        List<DiaryView> result = new ArrayList<>(diaries.size());
+        for (int i = 0; i < diaries.size(); i++) {
+            DiaryView diary = diaries.get(i);
+            long likes = (long) pendingValue(values, 0, i);
+            if (likes != 0) {
+                diary = diary.withLikes((int) (diary.likes() + likes));
+            }
+            result.add(diary);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the given fields from each counter's live hash and snapshot in one pipeline.
+     *
+     * @return For each counter, its live values followed by its snapshot values
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<String>> hashValues(List<String> counters, List<String> fields) {
+        byte[][] rawFields = fields.stream().map(String::getBytes).toArray(byte[][]::new);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String counter : counters) {
+                connection.hashCommands().hMGet(counter.getBytes(), rawFields);
+                connection.hashCommands().hMGet(snapshot(counter).getBytes(), rawFields);
+            }
+            return null;
+        });
+        List<List<String>> values = new ArrayList<>(results.size());
+        for (Object result : results) {
+            values.add((List<String>) result);
+        }
+        return values;
+    }
+
+    /**
+     * Pending delta of one counter for one entity: live value plus snapshot value.
+     */
+    private static double pendingValue(List<List<String>> values, int counter, int index) {
+        return parse(values.get(counter * 2).get(index)) + parse(values.get(counter * 2 + 1).get(index));
+    }
+
+    private static double parse(String value) {
+        return value != null ? Double.parseDouble(value) : 0;
+    }
+
+    /**
+     * Drops cached copies of the rows just updated, along with every cached list and feed
+     * page containing them, since their counts would otherwise fall back once the pending
+     * deltas are gone. Then tells listeners, such as map clusters and typeahead, that
+     * location counters moved.
+     */
+    private void afterFlush(List<Object[]> visitRows, List<Object[]> ratingRows, List<Object[]> likeRows) {
+        Set<Long> locationIds = new LinkedHashSet<>();
+        visitRows.forEach(row -> locationIds.add((Long) row[1]));
+        ratingRows.forEach(row -> locationIds.add((Long) row[3]));
+        List<Long> diaryIds = likeRows.stream().map(row -> (Long) row[1]).toList();
+        if (!locationIds.isEmpty()) {
+            cacheInvalidationService.invalidateEntities("locations", locationIds);
+        }
+        if (!diaryIds.isEmpty()) {
+            cacheInvalidationService.invalidateEntities("diaries", diaryIds);
+            cacheInvalidationService.invalidateEntities("feed", diaryIds);
+        }
+        locationIds.forEach(id -> eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.LOCATION_STATS, id)));
+    }
+
+    /**
+     * Extends the flush lock for another {@link #LOCK_TTL}.
+     *
+     * @throws IllegalStateException If the lock expired and may be held by another flush
+     */
+    private void renewLock(String token) {
+        Long renewed = redisTemplate.execute(RENEW_LOCK_SCRIPT, List.of(LOCK_KEY), token,
+                Long.toString(LOCK_TTL.toMillis()));
+        if (renewed == null || renewed == 0) {
+            throw new IllegalStateException("Counter flush lock was lost");
+        }
+    }
+
+    private void deleteSnapshot(String flushId) {
+        List<String> keys = new ArrayList<>();
+        keys.add(FLUSH_ID_KEY);
+        LIVE_KEYS.forEach(live -> keys.add(snapshot(live)));
+        redisTemplate.execute(DELETE_SNAPSHOT_SCRIPT, keys, flushId);
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+
+    private static String snapshot(String key) {
+        return key + SNAPSHOT_SUFFIX;
+    }
+}
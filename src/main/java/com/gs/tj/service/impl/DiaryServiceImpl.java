@@ -1,68 +1,121 @@
 package com.gs.tj.service.impl;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.gs.tj.dto.DiaryView;
 import com.gs.tj.entity.Diary;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
 import com.gs.tj.exception.ResourceNotFoundException;
 import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.projection.DiaryRow;
+import com.gs.tj.service.CacheInvalidationService;
+import com.gs.tj.service.CounterService;
 import com.gs.tj.service.DiaryService;
+import com.gs.tj.service.LeaderboardService;
+import com.gs.tj.service.LeaderboardService.Board;
+import com.gs.tj.service.TimelineService;
+import com.gs.tj.service.TrendingService;
+import com.gs.tj.service.TrendingService.Signal;
+import com.gs.tj.service.TrendingService.Subject;
 
 import lombok.RequiredArgsConstructor;
 
 /**
  * Implementation of DiaryService interface.
  * Provides diary management functionality with caching support.
+ * Diary writes publish {@link EntityChangedEvent}s that keep the search index in sync, and evict
+ * only the cached entries they affect through {@link CacheInvalidationService}.
+ * Likes go through {@link CounterService} and reach the database in periodic batches.
+ * Popular and recommended diaries are read from the {@link LeaderboardService} board of
+ * diaries by likes, falling back to a limited query while it is not built. They are not
+ * cached, as the board is updated with every like and reading it is cheap.
+ * <p>
+ * Reads select only the scalar columns of each diary plus its author's and location's id
+ * and name, and load tags and images in one follow-up query each per batch of ids.
  */
 @Service
 @RequiredArgsConstructor
 public class DiaryServiceImpl implements DiaryService {
 
+    private static final String CACHE = "diaries";
+    /** Date-range lists a diary can newly fall into; their keys cannot be derived from it. */
+    private static final String DATE_RANGE_PREFIX = "dateRange";
+    /** Number of popular diaries read at a time when picking recommendations. */
+    private static final int RECOMMENDATION_WINDOW = 50;
+
     private final DiaryRepository diaryRepository;
+    private final TimelineService timelineService;
+    private final CounterService counterService;
+    private final LeaderboardService leaderboardService;
+    private final TrendingService trendingService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
-    @CacheEvict(value = "diaries", allEntries = true)
-    public Diary createDiary(Diary diary) {
-        return diaryRepository.save(diary);
+    public DiaryView createDiary(Diary diary) {
+        Diary saved = diaryRepository.save(diary);
+        if (saved.isPublic()) {
+            timelineService.fanOut(saved);
+        }
+        cacheInvalidationService.invalidate(CACHE, saved.getId(), listKeys(saved), List.of(DATE_RANGE_PREFIX));
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.DIARY, saved.getId()));
+        // The request may name its author and location by id only, so read their names back.
+        return findView(saved.getId()).orElseThrow();
     }
 
     @Override
     @Cacheable(value = "diaries", key = "#id")
-    public Optional<Diary> getDiaryById(Long id) {
-        return diaryRepository.findById(id);
+    public Optional<DiaryView> getDiaryById(Long id) {
+        return findView(id);
+    }
+
+    @Override
+    public List<DiaryView> getDiariesByIds(List<Long> ids) {
+        return findAllInOrder(ids);
     }
 
     @Override
     @Cacheable(value = "diaries", key = "'user:' + #userId")
-    public List<Diary> getDiariesByUser(Long userId) {
-        return diaryRepository.findByUserId(userId);
+    public List<DiaryView> getDiariesByUser(Long userId) {
+        return toViews(diaryRepository.findRowsByUserId(userId));
     }
 
     @Override
     @Cacheable(value = "diaries", key = "'location:' + #locationId")
-    public List<Diary> getDiariesByLocation(Long locationId) {
-        return diaryRepository.findByLocationId(locationId);
+    public List<DiaryView> getDiariesByLocation(Long locationId) {
+        return toViews(diaryRepository.findRowsByLocationId(locationId));
     }
 
     @Override
     @Cacheable(value = "diaries", key = "'dateRange:' + #startDate + ':' + #endDate")
-    public List<Diary> getDiariesByDateRange(LocalDate startDate, LocalDate endDate) {
-        return diaryRepository.findByTravelDateBetween(startDate, endDate);
+    public List<DiaryView> getDiariesByDateRange(LocalDate startDate, LocalDate endDate) {
+        return toViews(diaryRepository.findRowsByTravelDate(startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay()));
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "diaries", key = "#id")
-    public Diary updateDiary(Long id, Diary diaryDetails) {
+    public DiaryView updateDiary(Long id, Diary diaryDetails) {
         Diary diary = diaryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Diary not found with id: " + id));
+        LocalDateTime travelDate = diary.getTravelDate();
 
         if (diaryDetails.getTitle() != null) {
             diary.setTitle(diaryDetails.getTitle());
@@ -82,70 +135,150 @@ public class DiaryServiceImpl implements DiaryService {
         if (diaryDetails.getTags() != null) {
             diary.setTags(diaryDetails.getTags());
         }
+        boolean published = !diary.isPublic() && diaryDetails.isPublic();
         diary.setPublic(diaryDetails.isPublic());
 
-        return diaryRepository.save(diary);
+        Diary saved = diaryRepository.save(diary);
+        if (published) {
+            timelineService.fanOut(saved);
+        }
+        cacheInvalidationService.invalidate(CACHE, id, listKeys(saved),
+                Objects.equals(travelDate, saved.getTravelDate()) ? List.of() : List.of(DATE_RANGE_PREFIX));
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.DIARY, id));
+        return DiaryView.from(saved);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "diaries", key = "#id")
     public void deleteDiary(Long id) {
         if (!diaryRepository.existsById(id)) {
             throw new ResourceNotFoundException("Diary not found with id: " + id);
         }
         diaryRepository.deleteById(id);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.deleted(EntityType.DIARY, id));
     }
 
     @Override
     @Transactional
     @CacheEvict(value = "diaries", key = "#diaryId")
-    public Diary addComment(Long diaryId, String comment) {
+    public DiaryView addComment(Long diaryId, String comment) {
         // TODO: Implement comment functionality when the Diary entity is updated to include comments
         throw new UnsupportedOperationException("Comment functionality not yet implemented");
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "diaries", key = "#diaryId")
-    public Diary addTag(Long diaryId, String tag) {
+    public DiaryView addTag(Long diaryId, String tag) {
         Diary diary = diaryRepository.findById(diaryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Diary not found with id: " + diaryId));
         diary.getTags().add(tag);
-        return diaryRepository.save(diary);
+        Diary saved = diaryRepository.save(diary);
+        cacheInvalidationService.invalidate(CACHE, diaryId, List.of("tag:" + tag), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.DIARY, diaryId));
+        return DiaryView.from(saved);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "diaries", key = "#diaryId")
-    public Diary removeTag(Long diaryId, String tag) {
+    public DiaryView removeTag(Long diaryId, String tag) {
         Diary diary = diaryRepository.findById(diaryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Diary not found with id: " + diaryId));
         diary.getTags().remove(tag);
-        return diaryRepository.save(diary);
+        Diary saved = diaryRepository.save(diary);
+        cacheInvalidationService.invalidate(CACHE, diaryId, List.of(), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.DIARY, diaryId));
+        return DiaryView.from(saved);
+    }
+
+    @Override
+    public DiaryView likeDiary(Long diaryId) {
+        DiaryView diary = findView(diaryId)
+                .orElseThrow(() -> new ResourceNotFoundException("Diary not found with id: " + diaryId));
+        counterService.recordLike(diaryId);
+        leaderboardService.increment(Board.DIARY_LIKES, diaryId, 1);
+        trendingService.record(Subject.DIARY, diaryId, Signal.LIKE);
+        return counterService.applyPending(diary);
     }
 
     @Override
     @Cacheable(value = "diaries", key = "'tag:' + #tag")
-    public List<Diary> getDiariesByTag(String tag) {
-        return diaryRepository.findByTagsContaining(tag);
+    public List<DiaryView> getDiariesByTag(String tag) {
+        return toViews(diaryRepository.findRowsByTag(tag));
     }
 
     @Override
-    @Cacheable(value = "diaries", key = "'popular:' + #limit")
-    public List<Diary> getPopularDiaries(int limit) {
-        return diaryRepository.findPopularDiaries()
-                .stream()
-                .limit(limit)
-                .toList();
+    public List<DiaryView> getPopularDiaries(int limit) {
+        return leaderboardService.top(Board.DIARY_LIKES, 0, limit)
+                .map(this::findAllInOrder)
+                .orElseGet(() -> toViews(diaryRepository.findPopularRows(Limit.of(limit))));
     }
 
     @Override
-    @Cacheable(value = "diaries", key = "'recommended:' + #userId + ':' + #limit")
-    public List<Diary> getRecommendedDiaries(Long userId, int limit) {
-        return diaryRepository.findRecommendedDiaries(userId)
-                .stream()
-                .limit(limit)
-                .toList();
-    }
-} 
\ No newline at end of file
+    public List<DiaryView> getRecommendedDiaries(Long userId, int limit) {
+        // Pages down the popular board, skipping the user's own diaries.
+        List<DiaryView> recommended = new ArrayList<>(limit);
+        int window = Math.max(limit, RECOMMENDATION_WINDOW);
+        for (int offset = 0; recommended.size() < limit; offset += window) {
+            Optional<List<Long>> ids = leaderboardService.top(Board.DIARY_LIKES, offset, window);
+            if (ids.isEmpty()) {
+                return toViews(diaryRepository.findRecommendedRows(userId, Limit.of(limit)));
+            }
+            for (DiaryView diary : findAllInOrder(ids.get())) {
+                if (!userId.equals(diary.userId()) && recommended.size() < limit) {
+                    recommended.add(diary);
+                }
+            }
+            if (ids.get().size() < window) {
+                break;
+            }
+        }
+        return recommended;
+    }
+
+    /**
+     * Loads diaries and returns them in the order of the given ids, skipping any that no
+     * longer exist.
+     */
+    private List<DiaryView> findAllInOrder(List<Long> ids) {
+        return toViews(IdBatches.inOrder(ids, IdBatches.query(ids, diaryRepository::findRowsByIds), DiaryRow::getId));
+    }
+
+    private Optional<DiaryView> findView(Long id) {
+        return diaryRepository.findRowById(id).map(row -> toViews(List.of(row)).get(0));
+    }
+
+    /**
+     * Completes rows with their tags and images, keeping their order. The result is a
+     * mutable list, which the cache can restore exactly.
+     */
+    private List<DiaryView> toViews(List<DiaryRow> rows) {
+        List<Long> ids = rows.stream().map(DiaryRow::getId).toList();
+        Map<Long, Set<String>> tags = IdBatches.group(ids, diaryRepository::findTagsByDiaryIds);
+        Map<Long, Set<String>> imageUrls = IdBatches.group(ids, diaryRepository::findImageUrlsByDiaryIds);
+        List<DiaryView> views = new ArrayList<>(rows.size());
+        for (DiaryRow row : rows) {
+            views.add(new DiaryView(row.getId(), row.getTitle(), row.getContent(), row.getUserId(),
+                    row.getUsername(), row.getLocationId(), row.getLocationName(), row.getTravelDate(),
+                    tags.get(row.getId()), imageUrls.get(row.getId()), row.getLikes(),
+                    Boolean.TRUE.equals(row.getIsPublic()), row.getCreatedAt(), row.getUpdatedAt()));
+        }
+        return views;
+    }
+
+    /**
+     * Keys of the cached diary lists a diary belongs to by its own fields. Lists it already
+     * appears in are found through its id.
+     */
+    private static Set<String> listKeys(Diary diary) {
+        Set<String> keys = new HashSet<>();
+        if (diary.getUser() != null) {
+            keys.add("user:" + diary.getUser().getId());
+        }
+        if (diary.getLocation() != null) {
+            keys.add("location:" + diary.getLocation().getId());
+        }
+        diary.getTags().forEach(tag -> keys.add("tag:" + tag));
+        return keys;
+    }
+}
@@ -0,0 +1,190 @@
+package com.gs.tj.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+import com.gs.tj.geo.DistanceBlockCache;
+import com.gs.tj.geo.DistanceKernel;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.projection.LocationPoint;
+import com.gs.tj.service.DistanceMatrixService;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Implementation of DistanceMatrixService.
+ * <p>
+ * Location ids are grouped into aligned ranges of {@link #BLOCK_SIZE}, and the distances
+ * between two ranges form one block. Since distances are symmetric only blocks with
+ * {@code rowRange <= columnRange} are stored. A lookup collects the blocks its pairs fall
+ * in, reads the cached ones from a {@link DistanceBlockCache}, loads the coordinates of all
+ * missing ones in one query and computes them with {@link DistanceKernel}, in parallel
+ * when there are many. A location write drops every block of its range, and a block
+ * computed while a write committed is returned but not cached; the cache checks this and
+ * stores the block under one lock.
+ */
+@Service
+@RequiredArgsConstructor
+public class DistanceMatrixServiceImpl implements DistanceMatrixService {
+
+    static final int BLOCK_SIZE = 16;
+    private static final int PARALLEL_THRESHOLD = 8;
+    private static final int COORDINATE_BATCH_SIZE = 1000;
+
+    private final LocationRepository locationRepository;
+
+    @Value("${tj.distance.cache-size:64MB}")
+    private DataSize cacheSize;
+
+    @Value("${tj.distance.average-speed-kmh:60}")
+    private double averageSpeedKmh;
+
+    @Value("${tj.distance.detour-factor:1.3}")
+    private double detourFactor;
+
+    private DistanceBlockCache cache;
+
+    @PostConstruct
+    void createCache() {
+        cache = new DistanceBlockCache(BLOCK_SIZE * BLOCK_SIZE, cacheSize.toBytes());
+    }
+
+    @Override
+    public double distance(Long fromId, Long toId) {
+        return distances(List.of(fromId), List.of(toId))[0];
+    }
+
+    @Override
+    public double[] distances(List<Long> fromIds, List<Long> toIds) {
+        Map<Long, double[]> blocks = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        // Only a hit keeps its buffer; misses reuse it.
+        double[] probe = null;
+        for (Long from : fromIds) {
+            for (Long to : toIds) {
+                long key = blockKey(from, to);
+                if (!blocks.containsKey(key)) {
+                    if (probe == null) {
+                        probe = new double[BLOCK_SIZE * BLOCK_SIZE];
+                    }
+                    if (cache.get(key, probe)) {
+                        blocks.put(key, probe);
+                        probe = null;
+                    } else {
+                        blocks.put(key, null);
+                        missing.add(key);
+                    }
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            blocks.putAll(computeBlocks(missing));
+        }
+
+        double[] result = new double[fromIds.size() * toIds.size()];
+        int position = 0;
+        for (Long from : fromIds) {
+            for (Long to : toIds) {
+                long low = Math.min(from, to);
+                long high = Math.max(from, to);
+                double[] block = blocks.get(blockKey(from, to));
+                result[position++] = block[(int) (low % BLOCK_SIZE) * BLOCK_SIZE + (int) (high % BLOCK_SIZE)];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double[] durations(List<Long> fromIds, List<Long> toIds) {
+        double[] seconds = distances(fromIds, toIds);
+        double secondsPerMeter = detourFactor * 3.6 / averageSpeedKmh;
+        for (int i = 0; i < seconds.length; i++) {
+            seconds[i] *= secondsPerMeter;
+        }
+        return seconds;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.type() != EntityType.LOCATION) {
+            return;
+        }
+        long range = event.id() / BLOCK_SIZE;
+        cache.evictIf(key -> key >>> 32 == range || (key & 0xFFFFFFFFL) == range);
+    }
+
+    private Map<Long, double[]> computeBlocks(List<Long> keys) {
+        long version = cache.version();
+        Set<Long> ids = new HashSet<>();
+        for (long key : keys) {
+            addRange(ids, key >>> 32);
+            addRange(ids, key & 0xFFFFFFFFL);
+        }
+        Map<Long, LocationPoint> points = new HashMap<>();
+        List<Long> batch = new ArrayList<>(COORDINATE_BATCH_SIZE);
+        for (Long id : ids) {
+            batch.add(id);
+            if (batch.size() == COORDINATE_BATCH_SIZE) {
+                locationRepository.findPointsByIds(batch).forEach(point -> points.put(point.getId(), point));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            locationRepository.findPointsByIds(batch).forEach(point -> points.put(point.getId(), point));
+        }
+
+        Map<Long, double[]> computed = (keys.size() >= PARALLEL_THRESHOLD ? keys.parallelStream() : keys.stream())
+                .collect(Collectors.toMap(key -> key, key -> computeBlock(key, points)));
+        computed.forEach((key, block) -> cache.putIfVersion(version, key, block));
+        return computed;
+    }
+
+    private static double[] computeBlock(long key, Map<Long, LocationPoint> points) {
+        double[] block = new double[BLOCK_SIZE * BLOCK_SIZE];
+        DistanceKernel.distances(rangePoints(key >>> 32, points), rangePoints(key & 0xFFFFFFFFL, points), block);
+        return block;
+    }
+
+    private static DistanceKernel.Points rangePoints(long range, Map<Long, LocationPoint> points) {
+        double[] latitudes = new double[BLOCK_SIZE];
+        double[] longitudes = new double[BLOCK_SIZE];
+        Arrays.fill(latitudes, Double.NaN);
+        Arrays.fill(longitudes, Double.NaN);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            LocationPoint point = points.get(range * BLOCK_SIZE + i);
+            if (point != null && point.getLatitude() != null && point.getLongitude() != null) {
+                latitudes[i] = point.getLatitude();
+                longitudes[i] = point.getLongitude();
+            }
+        }
+        return new DistanceKernel.Points(latitudes, longitudes);
+    }
+
+    private static void addRange(Set<Long> ids, long range) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            ids.add(range * BLOCK_SIZE + i);
+        }
+    }
+
+    /**
+     * Key of the block holding a pair: the lower id's range in the high half, the higher
+     * id's range in the low half.
+     */
+    private static long blockKey(long from, long to) {
+        return (Math.min(from, to) / BLOCK_SIZE) << 32 | (Math.max(from, to) / BLOCK_SIZE);
+    }
+}
@@ -0,0 +1,343 @@
+package com.gs.tj.service.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gs.tj.dto.ExportJob;
+import com.gs.tj.dto.ExportJob.Status;
+import com.gs.tj.dto.ExportJob.Type;
+import com.gs.tj.exception.ExportLimitExceededException;
+import com.gs.tj.service.ExportJobService;
+import com.gs.tj.service.ExportService;
+import com.gs.tj.service.ExportService.ExportWriter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of ExportJobService running exports on a fixed pool of worker threads.
+ * <p>
+ * A job is admitted only while the node has fewer than {@code tj.export.jobs.max-active}
+ * jobs queued or running and its user fewer than {@code max-queued-per-user}. At most
+ * {@code max-running-per-user} jobs of one user run at once; the user's other jobs wait in
+ * a queue of their own, so they never hold a worker or delay other users. A request
+ * identical to a queued or running job, by user, type and date range, returns that job.
+ * <p>
+ * Results are written to a {@code .part} file in {@code tj.export.jobs.directory} and
+ * renamed once complete, so a download never sees a partial result. Jobs and their files
+ * are removed {@code ttl} after they finish; files the registry no longer knows, such as
+ * those left by a restart, are removed once they are older than {@code ttl}. The registry
+ * is held in memory, so a job is only known to the node that runs it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportJobServiceImpl implements ExportJobService {
+
+    private static final String PART_SUFFIX = ".part";
+    private static final Map<Type, String> EXTENSIONS = Map.of(
+            Type.MEMORIES_ZIP, ".zip",
+            Type.STATS_EXCEL, ".xlsx",
+            Type.TIMELINE_JSON, ".json");
+
+    private final ExportService exportService;
+
+    @Value("${tj.export.jobs.directory:${java.io.tmpdir}/tj-exports}")
+    private Path directory;
+
+    @Value("${tj.export.jobs.workers:4}")
+    private int workers;
+
+    @Value("${tj.export.jobs.max-active:100}")
+    private int maxActive;
+
+    @Value("${tj.export.jobs.max-running-per-user:1}")
+    private int maxRunningPerUser;
+
+    @Value("${tj.export.jobs.max-queued-per-user:5}")
+    private int maxQueuedPerUser;
+
+    @Value("${tj.export.jobs.ttl:PT24H}")
+    private Duration ttl;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Guarded by this.
+    private final Map<JobKey, Job> active = new HashMap<>();
+    private final Map<Long, UserJobs> userJobs = new HashMap<>();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "export-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ExportJob submit(Long userId, Type type, LocalDate startDate, LocalDate endDate) {
+        JobKey key = new JobKey(userId, type, startDate, endDate);
+        synchronized (this) {
+            Job existing = active.get(key);
+            if (existing != null) {
+                return existing.snapshot();
+            }
+        }
+        // Checks the request, so a missing user fails here rather than in the worker.
+        ExportWriter writer = writer(key);
+        synchronized (this) {
+            Job existing = active.get(key);
+            if (existing != null) {
+                return existing.snapshot();
+            }
+            if (active.size() >= maxActive) {
+                throw new ExportLimitExceededException("Too many exports in progress, please try again later");
+            }
+            UserJobs user = userJobs.computeIfAbsent(userId, id -> new UserJobs());
+            if (user.running + user.waiting.size() >= maxQueuedPerUser) {
+                throw new ExportLimitExceededException("Too many exports in progress for user: " + userId);
+            }
+            Job job = new Job(UUID.randomUUID().toString(), key, writer);
+            jobs.put(job.id, job);
+            active.put(key, job);
+            if (user.running < maxRunningPerUser) {
+                user.running++;
+                try {
+                    executor.execute(() -> run(job));
+                } catch (RejectedExecutionException ex) {
+                    // The node is shutting down; forget the job as if it had never been submitted.
+                    jobs.remove(job.id);
+                    active.remove(key);
+                    if (--user.running == 0 && user.waiting.isEmpty()) {
+                        userJobs.remove(userId);
+                    }
+                    throw new ExportLimitExceededException("Exports are not accepted while the server shuts down");
+                }
+            } else {
+                user.waiting.add(job);
+            }
+            return job.snapshot();
+        }
+    }
+
+    @Override
+    public Optional<ExportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::snapshot);
+    }
+
+    @Override
+    public Optional<Path> getResult(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || job.status != Status.COMPLETED || !Files.exists(job.file)) {
+            return Optional.empty();
+        }
+        return Optional.of(job.file);
+    }
+
+    @Scheduled(fixedDelayString = "${tj.export.jobs.cleanup-interval:PT10M}",
+            initialDelayString = "${tj.export.jobs.cleanup-interval:PT10M}")
+    public void scheduledCleanUp() {
+        try {
+            int deleted = cleanUp();
+            if (deleted > 0) {
+                log.info("Deleted {} expired export files", deleted);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Export clean-up failed; expired exports are retried on the next run", ex);
+        }
+    }
+
+    @Override
+    public int cleanUp() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(ttl);
+        int deleted = 0;
+        for (Job job : jobs.values()) {
+            if (job.finishedAt != null && job.finishedAt.isBefore(expiredBefore)) {
+                jobs.remove(job.id);
+                if (job.file != null && delete(job.file)) {
+                    deleted++;
+                }
+            }
+        }
+        Instant orphanedBefore = Instant.now().minus(ttl);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (!jobs.containsKey(jobId(file))
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(orphanedBefore) && delete(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return deleted;
+    }
+
+    private ExportWriter writer(JobKey key) {
+        return switch (key.type()) {
+            case MEMORIES_ZIP -> exportService.exportUserMemoriesToZip(key.userId(), key.startDate(), key.endDate());
+            case STATS_EXCEL -> exportService.exportUserStatsToExcel(key.userId(), key.startDate(), key.endDate());
+            case TIMELINE_JSON -> exportService.exportUserTimelineToJson(key.userId());
+        };
+    }
+
+    private void run(Job job) {
+        job.status = Status.RUNNING;
+        Path part = directory.resolve(job.id + PART_SUFFIX);
+        Path file = directory.resolve(job.id + EXTENSIONS.get(job.key.type()));
+        try {
+            try (OutputStream out = new CountingOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(part)), job.bytesWritten)) {
+                job.writer.writeTo(out);
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            job.file = file;
+            job.finishedAt = LocalDateTime.now();
+            job.status = Status.COMPLETED;
+        } catch (Exception ex) {
+            log.warn("Export job {} ({} of user {}) failed", job.id, job.key.type(), job.key.userId(), ex);
+            delete(part);
+            job.error = "Export failed";
+            job.finishedAt = LocalDateTime.now();
+            job.status = Status.FAILED;
+        } finally {
+            finish(job);
+        }
+    }
+
+    /**
+     * Releases the user's slot of a finished job and starts their next waiting job, if any.
+     * Once the node shuts down, waiting jobs fail instead.
+     */
+    private synchronized void finish(Job job) {
+        active.remove(job.key, job);
+        UserJobs user = userJobs.get(job.key.userId());
+        Job next;
+        while ((next = user.waiting.poll()) != null) {
+            Job started = next;
+            try {
+                executor.execute(() -> run(started));
+                return;
+            } catch (RejectedExecutionException ex) {
+                active.remove(started.key, started);
+                started.error = "Export cancelled by a server shutdown";
+                started.finishedAt = LocalDateTime.now();
+                started.status = Status.FAILED;
+            }
+        }
+        if (--user.running == 0) {
+            userJobs.remove(job.key.userId());
+        }
+    }
+
+    private static String jobId(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot >= 0 ? name.substring(0, dot) : name;
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete export file {}", file, ex);
+            return false;
+        }
+    }
+
+    private record JobKey(Long userId, Type type, LocalDate startDate, LocalDate endDate) {
+    }
+
+    /**
+     * Jobs of one user holding or waiting for one of their running slots.
+     */
+    private static final class UserJobs {
+        int running;
+        final Queue<Job> waiting = new ArrayDeque<>();
+    }
+
+    private static final class Job {
+        final String id;
+        final JobKey key;
+        final ExportWriter writer;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final AtomicLong bytesWritten = new AtomicLong();
+        volatile Status status = Status.QUEUED;
+        volatile Path file;
+        volatile String error;
+        volatile LocalDateTime finishedAt;
+
+        Job(String id, JobKey key, ExportWriter writer) {
+            this.id = id;
+            this.key = key;
+            this.writer = writer;
+        }
+
+        ExportJob snapshot() {
+            return new ExportJob(id, key.userId(), key.type(), key.startDate(), key.endDate(), status,
+                    bytesWritten.get(), error, createdAt, finishedAt);
+        }
+    }
+
+    /**
+     * Counts the bytes written through it, as the progress of a job.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final AtomicLong count;
+
+        CountingOutputStream(OutputStream out, AtomicLong count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count.addAndGet(len);
+        }
+    }
+}
@@ -1,61 +1,133 @@
 package com.gs.tj.service.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.tj.dto.UserSummary;
+import com.gs.tj.exception.ResourceNotFoundException;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.FavoriteRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.UserRepository;
 import com.gs.tj.service.ExportService;
+import com.gs.tj.service.ImageSource;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 
 /**
  * Implementation of ExportService interface.
  * Provides functionality for exporting data in various formats.
+ * Unimplemented formats fail when the export is requested, before a response is started.
+ * User exports read {@code tj.export.page-size} rows per query. Memories exports fetch up
+ * to {@code tj.export.images.window} images ahead of the one being written, each of at most
+ * {@code tj.export.images.max-size}, holding at most {@code tj.export.images.max-in-flight}
+ * of image data at once. Excel exports keep {@code tj.export.excel.window} rows per sheet
+ * in memory.
  */
 @Service
 @RequiredArgsConstructor
 public class ExportServiceImpl implements ExportService {
 
+    private final UserRepository userRepository;
+    private final DiaryRepository diaryRepository;
+    private final RouteRepository routeRepository;
+    private final FavoriteRepository favoriteRepository;
+    private final LocationRepository locationRepository;
+    private final ImageSource imageSource;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${tj.export.page-size:500}")
+    private int pageSize;
+
+    @Value("${tj.export.images.window:16}")
+    private int imageWindow;
+
+    @Value("${tj.export.images.max-size:25MB}")
+    private DataSize maxImageSize;
+
+    @Value("${tj.export.images.max-in-flight:64MB}")
+    private DataSize maxImagesInFlight;
+
+    @Value("${tj.export.excel.window:100}")
+    private int excelWindow;
+
+    private TimelineJsonWriter timelineWriter;
+    private MemoriesZipWriter memoriesWriter;
+    private StatsExcelWriter statsWriter;
+
+    @PostConstruct
+    void createWriters() {
+        timelineWriter = new TimelineJsonWriter(diaryRepository, routeRepository, favoriteRepository,
+                transactionTemplate, objectMapper, pageSize);
+        memoriesWriter = new MemoriesZipWriter(diaryRepository, locationRepository, imageSource,
+                transactionTemplate, objectMapper, pageSize, Math.max(1, imageWindow), maxImageSize.toBytes(),
+                maxImagesInFlight.toBytes());
+        statsWriter = new StatsExcelWriter(diaryRepository, transactionTemplate, pageSize, Math.max(1, excelWindow));
+    }
+
     @Override
-    public ByteArrayOutputStream exportDiaryToPdf(Long diaryId) {
+    public ExportWriter exportDiaryToPdf(Long diaryId) {
         // TODO: Implement PDF generation using a library like iText or Apache PDFBox
         throw new UnsupportedOperationException("PDF export not yet implemented");
     }
 
     @Override
-    public ByteArrayOutputStream exportDiaryToMarkdown(Long diaryId) {
+    public ExportWriter exportDiaryToMarkdown(Long diaryId) {
         // TODO: Implement Markdown generation
         throw new UnsupportedOperationException("Markdown export not yet implemented");
     }
 
     @Override
-    public ByteArrayOutputStream exportRouteToGpx(Long routeId) {
+    public ExportWriter exportRouteToGpx(Long routeId) {
         // TODO: Implement GPX file generation
         throw new UnsupportedOperationException("GPX export not yet implemented");
     }
 
     @Override
-    public ByteArrayOutputStream exportRouteToKml(Long routeId) {
+    public ExportWriter exportRouteToKml(Long routeId) {
         // TODO: Implement KML file generation
         throw new UnsupportedOperationException("KML export not yet implemented");
     }
 
     @Override
-    public ByteArrayOutputStream exportUserStatsToExcel(Long userId, LocalDate startDate, LocalDate endDate) {
-        // TODO: Implement Excel generation using Apache POI
-        throw new UnsupportedOperationException("Excel export not yet implemented");
+    public ExportWriter exportUserStatsToExcel(Long userId, LocalDate startDate, LocalDate endDate) {
+        checkDateRange(startDate, endDate);
+        UserSummary user = findUser(userId);
+        return out -> statsWriter.write(userId, user.username(), startDate, endDate, out);
     }
 
     @Override
-    public ByteArrayOutputStream exportUserMemoriesToZip(Long userId, LocalDate startDate, LocalDate endDate) {
-        // TODO: Implement ZIP file generation with images and metadata
-        throw new UnsupportedOperationException("ZIP export not yet implemented");
+    public ExportWriter exportUserMemoriesToZip(Long userId, LocalDate startDate, LocalDate endDate) {
+        checkDateRange(startDate, endDate);
+        findUser(userId);
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        return out -> memoriesWriter.write(userId, from, to, out);
     }
 
     @Override
-    public ByteArrayOutputStream exportUserTimelineToJson(Long userId) {
-        // TODO: Implement JSON generation for timeline data
-        throw new UnsupportedOperationException("JSON export not yet implemented");
+    public ExportWriter exportUserTimelineToJson(Long userId) {
+        UserSummary user = findUser(userId);
+        return out -> timelineWriter.write(userId, user.username(), out);
+    }
+
+    private static void checkDateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+    }
+
+    private UserSummary findUser(Long userId) {
+        return userRepository.findSummaryById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
     }
-} 
\ No newline at end of file
+}
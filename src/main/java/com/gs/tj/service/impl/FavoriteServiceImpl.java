@@ -0,0 +1,102 @@
+package com.gs.tj.service.impl;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gs.tj.entity.Favorite;
+import com.gs.tj.entity.Favorite.FavoriteType;
+import com.gs.tj.exception.ResourceNotFoundException;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.FavoriteRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.UserRepository;
+import com.gs.tj.service.FavoriteService;
+import com.gs.tj.service.TrendingService;
+import com.gs.tj.service.TrendingService.Signal;
+import com.gs.tj.service.TrendingService.Subject;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Implementation of FavoriteService.
+ * Each new favorite counts towards the item's trending score once it is committed.
+ * Adding runs in its own transaction, so that losing the race against a concurrent add of
+ * the same favorite, caught by the unique constraint, can be reported as "already there".
+ */
+@Service
+@RequiredArgsConstructor
+public class FavoriteServiceImpl implements FavoriteService {
+
+    private final FavoriteRepository favoriteRepository;
+    private final UserRepository userRepository;
+    private final DiaryRepository diaryRepository;
+    private final LocationRepository locationRepository;
+    private final RouteRepository routeRepository;
+    private final TrendingService trendingService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public boolean addFavorite(Long userId, FavoriteType type, Long favoriteId) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> insert(userId, type, favoriteId)));
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent request added the same favorite first.
+            return false;
+        }
+    }
+
+    private boolean insert(Long userId, FavoriteType type, Long favoriteId) {
+        if (favoriteRepository.existsByUserIdAndTypeAndFavoriteId(userId, type, favoriteId)) {
+            return false;
+        }
+        boolean exists = switch (type) {
+            case DIARY -> diaryRepository.existsById(favoriteId);
+            case LOCATION -> locationRepository.existsById(favoriteId);
+            case ROUTE -> routeRepository.existsById(favoriteId);
+        };
+        if (!exists) {
+            throw new ResourceNotFoundException(
+                    "Favorite " + type.name().toLowerCase(Locale.ROOT) + " not found with id: " + favoriteId);
+        }
+        Favorite favorite = new Favorite();
+        favorite.setUser(userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId)));
+        favorite.setType(type);
+        favorite.setFavoriteId(favoriteId);
+        favoriteRepository.saveAndFlush(favorite);
+        afterCommit(() -> trendingService.record(Subject.valueOf(type.name()), favoriteId, Signal.FAVORITE));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFavorite(Long userId, FavoriteType type, Long favoriteId) {
+        return favoriteRepository.deleteByUserIdAndTypeAndFavoriteId(userId, type, favoriteId) > 0;
+    }
+
+    @Override
+    public List<Long> getFavoriteIds(Long userId, FavoriteType type) {
+        return favoriteRepository.findFavoriteIds(userId, type);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
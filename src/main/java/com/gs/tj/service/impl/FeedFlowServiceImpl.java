@@ -1,51 +1,108 @@
 package com.gs.tj.service.impl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.gs.tj.dto.FeedPage;
 import com.gs.tj.entity.Diary;
 import com.gs.tj.repository.DiaryRepository;
 import com.gs.tj.service.FeedFlowService;
+import com.gs.tj.service.TimelineService;
 
 import lombok.RequiredArgsConstructor;
 
 /**
  * Implementation of FeedFlowService interface.
  * Provides feed flow functionality with caching support.
+ * Pages are read with keyset queries ({@code id < lastId ORDER BY id DESC LIMIT n}),
+ * so the cost of a page does not depend on how deep the client has scrolled.
+ * The home feed merges the precomputed timeline kept by {@link TimelineService} with
+ * diaries pulled at read time from followed high-follower authors.
+ * A page costs one query per source plus one per diary collection, see {@link FetchPlans}.
  */
 @Service
 @RequiredArgsConstructor
 public class FeedFlowServiceImpl implements FeedFlowService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final DiaryRepository diaryRepository;
+    private final TimelineService timelineService;
 
     @Override
-    @Cacheable(value = "feed", key = "'page:' + #userId + ':' + #lastId + ':' + #pageSize")
-    public List<Diary> getFeedPage(Long userId, Long lastId, int pageSize) {
-        // TODO: Implement pagination logic
-        return diaryRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public FeedPage getFeedPage(Long userId, Long lastId, int pageSize) {
+        int size = clampPageSize(pageSize);
+        List<FeedMerger.Run> runs = new ArrayList<>();
+
+        List<Long> ids = timelineService.getTimelineIds(userId, lastId, size + 1);
+        Map<Long, Diary> diaries = diaryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Diary::getId, Function.identity()));
+        // Timelines may still reference diaries that were since deleted or made private.
+        List<Diary> pushed = ids.stream()
+                .map(diaries::get)
+                .filter(Objects::nonNull)
+                .filter(Diary::isPublic)
+                .toList();
+        runs.add(new FeedMerger.Run(pushed, ids.size() <= size, ids.isEmpty() ? null : ids.get(ids.size() - 1)));
+
+        for (Long authorId : timelineService.getPulledAuthorIds(userId)) {
+            List<Diary> pulled = diaryRepository.findPublicFeedByUser(authorId, cursor(lastId), Limit.of(size + 1));
+            runs.add(new FeedMerger.Run(pulled, pulled.size() <= size,
+                    pulled.isEmpty() ? null : pulled.get(pulled.size() - 1).getId()));
+        }
+        return FeedMerger.merge(runs, size);
     }
 
     @Override
     @Cacheable(value = "feed", key = "'location:' + #locationId + ':' + #lastId + ':' + #pageSize")
-    public List<Diary> getFeedByLocation(Long locationId, Long lastId, int pageSize) {
-        // TODO: Implement pagination logic
-        return diaryRepository.findByLocationId(locationId);
+    @Transactional(readOnly = true)
+    public FeedPage getFeedByLocation(Long locationId, Long lastId, int pageSize) {
+        int size = clampPageSize(pageSize);
+        return toPage(diaryRepository.findFeedByLocation(locationId, cursor(lastId), Limit.of(size + 1)), size);
     }
 
     @Override
     @Cacheable(value = "feed", key = "'tag:' + #tag + ':' + #lastId + ':' + #pageSize")
-    public List<Diary> getFeedByTag(String tag, Long lastId, int pageSize) {
-        // TODO: Implement pagination logic
-        return diaryRepository.findByTagsContaining(tag);
+    @Transactional(readOnly = true)
+    public FeedPage getFeedByTag(String tag, Long lastId, int pageSize) {
+        int size = clampPageSize(pageSize);
+        return toPage(diaryRepository.findFeedByTag(tag, cursor(lastId), Limit.of(size + 1)), size);
     }
 
     @Override
     @Cacheable(value = "feed", key = "'user:' + #userId + ':' + #lastId + ':' + #pageSize")
-    public List<Diary> getFeedByUser(Long userId, Long lastId, int pageSize) {
-        // TODO: Implement pagination logic
-        return diaryRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public FeedPage getFeedByUser(Long userId, Long lastId, int pageSize) {
+        int size = clampPageSize(pageSize);
+        return toPage(diaryRepository.findFeedByUser(userId, cursor(lastId), Limit.of(size + 1)), size);
+    }
+
+    private static int clampPageSize(int pageSize) {
+        return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+    }
+
+    private static long cursor(Long lastId) {
+        return lastId != null ? lastId : Long.MAX_VALUE;
+    }
+
+    /**
+     * Builds a page from a query that fetched one row more than requested;
+     * the extra row only tells us whether another page exists.
+     */
+    private static FeedPage toPage(List<Diary> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<Diary> items = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? items.get(items.size() - 1).getId() : null;
+        return new FeedPage(FetchPlans.diaryViews(items), nextCursor, hasMore);
     }
-} 
\ No newline at end of file
+}
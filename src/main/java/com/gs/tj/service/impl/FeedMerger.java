@@ -0,0 +1,99 @@
+package com.gs.tj.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.gs.tj.dto.FeedPage;
+import com.gs.tj.entity.Diary;
+
+/**
+ * K-way merge of newest-first diary runs into a single feed page of diary views.
+ * <p>
+ * Runs are ordered by (createdAt, id) descending. Each run was read with the same id
+ * cursor and a limit of one more than the page size; a run that filled that limit is
+ * not exhausted, and nothing below the lowest id it read may be emitted yet, because
+ * the rows it has not read could belong between them. Since createdAt is stamped at
+ * insert time it follows the identity id, so the id remains a valid cursor.
+ */
+final class FeedMerger {
+
+    static final Comparator<Diary> NEWEST_FIRST = Comparator
+            .comparing(Diary::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Diary::getId)
+            .reversed();
+
+    /**
+     * A newest-first run from one source.
+     *
+     * @param items Visible diaries in newest-first order
+     * @param exhausted Whether the source has no rows beyond those read
+     * @param lowestId Lowest id read from the source, including rows filtered out of {@code items}
+     */
+    record Run(List<Diary> items, boolean exhausted, Long lowestId) {
+    }
+
+    private FeedMerger() {
+    }
+
+    static FeedPage merge(List<Run> runs, int pageSize) {
+        long floor = runs.stream()
+                .filter(run -> !run.exhausted() && run.lowestId() != null)
+                .mapToLong(Run::lowestId)
+                .max()
+                .orElse(Long.MIN_VALUE);
+
+        PriorityQueue<RunCursor> heap = new PriorityQueue<>(
+                Comparator.comparing(RunCursor::current, NEWEST_FIRST));
+        for (Run run : runs) {
+            if (!run.items().isEmpty()) {
+                heap.add(new RunCursor(run.items()));
+            }
+        }
+
+        List<Diary> items = new ArrayList<>(pageSize);
+        Set<Long> seen = new HashSet<>();
+        while (!heap.isEmpty() && items.size() < pageSize) {
+            RunCursor cursor = heap.poll();
+            Diary diary = cursor.current();
+            if (diary.getId() < floor) {
+                heap.add(cursor);
+                break;
+            }
+            // An author promoted to pull mode can still have older diaries in pushed timelines.
+            if (seen.add(diary.getId())) {
+                items.add(diary);
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+
+        boolean hasMore = !heap.isEmpty() || floor != Long.MIN_VALUE;
+        Long nextCursor = null;
+        if (hasMore) {
+            nextCursor = items.isEmpty() ? floor : items.get(items.size() - 1).getId();
+        }
+        return new FeedPage(FetchPlans.diaryViews(items), nextCursor, hasMore);
+    }
+
+    private static final class RunCursor {
+        private final List<Diary> items;
+        private int position;
+
+        RunCursor(List<Diary> items) {
+            this.items = items;
+        }
+
+        Diary current() {
+            return items.get(position);
+        }
+
+        boolean advance() {
+            return ++position < items.size();
+        }
+    }
+}
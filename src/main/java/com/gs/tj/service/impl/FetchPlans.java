@@ -0,0 +1,47 @@
+package com.gs.tj.service.impl;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+
+import com.gs.tj.dto.DiaryView;
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.Location;
+
+/**
+ * Loads the element collections of entities that are about to leave their session.
+ * <p>
+ * The collections are batch-fetched, so initializing the first entity's collection loads
+ * the same collection for the other entities of the session in the same query. A list of
+ * entities thus costs one query per collection rather than one per entity and collection.
+ * Must be called inside the transaction that loaded the entities.
+ */
+final class FetchPlans {
+
+    private FetchPlans() {
+    }
+
+    static <T extends List<Diary>> T initializeDiaries(T diaries) {
+        for (Diary diary : diaries) {
+            Hibernate.initialize(diary.getTags());
+            Hibernate.initialize(diary.getImageUrls());
+        }
+        return diaries;
+    }
+
+    /**
+     * Initializes the diaries' collections and converts them to views; the diaries must
+     * have been loaded with their author and location.
+     */
+    static List<DiaryView> diaryViews(List<Diary> diaries) {
+        return initializeDiaries(diaries).stream().map(DiaryView::from).toList();
+    }
+
+    static <T extends List<Location>> T initializeLocations(T locations) {
+        for (Location location : locations) {
+            Hibernate.initialize(location.getTags());
+            Hibernate.initialize(location.getImageUrls());
+        }
+        return locations;
+    }
+}
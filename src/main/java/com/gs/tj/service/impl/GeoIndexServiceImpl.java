@@ -0,0 +1,113 @@
+package com.gs.tj.service.impl;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+import com.gs.tj.geo.GeoGridIndex;
+import com.gs.tj.geo.GeoHit;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.projection.LocationPoint;
+import com.gs.tj.service.GeoIndexService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of GeoIndexService holding every location's coordinates in a {@link GeoGridIndex}.
+ * The index is built in keyset batches at startup and on a fixed schedule, and patched
+ * after each committed location write, local or relayed from another node.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GeoIndexServiceImpl implements GeoIndexService {
+
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    private final LocationRepository locationRepository;
+
+    @Value("${tj.geo.cell-size-degrees:0.25}")
+    private double cellSizeDegrees;
+
+    private final ReloadableIndex<GeoGridIndex> index = new ReloadableIndex<>();
+
+    @Override
+    public boolean isReady() {
+        return index.get() != null;
+    }
+
+    @Override
+    public List<GeoHit> findWithinRadius(double latitude, double longitude, double radiusInMeters) {
+        return loadedIndex().withinRadius(latitude, longitude, radiusInMeters);
+    }
+
+    @Override
+    public List<GeoHit> findNearest(double latitude, double longitude, int k) {
+        return loadedIndex().nearest(latitude, longitude, k);
+    }
+
+    @Override
+    public List<GeoHit> findInBoundingBox(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int limit) {
+        return loadedIndex().withinBoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude, limit);
+    }
+
+    @Override
+    public void reload() {
+        GeoGridIndex loaded = index.reload(() -> new GeoGridIndex(cellSizeDegrees), fresh -> {
+            long afterId = 0;
+            List<LocationPoint> batch;
+            do {
+                batch = locationRepository.findPointsAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+                for (LocationPoint point : batch) {
+                    fresh.put(point.getId(), point.getLatitude(), point.getLongitude());
+                }
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+        });
+        log.info("Geo index loaded with {} locations", loaded.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${tj.geo.reload-interval:PT1H}", initialDelayString = "${tj.geo.reload-interval:PT1H}")
+    public void refreshIndex() {
+        try {
+            reload();
+        } catch (RuntimeException ex) {
+            log.warn("Geo index could not be loaded; nearby queries fall back to SQL", ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.type() != EntityType.LOCATION) {
+            return;
+        }
+        if (event.deleted()) {
+            index.apply(target -> target.remove(event.id()));
+            return;
+        }
+        locationRepository.findPointById(event.id()).ifPresentOrElse(
+                point -> index.apply(target -> target.put(point.getId(), point.getLatitude(), point.getLongitude())),
+                () -> index.apply(target -> target.remove(event.id())));
+    }
+
+    private GeoGridIndex loadedIndex() {
+        GeoGridIndex current = index.get();
+        if (current == null) {
+            throw new IllegalStateException("Geo index is not loaded");
+        }
+        return current;
+    }
+}
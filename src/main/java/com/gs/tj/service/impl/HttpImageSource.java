@@ -0,0 +1,206 @@
+package com.gs.tj.service.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.gs.tj.service.ImageSource;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * ImageSource fetching image URLs over HTTP from the object store or its CDN.
+ * <p>
+ * Image URLs are supplied by users, so only URLs whose host is one of
+ * {@code tj.export.images.allowed-hosts} are fetched, and only if the host resolves to
+ * public addresses; loopback, private, link-local and similar addresses are refused.
+ * Redirects are not followed. A fetch, body included, must finish within
+ * {@code tj.export.images.timeout} and stay within {@code tj.export.images.max-size}, or
+ * it is aborted. The body is not buffered here but streamed to the caller as it arrives.
+ * The allow-list is the primary control: the client resolves the host again when it
+ * connects, so the address check alone would not stop DNS rebinding.
+ */
+@Service
+@ConditionalOnProperty(name = "tj.export.images.source", havingValue = "http", matchIfMissing = true)
+public class HttpImageSource implements ImageSource {
+
+    @Value("${tj.export.images.timeout:PT30S}")
+    private Duration timeout;
+
+    @Value("${tj.export.images.max-size:25MB}")
+    private DataSize maxSize;
+
+    @Value("${tj.export.images.allowed-hosts:}")
+    private Set<String> allowedHosts;
+
+    private HttpClient client;
+
+    @PostConstruct
+    void createClient() {
+        allowedHosts = allowedHosts.stream()
+                .map(String::trim)
+                .filter(host -> !host.isEmpty())
+                .map(host -> host.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    public InputStream open(String url) throws IOException {
+        URI uri = checkUrl(url);
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        CompletableFuture<HttpResponse<InputStream>> response = client.sendAsync(request, info ->
+                info.statusCode() == 200
+                        ? HttpResponse.BodySubscribers.ofInputStream()
+                        : HttpResponse.BodySubscribers.replacing(null));
+        try {
+            HttpResponse<InputStream> result = response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (result.statusCode() != 200) {
+                throw new IOException("Fetching " + url + " returned status " + result.statusCode());
+            }
+            LimitedStream body = new LimitedStream(result.body(), maxSize.toBytes(), url, timeout);
+            long remaining = timeout.toNanos() - (System.nanoTime() - start);
+            CompletableFuture.delayedExecutor(Math.max(0, remaining), TimeUnit.NANOSECONDS).execute(body::expire);
+            return body;
+        } catch (TimeoutException ex) {
+            throw new IOException("Fetching " + url + " took longer than " + timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof IOException io ? io : new IOException(ex.getCause());
+        } finally {
+            // Aborts the exchange if it is still running.
+            response.cancel(true);
+        }
+    }
+
+    /**
+     * The URL as a URI, if it is an http(s) URL of an allowed host that resolves only to
+     * public addresses.
+     */
+    private URI checkUrl(String url) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid image URL: " + url);
+        }
+        String scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+            throw new IOException("Not an HTTP image URL: " + url);
+        }
+        if (uri.getRawUserInfo() != null || uri.getHost() == null
+                || !allowedHosts.contains(uri.getHost().toLowerCase(Locale.ROOT))) {
+            throw new IOException("Image host is not allowed: " + url);
+        }
+        for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+            if (!isPublic(address)) {
+                throw new IOException("Image host resolves to a non-public address: " + url);
+            }
+        }
+        return uri;
+    }
+
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            int first = bytes[0] & 0xFF;
+            int second = bytes[1] & 0xFF;
+            // 0.0.0.0/8, shared address space 100.64.0.0/10 and benchmarking 198.18.0.0/15.
+            return first != 0 && !(first == 100 && second >= 64 && second < 128)
+                    && !(first == 198 && (second == 18 || second == 19));
+        }
+        // Unique local addresses, fc00::/7.
+        return !(address instanceof Inet6Address) || (bytes[0] & 0xFE) != 0xFC;
+    }
+
+    /**
+     * A response body that fails once it exceeds its size limit or its deadline. Closing
+     * it before the end aborts the exchange, which also wakes a read waiting for data.
+     */
+    private static final class LimitedStream extends FilterInputStream {
+        private final long limit;
+        private final String url;
+        private final Duration timeout;
+        private volatile boolean expired;
+        private long count;
+
+        LimitedStream(InputStream body, long limit, String url, Duration timeout) {
+            super(body);
+            this.limit = limit;
+            this.url = url;
+            this.timeout = timeout;
+        }
+
+        void expire() {
+            expired = true;
+            try {
+                close();
+            } catch (IOException ex) {
+                // The exchange is aborted regardless.
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read;
+            try {
+                read = in.read(b, off, len);
+            } catch (IOException ex) {
+                throw expired ? new IOException("Fetching " + url + " took longer than " + timeout) : ex;
+            }
+            if (read > 0) {
+                count += read;
+                if (count > limit) {
+                    close();
+                    throw new IOException("Image is larger than " + limit + " bytes");
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            return Math.max(0, read(new byte[(int) Math.min(n, 8192)]));
+        }
+    }
+}
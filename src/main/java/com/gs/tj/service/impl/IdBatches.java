@@ -0,0 +1,63 @@
+package com.gs.tj.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.gs.tj.repository.projection.OwnedValue;
+
+/**
+ * Runs queries over a list of ids in batches, so no IN clause binds more than
+ * {@link #BATCH_SIZE} parameters.
+ */
+final class IdBatches {
+
+    static final int BATCH_SIZE = 1000;
+
+    private IdBatches() {
+    }
+
+    /**
+     * Concatenation of the results of {@code query} over each batch of ids.
+     */
+    static <T> List<T> query(List<Long> ids, Function<Collection<Long>, List<T>> query) {
+        List<T> results = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            results.addAll(query.apply(ids.subList(from, Math.min(ids.size(), from + BATCH_SIZE))));
+        }
+        return results;
+    }
+
+    /**
+     * Values returned by {@code query} over each batch of ids, grouped by owner id.
+     * Owners without values are absent.
+     */
+    static Map<Long, Set<String>> group(List<Long> ids, Function<Collection<Long>, List<OwnedValue>> query) {
+        Map<Long, Set<String>> values = new HashMap<>();
+        for (OwnedValue value : query(ids, query)) {
+            values.computeIfAbsent(value.getOwnerId(), id -> new HashSet<>()).add(value.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Items in the order of the given ids, skipping ids without an item.
+     */
+    static <T> List<T> inOrder(List<Long> ids, List<T> items, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        items.forEach(item -> byId.put(idOf.apply(item), item));
+        List<T> ordered = new ArrayList<>(items.size());
+        for (Long id : ids) {
+            T item = byId.remove(id);
+            if (item != null) {
+                ordered.add(item);
+            }
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,206 @@
+package com.gs.tj.service.impl;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.projection.ScoredId;
+import com.gs.tj.service.LeaderboardService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of LeaderboardService backed by one Redis sorted set per board.
+ * <p>
+ * Each set holds the top {@code tj.leaderboards.capacity} public entities scored by their
+ * like count, visit count or, for routes, their id, which follows creation time. Like
+ * timelines, every set also holds a sentinel member scored -1, so a built but empty board
+ * is distinguishable from one that still has to be built. Likes and visits increment the
+ * score of members already on the board; committed writes add newly public entities and
+ * remove deleted or hidden ones, trimming the board back to capacity.
+ * <p>
+ * Boards are rebuilt from the database at startup and every {@code rebuild-interval}, by
+ * at most one node per interval. A rebuild reads the flushed counters, so increments not
+ * yet flushed, and entities that climbed from below the capacity, are reflected from the
+ * next rebuild on.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LeaderboardServiceImpl implements LeaderboardService {
+
+    private static final Map<Board, String> KEYS = new EnumMap<>(Map.of(
+            Board.DIARY_LIKES, "leaderboard:diaries:likes",
+            Board.LOCATION_VISITS, "leaderboard:locations:visits",
+            Board.NEWEST_ROUTES, "leaderboard:routes:newest"));
+    private static final String REBUILD_LOCK_KEY = "leaderboard:rebuild-lock";
+    private static final String SENTINEL = "0";
+    private static final double SENTINEL_SCORE = -1;
+
+    /**
+     * Adds ARGV[2] with score ARGV[1] to a built board unless it is present, then trims the
+     * board to ARGV[3] members plus the sentinel.
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then\n" +
+            "  return 0\n" +
+            "end\n" +
+            "redis.call('ZADD', KEYS[1], 'NX', ARGV[1], ARGV[2])\n" +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 1, -(tonumber(ARGV[3]) + 1))\n" +
+            "return 1", Long.class);
+
+    /** Adds ARGV[1] to the score of ARGV[2] if it is on the board. */
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZSCORE', KEYS[1], ARGV[2]) then\n" +
+            "  redis.call('ZINCRBY', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "  return 1\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final DiaryRepository diaryRepository;
+    private final LocationRepository locationRepository;
+    private final RouteRepository routeRepository;
+
+    @Value("${tj.leaderboards.capacity:10000}")
+    private int capacity;
+
+    @Value("${tj.leaderboards.rebuild-interval:PT10M}")
+    private Duration rebuildInterval;
+
+    @Override
+    public Optional<List<Long>> top(Board board, int offset, int count) {
+        if (offset < 0 || count <= 0 || offset + count > capacity) {
+            return Optional.empty();
+        }
+        String key = KEYS.get(board);
+        Set<String> members = redisTemplate.opsForZSet()
+                .reverseRangeByScore(key, 0, Double.POSITIVE_INFINITY, offset, count);
+        if ((members == null || members.isEmpty()) && !Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            return Optional.empty();
+        }
+        return Optional.of(members == null ? List.of() : members.stream().map(Long::valueOf).toList());
+    }
+
+    @Override
+    public void increment(Board board, Long id, long delta) {
+        try {
+            redisTemplate.execute(INCREMENT_SCRIPT, List.of(KEYS.get(board)), String.valueOf(delta), id.toString());
+        } catch (RuntimeException ex) {
+            log.warn("Could not update leaderboard {} for id {}", board, id, ex);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${tj.leaderboards.rebuild-interval:PT10M}",
+            initialDelayString = "${tj.leaderboards.rebuild-interval:PT10M}")
+    public void scheduledRebuild() {
+        try {
+            // Held until it expires, so nodes rebuild at most once per half interval between them.
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, "1",
+                    rebuildInterval.dividedBy(2)))) {
+                rebuild();
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Leaderboards could not be rebuilt; popular lists fall back to SQL until they are", ex);
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        Limit limit = Limit.of(capacity);
+        write(Board.DIARY_LIKES, diaryRepository.findTopLiked(limit));
+        write(Board.LOCATION_VISITS, locationRepository.findTopVisited(limit));
+        List<Long> routeIds = routeRepository.findNewestPublicIds(limit);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            replace(connection, KEYS.get(Board.NEWEST_ROUTES).getBytes(), routeIds.stream()
+                    .map(id -> new Scored(id, id))
+                    .toList());
+            return null;
+        });
+        log.info("Rebuilt leaderboards");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        // The boards are shared in Redis, so the node that made the change applies it.
+        if (event.remote()) {
+            return;
+        }
+        Board board;
+        Optional<? extends Number> score;
+        switch (event.type()) {
+            case DIARY -> {
+                board = Board.DIARY_LIKES;
+                score = event.deleted() ? Optional.empty() : diaryRepository.findPublicLikes(event.id());
+            }
+            case LOCATION -> {
+                board = Board.LOCATION_VISITS;
+                score = event.deleted() ? Optional.empty() : locationRepository.findPublicVisitCount(event.id());
+            }
+            case ROUTE -> {
+                board = Board.NEWEST_ROUTES;
+                score = event.deleted() ? Optional.empty() : routeRepository.findPublicId(event.id());
+            }
+            default -> {
+                return;
+            }
+        }
+        try {
+            String key = KEYS.get(board);
+            if (score.isPresent()) {
+                redisTemplate.execute(ADD_SCRIPT, List.of(key), score.get().toString(), event.id().toString(),
+                        String.valueOf(capacity));
+            } else {
+                redisTemplate.opsForZSet().remove(key, event.id().toString());
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not update leaderboard {} for id {}", board, event.id(), ex);
+        }
+    }
+
+    private record Scored(Long id, double score) {
+    }
+
+    private void write(Board board, List<ScoredId> rows) {
+        List<Scored> scored = rows.stream().map(row -> new Scored(row.getId(), row.getScore().doubleValue())).toList();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            replace(connection, KEYS.get(board).getBytes(), scored);
+            return null;
+        });
+    }
+
+    /**
+     * Replaces a board atomically, so readers see either the old or the new ranking.
+     */
+    private static void replace(RedisConnection connection, byte[] rawKey, List<Scored> members) {
+        connection.multi();
+        connection.keyCommands().del(rawKey);
+        connection.zSetCommands().zAdd(rawKey, SENTINEL_SCORE, SENTINEL.getBytes());
+        for (Scored member : members) {
+            connection.zSetCommands().zAdd(rawKey, member.score(), member.id().toString().getBytes());
+        }
+        connection.exec();
+    }
+}
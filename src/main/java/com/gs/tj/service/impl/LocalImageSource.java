@@ -0,0 +1,43 @@
+package com.gs.tj.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.gs.tj.service.ImageSource;
+
+/**
+ * ImageSource reading images from a local directory that mirrors the object store: the
+ * path of each image URL is resolved below the directory, ignoring its scheme and host.
+ * Used in development and tests in place of the object store.
+ */
+@Service
+@ConditionalOnProperty(name = "tj.export.images.source", havingValue = "local")
+public class LocalImageSource implements ImageSource {
+
+    private final Path directory;
+
+    public LocalImageSource(@Value("${tj.export.images.directory:images}") Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public InputStream open(String url) throws IOException {
+        String path = URI.create(url).getPath();
+        if (path == null || path.isEmpty()) {
+            throw new NoSuchFileException(url);
+        }
+        Path file = directory.resolve(path.replaceFirst("^/+", "")).normalize();
+        if (!file.startsWith(directory)) {
+            throw new NoSuchFileException(url);
+        }
+        return Files.newInputStream(file);
+    }
+}
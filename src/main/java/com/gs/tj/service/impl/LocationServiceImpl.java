@@ -1,52 +1,102 @@
 package com.gs.tj.service.impl;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.gs.tj.dto.LocationView;
+import com.gs.tj.entity.BaseEntity;
 import com.gs.tj.entity.Location;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
 import com.gs.tj.exception.ResourceNotFoundException;
+import com.gs.tj.geo.GeoHit;
+import com.gs.tj.geo.GeoUtils;
 import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.projection.LocationRow;
+import com.gs.tj.service.CacheInvalidationService;
+import com.gs.tj.service.CounterService;
+import com.gs.tj.service.GeoIndexService;
+import com.gs.tj.service.LeaderboardService;
+import com.gs.tj.service.LeaderboardService.Board;
 import com.gs.tj.service.LocationService;
+import com.gs.tj.service.SearchService;
+import com.gs.tj.service.TrendingService;
+import com.gs.tj.service.TrendingService.Signal;
+import com.gs.tj.service.TrendingService.Subject;
 
 import lombok.RequiredArgsConstructor;
 
 /**
  * Implementation of LocationService with caching support.
+ * Location writes publish {@link EntityChangedEvent}s that keep the in-memory spatial index,
+ * map clusters, search index and typeahead in sync, and evict only the cached entries they
+ * affect through {@link CacheInvalidationService}. Visits and ratings go through
+ * {@link CounterService} and reach the database in periodic batches. Popular locations are
+ * read from the {@link LeaderboardService} board of locations by visits, uncached, since
+ * the board moves with every visit.
+ * <p>
+ * Reads select only the scalar columns of each location and load tags and images in one
+ * follow-up query each per batch of ids, so they never touch lazy collections or diaries.
  */
 @Service
 @RequiredArgsConstructor
 public class LocationServiceImpl implements LocationService {
 
+    private static final int MAX_SPATIAL_RESULTS = 1000;
+    private static final int SEARCH_RESULT_LIMIT = 100;
+
+    private static final String CACHE = "locations";
+    /** Tag-set lists are keyed by the whole requested set, so they cannot be derived from a location. */
+    private static final String TAGS_PREFIX = "tags";
+
     private final LocationRepository locationRepository;
+    private final GeoIndexService geoIndexService;
+    private final SearchService searchService;
+    private final CounterService counterService;
+    private final LeaderboardService leaderboardService;
+    private final TrendingService trendingService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
-    @CacheEvict(value = "locations", allEntries = true)
-    public Location createLocation(Location location) {
-        return locationRepository.save(location);
+    public LocationView createLocation(Location location) {
+        Location saved = locationRepository.save(location);
+        cacheInvalidationService.invalidate(CACHE, saved.getId(), listKeys(saved), List.of(TAGS_PREFIX));
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.LOCATION, saved.getId()));
+        return LocationView.from(saved);
     }
 
     @Override
     @Cacheable(value = "locations", key = "#id")
-    public Optional<Location> getLocationById(Long id) {
-        return locationRepository.findById(id);
+    public Optional<LocationView> getLocationById(Long id) {
+        return findView(id);
+    }
+
+    @Override
+    public List<LocationView> getLocationsByIds(List<Long> ids) {
+        return findAllInOrder(ids);
     }
 
     @Override
-    @Cacheable(value = "locations", key = "'all'")
-    public List<Location> getAllLocations() {
-        return locationRepository.findAll();
+    @Cacheable(value = "locations", key = "'all'", sync = true)
+    public List<LocationView> getAllLocations() {
+        return toViews(locationRepository.findAllRows());
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "locations", key = "#id")
-    public Location updateLocation(Long id, Location locationDetails) {
+    public LocationView updateLocation(Long id, Location locationDetails) {
         Location location = locationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + id));
 
@@ -60,107 +110,204 @@ public class LocationServiceImpl implements LocationService {
         location.setTags(locationDetails.getTags());
         location.setPublic(locationDetails.isPublic());
 
-        return locationRepository.save(location);
+        Location saved = locationRepository.save(location);
+        cacheInvalidationService.invalidate(CACHE, id, listKeys(saved), List.of(TAGS_PREFIX));
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.LOCATION, id));
+        return LocationView.from(saved);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "locations", key = "#id")
     public void deleteLocation(Long id) {
         Location location = locationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + id));
         locationRepository.delete(location);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.deleted(EntityType.LOCATION, id));
     }
 
     @Override
-    @Cacheable(value = "locations", key = "'search:' + #query")
-    public List<Location> searchLocations(String query) {
-        return locationRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(query, query);
+    public List<LocationView> searchLocations(String query) {
+        if (!searchService.isReady()) {
+            return toViews(locationRepository.findPublicRowsByText(query));
+        }
+        List<Location> matches = searchService.searchLocations(query, null, null, null, 0, SEARCH_RESULT_LIMIT).getItems();
+        return findAllInOrder(ids(matches));
     }
 
     @Override
     @Cacheable(value = "locations", key = "'country:' + #country")
-    public List<Location> getLocationsByCountry(String country) {
-        return locationRepository.findByCountry(country);
+    public List<LocationView> getLocationsByCountry(String country) {
+        return toViews(locationRepository.findRowsByCountry(country));
     }
 
     @Override
     @Cacheable(value = "locations", key = "'city:' + #city")
-    public List<Location> getLocationsByCity(String city) {
-        return locationRepository.findByCity(city);
+    public List<LocationView> getLocationsByCity(String city) {
+        return toViews(locationRepository.findRowsByCity(city));
     }
 
     @Override
-    @Cacheable(value = "locations", key = "'popular:' + #limit")
-    public List<Location> getPopularLocations(int limit) {
-        return locationRepository.findPopularLocations()
+    public List<LocationView> getPopularLocations(int limit) {
+        return leaderboardService.top(Board.LOCATION_VISITS, 0, limit)
+                .map(this::findAllInOrder)
+                .orElseGet(() -> toViews(locationRepository.findPopularRows(Limit.of(limit))));
+    }
+
+    @Override
+    public List<LocationView> getNearbyLocations(double latitude, double longitude, double radiusInMeters) {
+        if (!geoIndexService.isReady()) {
+            return toViews(locationRepository.findNearbyRows(latitude, longitude, radiusInMeters));
+        }
+        List<Long> ids = geoIndexService.findWithinRadius(latitude, longitude, radiusInMeters)
                 .stream()
-                .limit(limit)
+                .map(GeoHit::id)
                 .toList();
+        return findAllInOrder(ids);
     }
 
     @Override
-    @Cacheable(value = "locations", key = "'nearby:' + #latitude + ':' + #longitude + ':' + #radiusInMeters")
-    public List<Location> getNearbyLocations(double latitude, double longitude, double radiusInMeters) {
-        return locationRepository.findNearbyLocations(latitude, longitude, radiusInMeters);
+    public List<LocationView> findNearest(double latitude, double longitude, int k) {
+        int count = clampSpatialLimit(k);
+        if (!geoIndexService.isReady()) {
+            return toViews(locationRepository.findNearestRows(latitude, longitude, count));
+        }
+        List<Long> ids = geoIndexService.findNearest(latitude, longitude, count)
+                .stream()
+                .map(GeoHit::id)
+                .toList();
+        return findAllInOrder(ids);
+    }
+
+    @Override
+    public List<LocationView> findInBoundingBox(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int limit) {
+        if (minLatitude > maxLatitude) {
+            throw new IllegalArgumentException("minLatitude must not be greater than maxLatitude");
+        }
+        int count = clampSpatialLimit(limit);
+        if (!geoIndexService.isReady()) {
+            double west = GeoUtils.normalizeLongitude(minLongitude);
+            double east = GeoUtils.normalizeLongitude(maxLongitude);
+            if (maxLongitude - minLongitude >= 360.0) {
+                west = -180.0;
+                east = 180.0;
+            }
+            return toViews(locationRepository.findRowsInBoundingBox(minLatitude, maxLatitude, west, east,
+                    Limit.of(count)));
+        }
+        List<Long> ids = geoIndexService.findInBoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude, count)
+                .stream()
+                .map(GeoHit::id)
+                .toList();
+        return findAllInOrder(ids);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "locations", key = "#id")
-    public Location addLocationImage(Long id, String imageUrl) {
+    public LocationView addLocationImage(Long id, String imageUrl) {
         Location location = locationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + id));
         location.getImageUrls().add(imageUrl);
-        return locationRepository.save(location);
+        Location saved = locationRepository.save(location);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        return LocationView.from(saved);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "locations", key = "#id")
-    public Location removeLocationImage(Long id, String imageUrl) {
+    public LocationView removeLocationImage(Long id, String imageUrl) {
         Location location = locationRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + id));
         location.getImageUrls().remove(imageUrl);
-        return locationRepository.save(location);
+        Location saved = locationRepository.save(location);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        return LocationView.from(saved);
     }
 
     @Override
     @Cacheable(value = "locations", key = "'category:' + #category")
-    public List<Location> getLocationsByCategory(String category) {
-        return locationRepository.findByCategory(category);
+    public List<LocationView> getLocationsByCategory(String category) {
+        return toViews(locationRepository.findRowsByCategory(category));
     }
 
     @Override
     @Cacheable(value = "locations", key = "'tags:' + #tags")
-    public List<Location> getLocationsByTags(List<String> tags) {
-        return tags.stream()
-                .flatMap(tag -> locationRepository.findByTagsContaining(tag).stream())
-                .distinct()
-                .toList();
+    public List<LocationView> getLocationsByTags(List<String> tags) {
+        if (tags.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return toViews(locationRepository.findRowsByAnyTag(tags));
     }
 
     @Override
-    @Transactional
-    @CacheEvict(value = "locations", key = "#id")
-    public Location incrementVisitCount(Long id) {
-        Location location = locationRepository.findById(id)
+    public LocationView incrementVisitCount(Long id) {
+        LocationView location = findView(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + id));
-        location.setVisitCount(location.getVisitCount() + 1);
-        return locationRepository.save(location);
+        counterService.recordVisit(id);
+        leaderboardService.increment(Board.LOCATION_VISITS, id, 1);
+        trendingService.record(Subject.LOCATION, id, Signal.VISIT);
+        return counterService.applyPending(location);
     }
 
     @Override
-    @Transactional
-    @CacheEvict(value = "locations", key = "#id")
-    public Location updateRating(Long id, double rating) {
-        Location location = locationRepository.findById(id)
+    public LocationView updateRating(Long id, double rating) {
+        LocationView location = findView(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + id));
-        
-        double currentTotal = location.getAverageRating() * location.getRatingCount();
-        location.setRatingCount(location.getRatingCount() + 1);
-        location.setAverageRating((currentTotal + rating) / location.getRatingCount());
-        
-        return locationRepository.save(location);
-    }
-} 
\ No newline at end of file
+        counterService.recordRating(id, rating);
+        return counterService.applyPending(location);
+    }
+
+    private static int clampSpatialLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_SPATIAL_RESULTS));
+    }
+
+    private static List<Long> ids(List<? extends BaseEntity> entities) {
+        return entities.stream().map(BaseEntity::getId).toList();
+    }
+
+    private Optional<LocationView> findView(Long id) {
+        return locationRepository.findRowById(id).map(row -> toViews(List.of(row)).get(0));
+    }
+
+    /**
+     * Loads locations and returns them in the order of the given ids, skipping any that no
+     * longer exist.
+     */
+    private List<LocationView> findAllInOrder(List<Long> ids) {
+        return toViews(IdBatches.inOrder(ids, IdBatches.query(ids, locationRepository::findRowsByIds),
+                LocationRow::getId));
+    }
+
+    /**
+     * Completes rows with their tags and images, keeping their order. The result is a
+     * mutable list, which the cache can restore exactly.
+     */
+    private List<LocationView> toViews(List<LocationRow> rows) {
+        List<Long> ids = rows.stream().map(LocationRow::getId).toList();
+        Map<Long, Set<String>> tags = IdBatches.group(ids, locationRepository::findTagsByLocationIds);
+        Map<Long, Set<String>> imageUrls = IdBatches.group(ids, locationRepository::findImageUrlsByLocationIds);
+        List<LocationView> views = new ArrayList<>(rows.size());
+        for (LocationRow row : rows) {
+            views.add(new LocationView(row.getId(), row.getName(), row.getDescription(), row.getCountry(),
+                    row.getCity(), row.getCategory(), row.getLatitude(), row.getLongitude(),
+                    tags.get(row.getId()), imageUrls.get(row.getId()), row.getVisitCount(),
+                    row.getAverageRating(), row.getRatingCount(), Boolean.TRUE.equals(row.getIsPublic()),
+                    row.getCreatedAt(), row.getUpdatedAt()));
+        }
+        return views;
+    }
+
+    /**
+     * Keys of the cached location lists a location belongs to by its own fields. Lists it
+     * already appears in are found through its id.
+     */
+    private static Set<String> listKeys(Location location) {
+        Set<String> keys = new HashSet<>();
+        keys.add("all");
+        keys.add("country:" + location.getCountry());
+        keys.add("city:" + location.getCity());
+        keys.add("category:" + location.getCategory());
+        return keys;
+    }
+}
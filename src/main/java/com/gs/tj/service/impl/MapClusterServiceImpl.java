@@ -0,0 +1,127 @@
+package com.gs.tj.service.impl;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.dto.MapCluster;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+import com.gs.tj.geo.ClusterPyramid;
+import com.gs.tj.geo.GeoUtils;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.projection.LocationMarker;
+import com.gs.tj.service.MapClusterService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of MapClusterService holding every location in a {@link ClusterPyramid}.
+ * The pyramid is built in keyset batches at startup and on a fixed schedule, and patched
+ * after each committed location write, local or relayed from another node. Until it is
+ * loaded, the viewport's locations are read from the database and clustered per request.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MapClusterServiceImpl implements MapClusterService {
+
+    private static final int LOAD_BATCH_SIZE = 5000;
+    private static final int FALLBACK_MAX_LOCATIONS = 50_000;
+
+    private final LocationRepository locationRepository;
+
+    @Value("${tj.geo.cluster.max-zoom:16}")
+    private int maxZoom;
+
+    @Value("${tj.geo.cluster.cells-per-tile:4}")
+    private int cellsPerTile;
+
+    private final ReloadableIndex<ClusterPyramid> pyramid = new ReloadableIndex<>();
+
+    @Override
+    public List<MapCluster> getClusters(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int zoom) {
+        if (minLatitude > maxLatitude) {
+            throw new IllegalArgumentException("minLatitude must not be greater than maxLatitude");
+        }
+        ClusterPyramid current = pyramid.get();
+        if (current == null) {
+            current = loadViewport(minLatitude, minLongitude, maxLatitude, maxLongitude, zoom);
+        }
+        return current.clusters(minLatitude, minLongitude, maxLatitude, maxLongitude, zoom)
+                .stream()
+                .map(cluster -> new MapCluster(cluster.latitude(), cluster.longitude(), cluster.count(),
+                        cluster.topId(), cluster.topName(), cluster.topVisitCount()))
+                .toList();
+    }
+
+    @Override
+    public void reload() {
+        ClusterPyramid loaded = pyramid.reload(() -> new ClusterPyramid(maxZoom, cellsPerTile), fresh -> {
+            long afterId = 0;
+            List<LocationMarker> batch;
+            do {
+                batch = locationRepository.findMarkersAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+                batch.forEach(marker -> put(fresh, marker));
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+        });
+        log.info("Map clusters loaded with {} locations", loaded.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${tj.geo.reload-interval:PT1H}", initialDelayString = "${tj.geo.reload-interval:PT1H}")
+    public void refreshClusters() {
+        try {
+            reload();
+        } catch (RuntimeException ex) {
+            log.warn("Map clusters could not be loaded; clusters are computed per request", ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.type() != EntityType.LOCATION && event.type() != EntityType.LOCATION_STATS) {
+            return;
+        }
+        if (event.deleted()) {
+            pyramid.apply(target -> target.remove(event.id()));
+            return;
+        }
+        locationRepository.findMarkerById(event.id()).ifPresentOrElse(
+                marker -> pyramid.apply(target -> put(target, marker)),
+                () -> pyramid.apply(target -> target.remove(event.id())));
+    }
+
+    /**
+     * Clusters only the locations inside the viewport, for use before the pyramid is loaded.
+     */
+    private ClusterPyramid loadViewport(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, int zoom) {
+        double west = GeoUtils.normalizeLongitude(minLongitude);
+        double east = GeoUtils.normalizeLongitude(maxLongitude);
+        if (maxLongitude - minLongitude >= 360.0) {
+            west = -180.0;
+            east = 180.0;
+        }
+        ClusterPyramid viewport = new ClusterPyramid(Math.max(0, Math.min(zoom, maxZoom)), cellsPerTile);
+        locationRepository.findMarkersInBoundingBox(minLatitude, maxLatitude, west, east,
+                Limit.of(FALLBACK_MAX_LOCATIONS)).forEach(marker -> put(viewport, marker));
+        return viewport;
+    }
+
+    private static void put(ClusterPyramid target, LocationMarker marker) {
+        target.put(marker.getId(), marker.getName(), marker.getLatitude(), marker.getLongitude(),
+                marker.getVisitCount() != null ? marker.getVisitCount() : 0);
+    }
+}
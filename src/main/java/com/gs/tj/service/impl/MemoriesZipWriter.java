@@ -0,0 +1,479 @@
+package com.gs.tj.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.projection.DiaryRow;
+import com.gs.tj.repository.projection.LocationRow;
+import com.gs.tj.service.ImageSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes a user's diaries of a date range as a ZIP archive, together with their locations
+ * and every image of either.
+ * <p>
+ * The archive holds {@code diaries/<date>_<id>.json} for each diary in travel date order,
+ * preceded by {@code locations/<id>.json} the first time a location appears, each followed
+ * by its images under {@code images/}. An image is named by a hash of its URL and written
+ * once however many diaries and locations refer to it. Images that cannot be read are left
+ * out and listed in {@code missing-images.txt}.
+ * <p>
+ * Images are fetched on virtual threads, up to {@code window} entries ahead of the entry
+ * being written, and written in the order above as soon as they arrive. Each image is read
+ * once, straight into the buffer its entry is written from, and the buffers of an export
+ * hold at most {@code maxInFlightBytes} between them: a fetch waits for room before its
+ * buffer grows, unless its entry is the next to be written, which may exceed the limit by
+ * one image so that the export always progresses. Images that are already compressed,
+ * such as JPEG and PNG, are stored rather than deflated again. Diaries are read a page at
+ * a time, each page in its own read-only transaction, as scalar projections.
+ */
+@Slf4j
+final class MemoriesZipWriter {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "avif", "mp4", "mov", "zip");
+    private static final String MISSING_IMAGES = "missing-images.txt";
+
+    private final DiaryRepository diaryRepository;
+    private final LocationRepository locationRepository;
+    private final ImageSource imageSource;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+    private final int window;
+    private final int maxImageBytes;
+    private final long maxInFlightBytes;
+
+    /**
+     * @param transactionTemplate Template whose transaction manager runs the page reads; the
+     *        writer uses its own read-only copy
+     * @param pageSize Number of diaries read per query
+     * @param window Number of entries fetched or waiting ahead of the one being written
+     * @param maxImageBytes Size above which an image is treated as missing
+     * @param maxInFlightBytes Bytes that the buffers of fetched images not yet written may hold
+     */
+    MemoriesZipWriter(DiaryRepository diaryRepository, LocationRepository locationRepository,
+            ImageSource imageSource, TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+            int pageSize, int window, long maxImageBytes, long maxInFlightBytes) {
+        this.diaryRepository = diaryRepository;
+        this.locationRepository = locationRepository;
+        this.imageSource = imageSource;
+        this.readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+        this.window = window;
+        // Images are read into a single array.
+        this.maxImageBytes = (int) Math.min(maxImageBytes, Integer.MAX_VALUE - 8);
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    /**
+     * Write the diaries travelled at or after {@code from} and before {@code to}.
+     */
+    void write(Long userId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        // Not closed, as that would close the caller's stream.
+        ZipOutputStream zip = new ZipOutputStream(out);
+        ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor();
+        Pipeline pipeline = new Pipeline(zip, fetchers);
+        try {
+            LocalDateTime afterDate = from;
+            Long afterId = 0L;
+            Page page;
+            do {
+                LocalDateTime date = afterDate;
+                Long id = afterId;
+                page = readOnly.execute(status -> page(pipeline.locations,
+                        diaryRepository.findTimelineRowsBefore(userId, to, date, id, Limit.of(pageSize))));
+                for (DiaryRow row : page.rows()) {
+                    LocationRow location = page.locations().get(row.getLocationId());
+                    if (location != null) {
+                        pipeline.addLocation(location, page.locationImageUrls().get(location.getId()));
+                    }
+                    pipeline.addDiary(row, page.tags().get(row.getId()), page.imageUrls().get(row.getId()));
+                }
+                if (!page.rows().isEmpty()) {
+                    DiaryRow last = page.rows().get(page.rows().size() - 1);
+                    afterDate = last.getTravelDate();
+                    afterId = last.getId();
+                }
+            } while (page.rows().size() == pageSize);
+            pipeline.finish();
+        } finally {
+            pipeline.cancel();
+            fetchers.shutdownNow();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Reads a page's tags and images, and the locations the writer has not written yet.
+     */
+    private Page page(Set<Long> writtenLocations, List<DiaryRow> rows) {
+        List<Long> ids = rows.stream().map(DiaryRow::getId).toList();
+        List<Long> locationIds = rows.stream()
+                .map(DiaryRow::getLocationId)
+                .filter(id -> id != null && !writtenLocations.contains(id))
+                .distinct()
+                .toList();
+        Map<Long, LocationRow> locations = new HashMap<>();
+        IdBatches.query(locationIds, locationRepository::findRowsByIds).forEach(row -> locations.put(row.getId(), row));
+        return new Page(rows,
+                IdBatches.group(ids, diaryRepository::findTagsByDiaryIds),
+                IdBatches.group(ids, diaryRepository::findImageUrlsByDiaryIds),
+                locations,
+                IdBatches.group(locationIds, locationRepository::findImageUrlsByLocationIds));
+    }
+
+    /**
+     * Reads an image in full, as a stored entry needs its size and checksum before its data.
+     * The image is read into a buffer that doubles as it fills, taking each growth from the
+     * budget first; the entry keeps that buffer, which is at most twice the image's size.
+     *
+     * @param position Position of the image's entry in the archive
+     */
+    private Entry fetch(ByteBudget budget, long position, String name, String url) {
+        byte[] data = new byte[0];
+        try (InputStream in = imageSource.open(url)) {
+            int size = 0;
+            while (true) {
+                if (size == data.length) {
+                    if (size == maxImageBytes) {
+                        if (in.read() >= 0) {
+                            throw new IOException("Image is larger than " + maxImageBytes + " bytes");
+                        }
+                        break;
+                    }
+                    int capacity = (int) Math.min(maxImageBytes, Math.max(8192L, 2L * size));
+                    budget.take(position, capacity - data.length);
+                    data = Arrays.copyOf(data, capacity);
+                }
+                int read = in.read(data, size, data.length - size);
+                if (read < 0) {
+                    break;
+                }
+                size += read;
+            }
+            return Entry.image(name, data, size, isCompressed(name, data, size));
+        } catch (InterruptedIOException ex) {
+            budget.release(data.length);
+            throw new UncheckedIOException(ex);
+        } catch (IOException | IllegalArgumentException ex) {
+            budget.release(data.length);
+            log.warn("Could not read image {} for a memories export: {}", url, ex.getMessage());
+            return Entry.missing(url);
+        }
+    }
+
+    /**
+     * Entry name of an image: a hash of its URL, keeping the URL's file extension.
+     */
+    static String imageName(String url) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        String name = "images/" + HexFormat.of().formatHex(hash, 0, 10);
+        String extension = extension(url);
+        return extension.isEmpty() ? name : name + "." + extension;
+    }
+
+    private static String extension(String url) {
+        String path;
+        try {
+            path = URI.create(url).getPath();
+        } catch (IllegalArgumentException ex) {
+            path = url;
+        }
+        if (path == null) {
+            return "";
+        }
+        String file = path.substring(path.lastIndexOf('/') + 1);
+        int dot = file.lastIndexOf('.');
+        String extension = dot >= 0 ? file.substring(dot + 1).toLowerCase() : "";
+        return extension.matches("[a-z0-9]{1,5}") ? extension : "";
+    }
+
+    /**
+     * Whether an image is already compressed, by its extension or its leading bytes.
+     */
+    private static boolean isCompressed(String name, byte[] data, int size) {
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1))) {
+            return true;
+        }
+        return startsWith(data, size, 0xFF, 0xD8, 0xFF)
+                || startsWith(data, size, 0x89, 'P', 'N', 'G')
+                || startsWith(data, size, 'G', 'I', 'F', '8')
+                || (startsWith(data, size, 'R', 'I', 'F', 'F') && size >= 12
+                        && data[8] == 'W' && data[9] == 'E' && data[10] == 'B' && data[11] == 'P');
+    }
+
+    private static boolean startsWith(byte[] data, int size, int... prefix) {
+        if (size < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> sorted(Collection<String> values) {
+        return values == null ? List.of() : values.stream().sorted().toList();
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private record Page(List<DiaryRow> rows, Map<Long, Set<String>> tags, Map<Long, Set<String>> imageUrls,
+            Map<Long, LocationRow> locations, Map<Long, Set<String>> locationImageUrls) {
+    }
+
+    /**
+     * A ZIP entry ready to write, holding the first {@code size} bytes of {@code data}, or
+     * the URL of an image that could not be read. {@code held} is what the entry took from
+     * the budget.
+     */
+    private record Entry(String name, byte[] data, int size, boolean stored, long crc, int held,
+            String missingUrl) {
+
+        static Entry of(String name, byte[] data, boolean stored) {
+            return of(name, data, data.length, stored, 0);
+        }
+
+        static Entry image(String name, byte[] data, int size, boolean stored) {
+            return of(name, data, size, stored, data.length);
+        }
+
+        private static Entry of(String name, byte[] data, int size, boolean stored, int held) {
+            CRC32 crc = new CRC32();
+            if (stored) {
+                crc.update(data, 0, size);
+            }
+            return new Entry(name, data, size, stored, crc.getValue(), held, null);
+        }
+
+        static Entry missing(String url) {
+            return new Entry(null, null, 0, false, 0, 0, url);
+        }
+    }
+
+    /**
+     * Bytes held by the image buffers of an export, and the position of the entry to be
+     * written next. Positions count every entry added, metadata included.
+     */
+    private static final class ByteBudget {
+        private final long limit;
+        private long held;
+        private long next;
+
+        ByteBudget(long limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Takes bytes for the image at a position, waiting while they do not fit unless
+         * the image is the next to be written.
+         */
+        synchronized void take(long position, int bytes) throws InterruptedIOException {
+            while (position != next && held + bytes > limit) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to buffer an image");
+                }
+            }
+            held += bytes;
+        }
+
+        synchronized void release(int bytes) {
+            held -= bytes;
+            notifyAll();
+        }
+
+        synchronized void advance() {
+            next++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Entries in archive order, each either ready or still being fetched. Entries are
+     * written from the head, and adding one waits while {@code window} are pending. Image
+     * buffers are released to the budget once written.
+     */
+    private final class Pipeline {
+        private final ZipOutputStream zip;
+        private final ExecutorService fetchers;
+        private final Queue<Future<Entry>> pending = new ArrayDeque<>();
+        private final Set<String> imageUrls = new HashSet<>();
+        private final Set<Long> locations = new HashSet<>();
+        private final List<String> missing = new ArrayList<>();
+        private final ByteBudget budget = new ByteBudget(maxInFlightBytes);
+        private long added;
+
+        Pipeline(ZipOutputStream zip, ExecutorService fetchers) {
+            this.zip = zip;
+            this.fetchers = fetchers;
+        }
+
+        void addLocation(LocationRow row, Set<String> urls) throws IOException {
+            if (!locations.add(row.getId())) {
+                return;
+            }
+            ObjectNode json = objectMapper.createObjectNode();
+            json.put("id", row.getId());
+            json.put("name", row.getName());
+            json.put("description", row.getDescription());
+            json.put("country", row.getCountry());
+            json.put("city", row.getCity());
+            json.put("category", row.getCategory());
+            json.put("latitude", row.getLatitude());
+            json.put("longitude", row.getLongitude());
+            addJson("locations/" + row.getId() + ".json", json, sorted(urls));
+        }
+
+        void addDiary(DiaryRow row, Set<String> tags, Set<String> urls) throws IOException {
+            ObjectNode json = objectMapper.createObjectNode();
+            json.put("id", row.getId());
+            json.put("title", row.getTitle());
+            json.put("content", row.getContent());
+            json.put("travelDate", string(row.getTravelDate()));
+            json.put("locationId", row.getLocationId());
+            json.put("locationName", row.getLocationName());
+            ArrayNode tagArray = json.putArray("tags");
+            sorted(tags).forEach(tagArray::add);
+            json.put("likes", row.getLikes());
+            json.put("public", Boolean.TRUE.equals(row.getIsPublic()));
+            json.put("createdAt", string(row.getCreatedAt()));
+            json.put("updatedAt", string(row.getUpdatedAt()));
+            addJson("diaries/" + row.getTravelDate().toLocalDate() + "_" + row.getId() + ".json", json, sorted(urls));
+        }
+
+        /**
+         * Adds a metadata entry listing its images, then each image not yet added.
+         */
+        private void addJson(String name, ObjectNode json, List<String> urls) throws IOException {
+            ArrayNode images = json.putArray("images");
+            for (String url : urls) {
+                images.addObject().put("url", url).put("file", imageName(url));
+            }
+            add(CompletableFuture.completedFuture(Entry.of(name, objectMapper.writeValueAsBytes(json), false)));
+            for (String url : urls) {
+                if (imageUrls.add(url)) {
+                    String imageName = imageName(url);
+                    long position = added;
+                    add(fetchers.submit(() -> fetch(budget, position, imageName, url)));
+                }
+            }
+        }
+
+        private void add(Future<Entry> entry) throws IOException {
+            pending.add(entry);
+            added++;
+            while (pending.size() >= window) {
+                writeNext();
+            }
+        }
+
+        void finish() throws IOException {
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            if (!missing.isEmpty()) {
+                write(Entry.of(MISSING_IMAGES, String.join("\n", missing).concat("\n")
+                        .getBytes(StandardCharsets.UTF_8), false));
+            }
+        }
+
+        void cancel() {
+            pending.forEach(entry -> entry.cancel(true));
+            pending.clear();
+        }
+
+        private void writeNext() throws IOException {
+            Entry entry = await(pending.remove());
+            if (entry.missingUrl() != null) {
+                missing.add(entry.missingUrl());
+            } else {
+                write(entry);
+                budget.release(entry.held());
+            }
+            budget.advance();
+        }
+
+        private void write(Entry entry) throws IOException {
+            ZipEntry zipEntry = new ZipEntry(entry.name());
+            if (entry.stored()) {
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(entry.size());
+                zipEntry.setCompressedSize(entry.size());
+                zipEntry.setCrc(entry.crc());
+            }
+            zip.putNextEntry(zipEntry);
+            zip.write(entry.data(), 0, entry.size());
+            zip.closeEntry();
+        }
+
+        private Entry await(Future<Entry> entry) throws IOException {
+            try {
+                return entry.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for an image");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                if (ex.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+    }
+}
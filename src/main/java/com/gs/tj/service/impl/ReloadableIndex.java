@@ -0,0 +1,70 @@
+package com.gs.tj.service.impl;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Holds an in-memory index that is periodically rebuilt from the database and patched
+ * with individual writes in between.
+ * <p>
+ * A rebuild fills a fresh index off to the side and then swaps it in, so readers keep
+ * using the current one until the new one is complete. Writes that arrive during a
+ * rebuild are applied to both the current index and the one being built: the rebuild may
+ * already have read the row before it changed, and without the second copy the change
+ * would be lost at the swap. The rebuild may equally read the row after it changed, so
+ * writes must be idempotent puts and removes rather than increments.
+ * <p>
+ * Index types need to be safe for concurrent reads and writes; this class only decides
+ * which instances a write reaches.
+ *
+ * @param <T> the index type
+ */
+final class ReloadableIndex<T> {
+
+    private volatile T current;
+
+    /** Index being rebuilt, if any. */
+    private volatile T loading;
+
+    /**
+     * Returns the current index, or {@code null} until the first rebuild completes.
+     */
+    T get() {
+        return current;
+    }
+
+    /**
+     * Builds a new index and makes it current once {@code build} returns. If the build
+     * fails, the previous index stays current. Rebuilds do not overlap.
+     *
+     * @return the new index
+     */
+    synchronized T reload(Supplier<T> create, Consumer<T> build) {
+        T fresh = create.get();
+        loading = fresh;
+        try {
+            build.accept(fresh);
+            current = fresh;
+            return fresh;
+        } finally {
+            loading = null;
+        }
+    }
+
+    /**
+     * Applies a write to the current index and, during a rebuild, to the index being built.
+     * Does nothing to the current index before the first rebuild completes.
+     */
+    void apply(Consumer<T> change) {
+        // Read in the opposite order to the one reload() writes in: a rebuild that swaps in
+        // between then leaves target == pending, rather than a target the swap discarded.
+        T pending = loading;
+        T target = current;
+        if (target != null) {
+            change.accept(target);
+        }
+        if (pending != null && pending != target) {
+            change.accept(pending);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.gs.tj.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.entity.Route;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.projection.LocationPoint;
+import com.gs.tj.routing.RouteGraph;
+import com.gs.tj.routing.RouteNetwork;
+import com.gs.tj.service.RoutePlannerService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of RoutePlannerService.
+ * <p>
+ * Routes and the coordinates of the locations they pass are kept in a {@link RouteNetwork},
+ * built in keyset batches at startup and on a fixed schedule, and patched after each
+ * committed route or location write, local or relayed from another node. Queries run on an
+ * immutable {@link RouteGraph} compiled from the network; after a write the graph is
+ * recompiled on a short schedule, so a burst of writes costs one recompilation.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoutePlannerServiceImpl implements RoutePlannerService {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final RouteRepository routeRepository;
+    private final LocationRepository locationRepository;
+
+    private final ReloadableIndex<RouteNetwork> network = new ReloadableIndex<>();
+
+    private volatile RouteGraph graph;
+
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    @Override
+    public boolean isReady() {
+        return graph != null;
+    }
+
+    @Override
+    public List<RouteGraph.Path> findFastestPaths(Long startLocationId, Long endLocationId, int maxStops, int limit) {
+        RouteGraph current = graph;
+        if (current == null) {
+            throw new IllegalStateException("Route graph is not loaded");
+        }
+        return current.shortestPaths(startLocationId, endLocationId, maxStops, limit);
+    }
+
+    @Override
+    public synchronized void reload() {
+        RouteNetwork loaded = network.reload(RouteNetwork::new, fresh -> {
+            long afterId = 0;
+            List<Long> ids;
+            do {
+                ids = routeRepository.findIdsAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Set<Long> locationIds = new HashSet<>();
+                for (Route route : routeRepository.findAllForRouting(ids)) {
+                    long[] path = path(route);
+                    fresh.putRoute(route.getId(), path, seconds(route));
+                    locationIds.addAll(fresh.missingLocations(path));
+                }
+                loadLocations(fresh, locationIds);
+                afterId = ids.get(ids.size() - 1);
+            } while (ids.size() == LOAD_BATCH_SIZE);
+        });
+        RouteGraph compiled = loaded.toGraph();
+        graph = compiled;
+        log.info("Route graph loaded with {} routes, {} locations and {} edges",
+                loaded.routeCount(), compiled.nodeCount(), compiled.edgeCount());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${tj.routing.reload-interval:PT6H}", initialDelayString = "${tj.routing.reload-interval:PT6H}")
+    public void refreshGraph() {
+        try {
+            reload();
+        } catch (RuntimeException ex) {
+            log.warn("Route graph could not be loaded; route optimization is unavailable until it is", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tj.routing.recompile-delay:PT5S}")
+    public void recompileIfChanged() {
+        RouteNetwork current = network.get();
+        if (current != null && changed.getAndSet(false)) {
+            graph = current.toGraph();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.type() == EntityType.ROUTE) {
+            if (event.deleted()) {
+                apply(target -> target.removeRoute(event.id()));
+                return;
+            }
+            routeRepository.findForRoutingById(event.id()).ifPresentOrElse(
+                    route -> {
+                        long[] path = path(route);
+                        apply(target -> {
+                            target.putRoute(route.getId(), path, seconds(route));
+                            loadLocations(target, target.missingLocations(path));
+                        });
+                    },
+                    () -> apply(target -> target.removeRoute(event.id())));
+        } else if (event.type() == EntityType.LOCATION) {
+            RouteNetwork current = network.get();
+            if (current == null || !current.containsLocation(event.id())) {
+                // Locations join the network with the first route that passes them.
+                return;
+            }
+            if (event.deleted()) {
+                apply(target -> target.removeLocation(event.id()));
+                return;
+            }
+            locationRepository.findPointById(event.id()).ifPresentOrElse(
+                    point -> apply(target -> target.putLocation(point.getId(), point.getLatitude(), point.getLongitude())),
+                    () -> apply(target -> target.removeLocation(event.id())));
+        }
+    }
+
+    private void loadLocations(RouteNetwork target, Set<Long> locationIds) {
+        if (locationIds.isEmpty()) {
+            return;
+        }
+        for (LocationPoint point : locationRepository.findPointsByIds(locationIds)) {
+            target.putLocation(point.getId(), point.getLatitude(), point.getLongitude());
+        }
+    }
+
+    private static long[] path(Route route) {
+        List<Long> ids = new ArrayList<>(route.getStopLocationIds().size() + 2);
+        ids.add(route.getStartLocation().getId());
+        ids.addAll(route.getStopLocationIds());
+        ids.add(route.getEndLocation().getId());
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static double seconds(Route route) {
+        return route.getEstimatedDuration().toMillis() / 1000.0;
+    }
+
+    private void apply(Consumer<RouteNetwork> change) {
+        network.apply(change);
+        changed.set(true);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gs.tj.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.gs.tj.exception.ResourceNotFoundException;
+import com.gs.tj.routing.StopSequencer;
+import com.gs.tj.service.DistanceMatrixService;
+import com.gs.tj.service.RouteSequencingService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Implementation of RouteSequencingService using {@link StopSequencer} over the
+ * great-circle distances from {@link DistanceMatrixService}.
+ */
+@Service
+@RequiredArgsConstructor
+public class RouteSequencingServiceImpl implements RouteSequencingService {
+
+    private final DistanceMatrixService distanceMatrixService;
+
+    @Value("${tj.routing.sequencing-budget:PT0.2S}")
+    private Duration sequencingBudget;
+
+    @Override
+    public List<Long> sequenceStops(Long startLocationId, Long endLocationId, Collection<Long> stopLocationIds) {
+        List<Long> stops = new ArrayList<>(new LinkedHashSet<>(stopLocationIds));
+        if (stops.size() < 2) {
+            return stops;
+        }
+        List<Long> points = new ArrayList<>(stops.size() + 2);
+        points.add(startLocationId);
+        points.addAll(stops);
+        points.add(endLocationId);
+        double[] distances = distanceMatrixService.distances(points, points);
+        for (int i = 0; i < points.size(); i++) {
+            // A location's distance to itself is NaN only if it does not exist.
+            if (Double.isNaN(distances[i * points.size() + i])) {
+                throw new ResourceNotFoundException("Location not found with id: " + points.get(i));
+            }
+        }
+
+        int[] order = new StopSequencer(sequencingBudget).sequence(distances, points.size());
+        List<Long> sequenced = new ArrayList<>(order.length);
+        for (int index : order) {
+            sequenced.add(stops.get(index - 1));
+        }
+        return sequenced;
+    }
+}
@@ -1,17 +1,37 @@
 package com.gs.tj.service.impl;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.gs.tj.dto.RouteView;
+import com.gs.tj.entity.Location;
 import com.gs.tj.entity.Route;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
 import com.gs.tj.exception.ResourceNotFoundException;
+import com.gs.tj.repository.LocationRepository;
 import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.projection.RouteRow;
+import com.gs.tj.repository.projection.RouteStop;
+import com.gs.tj.routing.RouteGraph;
+import com.gs.tj.service.CacheInvalidationService;
+import com.gs.tj.service.LeaderboardService;
+import com.gs.tj.service.LeaderboardService.Board;
+import com.gs.tj.service.RoutePlannerService;
+import com.gs.tj.service.RouteSequencingService;
 import com.gs.tj.service.RouteService;
 
 import lombok.RequiredArgsConstructor;
@@ -19,50 +39,77 @@ import lombok.RequiredArgsConstructor;
 /**
  * Implementation of RouteService interface.
  * Provides route management functionality with caching support.
+ * Routes are read as rows completed with their stops and images, and returned as views.
+ * Route writes publish {@link EntityChangedEvent}s that keep the in-memory route graph in sync,
+ * and evict only the cached entries they affect through {@link CacheInvalidationService};
+ * optimal routes are computed on that graph and are not cached.
  */
 @Service
 @RequiredArgsConstructor
 public class RouteServiceImpl implements RouteService {
 
+    private static final String CACHE = "routes";
+    private static final String DURATION_CACHE = "routeDurations";
+    /** Newest public routes first, so every newly public route changes each entry. */
+    private static final String POPULAR_CACHE = "popularRoutes";
+
     private final RouteRepository routeRepository;
+    private final LocationRepository locationRepository;
+    private final RoutePlannerService routePlannerService;
+    private final RouteSequencingService routeSequencingService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final LeaderboardService leaderboardService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${tj.routing.max-alternatives:5}")
+    private int maxAlternatives;
 
     @Override
     @Transactional
-    @CacheEvict(value = "routes", allEntries = true)
-    public Route createRoute(Route route) {
-        return routeRepository.save(route);
+    public RouteView createRoute(Route route) {
+        Route saved = routeRepository.save(route);
+        cacheInvalidationService.invalidate(CACHE, saved.getId(), listKeys(saved), List.of());
+        if (saved.isPublic()) {
+            cacheInvalidationService.invalidateAll(POPULAR_CACHE);
+        }
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.ROUTE, saved.getId()));
+        return RouteView.from(saved);
     }
 
     @Override
     @Cacheable(value = "routes", key = "#id")
-    public Optional<Route> getRouteById(Long id) {
-        return routeRepository.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<RouteView> getRouteById(Long id) {
+        return routeRepository.findRowById(id).map(row -> toViews(List.of(row)).get(0));
     }
 
     @Override
     @Cacheable(value = "routes", key = "'user:' + #userId")
-    public List<Route> getRoutesByUser(Long userId) {
-        return routeRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public List<RouteView> getRoutesByUser(Long userId) {
+        return toViews(routeRepository.findRowsByUserId(userId));
     }
 
     @Override
     @Cacheable(value = "routes", key = "'start:' + #locationId")
-    public List<Route> getRoutesByStartLocation(Long locationId) {
-        return routeRepository.findByStartLocationId(locationId);
+    @Transactional(readOnly = true)
+    public List<RouteView> getRoutesByStartLocation(Long locationId) {
+        return toViews(routeRepository.findRowsByStartLocationId(locationId));
     }
 
     @Override
     @Cacheable(value = "routes", key = "'end:' + #locationId")
-    public List<Route> getRoutesByEndLocation(Long locationId) {
-        return routeRepository.findByEndLocationId(locationId);
+    @Transactional(readOnly = true)
+    public List<RouteView> getRoutesByEndLocation(Long locationId) {
+        return toViews(routeRepository.findRowsByEndLocationId(locationId));
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "routes", key = "#id")
-    public Route updateRoute(Long id, Route routeDetails) {
+    public RouteView updateRoute(Long id, Route routeDetails) {
         Route route = routeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Route not found with id: " + id));
+        boolean published = !route.isPublic() && routeDetails.isPublic();
 
         if (routeDetails.getName() != null) {
             route.setName(routeDetails.getName());
@@ -87,17 +134,29 @@ public class RouteServiceImpl implements RouteService {
         }
         route.setPublic(routeDetails.isPublic());
 
-        return routeRepository.save(route);
+        Route saved = routeRepository.save(route);
+        cacheInvalidationService.invalidate(CACHE, id, listKeys(saved), List.of());
+        cacheInvalidationService.invalidate(DURATION_CACHE, id, List.of(), List.of());
+        if (published) {
+            cacheInvalidationService.invalidateAll(POPULAR_CACHE);
+        } else {
+            cacheInvalidationService.invalidate(POPULAR_CACHE, id, List.of(), List.of());
+        }
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.ROUTE, id));
+        return RouteView.from(saved);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "routes", key = "#id")
     public void deleteRoute(Long id) {
         if (!routeRepository.existsById(id)) {
             throw new ResourceNotFoundException("Route not found with id: " + id);
         }
         routeRepository.deleteById(id);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        cacheInvalidationService.invalidate(DURATION_CACHE, id, List.of(), List.of());
+        cacheInvalidationService.invalidate(POPULAR_CACHE, id, List.of(), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.deleted(EntityType.ROUTE, id));
     }
 
     @Override
@@ -109,25 +168,114 @@ public class RouteServiceImpl implements RouteService {
     }
 
     @Override
-    @Cacheable(value = "optimalRoutes", key = "#startLocationId + ':' + #endLocationId + ':' + #maxStops")
-    public List<Route> findOptimalRoutes(Long startLocationId, Long endLocationId, int maxStops) {
-        // TODO: Implement route optimization algorithm
-        return List.of();
+    public List<RouteView> findOptimalRoutes(Long startLocationId, Long endLocationId, int maxStops) {
+        if (maxStops < 0) {
+            throw new IllegalArgumentException("maxStops must not be negative");
+        }
+        Location start = locationRepository.findById(startLocationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + startLocationId));
+        Location end = locationRepository.findById(endLocationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Location not found with id: " + endLocationId));
+        if (!routePlannerService.isReady()) {
+            return List.of();
+        }
+
+        List<RouteGraph.Path> paths = routePlannerService.findFastestPaths(
+                startLocationId, endLocationId, maxStops, maxAlternatives);
+        List<RouteView> routes = new ArrayList<>(paths.size());
+        for (int rank = 0; rank < paths.size(); rank++) {
+            long[] locationIds = paths.get(rank).locationIds();
+            List<Long> stops = new ArrayList<>(locationIds.length - 2);
+            for (int i = 1; i < locationIds.length - 1; i++) {
+                stops.add(locationIds[i]);
+            }
+            Route route = new Route();
+            route.setName(start.getName() + " to " + end.getName() + " (option " + (rank + 1) + ")");
+            route.setStartLocation(start);
+            route.setEndLocation(end);
+            route.setStopLocationIds(stops);
+            route.setEstimatedDuration(Duration.ofSeconds(Math.round(paths.get(rank).seconds())));
+            routes.add(RouteView.from(route));
+        }
+        return routes;
+    }
+
+    @Override
+    @Transactional
+    public RouteView optimizeStopOrder(Long routeId) {
+        Route route = routeRepository.findById(routeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Route not found with id: " + routeId));
+        List<Long> ordered = routeSequencingService.sequenceStops(
+                route.getStartLocation().getId(), route.getEndLocation().getId(), route.getStopLocationIds());
+        route.getStopLocationIds().clear();
+        route.getStopLocationIds().addAll(ordered);
+
+        Route saved = routeRepository.save(route);
+        cacheInvalidationService.invalidate(CACHE, routeId, List.of(), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.ROUTE, routeId));
+        return RouteView.from(saved);
     }
 
     @Override
-    @Cacheable(value = "popularRoutes", key = "#limit")
-    public List<Route> getPopularRoutes(int limit) {
-        return routeRepository.findByIsPublicTrueOrderByCreatedAtDesc()
-                .stream()
-                .limit(limit)
-                .toList();
+    @Cacheable(value = "popularRoutes", key = "#limit", sync = true)
+    @Transactional(readOnly = true)
+    public List<RouteView> getPopularRoutes(int limit) {
+        return leaderboardService.top(Board.NEWEST_ROUTES, 0, limit)
+                .map(this::getRoutesByIds)
+                .orElseGet(() -> toViews(routeRepository.findNewestPublicRows(Limit.of(limit))));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RouteView> getRoutesByIds(List<Long> ids) {
+        return toViews(IdBatches.inOrder(ids, IdBatches.query(ids, routeRepository::findRowsByIds),
+                RouteRow::getId));
     }
 
     @Override
     @Cacheable(value = "recommendedRoutes", key = "#userId + ':' + #limit")
-    public List<Route> getRecommendedRoutes(Long userId, int limit) {
+    public List<RouteView> getRecommendedRoutes(Long userId, int limit) {
         // TODO: Implement route recommendation algorithm based on user preferences
         return List.of();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Completes rows with their stops and images, keeping their order. The result is a
+     * mutable list, which the cache can restore exactly.
+     */
+    private List<RouteView> toViews(List<RouteRow> rows) {
+        List<Long> ids = rows.stream().map(RouteRow::getId).toList();
+        Map<Long, List<Long>> stops = new HashMap<>();
+        for (RouteStop stop : IdBatches.query(ids, routeRepository::findStopsByRouteIds)) {
+            stops.computeIfAbsent(stop.getRouteId(), id -> new ArrayList<>()).add(stop.getLocationId());
+        }
+        Map<Long, Set<String>> imageUrls = IdBatches.group(ids, routeRepository::findImageUrlsByRouteIds);
+        List<RouteView> views = new ArrayList<>(rows.size());
+        for (RouteRow row : rows) {
+            views.add(new RouteView(row.getId(), row.getName(), row.getDescription(), row.getUserId(),
+                    row.getUsername(), row.getStartLocationId(), row.getStartLocationName(),
+                    row.getEndLocationId(), row.getEndLocationName(), row.getEstimatedDuration(),
+                    stops.get(row.getId()), imageUrls.get(row.getId()), Boolean.TRUE.equals(row.getIsPublic()),
+                    row.getCreatedAt(), row.getUpdatedAt()));
+        }
+        return views;
+    }
+
+    /**
+     * Keys of the cached route lists a route belongs to by its own fields. Lists it already
+     * appears in are found through its id.
+     */
+    private static Set<String> listKeys(Route route) {
+        Set<String> keys = new HashSet<>();
+        if (route.getUser() != null) {
+            keys.add("user:" + route.getUser().getId());
+        }
+        if (route.getStartLocation() != null) {
+            keys.add("start:" + route.getStartLocation().getId());
+        }
+        if (route.getEndLocation() != null) {
+            keys.add("end:" + route.getEndLocation().getId());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,237 @@
+package com.gs.tj.service.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.dto.SearchPage;
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.Location;
+import com.gs.tj.entity.User;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.UserRepository;
+import com.gs.tj.search.TextIndex;
+import com.gs.tj.service.SearchService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of SearchService backed by an in-memory {@link TextIndex}.
+ * The index is built in keyset batches at startup and on a fixed schedule, and patched
+ * after each committed location or diary write, local or relayed from another node.
+ * Diaries are indexed with their location's country and category, so a location write
+ * also re-indexes the diaries attached to it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchServiceImpl implements SearchService {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 100;
+    /** Deepest result reachable by paging; relevance past this point is not useful. */
+    private static final int MAX_RESULT_WINDOW = 10_000;
+
+    private final LocationRepository locationRepository;
+    private final DiaryRepository diaryRepository;
+    private final UserRepository userRepository;
+
+    private final ReloadableIndex<TextIndex> index = new ReloadableIndex<>();
+
+    @Override
+    public boolean isReady() {
+        return index.get() != null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchPage<Location> searchLocations(String query, String country, String category, Boolean isPublic,
+            int page, int size) {
+        if (Boolean.FALSE.equals(isPublic)) {
+            throw new IllegalArgumentException("Only public locations can be searched");
+        }
+        return search(EntityType.LOCATION, query, new TextIndex.Filter(country, category, true, null), page, size,
+                ids -> FetchPlans.initializeLocations(
+                        findAllInOrder(ids, locationRepository.findAllById(ids), Location::getId)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchPage<Diary> searchDiaries(String query, String country, String category, Boolean isPublic,
+            String viewer, int page, int size) {
+        Long viewerId = viewer != null ? userRepository.findByUsername(viewer).map(User::getId).orElse(null) : null;
+        if (Boolean.FALSE.equals(isPublic) && viewerId == null) {
+            throw new IllegalArgumentException("Private diaries can only be searched by their owner");
+        }
+        return search(EntityType.DIARY, query, new TextIndex.Filter(country, category, isPublic, viewerId), page, size,
+                ids -> FetchPlans.initializeDiaries(
+                        findAllInOrder(ids, diaryRepository.findAllById(ids), Diary::getId)));
+    }
+
+    @Override
+    public void reload() {
+        TextIndex loaded = index.reload(TextIndex::new, fresh -> {
+            long afterId = 0;
+            List<Long> ids;
+            do {
+                ids = locationRepository.findIdsAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+                indexLocations(fresh, ids);
+                if (!ids.isEmpty()) {
+                    afterId = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == LOAD_BATCH_SIZE);
+
+            afterId = 0;
+            do {
+                ids = diaryRepository.findIdsAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+                indexDiaries(fresh, ids);
+                if (!ids.isEmpty()) {
+                    afterId = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == LOAD_BATCH_SIZE);
+
+            fresh.refresh();
+        });
+        log.info("Search index loaded with {} documents", loaded.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${tj.search.reload-interval:PT6H}", initialDelayString = "${tj.search.reload-interval:PT6H}")
+    public void refreshIndex() {
+        try {
+            reload();
+        } catch (RuntimeException ex) {
+            log.warn("Search index could not be loaded; location search falls back to SQL", ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.type() == EntityType.LOCATION) {
+            List<Long> diaryIds = event.deleted() ? List.of() : diaryRepository.findIdsByLocationId(event.id());
+            apply(target -> {
+                if (event.deleted()) {
+                    target.delete(EntityType.LOCATION, event.id());
+                } else {
+                    indexLocations(target, List.of(event.id()));
+                    for (int from = 0; from < diaryIds.size(); from += LOAD_BATCH_SIZE) {
+                        indexDiaries(target, diaryIds.subList(from, Math.min(from + LOAD_BATCH_SIZE, diaryIds.size())));
+                    }
+                }
+            });
+        } else if (event.type() == EntityType.DIARY) {
+            apply(target -> {
+                if (event.deleted()) {
+                    target.delete(EntityType.DIARY, event.id());
+                } else {
+                    indexDiaries(target, List.of(event.id()));
+                }
+            });
+        }
+    }
+
+    private <T> SearchPage<T> search(EntityType type, String query, TextIndex.Filter filter, int page, int size,
+            Function<List<Long>, List<T>> loader) {
+        TextIndex current = index.get();
+        if (current == null) {
+            throw new IllegalStateException("Search index is not loaded");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int offset = Math.max(0, page) * pageSize;
+        if (offset + pageSize > MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("Search results are limited to the first " + MAX_RESULT_WINDOW + " hits");
+        }
+        TextIndex.Hits hits = current.search(type, query, filter, offset, pageSize);
+        return new SearchPage<>(loader.apply(hits.ids()), Math.max(0, page), pageSize, hits.totalHits(),
+                offset + pageSize < hits.totalHits());
+    }
+
+    /**
+     * Re-reads the given locations and writes them to the index; ids that no longer
+     * exist are removed from it.
+     */
+    private void indexLocations(TextIndex target, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Location> found = locationRepository.findAllForIndexing(ids).stream()
+                .collect(Collectors.toMap(Location::getId, Function.identity()));
+        for (Long id : ids) {
+            Location location = found.get(id);
+            if (location == null) {
+                target.delete(EntityType.LOCATION, id);
+                continue;
+            }
+            Map<String, String> text = new HashMap<>();
+            text.put(TextIndex.NAME, location.getName());
+            text.put(TextIndex.DESCRIPTION, location.getDescription());
+            text.put(TextIndex.CITY, location.getCity());
+            text.put(TextIndex.COUNTRY, location.getCountry());
+            text.put(TextIndex.TAGS, String.join(" ", location.getTags()));
+            target.upsert(EntityType.LOCATION, id, text, location.getCountry(), location.getCategory(), location.isPublic(),
+                    null);
+        }
+    }
+
+    /**
+     * Re-reads the given diaries and writes them to the index; ids that no longer
+     * exist are removed from it.
+     */
+    private void indexDiaries(TextIndex target, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, Diary> found = diaryRepository.findAllForIndexing(ids).stream()
+                .collect(Collectors.toMap(Diary::getId, Function.identity()));
+        for (Long id : ids) {
+            Diary diary = found.get(id);
+            if (diary == null) {
+                target.delete(EntityType.DIARY, id);
+                continue;
+            }
+            Map<String, String> text = new HashMap<>();
+            text.put(TextIndex.TITLE, diary.getTitle());
+            text.put(TextIndex.CONTENT, diary.getContent());
+            text.put(TextIndex.TAGS, String.join(" ", diary.getTags()));
+            Location location = diary.getLocation();
+            target.upsert(EntityType.DIARY, id, text,
+                    location != null ? location.getCountry() : null,
+                    location != null ? location.getCategory() : null,
+                    diary.isPublic(),
+                    diary.getUser().getId());
+        }
+    }
+
+    private void apply(Consumer<TextIndex> change) {
+        index.apply(change);
+        TextIndex current = index.get();
+        if (current != null) {
+            current.refresh();
+        }
+    }
+
+    private static <T> List<T> findAllInOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> byId = rows.stream().collect(Collectors.toMap(idOf, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
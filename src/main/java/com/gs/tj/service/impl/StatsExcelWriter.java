@@ -0,0 +1,229 @@
+package com.gs.tj.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.projection.LocationTravelStats;
+import com.gs.tj.repository.projection.MonthlyTravelStats;
+import com.gs.tj.repository.projection.NamedTravelStats;
+import com.gs.tj.repository.projection.TravelStats;
+
+/**
+ * Writes a user's travel statistics over a date range as an Excel workbook, with a summary
+ * sheet and sheets by country, month, category and location.
+ * <p>
+ * Every figure is aggregated by the database with GROUP BY queries; no diary is loaded.
+ * The country, month and category aggregates are read in one read-only transaction, so they
+ * agree with each other, and the per-location aggregates, which grow with the number of
+ * places visited, a page at a time. Rows are written through a streaming workbook that
+ * keeps {@code window} rows per sheet in memory and flushes older ones to compressed
+ * temporary files, which closing the workbook deletes.
+ */
+final class StatsExcelWriter {
+
+    private static final String[] STATS_HEADERS = {
+            "Diaries", "Locations", "Countries", "Likes", "First trip", "Last trip" };
+    private static final String UNKNOWN = "Unknown";
+
+    private final DiaryRepository diaryRepository;
+    private final TransactionTemplate readOnly;
+    private final int pageSize;
+    private final int window;
+
+    /**
+     * @param transactionTemplate Template whose transaction manager runs the queries; the
+     *        writer uses its own read-only copy
+     * @param pageSize Number of locations read per query
+     * @param window Number of rows per sheet kept in memory
+     */
+    StatsExcelWriter(DiaryRepository diaryRepository, TransactionTemplate transactionTemplate, int pageSize,
+            int window) {
+        this.diaryRepository = diaryRepository;
+        this.readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnly.setReadOnly(true);
+        this.pageSize = pageSize;
+        this.window = window;
+    }
+
+    /**
+     * Write the statistics of the diaries travelled from {@code startDate} to
+     * {@code endDate}, both inclusive.
+     */
+    void write(Long userId, String username, LocalDate startDate, LocalDate endDate, OutputStream out)
+            throws IOException {
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        Aggregates aggregates = readOnly.execute(status -> new Aggregates(
+                diaryRepository.findTravelStats(userId, from, to),
+                diaryRepository.findTravelStatsByCountry(userId, from, to),
+                diaryRepository.findTravelStatsByMonth(userId, from, to),
+                diaryRepository.findTravelStatsByCategory(userId, from, to)));
+
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(window)) {
+            workbook.setCompressTempFiles(true);
+            Styles styles = new Styles(workbook);
+
+            SheetWriter summary = new SheetWriter(workbook.createSheet("Summary"), styles);
+            summary.row("User", username);
+            summary.row("From", startDate);
+            summary.row("To", endDate);
+            summary.row("Diaries", aggregates.total().getDiaries());
+            summary.row("Locations", aggregates.total().getLocations());
+            summary.row("Countries", aggregates.total().getCountries());
+            summary.row("Likes", aggregates.total().getLikes());
+            summary.row("First trip", aggregates.total().getFirstTravelDate());
+            summary.row("Last trip", aggregates.total().getLastTravelDate());
+
+            SheetWriter countries = new SheetWriter(workbook.createSheet("By country"), styles);
+            countries.header("Country");
+            for (NamedTravelStats stats : aggregates.countries()) {
+                countries.stats(stats, name(stats.getName()));
+            }
+
+            SheetWriter months = new SheetWriter(workbook.createSheet("By month"), styles);
+            months.header("Month");
+            for (MonthlyTravelStats stats : aggregates.months()) {
+                months.stats(stats, String.format("%04d-%02d", stats.getYear(), stats.getMonth()));
+            }
+
+            SheetWriter categories = new SheetWriter(workbook.createSheet("By category"), styles);
+            categories.header("Category");
+            for (NamedTravelStats stats : aggregates.categories()) {
+                categories.stats(stats, name(stats.getName()));
+            }
+
+            writeLocations(new SheetWriter(workbook.createSheet("By location"), styles), userId, from, to);
+
+            workbook.write(out);
+            out.flush();
+        }
+    }
+
+    private void writeLocations(SheetWriter sheet, Long userId, LocalDateTime from, LocalDateTime to) {
+        sheet.header("Location", "City", "Country", "Category");
+        Long afterId = 0L;
+        List<LocationTravelStats> page;
+        do {
+            Long id = afterId;
+            page = readOnly.execute(status ->
+                    diaryRepository.findTravelStatsByLocation(userId, from, to, id, Limit.of(pageSize)));
+            for (LocationTravelStats stats : page) {
+                sheet.stats(stats, stats.getName(), stats.getCity(), stats.getCountry(), name(stats.getCategory()));
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getLocationId();
+            }
+        } while (page.size() == pageSize);
+    }
+
+    private static String name(String name) {
+        return name != null ? name : UNKNOWN;
+    }
+
+    private record Aggregates(TravelStats total, List<NamedTravelStats> countries, List<MonthlyTravelStats> months,
+            List<NamedTravelStats> categories) {
+    }
+
+    private static final class Styles {
+        final CellStyle header;
+        final CellStyle date;
+
+        Styles(SXSSFWorkbook workbook) {
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            header = workbook.createCellStyle();
+            header.setFont(bold);
+            date = workbook.createCellStyle();
+            date.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        }
+    }
+
+    /**
+     * Appends rows to one sheet.
+     */
+    private static final class SheetWriter {
+        private static final int WIDTH = 16 * 256;
+
+        private final SXSSFSheet sheet;
+        private final Styles styles;
+        private int rows;
+
+        SheetWriter(SXSSFSheet sheet, Styles styles) {
+            this.sheet = sheet;
+            this.styles = styles;
+        }
+
+        void header(String... labels) {
+            Row row = sheet.createRow(rows++);
+            int column = 0;
+            for (String label : labels) {
+                header(row, column++, label);
+            }
+            for (String label : STATS_HEADERS) {
+                header(row, column++, label);
+            }
+            for (int i = 0; i < column; i++) {
+                sheet.setColumnWidth(i, WIDTH);
+            }
+            sheet.createFreezePane(0, 1);
+        }
+
+        void stats(TravelStats stats, String... labels) {
+            Row row = sheet.createRow(rows++);
+            int column = 0;
+            for (String label : labels) {
+                row.createCell(column++).setCellValue(label);
+            }
+            cell(row, column++, stats.getDiaries());
+            cell(row, column++, stats.getLocations());
+            cell(row, column++, stats.getCountries());
+            cell(row, column++, stats.getLikes());
+            cell(row, column++, stats.getFirstTravelDate());
+            cell(row, column, stats.getLastTravelDate());
+        }
+
+        void row(String label, Object value) {
+            if (rows == 0) {
+                sheet.setColumnWidth(0, WIDTH);
+                sheet.setColumnWidth(1, WIDTH);
+            }
+            Row row = sheet.createRow(rows++);
+            header(row, 0, label);
+            cell(row, 1, value);
+        }
+
+        private void header(Row row, int column, String label) {
+            Cell cell = row.createCell(column);
+            cell.setCellValue(label);
+            cell.setCellStyle(styles.header);
+        }
+
+        private void cell(Row row, int column, Object value) {
+            Cell cell = row.createCell(column);
+            if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+            } else if (value instanceof LocalDateTime dateTime) {
+                cell.setCellValue(dateTime.toLocalDate());
+                cell.setCellStyle(styles.date);
+            } else if (value instanceof LocalDate date) {
+                cell.setCellValue(date);
+                cell.setCellStyle(styles.date);
+            } else if (value != null) {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.gs.tj.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.FavoriteRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.projection.DiaryRow;
+import com.gs.tj.repository.projection.FavoriteRow;
+import com.gs.tj.repository.projection.RouteRow;
+import com.gs.tj.repository.projection.RouteStop;
+
+/**
+ * Writes a user's timeline as one JSON document: their diaries in travel date order, with
+ * undated ones last, then their routes and favorites in creation order.
+ * <p>
+ * Each section is read a page at a time by keyset, and every page is read in its own
+ * read-only transaction and written before the next one is read. Pages are read as scalar
+ * projections, never as entities, so no persistence context outlives a page or grows with
+ * it, and memory use does not depend on the size of the timeline.
+ */
+final class TimelineJsonWriter {
+
+    private final DiaryRepository diaryRepository;
+    private final RouteRepository routeRepository;
+    private final FavoriteRepository favoriteRepository;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+
+    /**
+     * @param transactionTemplate Template whose transaction manager runs the page reads; the
+     *        writer uses its own read-only copy
+     * @param objectMapper Mapper whose factory creates the generator
+     * @param pageSize Number of rows read per query
+     */
+    TimelineJsonWriter(DiaryRepository diaryRepository, RouteRepository routeRepository,
+            FavoriteRepository favoriteRepository, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, int pageSize) {
+        this.diaryRepository = diaryRepository;
+        this.routeRepository = routeRepository;
+        this.favoriteRepository = favoriteRepository;
+        this.readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+    }
+
+    void write(Long userId, String username, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeNumberField("userId", userId);
+            json.writeStringField("username", username);
+            json.writeStringField("exportedAt", LocalDateTime.now().toString());
+
+            json.writeArrayFieldStart("diaries");
+            writeDatedDiaries(json, userId);
+            writeUndatedDiaries(json, userId);
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("routes");
+            writeRoutes(json, userId);
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("favorites");
+            writeFavorites(json, userId);
+            json.writeEndArray();
+
+            json.writeEndObject();
+        }
+    }
+
+    private void writeDatedDiaries(JsonGenerator json, Long userId) throws IOException {
+        LocalDateTime afterDate = null;
+        Long afterId = 0L;
+        DiaryPage page;
+        do {
+            LocalDateTime date = afterDate;
+            Long id = afterId;
+            page = readOnly.execute(status -> diaryPage(
+                    diaryRepository.findTimelineRows(userId, date, id, Limit.of(pageSize))));
+            writeDiaries(json, page);
+            if (!page.rows().isEmpty()) {
+                DiaryRow last = page.rows().get(page.rows().size() - 1);
+                afterDate = last.getTravelDate();
+                afterId = last.getId();
+            }
+        } while (page.rows().size() == pageSize);
+    }
+
+    private void writeUndatedDiaries(JsonGenerator json, Long userId) throws IOException {
+        Long afterId = 0L;
+        DiaryPage page;
+        do {
+            Long id = afterId;
+            page = readOnly.execute(status -> diaryPage(
+                    diaryRepository.findUndatedTimelineRows(userId, id, Limit.of(pageSize))));
+            writeDiaries(json, page);
+            if (!page.rows().isEmpty()) {
+                afterId = page.rows().get(page.rows().size() - 1).getId();
+            }
+        } while (page.rows().size() == pageSize);
+    }
+
+    private void writeRoutes(JsonGenerator json, Long userId) throws IOException {
+        Long afterId = 0L;
+        RoutePage page;
+        do {
+            Long id = afterId;
+            page = readOnly.execute(status -> routePage(
+                    routeRepository.findRowsByUserIdAfter(userId, id, Limit.of(pageSize))));
+            for (RouteRow row : page.rows()) {
+                json.writeStartObject();
+                json.writeNumberField("id", row.getId());
+                json.writeStringField("name", row.getName());
+                json.writeStringField("description", row.getDescription());
+                writeReference(json, "startLocation", row.getStartLocationId(), row.getStartLocationName());
+                writeReference(json, "endLocation", row.getEndLocationId(), row.getEndLocationName());
+                json.writeArrayFieldStart("stopLocationIds");
+                for (Long stop : page.stops().getOrDefault(row.getId(), List.of())) {
+                    json.writeNumber(stop);
+                }
+                json.writeEndArray();
+                writeString(json, "estimatedDuration", row.getEstimatedDuration());
+                writeStrings(json, "imageUrls", page.imageUrls().get(row.getId()));
+                json.writeBooleanField("public", Boolean.TRUE.equals(row.getIsPublic()));
+                writeString(json, "createdAt", row.getCreatedAt());
+                writeString(json, "updatedAt", row.getUpdatedAt());
+                json.writeEndObject();
+            }
+            json.flush();
+            if (!page.rows().isEmpty()) {
+                afterId = page.rows().get(page.rows().size() - 1).getId();
+            }
+        } while (page.rows().size() == pageSize);
+    }
+
+    private void writeFavorites(JsonGenerator json, Long userId) throws IOException {
+        Long afterId = 0L;
+        List<FavoriteRow> rows;
+        do {
+            Long id = afterId;
+            rows = readOnly.execute(status -> favoriteRepository.findRowsByUserIdAfter(userId, id, Limit.of(pageSize)));
+            for (FavoriteRow row : rows) {
+                json.writeStartObject();
+                json.writeStringField("type", row.getType().name());
+                json.writeNumberField("id", row.getFavoriteId());
+                writeString(json, "createdAt", row.getCreatedAt());
+                json.writeEndObject();
+            }
+            json.flush();
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+        } while (rows.size() == pageSize);
+    }
+
+    private void writeDiaries(JsonGenerator json, DiaryPage page) throws IOException {
+        for (DiaryRow row : page.rows()) {
+            json.writeStartObject();
+            json.writeNumberField("id", row.getId());
+            json.writeStringField("title", row.getTitle());
+            json.writeStringField("content", row.getContent());
+            writeString(json, "travelDate", row.getTravelDate());
+            writeReference(json, "location", row.getLocationId(), row.getLocationName());
+            writeStrings(json, "tags", page.tags().get(row.getId()));
+            writeStrings(json, "imageUrls", page.imageUrls().get(row.getId()));
+            json.writeNumberField("likes", row.getLikes());
+            json.writeBooleanField("public", Boolean.TRUE.equals(row.getIsPublic()));
+            writeString(json, "createdAt", row.getCreatedAt());
+            writeString(json, "updatedAt", row.getUpdatedAt());
+            json.writeEndObject();
+        }
+        json.flush();
+    }
+
+    private DiaryPage diaryPage(List<DiaryRow> rows) {
+        List<Long> ids = rows.stream().map(DiaryRow::getId).toList();
+        return new DiaryPage(rows,
+                IdBatches.group(ids, diaryRepository::findTagsByDiaryIds),
+                IdBatches.group(ids, diaryRepository::findImageUrlsByDiaryIds));
+    }
+
+    private RoutePage routePage(List<RouteRow> rows) {
+        List<Long> ids = rows.stream().map(RouteRow::getId).toList();
+        Map<Long, List<Long>> stops = new HashMap<>();
+        for (RouteStop stop : IdBatches.query(ids, routeRepository::findStopsByRouteIds)) {
+            stops.computeIfAbsent(stop.getRouteId(), id -> new ArrayList<>()).add(stop.getLocationId());
+        }
+        return new RoutePage(rows, stops, IdBatches.group(ids, routeRepository::findImageUrlsByRouteIds));
+    }
+
+    private static void writeReference(JsonGenerator json, String field, Long id, String name) throws IOException {
+        if (id == null) {
+            json.writeNullField(field);
+            return;
+        }
+        json.writeObjectFieldStart(field);
+        json.writeNumberField("id", id);
+        json.writeStringField("name", name);
+        json.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator json, String field, Object value) throws IOException {
+        json.writeStringField(field, value != null ? value.toString() : null);
+    }
+
+    private static void writeStrings(JsonGenerator json, String field, Collection<String> values) throws IOException {
+        json.writeArrayFieldStart(field);
+        if (values != null) {
+            for (String value : values) {
+                json.writeString(value);
+            }
+        }
+        json.writeEndArray();
+    }
+
+    private record DiaryPage(List<DiaryRow> rows, Map<Long, Set<String>> tags, Map<Long, Set<String>> imageUrls) {
+    }
+
+    private record RoutePage(List<RouteRow> rows, Map<Long, List<Long>> stops, Map<Long, Set<String>> imageUrls) {
+    }
+}
@@ -0,0 +1,292 @@
+package com.gs.tj.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.gs.tj.entity.Diary;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.UserRepository;
+import com.gs.tj.service.TimelineService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Implementation of TimelineService backed by one Redis sorted set per user.
+ * Members are diary ids scored by the id itself, so timeline order matches the
+ * feed cursor. Every timeline also holds a sentinel member scored 0, which keeps
+ * an empty but built timeline distinguishable from one that still has to be rebuilt.
+ * <p>
+ * Authors whose follower count reaches {@code tj.feed.pull.threshold} are recorded in a
+ * shared set and skipped by fan-out, which bounds the write cost of a single post. They
+ * leave that set again only once they drop below 90% of the threshold, so accounts near
+ * the boundary do not flip between modes on every follow. On leaving it, their recent
+ * diaries are merged into their followers' built timelines, since none were fanned out
+ * while they were pulled.
+ */
+@Service
+@RequiredArgsConstructor
+public class TimelineServiceImpl implements TimelineService {
+
+    private static final String KEY_PREFIX = "timeline:";
+    private static final String PULL_SUFFIX = ":pull";
+    private static final String PULL_AUTHORS_KEY = "feed:pull-authors";
+    private static final Duration PULL_LIST_TTL = Duration.ofMinutes(5);
+    private static final String SENTINEL = "0";
+    private static final int FAN_OUT_BATCH_SIZE = 500;
+
+    /**
+     * Adds the diary ids ARGV[2..], each scored by itself, to every listed timeline that
+     * already exists and trims each one to ARGV[1] entries plus the sentinel. Timelines that
+     * are not built are skipped; they pick up the diaries when they are rebuilt.
+     */
+    private static final RedisScript<Long> FAN_OUT_SCRIPT = new DefaultRedisScript<>(
+            "local added = 0\n" +
+            "for _, key in ipairs(KEYS) do\n" +
+            "  if redis.call('EXISTS', key) == 1 then\n" +
+            "    for i = 2, #ARGV do\n" +
+            "      redis.call('ZADD', key, ARGV[i], ARGV[i])\n" +
+            "    end\n" +
+            "    redis.call('ZREMRANGEBYRANK', key, 1, -(tonumber(ARGV[1]) + 1))\n" +
+            "    added = added + 1\n" +
+            "  end\n" +
+            "end\n" +
+            "return added", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final DiaryRepository diaryRepository;
+    private final UserRepository userRepository;
+
+    @Value("${tj.feed.timeline.max-size:800}")
+    private int maxSize;
+
+    @Value("${tj.feed.timeline.ttl:7d}")
+    private Duration ttl;
+
+    @Value("${tj.feed.pull.threshold:10000}")
+    private long pullThreshold;
+
+    @Value("${tj.feed.pull.max-authors:50}")
+    private int maxPulledAuthors;
+
+    /** How an author's diaries reach their followers' timelines. */
+    private enum Delivery {
+        FAN_OUT,
+        PULL,
+        /** Fan-out again after being pulled; followers' timelines need a backfill. */
+        RETURNED_TO_FAN_OUT
+    }
+
+    @Override
+    public void fanOut(Diary diary) {
+        Long authorId = diary.getUser().getId();
+        Delivery delivery = classifyAuthor(authorId);
+        List<Long> recipients = new ArrayList<>();
+        if (delivery != Delivery.PULL) {
+            recipients.addAll(userRepository.findFollowerIds(authorId));
+        }
+        recipients.add(authorId);
+        afterCommit(() -> {
+            addToTimelines(recipients, List.of(diary.getId()));
+            if (delivery == Delivery.RETURNED_TO_FAN_OUT) {
+                backfillFollowers(authorId);
+            }
+        });
+    }
+
+    /**
+     * Adds diaries to the built timelines of the given users, in batches.
+     */
+    private void addToTimelines(List<Long> userIds, List<Long> diaryIds) {
+        if (diaryIds.isEmpty()) {
+            return;
+        }
+        String[] args = new String[diaryIds.size() + 1];
+        args[0] = String.valueOf(maxSize);
+        for (int i = 0; i < diaryIds.size(); i++) {
+            args[i + 1] = diaryIds.get(i).toString();
+        }
+        for (int from = 0; from < userIds.size(); from += FAN_OUT_BATCH_SIZE) {
+            List<String> keys = userIds.subList(from, Math.min(from + FAN_OUT_BATCH_SIZE, userIds.size()))
+                    .stream()
+                    .map(TimelineServiceImpl::key)
+                    .toList();
+            redisTemplate.execute(FAN_OUT_SCRIPT, keys, (Object[]) args);
+        }
+    }
+
+    @Override
+    public List<Long> getTimelineIds(Long userId, Long lastId, int count) {
+        String key = key(userId);
+        double max = lastId != null ? lastId - 1 : Double.POSITIVE_INFINITY;
+        Set<String> members = redisTemplate.opsForZSet().reverseRangeByScore(key, 1, max, 0, count);
+
+        if ((members == null || members.isEmpty()) && !Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            rebuildTimeline(userId);
+            members = redisTemplate.opsForZSet().reverseRangeByScore(key, 1, max, 0, count);
+        }
+        redisTemplate.expire(key, ttl);
+
+        if (members == null) {
+            return List.of();
+        }
+        return members.stream().map(Long::valueOf).toList();
+    }
+
+    @Override
+    public List<Long> getPulledAuthorIds(Long userId) {
+        String pullKey = key(userId) + PULL_SUFFIX;
+        String cached = redisTemplate.opsForValue().get(pullKey);
+        if (cached != null) {
+            return cached.isEmpty() ? List.of() : Arrays.stream(cached.split(",")).map(Long::valueOf).toList();
+        }
+
+        List<Long> following = userRepository.findFollowingIds(userId);
+        List<Long> pulled = List.of();
+        if (!following.isEmpty()) {
+            Map<Object, Boolean> membership = redisTemplate.opsForSet()
+                    .isMember(PULL_AUTHORS_KEY, following.stream().map(String::valueOf).toArray());
+            pulled = following.stream()
+                    .filter(id -> Boolean.TRUE.equals(membership.get(String.valueOf(id))))
+                    .limit(maxPulledAuthors)
+                    .toList();
+        }
+        redisTemplate.opsForValue().set(pullKey,
+                pulled.stream().map(String::valueOf).collect(Collectors.joining(",")), PULL_LIST_TTL);
+        return pulled;
+    }
+
+    @Override
+    public void onFollow(Long followerId, Long followedId) {
+        afterCommit(() -> {
+            redisTemplate.delete(key(followerId) + PULL_SUFFIX);
+            String key = key(followerId);
+            Delivery delivery = classifyAuthor(followedId);
+            if (delivery == Delivery.RETURNED_TO_FAN_OUT) {
+                backfillFollowers(followedId);
+                return;
+            }
+            if (delivery == Delivery.PULL || !Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                return;
+            }
+            List<Long> ids = diaryRepository.findPublicIdsByUserIds(List.of(followedId), Limit.of(maxSize));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] rawKey = key.getBytes();
+                for (Long id : ids) {
+                    connection.zSetCommands().zAdd(rawKey, id, id.toString().getBytes());
+                }
+                connection.zSetCommands().zRemRange(rawKey, 1, -(maxSize + 1));
+                return null;
+            });
+        });
+    }
+
+    @Override
+    public void onUnfollow(Long followerId, Long followedId) {
+        afterCommit(() -> {
+            redisTemplate.delete(List.of(key(followerId), key(followerId) + PULL_SUFFIX));
+            if (classifyAuthor(followedId) == Delivery.RETURNED_TO_FAN_OUT) {
+                backfillFollowers(followedId);
+            }
+        });
+    }
+
+    @Override
+    public void rebuildTimeline(Long userId) {
+        Set<Long> authors = new LinkedHashSet<>(userRepository.findFollowingIds(userId));
+        authors.add(userId);
+        List<Long> ids = diaryRepository.findPublicIdsByUserIds(authors, Limit.of(maxSize));
+
+        String key = key(userId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writeTimeline(connection, key.getBytes(), ids);
+            return null;
+        });
+    }
+
+    private void writeTimeline(RedisConnection connection, byte[] rawKey, List<Long> ids) {
+        connection.multi();
+        connection.keyCommands().del(rawKey);
+        connection.zSetCommands().zAdd(rawKey, 0, SENTINEL.getBytes());
+        for (Long id : ids) {
+            connection.zSetCommands().zAdd(rawKey, id, id.toString().getBytes());
+        }
+        connection.keyCommands().expire(rawKey, ttl.toSeconds());
+        connection.exec();
+    }
+
+    /**
+     * Re-evaluates whether an author is served by pull instead of fan-out and records
+     * the result in the shared set. When the author leaves the set, the caller runs
+     * {@link #backfillFollowers} once its transaction has committed; callers already running
+     * after commit call it directly, as a synchronization registered then never runs.
+     */
+    private Delivery classifyAuthor(Long authorId) {
+        long followers = userRepository.countByFollowingId(authorId);
+        String member = authorId.toString();
+        if (followers >= pullThreshold) {
+            redisTemplate.opsForSet().add(PULL_AUTHORS_KEY, member);
+            return Delivery.PULL;
+        }
+        if (followers < pullThreshold * 9 / 10) {
+            Long removed = redisTemplate.opsForSet().remove(PULL_AUTHORS_KEY, member);
+            return removed != null && removed > 0 ? Delivery.RETURNED_TO_FAN_OUT : Delivery.FAN_OUT;
+        }
+        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(PULL_AUTHORS_KEY, member))
+                ? Delivery.PULL
+                : Delivery.FAN_OUT;
+    }
+
+    /**
+     * Merges the recent diaries of an author who has just moved back to fan-out into the
+     * built timelines of their followers, which missed every diary posted while the author
+     * was pulled, and drops the followers' cached pull lists.
+     */
+    private void backfillFollowers(Long authorId) {
+        List<Long> followers = userRepository.findFollowerIds(authorId);
+        addToTimelines(followers, diaryRepository.findPublicIdsByUserIds(List.of(authorId), Limit.of(maxSize)));
+        for (int from = 0; from < followers.size(); from += FAN_OUT_BATCH_SIZE) {
+            redisTemplate.delete(followers.subList(from, Math.min(from + FAN_OUT_BATCH_SIZE, followers.size()))
+                    .stream()
+                    .map(id -> key(id) + PULL_SUFFIX)
+                    .toList());
+        }
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    /**
+     * Runs the action once the surrounding transaction commits, so timelines never
+     * point at rows other nodes cannot see yet. Runs immediately outside a transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
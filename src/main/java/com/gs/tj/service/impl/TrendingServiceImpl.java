@@ -0,0 +1,328 @@
+package com.gs.tj.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.projection.PlaceScope;
+import com.gs.tj.service.TrendingService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of TrendingService backed by Redis sorted sets.
+ * <p>
+ * A score is kept in log space relative to a fixed epoch: an event of weight {@code w} at
+ * time {@code t} adds {@code ln(w) + λ(t - epoch)}, combined with the stored score by
+ * log-sum-exp, where {@code λ = ln 2 / half-life}. Subtracting {@code λ(now - epoch)} gives
+ * the decayed score at any moment, and since that shift is the same for every member, the
+ * stored order already is the decayed order. Decay therefore never has to be written: each
+ * event is one update of the entity's global, country and category sets, and nothing is
+ * ever recomputed in bulk.
+ * <p>
+ * Each set is trimmed to {@code tj.trending.capacity} members, dropping the lowest
+ * decayed scores, and entities whose score has decayed for {@code tj.trending.retention}
+ * are pruned on a schedule. The country and category of each ranked entity, taken from its
+ * location or a route's start, are kept in a Redis hash with an entry per member of the
+ * global set; committed writes refresh them, moving the entity's score when they change
+ * and dropping it when the entity is deleted or hidden.
+ * Diaries and routes keep the country and category their location had when they were
+ * last written.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrendingServiceImpl implements TrendingService {
+
+    private static final String KEY_PREFIX = "trending:";
+    private static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+    /** Scope of entities that are not public; such entities are not ranked. */
+    private static final String HIDDEN = "-";
+    private static final String SEPARATOR = "\n";
+
+    /**
+     * Lua function dropping {@code member} from the global set KEYS[1], from the scoped sets
+     * named by its entry in the scope hash KEYS[2], and from that hash; ARGV[1] is the key
+     * prefix of the subject. Scoped keys are derived from the hash, so Redis must not be
+     * clustered.
+     */
+    private static final String DROP_FUNCTION =
+            "local function drop(member)\n" +
+            "  local scope = redis.call('HGET', KEYS[2], member)\n" +
+            "  if scope then\n" +
+            "    local separator = string.find(scope, '\\n', 1, true)\n" +
+            "    if separator then\n" +
+            "      local country = string.sub(scope, 1, separator - 1)\n" +
+            "      local category = string.sub(scope, separator + 1)\n" +
+            "      if country ~= '' then redis.call('ZREM', ARGV[1] .. 'country:' .. country, member) end\n" +
+            "      if category ~= '' then redis.call('ZREM', ARGV[1] .. 'category:' .. category, member) end\n" +
+            "    end\n" +
+            "    redis.call('HDEL', KEYS[2], member)\n" +
+            "  end\n" +
+            "  redis.call('ZREM', KEYS[1], member)\n" +
+            "end\n";
+
+    /**
+     * Adds ARGV[3] to the log-space score of ARGV[2] in the global set KEYS[1], writes the
+     * result to every scoped set KEYS[3..], stores the member's scope ARGV[5] in the scope
+     * hash KEYS[2] and trims each set to ARGV[4] members; members trimmed from the global set
+     * are dropped everywhere.
+     */
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            DROP_FUNCTION +
+            "local increment = tonumber(ARGV[3])\n" +
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[2])\n" +
+            "if score then\n" +
+            "  score = tonumber(score)\n" +
+            "  local high = math.max(score, increment)\n" +
+            "  score = high + math.log(1 + math.exp(math.min(score, increment) - high))\n" +
+            "else\n" +
+            "  score = increment\n" +
+            "end\n" +
+            "redis.call('HSET', KEYS[2], ARGV[2], ARGV[5])\n" +
+            "local capacity = tonumber(ARGV[4])\n" +
+            "for i = 1, #KEYS do\n" +
+            "  if i ~= 2 then\n" +
+            "    redis.call('ZADD', KEYS[i], string.format('%.17g', score), ARGV[2])\n" +
+            "    local excess = redis.call('ZCARD', KEYS[i]) - capacity\n" +
+            "    if excess > 0 then\n" +
+            "      if i == 1 then\n" +
+            "        for _, member in ipairs(redis.call('ZRANGE', KEYS[1], 0, excess - 1)) do\n" +
+            "          drop(member)\n" +
+            "        end\n" +
+            "      else\n" +
+            "        redis.call('ZREMRANGEBYRANK', KEYS[i], 0, excess - 1)\n" +
+            "      end\n" +
+            "    end\n" +
+            "  end\n" +
+            "end\n" +
+            "return 1", Long.class);
+
+    /**
+     * Drops every member of the global set KEYS[1] scoring at most ARGV[2], as
+     * {@link #DROP_FUNCTION} does, and returns their number.
+     */
+    private static final RedisScript<Long> PRUNE_SCRIPT = new DefaultRedisScript<>(
+            DROP_FUNCTION +
+            "local members = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[2])\n" +
+            "for _, member in ipairs(members) do\n" +
+            "  drop(member)\n" +
+            "end\n" +
+            "return #members", Long.class);
+
+    /**
+     * Removes ARGV[1] from the ARGV[2] old scoped sets following the global set KEYS[1], then
+     * either drops it from the global set (ARGV[3] = 0) or copies its global score to the
+     * remaining new scoped sets.
+     */
+    private static final RedisScript<Long> MOVE_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[1])\n" +
+            "local old = tonumber(ARGV[2])\n" +
+            "for i = 2, old + 1 do\n" +
+            "  redis.call('ZREM', KEYS[i], ARGV[1])\n" +
+            "end\n" +
+            "if ARGV[3] == '0' then\n" +
+            "  redis.call('ZREM', KEYS[1], ARGV[1])\n" +
+            "elseif score then\n" +
+            "  for i = old + 2, #KEYS do\n" +
+            "    redis.call('ZADD', KEYS[i], score, ARGV[1])\n" +
+            "  end\n" +
+            "end\n" +
+            "return 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final DiaryRepository diaryRepository;
+    private final LocationRepository locationRepository;
+    private final RouteRepository routeRepository;
+
+    @Value("${tj.trending.half-life:P1D}")
+    private Duration halfLife;
+
+    @Value("${tj.trending.capacity:10000}")
+    private int capacity;
+
+    @Value("${tj.trending.retention:P30D}")
+    private Duration retention;
+
+    @Override
+    public void record(Subject subject, Long id, Signal signal) {
+        try {
+            String scope = (String) redisTemplate.opsForHash().get(scopesKey(subject), id.toString());
+            if (scope == null) {
+                scope = readScope(subject, id);
+            }
+            if (HIDDEN.equals(scope)) {
+                return;
+            }
+            List<String> keys = new ArrayList<>();
+            keys.add(globalKey(subject));
+            keys.add(scopesKey(subject));
+            keys.addAll(scopedKeys(subject, scope));
+            redisTemplate.execute(RECORD_SCRIPT, keys, prefix(subject), id.toString(),
+                    Double.toString(increment(signal, Instant.now())), String.valueOf(capacity), scope);
+        } catch (RuntimeException ex) {
+            log.warn("Could not record {} of {} {}", signal, subject, id, ex);
+        }
+    }
+
+    @Override
+    public List<Long> trending(Subject subject, Scope scope, int offset, int count) {
+        if (offset < 0 || count <= 0) {
+            return new ArrayList<>();
+        }
+        String key = scope.country() != null ? scopedKey(subject, "country", scope.country())
+                : scope.category() != null ? scopedKey(subject, "category", scope.category())
+                : globalKey(subject);
+        Set<String> members = redisTemplate.opsForZSet().reverseRange(key, offset, offset + count - 1L);
+        List<Long> ids = new ArrayList<>();
+        if (members != null) {
+            members.forEach(member -> ids.add(Long.valueOf(member)));
+        }
+        return ids;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        // The rankings are shared in Redis, so the node that made the change applies it.
+        if (event.remote()) {
+            return;
+        }
+        Subject subject = switch (event.type()) {
+            case DIARY -> Subject.DIARY;
+            case LOCATION -> Subject.LOCATION;
+            case ROUTE -> Subject.ROUTE;
+            default -> null;
+        };
+        if (subject == null) {
+            return;
+        }
+        try {
+            String field = event.id().toString();
+            String previous = (String) redisTemplate.opsForHash().get(scopesKey(subject), field);
+            if (previous == null) {
+                // Not ranked; its next signal reads the scope afresh.
+                return;
+            }
+            String current = event.deleted() ? HIDDEN : readScope(subject, event.id());
+            if (previous.equals(current)) {
+                return;
+            }
+            move(subject, field, previous, current);
+            if (HIDDEN.equals(current)) {
+                redisTemplate.opsForHash().delete(scopesKey(subject), field);
+            } else {
+                redisTemplate.opsForHash().put(scopesKey(subject), field, current);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not update trending scope of {} {}", subject, event.id(), ex);
+        }
+    }
+
+    /**
+     * Drops the entities whose decayed score has fallen below that of a single view
+     * {@code tj.trending.retention} ago, along with their scope hash entries.
+     */
+    @Scheduled(fixedDelayString = "${tj.trending.prune-interval:PT1H}", initialDelayString = "${tj.trending.prune-interval:PT1H}")
+    public void prune() {
+        String cutoff = Double.toString(increment(Signal.VIEW, Instant.now().minus(retention)));
+        for (Subject subject : Subject.values()) {
+            try {
+                Long pruned = redisTemplate.execute(PRUNE_SCRIPT, List.of(globalKey(subject), scopesKey(subject)),
+                        prefix(subject), cutoff);
+                log.debug("Pruned {} stale trending {} entries", pruned, subject);
+            } catch (RuntimeException ex) {
+                log.warn("Could not prune trending {} entries", subject, ex);
+            }
+        }
+    }
+
+    /**
+     * Moves an entity's score from the sets of its previous scope to those of its current
+     * one, or drops it entirely if it is no longer public.
+     */
+    private void move(Subject subject, String field, String previous, String current) {
+        List<String> oldKeys = HIDDEN.equals(previous) ? List.of() : scopedKeys(subject, previous);
+        List<String> keys = new ArrayList<>();
+        keys.add(globalKey(subject));
+        keys.addAll(oldKeys);
+        if (!HIDDEN.equals(current)) {
+            keys.addAll(scopedKeys(subject, current));
+        }
+        redisTemplate.execute(MOVE_SCRIPT, keys, field, String.valueOf(oldKeys.size()),
+                HIDDEN.equals(current) ? "0" : "1");
+    }
+
+    /**
+     * Log-space increment of one signal at the given time: its log weight plus the decay
+     * accrued since the epoch.
+     */
+    private double increment(Signal signal, Instant at) {
+        double elapsedSeconds = Duration.between(EPOCH, at).toMillis() / 1000.0;
+        return Math.log(signal.weight()) + Math.log(2) * elapsedSeconds / halfLife.toSeconds();
+    }
+
+    /**
+     * Reads an entity's country and category from the database.
+     *
+     * @return The encoded scope, or {@link #HIDDEN} if the entity is missing or not public
+     */
+    private String readScope(Subject subject, Long id) {
+        Optional<PlaceScope> place = switch (subject) {
+            case DIARY -> diaryRepository.findPublicScope(id);
+            case LOCATION -> locationRepository.findPublicScope(id);
+            case ROUTE -> routeRepository.findPublicScope(id);
+        };
+        return place
+                .map(found -> normalize(found.getCountry()) + SEPARATOR + normalize(found.getCategory()))
+                .orElse(HIDDEN);
+    }
+
+    private List<String> scopedKeys(Subject subject, String scope) {
+        String[] parts = scope.split(SEPARATOR, -1);
+        List<String> keys = new ArrayList<>(2);
+        if (!parts[0].isEmpty()) {
+            keys.add(scopedKey(subject, "country", parts[0]));
+        }
+        if (parts.length > 1 && !parts[1].isEmpty()) {
+            keys.add(scopedKey(subject, "category", parts[1]));
+        }
+        return keys;
+    }
+
+    private static String globalKey(Subject subject) {
+        return prefix(subject) + "global";
+    }
+
+    private static String scopedKey(Subject subject, String kind, String value) {
+        return prefix(subject) + kind + ":" + normalize(value);
+    }
+
+    private static String scopesKey(Subject subject) {
+        return prefix(subject) + "scopes";
+    }
+
+    private static String prefix(Subject subject) {
+        return KEY_PREFIX + subject.name().toLowerCase(Locale.ROOT) + ":";
+    }
+
+    private static String normalize(String value) {
+        return value != null ? value.trim().toLowerCase(Locale.ROOT) : "";
+    }
+}
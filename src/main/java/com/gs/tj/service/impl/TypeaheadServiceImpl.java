@@ -0,0 +1,136 @@
+package com.gs.tj.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.gs.tj.dto.Completion;
+import com.gs.tj.dto.Completion.CompletionType;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.UserRepository;
+import com.gs.tj.repository.projection.FollowerCount;
+import com.gs.tj.repository.projection.LocationLabel;
+import com.gs.tj.repository.projection.UserHandle;
+import com.gs.tj.search.TypeaheadIndex;
+import com.gs.tj.service.TypeaheadService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of TypeaheadService backed by an in-memory {@link TypeaheadIndex}.
+ * The index is built in keyset batches at startup and on a fixed schedule, and patched
+ * after each committed location or user write, local or relayed from another node.
+ * Until it is loaded, completions are empty rather than falling back to a table scan.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TypeaheadServiceImpl implements TypeaheadService {
+
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    private final LocationRepository locationRepository;
+    private final UserRepository userRepository;
+
+    @Value("${tj.typeahead.max-results:10}")
+    private int maxResults;
+
+    private final ReloadableIndex<TypeaheadIndex> index = new ReloadableIndex<>();
+
+    @Override
+    public List<Completion> complete(String prefix, Set<CompletionType> types, int limit) {
+        TypeaheadIndex current = index.get();
+        if (current == null) {
+            return List.of();
+        }
+        int count = Math.max(1, Math.min(limit, maxResults));
+        List<Completion> completions = new ArrayList<>();
+        for (CompletionType type : types) {
+            completions.addAll(current.complete(type, prefix, count));
+        }
+        return completions;
+    }
+
+    @Override
+    public void reload() {
+        TypeaheadIndex loaded = index.reload(() -> new TypeaheadIndex(maxResults), fresh -> {
+            long afterId = 0;
+            List<LocationLabel> locations;
+            do {
+                locations = locationRepository.findLabelsAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+                locations.forEach(label -> putLocation(fresh, label));
+                if (!locations.isEmpty()) {
+                    afterId = locations.get(locations.size() - 1).getId();
+                }
+            } while (locations.size() == LOAD_BATCH_SIZE);
+
+            Map<Long, Long> followers = new HashMap<>();
+            for (FollowerCount count : userRepository.countFollowers()) {
+                followers.put(count.getUserId(), count.getFollowers());
+            }
+            afterId = 0;
+            List<UserHandle> users;
+            do {
+                users = userRepository.findHandlesAfter(afterId, Limit.of(LOAD_BATCH_SIZE));
+                users.forEach(user -> fresh.putUser(user.getId(), user.getUsername(), user.getFullName(),
+                        followers.getOrDefault(user.getId(), 0L)));
+                if (!users.isEmpty()) {
+                    afterId = users.get(users.size() - 1).getId();
+                }
+            } while (users.size() == LOAD_BATCH_SIZE);
+        });
+        log.info("Typeahead index loaded with {} entries", loaded.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${tj.typeahead.reload-interval:PT6H}", initialDelayString = "${tj.typeahead.reload-interval:PT6H}")
+    public void refreshIndex() {
+        try {
+            reload();
+        } catch (RuntimeException ex) {
+            log.warn("Typeahead index could not be loaded; completions are empty until it is", ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.type() == EntityType.LOCATION || event.type() == EntityType.LOCATION_STATS) {
+            if (event.deleted()) {
+                index.apply(target -> target.removeLocation(event.id()));
+                return;
+            }
+            locationRepository.findLabelById(event.id()).ifPresentOrElse(
+                    label -> index.apply(target -> putLocation(target, label)),
+                    () -> index.apply(target -> target.removeLocation(event.id())));
+        } else if (event.type() == EntityType.USER) {
+            if (event.deleted()) {
+                index.apply(target -> target.removeUser(event.id()));
+                return;
+            }
+            userRepository.findHandleById(event.id()).ifPresentOrElse(
+                    user -> {
+                        long followers = userRepository.countByFollowingId(user.getId());
+                        index.apply(target -> target.putUser(user.getId(), user.getUsername(), user.getFullName(), followers));
+                    },
+                    () -> index.apply(target -> target.removeUser(event.id())));
+        }
+    }
+
+    private static void putLocation(TypeaheadIndex target, LocationLabel label) {
+        target.putLocation(label.getId(), label.getName(), label.getCity(), label.getCountry(),
+                label.getVisitCount() != null ? label.getVisitCount() : 0);
+    }
+}
@@ -3,17 +3,22 @@ package com.gs.tj.service.impl;
 import java.util.List;
 import java.util.Optional;
 
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.gs.tj.dto.UserSummary;
 import com.gs.tj.entity.User;
+import com.gs.tj.event.EntityChangedEvent;
+import com.gs.tj.event.EntityChangedEvent.EntityType;
 import com.gs.tj.exception.ResourceNotFoundException;
 import com.gs.tj.repository.UserRepository;
+import com.gs.tj.service.CacheInvalidationService;
+import com.gs.tj.service.TimelineService;
 import com.gs.tj.service.UserService;
 
 import lombok.RequiredArgsConstructor;
@@ -21,18 +26,26 @@ import lombok.RequiredArgsConstructor;
 /**
  * Implementation of UserService interface.
  * Provides user management functionality with caching support.
+ * User writes and follows publish {@link EntityChangedEvent}s that keep typeahead in sync, and
+ * evict only the cached entries they affect through {@link CacheInvalidationService}.
+ * Users are returned and cached as {@link UserSummary}s, read with constructor expressions,
+ * so passwords and email addresses never leave the service or reach the cache.
  */
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    private static final String CACHE = "users";
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TimelineService timelineService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", allEntries = true)
-    public User registerUser(User user) {
+    public UserSummary registerUser(User user) {
         if (existsByUsername(user.getUsername())) {
             throw new IllegalArgumentException("Username already exists");
         }
@@ -40,37 +53,40 @@ public class UserServiceImpl implements UserService {
             throw new IllegalArgumentException("Email already exists");
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        cacheInvalidationService.invalidate(CACHE, saved.getId(),
+                List.of("all", "username:" + saved.getUsername(), "email:" + saved.getEmail()), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.USER, saved.getId()));
+        return UserSummary.from(saved);
     }
 
     @Override
     @Cacheable(value = "users", key = "#id")
-    public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+    public Optional<UserSummary> getUserById(Long id) {
+        return userRepository.findSummaryById(id);
     }
 
     @Override
     @Cacheable(value = "users", key = "'username:' + #username")
-    public Optional<User> getUserByUsername(String username) {
-        return userRepository.findByUsername(username);
+    public Optional<UserSummary> getUserByUsername(String username) {
+        return userRepository.findSummaryByUsername(username);
     }
 
     @Override
     @Cacheable(value = "users", key = "'email:' + #email")
-    public Optional<User> getUserByEmail(String email) {
-        return userRepository.findByEmail(email);
+    public Optional<UserSummary> getUserByEmail(String email) {
+        return userRepository.findSummaryByEmail(email);
     }
 
     @Override
-    @Cacheable(value = "users", key = "'all'")
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Cacheable(value = "users", key = "'all'", sync = true)
+    public List<UserSummary> getAllUsers() {
+        return userRepository.findAllSummaries();
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#id")
-    public User updateUser(Long id, User userDetails) {
+    public UserSummary updateUser(Long id, User userDetails) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
@@ -87,17 +103,21 @@ public class UserServiceImpl implements UserService {
             user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.USER, id));
+        return UserSummary.from(saved);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#id")
     public void deleteUser(Long id) {
         if (!userRepository.existsById(id)) {
             throw new ResourceNotFoundException("User not found with id: " + id);
         }
         userRepository.deleteById(id);
+        cacheInvalidationService.invalidate(CACHE, id, List.of("followers:" + id, "following:" + id), List.of());
+        eventPublisher.publishEvent(EntityChangedEvent.deleted(EntityType.USER, id));
     }
 
     @Override
@@ -118,8 +138,7 @@ public class UserServiceImpl implements UserService {
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#id")
-    public User changePassword(Long id, String oldPassword, String newPassword) {
+    public UserSummary changePassword(Long id, String oldPassword, String newPassword) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
@@ -128,7 +147,9 @@ public class UserServiceImpl implements UserService {
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        return UserSummary.from(saved);
     }
 
     @Override
@@ -144,57 +165,69 @@ public class UserServiceImpl implements UserService {
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#id")
-    public User updateProfileImage(Long id, String imageUrl) {
+    public UserSummary updateProfileImage(Long id, String imageUrl) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         user.setProfileImageUrl(imageUrl);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        cacheInvalidationService.invalidate(CACHE, id, List.of(), List.of());
+        return UserSummary.from(saved);
     }
 
     @Override
-    @Cacheable(value = "users", key = "'search:' + #query")
-    public List<User> searchUsers(String query) {
-        return userRepository.findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCase(query, query);
+    public List<UserSummary> searchUsers(String query) {
+        return userRepository.searchSummaries(query);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#followerId")
-    public User followUser(Long followerId, Long followedId) {
+    public UserSummary followUser(Long followerId, Long followedId) {
         User follower = userRepository.findById(followerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Follower not found with id: " + followerId));
         User followed = userRepository.findById(followedId)
                 .orElseThrow(() -> new ResourceNotFoundException("Followed user not found with id: " + followedId));
 
         follower.getFollowing().add(followed);
-        return userRepository.save(follower);
+        User saved = userRepository.save(follower);
+        timelineService.onFollow(followerId, followedId);
+        invalidateFollow(followerId, followedId);
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.USER, followedId));
+        return UserSummary.from(saved);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#followerId")
-    public User unfollowUser(Long followerId, Long followedId) {
+    public UserSummary unfollowUser(Long followerId, Long followedId) {
         User follower = userRepository.findById(followerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Follower not found with id: " + followerId));
         User followed = userRepository.findById(followedId)
                 .orElseThrow(() -> new ResourceNotFoundException("Followed user not found with id: " + followedId));
 
         follower.getFollowing().remove(followed);
-        return userRepository.save(follower);
+        User saved = userRepository.save(follower);
+        timelineService.onUnfollow(followerId, followedId);
+        invalidateFollow(followerId, followedId);
+        eventPublisher.publishEvent(EntityChangedEvent.updated(EntityType.USER, followedId));
+        return UserSummary.from(saved);
     }
 
     @Override
     @Cacheable(value = "users", key = "'followers:' + #userId")
-    public List<User> getFollowers(Long userId) {
-        return userRepository.findByFollowingId(userId);
+    public List<UserSummary> getFollowers(Long userId) {
+        return userRepository.findFollowerSummaries(userId);
     }
 
     @Override
     @Cacheable(value = "users", key = "'following:' + #userId")
-    public List<User> getFollowing(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-        return user.getFollowing().stream().toList();
+    public List<UserSummary> getFollowing(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found with id: " + userId);
+        }
+        return userRepository.findFollowingSummaries(userId);
+    }
+
+    private void invalidateFollow(Long followerId, Long followedId) {
+        cacheInvalidationService.invalidate(CACHE, followerId,
+                List.of("following:" + followerId, "followers:" + followedId), List.of());
     }
-} 
\ No newline at end of file
+}
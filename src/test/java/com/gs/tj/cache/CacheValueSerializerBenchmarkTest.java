@@ -0,0 +1,145 @@
+package com.gs.tj.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gs.tj.dto.DiaryView;
+import com.gs.tj.dto.LocationView;
+import com.gs.tj.dto.UserSummary;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares bytes per entry and encode/decode time of the cache value formats on the values
+ * the caches actually hold: lists of location and diary views and user summaries. The JSON
+ * baseline is the previous serializer, with the Java time module it needs for the audit
+ * timestamps. The benchmark is tagged and only runs with
+ * {@code -Dtest.excludedGroups= -Dgroups=benchmark}; the compatibility test always runs.
+ */
+@Slf4j
+class CacheValueSerializerBenchmarkTest {
+
+	private static final int WARMUP_ROUNDS = 200;
+	private static final int MEASURED_ROUNDS = 500;
+
+	@Test
+	@Tag("benchmark")
+	void binaryFormatIsSmallerThanJsonAndRoundTrips() {
+		List<LocationView> locations = locations(50);
+		List<DiaryView> diaries = diaries(locations, 50);
+		List<UserSummary> users = users(50);
+
+		RedisSerializer<Object> json = GenericJackson2JsonRedisSerializer.builder()
+				.objectMapper(new ObjectMapper().registerModule(new JavaTimeModule()))
+				.defaultTyping(true)
+				.build();
+		RedisSerializer<Object> smile = new CacheValueSerializer(CacheValueSerializer.Format.SMILE, 0);
+		RedisSerializer<Object> smileLz4 = new CacheValueSerializer(CacheValueSerializer.Format.SMILE, 1024);
+
+		for (Object value : List.of(locations, diaries, users, locations.get(0), users.get(0))) {
+			Result baseline = measure("json", json, value);
+			Result binary = measure("smile", smile, value);
+			Result compressed = measure("smile+lz4", smileLz4, value);
+
+			assertThat(binary.bytes).as(describe(value)).isLessThan(baseline.bytes);
+			assertThat(compressed.bytes).as(describe(value)).isLessThanOrEqualTo(binary.bytes);
+		}
+
+		assertThat(smileLz4.deserialize(smileLz4.serialize(locations))).isEqualTo(locations);
+		assertThat(smileLz4.deserialize(smileLz4.serialize(diaries))).isEqualTo(diaries);
+		assertThat(smileLz4.deserialize(smileLz4.serialize(users))).isEqualTo(users);
+	}
+
+	@Test
+	void readsJsonWrittenBeforeTheSwitchAndIgnoresUnknownVersions() {
+		List<LocationView> locations = locations(3);
+		RedisSerializer<Object> json = new CacheValueSerializer(CacheValueSerializer.Format.JSON, 0);
+		RedisSerializer<Object> smile = new CacheValueSerializer(CacheValueSerializer.Format.SMILE, 1024);
+
+		assertThat(smile.deserialize(json.serialize(locations))).isEqualTo(locations);
+		assertThat(json.deserialize(smile.serialize(locations))).isEqualTo(locations);
+		assertThat(smile.deserialize(new byte[] { 0x7f, 0, 1, 2 })).isNull();
+	}
+
+	private record Result(int bytes) {
+	}
+
+	private static Result measure(String name, RedisSerializer<Object> serializer, Object value) {
+		byte[] bytes = serializer.serialize(value);
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			serializer.deserialize(serializer.serialize(value));
+		}
+		long encode = 0;
+		long decode = 0;
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			long start = System.nanoTime();
+			bytes = serializer.serialize(value);
+			long middle = System.nanoTime();
+			serializer.deserialize(bytes);
+			long end = System.nanoTime();
+			encode += middle - start;
+			decode += end - middle;
+		}
+		log.info("{} {}: {} bytes, encode {} ns, decode {} ns", describe(value), name, bytes.length,
+				encode / MEASURED_ROUNDS, decode / MEASURED_ROUNDS);
+		return new Result(bytes.length);
+	}
+
+	private static String describe(Object value) {
+		if (value instanceof List<?> list) {
+			return list.size() + " x " + list.get(0).getClass().getSimpleName();
+		}
+		return value.getClass().getSimpleName();
+	}
+
+	private static List<LocationView> locations(int count) {
+		List<LocationView> locations = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			locations.add(new LocationView((long) i + 1, "Old Town Square " + i,
+					"A historic square with a gothic town hall, an astronomical clock and many cafes. " + i,
+					"Czech Republic", "Prague", "landmark", 50.087 + i * 0.001, 14.421 + i * 0.001,
+					Set.of("history", "architecture", "old-town"),
+					Set.of("https://images.example.com/locations/" + i + "/1.jpg",
+							"https://images.example.com/locations/" + i + "/2.jpg"),
+					1000 + i, 4.5, 200 + i, true,
+					LocalDateTime.of(2024, 5, 1, 12, 0).plusHours(i), LocalDateTime.of(2024, 6, 1, 12, 0).plusHours(i)));
+		}
+		return locations;
+	}
+
+	private static List<DiaryView> diaries(List<LocationView> locations, int count) {
+		List<DiaryView> diaries = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			LocationView location = locations.get(i % locations.size());
+			diaries.add(new DiaryView((long) i + 1, "A day in Prague, part " + i,
+					"We walked across the Charles Bridge early in the morning before the crowds arrived, "
+							+ "then climbed up to the castle and spent the afternoon in the gardens. ".repeat(3),
+					(long) i % 5 + 1, "traveller" + i % 5, location.id(), location.name(),
+					LocalDateTime.of(2024, 6, 15, 10, 0).plusDays(i), Set.of("prague", "walking"),
+					Set.of("https://images.example.com/diaries/" + i + "/1.jpg"), 10 + i, true,
+					LocalDateTime.of(2024, 7, 1, 9, 0).plusHours(i), LocalDateTime.of(2024, 7, 2, 9, 0).plusHours(i)));
+		}
+		return diaries;
+	}
+
+	private static List<UserSummary> users(int count) {
+		List<UserSummary> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			users.add(new UserSummary((long) i + 1, "traveller" + i, "Traveller Number " + i,
+					"Slow travel, old towns and long walks.",
+					"https://images.example.com/users/" + i + ".jpg", LocalDateTime.of(2024, 1, 1, 8, 0).plusDays(i)));
+		}
+		return users;
+	}
+}
@@ -0,0 +1,258 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.gs.tj.controller.ExportController;
+import com.gs.tj.dto.ExportJob;
+import com.gs.tj.dto.ExportJob.Status;
+import com.gs.tj.dto.ExportJob.Type;
+import com.gs.tj.exception.ExportLimitExceededException;
+import com.gs.tj.service.ExportService;
+import com.gs.tj.service.ExportService.ExportWriter;
+
+/**
+ * Runs export jobs against a stub ExportService whose writers block until released, so
+ * each test controls which jobs are still running.
+ */
+class ExportJobServiceImplTest {
+
+	private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+	private static final LocalDate MAY = LocalDate.of(2024, 5, 1);
+	private static final LocalDate JUNE = LocalDate.of(2024, 6, 1);
+
+	@TempDir
+	private Path directory;
+
+	private final ExportService exportService = mock(ExportService.class);
+	private final List<BlockingWriter> writers = new ArrayList<>();
+	private ExportJobServiceImpl service;
+
+	@BeforeEach
+	void stubExports() {
+		when(exportService.exportUserTimelineToJson(anyLong())).thenAnswer(invocation -> writer());
+		when(exportService.exportUserStatsToExcel(anyLong(), any(), any())).thenAnswer(invocation -> writer());
+		when(exportService.exportUserMemoriesToZip(anyLong(), any(), any())).thenAnswer(invocation -> writer());
+	}
+
+	@AfterEach
+	void stopService() {
+		writers.forEach(writer -> writer.release.countDown());
+		if (service != null) {
+			service.stop();
+		}
+	}
+
+	@Test
+	void identicalRequestJoinsTheRunningJob() throws Exception {
+		service = service(10, 1, 5, Duration.ofHours(1));
+		ExportJob first = service.submit(1L, Type.STATS_EXCEL, MAY, JUNE);
+		writers.get(0).awaitStarted();
+
+		ExportJob second = service.submit(1L, Type.STATS_EXCEL, MAY, JUNE);
+
+		assertThat(second.id()).isEqualTo(first.id());
+		assertThat(second.status()).isEqualTo(Status.RUNNING);
+		assertThat(writers).hasSize(1);
+	}
+
+	@Test
+	void admitsNoMoreThanMaxActiveJobsPerNode() {
+		service = service(2, 1, 5, Duration.ofHours(1));
+		service.submit(1L, Type.TIMELINE_JSON, null, null);
+		service.submit(2L, Type.TIMELINE_JSON, null, null);
+
+		assertThatThrownBy(() -> service.submit(3L, Type.TIMELINE_JSON, null, null))
+				.isInstanceOf(ExportLimitExceededException.class);
+	}
+
+	@Test
+	void admitsNoMoreThanMaxQueuedJobsPerUser() {
+		service = service(10, 1, 2, Duration.ofHours(1));
+		service.submit(1L, Type.TIMELINE_JSON, null, null);
+		service.submit(1L, Type.STATS_EXCEL, MAY, JUNE);
+
+		assertThatThrownBy(() -> service.submit(1L, Type.MEMORIES_ZIP, MAY, JUNE))
+				.isInstanceOf(ExportLimitExceededException.class);
+		assertThat(service.submit(2L, Type.MEMORIES_ZIP, MAY, JUNE).status()).isNotEqualTo(Status.FAILED);
+	}
+
+	@Test
+	void startsTheUsersNextJobWhenTheirRunningOneFinishes() throws Exception {
+		service = service(10, 1, 5, Duration.ofHours(1));
+		ExportJob first = service.submit(1L, Type.TIMELINE_JSON, null, null);
+		ExportJob waiting = service.submit(1L, Type.STATS_EXCEL, MAY, JUNE);
+		ExportJob otherUser = service.submit(2L, Type.TIMELINE_JSON, null, null);
+		writers.get(0).awaitStarted();
+		writers.get(2).awaitStarted();
+
+		assertThat(service.getJob(waiting.id()).orElseThrow().status()).isEqualTo(Status.QUEUED);
+
+		writers.get(0).release.countDown();
+		awaitStatus(first.id(), Status.COMPLETED);
+		writers.get(1).awaitStarted();
+		writers.get(1).release.countDown();
+		awaitStatus(waiting.id(), Status.COMPLETED);
+		writers.get(2).release.countDown();
+		awaitStatus(otherUser.id(), Status.COMPLETED);
+
+		assertThat(Files.readAllBytes(service.getResult(waiting.id()).orElseThrow())).isEqualTo(CONTENT);
+		assertThat(userJobs()).isEmpty();
+	}
+
+	@Test
+	void cleanUpRemovesExpiredJobsAndOrphanedFilesButNotRunningJobs() throws Exception {
+		service = service(10, 1, 5, Duration.ofMinutes(1));
+		ExportJob finished = service.submit(1L, Type.TIMELINE_JSON, null, null);
+		writers.get(0).release.countDown();
+		awaitStatus(finished.id(), Status.COMPLETED);
+		ExportJob running = service.submit(2L, Type.TIMELINE_JSON, null, null);
+		writers.get(1).awaitStarted();
+
+		Path orphan = Files.write(directory.resolve("left-by-a-restart.zip"), CONTENT);
+		Path recent = Files.write(directory.resolve("recent.zip"), CONTENT);
+		FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(1)));
+		Files.setLastModifiedTime(orphan, old);
+		Files.setLastModifiedTime(directory.resolve(running.id() + ".part"), old);
+
+		assertThat(service.cleanUp()).isEqualTo(1);
+		assertThat(orphan).doesNotExist();
+		assertThat(recent).exists();
+		assertThat(directory.resolve(running.id() + ".part")).exists();
+		assertThat(service.getJob(finished.id())).isPresent();
+
+		ReflectionTestUtils.setField(service, "ttl", Duration.ZERO);
+		Thread.sleep(10);
+
+		assertThat(service.cleanUp()).isEqualTo(2);
+		assertThat(service.getJob(finished.id())).isEmpty();
+		assertThat(service.getJob(running.id())).isPresent();
+	}
+
+	@Test
+	void submitAfterShutdownLeavesNoTrace() {
+		service = service(10, 1, 5, Duration.ofHours(1));
+		service.stop();
+
+		assertThatThrownBy(() -> service.submit(1L, Type.TIMELINE_JSON, null, null))
+				.isInstanceOf(ExportLimitExceededException.class);
+		assertThat((Map<?, ?>) ReflectionTestUtils.getField(service, "jobs")).isEmpty();
+		assertThat((Map<?, ?>) ReflectionTestUtils.getField(service, "active")).isEmpty();
+		assertThat(userJobs()).isEmpty();
+	}
+
+	@Test
+	void downloadIsRefusedUntilCompleteAndSupportsRanges() throws Exception {
+		service = service(10, 1, 5, Duration.ofHours(1));
+		MockMvc mvc = MockMvcBuilders.standaloneSetup(new ExportController(exportService, service)).build();
+		ExportJob job = service.submit(1L, Type.TIMELINE_JSON, null, null);
+		writers.get(0).awaitStarted();
+
+		mvc.perform(get("/api/export/jobs/{jobId}/download", job.id()))
+				.andExpect(status().isConflict());
+
+		writers.get(0).release.countDown();
+		awaitStatus(job.id(), Status.COMPLETED);
+
+		mvc.perform(get("/api/export/jobs/{jobId}/download", job.id()))
+				.andExpect(status().isOk())
+				.andExpect(content().bytes(CONTENT));
+		mvc.perform(get("/api/export/jobs/{jobId}/download", job.id()).header(HttpHeaders.RANGE, "bytes=4-"))
+				.andExpect(status().isPartialContent())
+				.andExpect(content().string("456789"));
+	}
+
+	private ExportJobServiceImpl service(int maxActive, int maxRunningPerUser, int maxQueuedPerUser, Duration ttl) {
+		ExportJobServiceImpl jobService = new ExportJobServiceImpl(exportService);
+		ReflectionTestUtils.setField(jobService, "directory", directory);
+		ReflectionTestUtils.setField(jobService, "workers", 4);
+		ReflectionTestUtils.setField(jobService, "maxActive", maxActive);
+		ReflectionTestUtils.setField(jobService, "maxRunningPerUser", maxRunningPerUser);
+		ReflectionTestUtils.setField(jobService, "maxQueuedPerUser", maxQueuedPerUser);
+		ReflectionTestUtils.setField(jobService, "ttl", ttl);
+		try {
+			jobService.start();
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return jobService;
+	}
+
+	private synchronized ExportWriter writer() {
+		BlockingWriter writer = new BlockingWriter();
+		writers.add(writer);
+		return writer;
+	}
+
+	private Map<?, ?> userJobs() {
+		synchronized (service) {
+			return Map.copyOf((Map<?, ?>) ReflectionTestUtils.getField(service, "userJobs"));
+		}
+	}
+
+	private void awaitStatus(String jobId, Status expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (service.getJob(jobId).orElseThrow().status() != expected) {
+			assertThat(System.nanoTime()).as("job %s reaching %s", jobId, expected).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Writes {@link #CONTENT} once released.
+	 */
+	private static final class BlockingWriter implements ExportWriter {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			started.countDown();
+			try {
+				if (!release.await(10, TimeUnit.SECONDS)) {
+					throw new IOException("Writer was never released");
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			out.write(CONTENT);
+		}
+
+		void awaitStarted() throws InterruptedException {
+			assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.Location;
+import com.gs.tj.entity.Route;
+import com.gs.tj.entity.User;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.projection.DiaryRow;
+import com.gs.tj.repository.projection.RouteRow;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Counts the SQL statements of the list queries behind the feed, user, location, popular,
+ * recommended, tag, search and route endpoints, including loading everything the response
+ * serializes. A page of
+ * {@link #PAGE_SIZE} rows must cost its main query plus one query per collection, however
+ * many authors and locations it refers to.
+ */
+@JpaSliceTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlansStatementCountTest {
+
+	private static final int PAGE_SIZE = 20;
+	/** The main query and one query for each of the two collections. */
+	private static final long STATEMENTS_PER_PAGE = 3;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private DiaryRepository diaryRepository;
+
+	@Autowired
+	private LocationRepository locationRepository;
+
+	@Autowired
+	private RouteRepository routeRepository;
+
+	private final List<User> users = new ArrayList<>();
+	private final List<Location> locations = new ArrayList<>();
+	private final List<Diary> diaries = new ArrayList<>();
+
+	@BeforeEach
+	void seed() {
+		for (int i = 0; i < 5; i++) {
+			users.add(entityManager.persist(TestUsers.user("traveller" + i)));
+		}
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			Location location = new Location();
+			location.setName("Location " + i);
+			location.setCountry("Portugal");
+			location.setCity("Lisbon");
+			location.setLatitude(38.7 + i * 0.01);
+			location.setLongitude(-9.1 + i * 0.01);
+			location.getTags().add("coast");
+			location.getTags().add("tag" + i);
+			location.getImageUrls().add("https://images.example.com/locations/" + i + ".jpg");
+			locations.add(entityManager.persist(location));
+		}
+		for (int i = 0; i < PAGE_SIZE * 5; i++) {
+			Diary diary = new Diary();
+			diary.setTitle("Diary " + i);
+			diary.setContent("Content " + i);
+			diary.setUser(users.get(i % users.size()));
+			diary.setLocation(locations.get(i % locations.size()));
+			diary.setTravelDate(LocalDateTime.of(2024, 5, 1, 9, 0).plusDays(i));
+			diary.setPublic(true);
+			diary.setLikes(i);
+			diary.getTags().add("lisbon");
+			diary.getTags().add("tag" + i);
+			diary.getImageUrls().add("https://images.example.com/diaries/" + i + ".jpg");
+			diaries.add(entityManager.persist(diary));
+		}
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			Route route = new Route();
+			route.setName("Route " + i);
+			route.setUser(users.get(0));
+			route.setStartLocation(locations.get(i));
+			route.setEndLocation(locations.get((i + 1) % locations.size()));
+			route.setEstimatedDuration(Duration.ofHours(2));
+			route.getStopLocationIds().add(locations.get(2).getId());
+			route.getStopLocationIds().add(locations.get(3).getId());
+			route.getImageUrls().add("https://images.example.com/routes/" + i + ".jpg");
+			route.setPublic(true);
+			entityManager.persist(route);
+		}
+		entityManager.flush();
+	}
+
+	@Test
+	void feedPages() {
+		assertDiaryPage(() -> diaryRepository.findFeedByUser(users.get(0).getId(), Long.MAX_VALUE, Limit.of(PAGE_SIZE)));
+		assertDiaryPage(() -> diaryRepository.findFeedByLocation(locations.get(0).getId(), Long.MAX_VALUE,
+				Limit.of(PAGE_SIZE)));
+		assertDiaryPage(() -> diaryRepository.findFeedByTag("lisbon", Long.MAX_VALUE, Limit.of(PAGE_SIZE)));
+		assertDiaryPage(() -> diaryRepository.findPublicFeedByUser(users.get(1).getId(), Long.MAX_VALUE,
+				Limit.of(PAGE_SIZE)));
+	}
+
+	@Test
+	void diaryLists() {
+		assertRowPage(() -> diaryRepository.findRowsByUserId(users.get(0).getId()));
+		assertRowPage(() -> diaryRepository.findRowsByLocationId(locations.get(0).getId()));
+		assertRowPage(() -> diaryRepository.findPopularRows(Limit.of(PAGE_SIZE)));
+		assertRowPage(() -> diaryRepository.findRecommendedRows(users.get(0).getId(), Limit.of(PAGE_SIZE)));
+		assertRowPage(() -> diaryRepository.findRowsByTag("lisbon"));
+	}
+
+	@Test
+	void searchResults() {
+		List<Long> diaryIds = diaries.subList(0, PAGE_SIZE).stream().map(Diary::getId).toList();
+		assertDiaryPage(() -> diaryRepository.findAllById(diaryIds));
+
+		List<Long> locationIds = locations.stream().map(Location::getId).toList();
+		assertThat(countStatements(() -> FetchPlans.initializeLocations(locationRepository.findAllById(locationIds))))
+				.isEqualTo(STATEMENTS_PER_PAGE);
+	}
+
+	@Test
+	void routeLists() {
+		assertRoutePage(() -> routeRepository.findRowsByUserId(users.get(0).getId()));
+		assertRoutePage(() -> routeRepository.findRowsByStartLocationId(locations.get(0).getId()));
+		assertRoutePage(() -> routeRepository.findNewestPublicRows(Limit.of(PAGE_SIZE)));
+	}
+
+	/**
+	 * Loads a page of diaries, initializes their collections and reads their author and
+	 * location, as serializing them does.
+	 */
+	private void assertDiaryPage(Supplier<List<Diary>> query) {
+		long statements = countStatements(() -> {
+			List<Diary> page = FetchPlans.initializeDiaries(query.get());
+			assertThat(page).isNotEmpty();
+			page.forEach(diary -> {
+				assertThat(diary.getUser().getUsername()).isNotNull();
+				assertThat(diary.getLocation().getName()).isNotNull();
+			});
+			return page;
+		});
+		assertThat(statements).isEqualTo(STATEMENTS_PER_PAGE);
+	}
+
+	/**
+	 * Loads a list of diary rows and their tags and image URLs, as building their views does.
+	 */
+	private void assertRowPage(Supplier<List<DiaryRow>> query) {
+		long statements = countStatements(() -> {
+			List<DiaryRow> rows = query.get();
+			assertThat(rows).isNotEmpty();
+			List<Long> ids = rows.stream().map(DiaryRow::getId).toList();
+			assertThat(diaryRepository.findTagsByDiaryIds(ids)).isNotEmpty();
+			assertThat(diaryRepository.findImageUrlsByDiaryIds(ids)).isNotEmpty();
+			return rows;
+		});
+		assertThat(statements).isEqualTo(STATEMENTS_PER_PAGE);
+	}
+
+	/**
+	 * Loads a list of route rows and their stops and image URLs, as building their views does.
+	 */
+	private void assertRoutePage(Supplier<List<RouteRow>> query) {
+		long statements = countStatements(() -> {
+			List<RouteRow> rows = query.get();
+			assertThat(rows).isNotEmpty();
+			rows.forEach(row -> {
+				assertThat(row.getUsername()).isNotNull();
+				assertThat(row.getStartLocationName()).isNotNull();
+				assertThat(row.getEndLocationName()).isNotNull();
+			});
+			List<Long> ids = rows.stream().map(RouteRow::getId).toList();
+			assertThat(routeRepository.findStopsByRouteIds(ids)).isNotEmpty();
+			assertThat(routeRepository.findImageUrlsByRouteIds(ids)).isNotEmpty();
+			return rows;
+		});
+		assertThat(statements).isEqualTo(STATEMENTS_PER_PAGE);
+	}
+
+	private long countStatements(Supplier<?> work) {
+		entityManager.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		work.get();
+		return statistics.getPrepareStatementCount();
+	}
+}
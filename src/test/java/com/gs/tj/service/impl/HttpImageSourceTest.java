@@ -0,0 +1,62 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Image URLs come from users, so the HTTP source must refuse anything but allowed hosts
+ * resolving to public addresses, before any request is sent.
+ */
+class HttpImageSourceTest {
+
+	@Test
+	void refusesHostsOutsideTheAllowList() {
+		HttpImageSource source = source("images.example.com", "localhost");
+
+		assertThatThrownBy(() -> source.open("http://169.254.169.254/latest/meta-data/"))
+				.isInstanceOf(IOException.class).hasMessageContaining("not allowed");
+		assertThatThrownBy(() -> source.open("http://internal.example.com/actuator/env"))
+				.isInstanceOf(IOException.class).hasMessageContaining("not allowed");
+		assertThatThrownBy(() -> source.open("http://user@images.example.com/a.jpg"))
+				.isInstanceOf(IOException.class).hasMessageContaining("not allowed");
+		assertThatThrownBy(() -> source.open("file:///etc/passwd"))
+				.isInstanceOf(IOException.class).hasMessageContaining("Not an HTTP");
+	}
+
+	@Test
+	void refusesAllowedHostsResolvingToNonPublicAddresses() {
+		HttpImageSource source = source("localhost");
+
+		assertThatThrownBy(() -> source.open("http://localhost:8080/actuator/env"))
+				.isInstanceOf(IOException.class).hasMessageContaining("non-public");
+	}
+
+	@Test
+	void classifiesAddresses() throws IOException {
+		for (String address : new String[] { "127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+				"100.64.0.1", "0.0.0.0", "::1", "fe80::1", "fd00::1", "::ffff:10.0.0.1" }) {
+			assertThat(HttpImageSource.isPublic(InetAddress.getByName(address))).as(address).isFalse();
+		}
+		for (String address : new String[] { "93.184.216.34", "8.8.8.8", "2606:4700::1111" }) {
+			assertThat(HttpImageSource.isPublic(InetAddress.getByName(address))).as(address).isTrue();
+		}
+	}
+
+	private static HttpImageSource source(String... allowedHosts) {
+		HttpImageSource source = new HttpImageSource();
+		ReflectionTestUtils.setField(source, "timeout", Duration.ofSeconds(2));
+		ReflectionTestUtils.setField(source, "maxSize", DataSize.ofMegabytes(1));
+		ReflectionTestUtils.setField(source, "allowedHosts", Set.of(allowedHosts));
+		source.createClient();
+		return source;
+	}
+}
@@ -0,0 +1,21 @@
+package com.gs.tj.service.impl;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+/**
+ * A {@link DataJpaTest} on the embedded test database, whose schema is created from the
+ * entities when the context starts and dropped when it closes. Further properties can be
+ * added with {@code @TestPropertySource}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@interface JpaSliceTest {
+}
@@ -0,0 +1,186 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.Location;
+import com.gs.tj.entity.User;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.LocationRepository;
+import com.gs.tj.service.ImageSource;
+
+/**
+ * Builds a memories archive from images in a local directory standing in for the object
+ * store. The first image is slowed down, so later images arrive before it, and the window
+ * is smaller than the number of entries; the archive must still list its entries in
+ * travel date order, each image once.
+ */
+@JpaSliceTest
+class MemoriesZipWriterTest {
+
+	private static final String CDN = "https://images.example.com/";
+	private static final byte[] JPEG = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3, 4 };
+	private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', 13, 10, 26, 10, 5, 6 };
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private DiaryRepository diaryRepository;
+
+	@Autowired
+	private LocationRepository locationRepository;
+
+	@TempDir
+	private Path directory;
+
+	private User user;
+	private Location harbour;
+	private Diary first;
+	private Diary second;
+	private Diary third;
+
+	@BeforeEach
+	void seed() throws IOException {
+		Files.createDirectories(directory.resolve("diaries"));
+		Files.createDirectories(directory.resolve("locations"));
+		Files.write(directory.resolve("diaries/shared.jpg"), JPEG);
+		Files.write(directory.resolve("diaries/notes.txt"), "notes ".repeat(100).getBytes(StandardCharsets.UTF_8));
+		Files.write(directory.resolve("locations/harbour.png"), PNG);
+
+		user = entityManager.persist(TestUsers.user("traveller"));
+
+		harbour = new Location();
+		harbour.setName("Harbour");
+		harbour.setCountry("Portugal");
+		harbour.setCity("Porto");
+		harbour.setLatitude(41.14);
+		harbour.setLongitude(-8.61);
+		harbour.getImageUrls().add(CDN + "locations/harbour.png");
+		entityManager.persist(harbour);
+
+		first = diary("First", LocalDateTime.of(2024, 5, 1, 9, 0), harbour, "diaries/shared.jpg");
+		second = diary("Second", LocalDateTime.of(2024, 5, 2, 9, 0), null,
+				"diaries/shared.jpg", "diaries/notes.txt", "diaries/missing.jpg");
+		third = diary("Third", LocalDateTime.of(2024, 5, 3, 9, 0), harbour);
+		diary("Out of range", LocalDateTime.of(2024, 6, 1, 9, 0), harbour, "diaries/shared.jpg");
+		entityManager.flush();
+	}
+
+	@Test
+	void writesEntriesInTravelOrderAndEachImageOnce() throws IOException {
+		LocalImageSource local = new LocalImageSource(directory);
+		ImageSource slowFirstImage = url -> {
+			if (url.endsWith("harbour.png")) {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return local.open(url);
+		};
+		MemoriesZipWriter writer = new MemoriesZipWriter(diaryRepository, locationRepository, slowFirstImage,
+				new TransactionTemplate(transactionManager), new ObjectMapper(), 2, 3, 1024, 1024 * 1024);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(user.getId(), LocalDateTime.of(2024, 5, 1, 0, 0), LocalDateTime.of(2024, 6, 1, 0, 0), out);
+		Map<String, Content> entries = read(out.toByteArray());
+
+		String harbourImage = MemoriesZipWriter.imageName(CDN + "locations/harbour.png");
+		String sharedImage = MemoriesZipWriter.imageName(CDN + "diaries/shared.jpg");
+		String notes = MemoriesZipWriter.imageName(CDN + "diaries/notes.txt");
+		assertThat(entries.keySet()).containsExactly(
+				"locations/" + harbour.getId() + ".json",
+				harbourImage,
+				"diaries/2024-05-01_" + first.getId() + ".json",
+				sharedImage,
+				"diaries/2024-05-02_" + second.getId() + ".json",
+				notes,
+				"diaries/2024-05-03_" + third.getId() + ".json",
+				"missing-images.txt");
+
+		assertThat(entries.get(harbourImage).method()).isEqualTo(ZipEntry.STORED);
+		assertThat(entries.get(harbourImage).data()).isEqualTo(PNG);
+		assertThat(entries.get(sharedImage).method()).isEqualTo(ZipEntry.STORED);
+		assertThat(entries.get(sharedImage).data()).isEqualTo(JPEG);
+		assertThat(entries.get(notes).method()).isEqualTo(ZipEntry.DEFLATED);
+		assertThat(new String(entries.get("missing-images.txt").data(), StandardCharsets.UTF_8))
+				.isEqualTo(CDN + "diaries/missing.jpg\n");
+
+		JsonNode diary = new ObjectMapper().readTree(entries.get("diaries/2024-05-02_" + second.getId() + ".json").data());
+		assertThat(diary.get("title").asText()).isEqualTo("Second");
+		assertThat(diary.get("images")).hasSize(3);
+		assertThat(diary.get("images").get(2).get("file").asText()).isEqualTo(sharedImage);
+	}
+
+	@Test
+	void writesEachImageWhenTheBudgetOnlyFitsTheNextEntry() throws IOException {
+		MemoriesZipWriter writer = new MemoriesZipWriter(diaryRepository, locationRepository,
+				new LocalImageSource(directory), new TransactionTemplate(transactionManager), new ObjectMapper(),
+				2, 8, 1024, 1);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(user.getId(), LocalDateTime.of(2024, 5, 1, 0, 0), LocalDateTime.of(2024, 6, 1, 0, 0), out);
+		Map<String, Content> entries = read(out.toByteArray());
+
+		assertThat(entries).hasSize(8);
+		assertThat(entries.get(MemoriesZipWriter.imageName(CDN + "locations/harbour.png")).data()).isEqualTo(PNG);
+		assertThat(entries.get(MemoriesZipWriter.imageName(CDN + "diaries/shared.jpg")).data()).isEqualTo(JPEG);
+		assertThat(entries.get(MemoriesZipWriter.imageName(CDN + "diaries/notes.txt")).data())
+				.isEqualTo("notes ".repeat(100).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Diary diary(String title, LocalDateTime travelDate, Location location, String... images) {
+		Diary diary = new Diary();
+		diary.setTitle(title);
+		diary.setContent("Content of " + title);
+		diary.setUser(user);
+		diary.setLocation(location);
+		diary.setTravelDate(travelDate);
+		for (String image : images) {
+			diary.getImageUrls().add(CDN + image);
+		}
+		return entityManager.persist(diary);
+	}
+
+	private record Content(int method, byte[] data) {
+	}
+
+	private static Map<String, Content> read(byte[] archive) throws IOException {
+		Map<String, Content> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				assertThat(entries).doesNotContainKey(entry.getName());
+				entries.put(entry.getName(), new Content(entry.getMethod(), zip.readAllBytes()));
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,47 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+class ReloadableIndexTest {
+
+	private final ReloadableIndex<Set<Long>> index = new ReloadableIndex<>();
+
+	@Test
+	void writesBeforeTheFirstLoadAreDropped() {
+		index.apply(ids -> ids.add(1L));
+
+		assertThat(index.get()).isNull();
+	}
+
+	@Test
+	void writesDuringAReloadSurviveTheSwap() {
+		Set<Long> old = index.reload(ConcurrentHashMap::newKeySet, ids -> ids.add(1L));
+
+		Set<Long> fresh = index.reload(ConcurrentHashMap::newKeySet, ids -> {
+			ids.add(1L);
+			index.apply(target -> target.add(2L));
+			assertThat(index.get()).isSameAs(old);
+		});
+
+		assertThat(index.get()).isSameAs(fresh).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(old).containsExactlyInAnyOrder(1L, 2L);
+	}
+
+	@Test
+	void failedReloadKeepsTheCurrentIndex() {
+		Set<Long> current = index.reload(ConcurrentHashMap::newKeySet, ids -> ids.add(1L));
+
+		assertThatThrownBy(() -> index.reload(ConcurrentHashMap::newKeySet, ids -> {
+			throw new IllegalStateException("database unavailable");
+		})).isInstanceOf(IllegalStateException.class);
+		index.apply(target -> target.add(2L));
+
+		assertThat(index.get()).isSameAs(current).containsExactlyInAnyOrder(1L, 2L);
+	}
+}
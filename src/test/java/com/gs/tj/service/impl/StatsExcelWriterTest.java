@@ -0,0 +1,129 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.Location;
+import com.gs.tj.entity.User;
+import com.gs.tj.repository.DiaryRepository;
+
+/**
+ * Writes the statistics workbook of a small set of diaries and reads the aggregates back.
+ * A page size of one and a window of two rows make the location sheet span several pages
+ * and flush rows to temporary files.
+ */
+@JpaSliceTest
+class StatsExcelWriterTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private DiaryRepository diaryRepository;
+
+	private User user;
+
+	@BeforeEach
+	void seed() {
+		user = entityManager.persist(TestUsers.user("traveller"));
+
+		Location porto = location("Harbour", "Porto", "Portugal", "coast");
+		Location lisbon = location("Castle", "Lisbon", "Portugal", "history");
+		Location rome = location("Forum", "Rome", "Italy", "history");
+
+		diary(porto, LocalDateTime.of(2024, 5, 1, 9, 0), 3);
+		diary(porto, LocalDateTime.of(2024, 5, 20, 9, 0), 4);
+		diary(lisbon, LocalDateTime.of(2024, 6, 2, 9, 0), 5);
+		diary(rome, LocalDateTime.of(2024, 6, 30, 23, 0), 1);
+		diary(null, LocalDateTime.of(2024, 6, 15, 9, 0), 0);
+		diary(rome, LocalDateTime.of(2024, 7, 1, 9, 0), 100);
+		entityManager.flush();
+	}
+
+	@Test
+	void aggregatesByCountryMonthCategoryAndLocation() throws IOException {
+		StatsExcelWriter writer = new StatsExcelWriter(diaryRepository, new TransactionTemplate(transactionManager), 1, 2);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(user.getId(), user.getUsername(), LocalDate.of(2024, 5, 1), LocalDate.of(2024, 6, 30), out);
+
+		try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+			Sheet summary = workbook.getSheet("Summary");
+			assertThat(summary.getRow(0).getCell(1).getStringCellValue()).isEqualTo("traveller");
+			assertThat(summary.getRow(3).getCell(1).getNumericCellValue()).isEqualTo(5);
+			assertThat(summary.getRow(4).getCell(1).getNumericCellValue()).isEqualTo(3);
+			assertThat(summary.getRow(5).getCell(1).getNumericCellValue()).isEqualTo(2);
+			assertThat(summary.getRow(6).getCell(1).getNumericCellValue()).isEqualTo(13);
+			assertThat(summary.getRow(7).getCell(1).getLocalDateTimeCellValue().toLocalDate())
+					.isEqualTo(LocalDate.of(2024, 5, 1));
+
+			Sheet countries = workbook.getSheet("By country");
+			assertThat(countries.getLastRowNum()).isEqualTo(3);
+			assertRow(countries.getRow(1), "Portugal", 3, 12);
+			assertRow(countries.getRow(2), "Italy", 1, 1);
+			assertRow(countries.getRow(3), "Unknown", 1, 0);
+
+			Sheet months = workbook.getSheet("By month");
+			assertThat(months.getLastRowNum()).isEqualTo(2);
+			assertRow(months.getRow(1), "2024-05", 2, 7);
+			assertRow(months.getRow(2), "2024-06", 3, 6);
+
+			Sheet categories = workbook.getSheet("By category");
+			assertRow(categories.getRow(1), "coast", 2, 7);
+			assertRow(categories.getRow(2), "history", 2, 6);
+			assertRow(categories.getRow(3), "Unknown", 1, 0);
+
+			Sheet locations = workbook.getSheet("By location");
+			assertThat(locations.getLastRowNum()).isEqualTo(3);
+			assertThat(locations.getRow(1).getCell(0).getStringCellValue()).isEqualTo("Harbour");
+			assertThat(locations.getRow(1).getCell(4).getNumericCellValue()).isEqualTo(2);
+			assertThat(locations.getRow(3).getCell(0).getStringCellValue()).isEqualTo("Forum");
+		}
+	}
+
+	private static void assertRow(Row row, String label, int diaries, int likes) {
+		assertThat(row.getCell(0).getStringCellValue()).isEqualTo(label);
+		assertThat(row.getCell(1).getNumericCellValue()).isEqualTo(diaries);
+		assertThat(row.getCell(4).getNumericCellValue()).isEqualTo(likes);
+	}
+
+	private Location location(String name, String city, String country, String category) {
+		Location location = new Location();
+		location.setName(name);
+		location.setCity(city);
+		location.setCountry(country);
+		location.setCategory(category);
+		location.setLatitude(40.0);
+		location.setLongitude(-8.0);
+		return entityManager.persist(location);
+	}
+
+	private void diary(Location location, LocalDateTime travelDate, int likes) {
+		Diary diary = new Diary();
+		diary.setTitle("Diary at " + travelDate);
+		diary.setContent("Content");
+		diary.setUser(user);
+		diary.setLocation(location);
+		diary.setTravelDate(travelDate);
+		diary.setLikes(likes);
+		entityManager.persist(diary);
+	}
+}
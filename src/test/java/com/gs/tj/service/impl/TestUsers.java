@@ -0,0 +1,23 @@
+package com.gs.tj.service.impl;
+
+import com.gs.tj.entity.User;
+
+/**
+ * Unsaved users for tests that need an owner for their diaries, locations and routes.
+ */
+final class TestUsers {
+
+	private TestUsers() {
+	}
+
+	/**
+	 * Returns a new user with the given username, an address derived from it and a fixed password.
+	 */
+	static User user(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setEmail(username + "@example.com");
+		user.setPassword("secret-password");
+		return user;
+	}
+}
@@ -0,0 +1,212 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.tj.entity.User;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.FavoriteRepository;
+import com.gs.tj.repository.RouteRepository;
+import com.gs.tj.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exports a timeline of {@link #DIARIES} diaries and samples the retained heap, after a
+ * full collection, every {@link #SAMPLE_BYTES} bytes of output. The retained heap must stay
+ * within {@link #MAX_HEAP_GROWTH} of what it was before the export, a fraction of the
+ * size of the document written. Runs outside a test transaction, as the writer reads each
+ * page in a transaction of its own. Tagged as a benchmark, so it only runs with
+ * {@code -Dtest.excludedGroups= -Dgroups=benchmark}.
+ */
+@Slf4j
+@Tag("benchmark")
+@JpaSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TimelineJsonWriterMemoryBenchmarkTest {
+
+	private static final int DIARIES = 100_000;
+	/** Every tenth diary has no travel date and is written after the dated ones. */
+	private static final int UNDATED_EVERY = 10;
+	private static final int PAGE_SIZE = 500;
+	private static final int INSERT_BATCH = 1_000;
+	private static final long SAMPLE_BYTES = 4L << 20;
+	private static final long MAX_HEAP_GROWTH = 16L << 20;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private DiaryRepository diaryRepository;
+
+	@Autowired
+	private RouteRepository routeRepository;
+
+	@Autowired
+	private FavoriteRepository favoriteRepository;
+
+	@TempDir
+	private Path directory;
+
+	@AfterEach
+	void clean() {
+		jdbcTemplate.update("DELETE FROM diaries");
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void heapStaysFlatWhileExportingAHundredThousandDiaries() throws IOException {
+		User user = seed();
+		TimelineJsonWriter writer = new TimelineJsonWriter(diaryRepository, routeRepository, favoriteRepository,
+				new TransactionTemplate(transactionManager), new ObjectMapper().findAndRegisterModules(), PAGE_SIZE);
+		Path file = directory.resolve("timeline.json");
+
+		long baseline = retainedHeap();
+		long start = System.nanoTime();
+		HeapSamplingOutputStream out;
+		try (HeapSamplingOutputStream sampling = new HeapSamplingOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out = sampling;
+			writer.write(user.getId(), user.getUsername(), sampling);
+		}
+		long elapsed = System.nanoTime() - start;
+		long growth = out.maxRetained - baseline;
+
+		log.info("{} diaries, {} bytes in {} ms, {} samples, max retained heap growth {} KB",
+				DIARIES, out.count, elapsed / 1_000_000, out.samples, growth / 1024);
+		assertThat(out.samples).isGreaterThan(5);
+		assertThat(out.count).isGreaterThan(4 * MAX_HEAP_GROWTH);
+		assertThat(growth).as("max retained heap growth over %d bytes of output", out.count)
+				.isLessThan(MAX_HEAP_GROWTH);
+
+		assertDiariesInTimelineOrder(file);
+	}
+
+	private User seed() {
+		User user = userRepository.save(TestUsers.user("traveller"));
+
+		String content = "A long day of walking through old streets, markets and harbours. ".repeat(8);
+		Timestamp now = Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 12, 0));
+		List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+		for (int i = 0; i < DIARIES; i++) {
+			// Travel dates are shuffled against insertion order, so the export cannot follow ids.
+			Timestamp travelDate = i % UNDATED_EVERY == 0 ? null
+					: Timestamp.valueOf(LocalDateTime.of(2000, 1, 1, 8, 0).plusHours((i * 7919L) % DIARIES));
+			batch.add(new Object[] { "Day " + i, content + i, user.getId(), travelDate, now, now });
+			if (batch.size() == INSERT_BATCH) {
+				insertDiaries(batch);
+				batch.clear();
+			}
+		}
+		insertDiaries(batch);
+		return user;
+	}
+
+	private void insertDiaries(List<Object[]> batch) {
+		jdbcTemplate.batchUpdate("INSERT INTO diaries (title, content, user_id, travel_date, likes, is_public, "
+				+ "created_at, updated_at, version) VALUES (?, ?, ?, ?, 0, TRUE, ?, ?, 0)", batch);
+	}
+
+	private static void assertDiariesInTimelineOrder(Path file) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		int count = 0;
+		int undated = 0;
+		String previous = "";
+		try (InputStream in = Files.newInputStream(file); JsonParser parser = mapper.getFactory().createParser(in)) {
+			while (parser.nextToken() != null) {
+				if (parser.currentToken() == JsonToken.FIELD_NAME && "diaries".equals(parser.currentName())) {
+					break;
+				}
+			}
+			assertThat(parser.nextToken()).isEqualTo(JsonToken.START_ARRAY);
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				JsonNode diary = mapper.readTree(parser);
+				count++;
+				if (diary.get("travelDate").isNull()) {
+					undated++;
+				} else {
+					String travelDate = diary.get("travelDate").asText();
+					assertThat(undated).isZero();
+					assertThat(travelDate).isGreaterThanOrEqualTo(previous);
+					previous = travelDate;
+				}
+			}
+			assertThat(parser.currentToken()).isEqualTo(JsonToken.END_ARRAY);
+		}
+		assertThat(count).isEqualTo(DIARIES);
+		assertThat(undated).isEqualTo(DIARIES / UNDATED_EVERY);
+	}
+
+	private static long retainedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Samples the retained heap each time another {@link #SAMPLE_BYTES} bytes pass through.
+	 */
+	private static final class HeapSamplingOutputStream extends FilterOutputStream {
+		long count;
+		long maxRetained;
+		int samples;
+		private long nextSample = SAMPLE_BYTES;
+
+		HeapSamplingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			advance(1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			advance(len);
+		}
+
+		private void advance(int len) {
+			count += len;
+			if (count >= nextSample) {
+				nextSample += SAMPLE_BYTES;
+				maxRetained = Math.max(maxRetained, retainedHeap());
+				samples++;
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.gs.tj.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gs.tj.entity.Diary;
+import com.gs.tj.entity.User;
+import com.gs.tj.repository.DiaryRepository;
+import com.gs.tj.repository.UserRepository;
+
+/**
+ * Unfollows a pulled author inside a committed transaction, against a stub Redis, and
+ * checks that the author's diaries are merged back into the remaining follower's timeline.
+ * Runs outside a test transaction, so the unfollow really commits.
+ */
+@JpaSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TimelineServiceImplTest {
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private DiaryRepository diaryRepository;
+
+	@SuppressWarnings("unchecked")
+	private final SetOperations<String, String> setOperations = mock(SetOperations.class);
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	private TimelineServiceImpl timelineService;
+
+	private User author;
+	private User remaining;
+	private User leaving;
+	private Diary diary;
+
+	@BeforeEach
+	void seed() {
+		when(redisTemplate.opsForSet()).thenReturn(setOperations);
+		when(setOperations.remove(anyString(), any())).thenReturn(1L);
+		timelineService = new TimelineServiceImpl(redisTemplate, diaryRepository, userRepository);
+		ReflectionTestUtils.setField(timelineService, "maxSize", 800);
+		ReflectionTestUtils.setField(timelineService, "pullThreshold", 3L);
+
+		author = userRepository.save(TestUsers.user("author"));
+		remaining = TestUsers.user("remaining");
+		remaining.getFollowing().add(author);
+		remaining = userRepository.save(remaining);
+		leaving = TestUsers.user("leaving");
+		leaving.getFollowing().add(author);
+		leaving = userRepository.save(leaving);
+
+		diary = new Diary();
+		diary.setTitle("Harbour");
+		diary.setContent("A day at the harbour");
+		diary.setUser(author);
+		diary.setPublic(true);
+		diary = diaryRepository.save(diary);
+	}
+
+	@AfterEach
+	void clean() {
+		diaryRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void unfollowThatReturnsAnAuthorToFanOutBackfillsTheRemainingFollowers() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			User follower = userRepository.findById(leaving.getId()).orElseThrow();
+			follower.getFollowing().removeIf(followed -> followed.getId().equals(author.getId()));
+			timelineService.onUnfollow(leaving.getId(), author.getId());
+			verify(setOperations, never()).remove(anyString(), any());
+		});
+
+		verify(setOperations).remove("feed:pull-authors", author.getId().toString());
+		ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+		verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), eq("800"), eq(diary.getId().toString()));
+		assertThat(keys.getValue()).containsExactly("timeline:" + remaining.getId());
+		verify(redisTemplate).delete(List.of("timeline:" + remaining.getId() + ":pull"));
+	}
+}